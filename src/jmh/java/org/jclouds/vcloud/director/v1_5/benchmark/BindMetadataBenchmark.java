@@ -0,0 +1,89 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.vcloud.director.v1_5.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.jclouds.http.HttpRequest;
+import org.jclouds.io.Payload;
+import org.jclouds.vcloud.director.v1_5.binders.BindMapAsMetadata;
+import org.jclouds.vcloud.director.v1_5.xml.VCloudDirectorJAXBParser;
+import org.jclouds.xml.XMLParser;
+import org.jclouds.xml.internal.JAXBParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.ByteStreams;
+
+/**
+ * Throughput of binding a request payload the way {@code @BinderParam(BindMapAsMetadata.class)}
+ * methods do, marshalling through the context's {@link XMLParser}, and reading it back as the http
+ * executor sends it. The parser types are as in {@link UnmarshalBenchmark}; those other than
+ * {@code jclouds} bind an {@link org.jclouds.vcloud.director.v1_5.xml.XMLPayload}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BindMetadataBenchmark {
+
+   private static final HttpRequest REQUEST = HttpRequest.builder().method("POST")
+         .endpoint(URI.create("https://vcd.example.com/api/vApp/vm-1/metadata")).build();
+
+   @Param({ "jclouds", "unpooled", "pooled" })
+   public String parserType;
+
+   private BindMapAsMetadata binder;
+   private Map<String, String> metadata;
+
+   @Setup
+   public void setup() {
+      XMLParser parser = "jclouds".equals(parserType) ? new JAXBParser("false")
+            : new VCloudDirectorJAXBParser("false", false, "unpooled".equals(parserType) ? 0 : 32);
+      binder = new BindMapAsMetadata(parser);
+      metadata = ImmutableMap.of("owner", "ops", "environment", "production", "costCentre", "1234");
+   }
+
+   @Benchmark
+   public long bind() throws IOException {
+      Payload payload = binder.bindToRequest(REQUEST.toBuilder().build(), metadata).getPayload();
+      // as the http executor does: the length for the headers, then the body
+      long length = payload.getContentMetadata().getContentLength();
+      InputStream body = payload.openStream();
+      try {
+         return length + ByteStreams.exhaust(body);
+      } finally {
+         body.close();
+      }
+   }
+}
@@ -0,0 +1,130 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.vcloud.director.v1_5.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.jclouds.vcloud.director.v1_5.xml.VCloudDirectorJAXBParser;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.ByteStreams;
+
+/**
+ * The cost of reading vCD payloads as the server sends them with each
+ * {@code Accept-Encoding} the client may negotiate: {@code decode} only decompresses the body,
+ * {@code parse} also unmarshals it.
+ * <p>
+ * Each benchmark reports, besides its throughput, {@code wireBytes} and {@code documentBytes}: the
+ * bytes per second it reads off the wire and the bytes per second of XML they decompress to.
+ * Dividing {@code wireBytes} by the throughput gives the bytes per listing, and the inverse of
+ * {@code wireBytes} the time spent per byte received. The setup also prints the size of each
+ * payload in each encoding.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CompressionBenchmark {
+
+   @Param({ "VAPP_1K_VMS", "QUERY_RESULT_RECORDS_10K", "ENVELOPE" })
+   public Payloads payload;
+
+   @Param({ "identity", "gzip", "deflate" })
+   public String encoding;
+
+   private VCloudDirectorJAXBParser parser;
+   private byte[] document;
+   private byte[] wire;
+
+   @AuxCounters(AuxCounters.Type.OPERATIONS)
+   @State(Scope.Thread)
+   public static class Bytes {
+      public long wireBytes;
+      public long documentBytes;
+
+      @Setup(Level.Iteration)
+      public void reset() {
+         wireBytes = 0;
+         documentBytes = 0;
+      }
+   }
+
+   @Setup
+   public void setup() throws IOException {
+      parser = new VCloudDirectorJAXBParser("false", true, 32);
+      document = payload.getXml().getBytes(Charsets.UTF_8);
+      wire = encode(document);
+   }
+
+   private byte[] encode(byte[] bytes) throws IOException {
+      if ("identity".equals(encoding))
+         return bytes;
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      DeflaterOutputStream encoder = "gzip".equals(encoding) ? new GZIPOutputStream(out) : new DeflaterOutputStream(out);
+      encoder.write(bytes);
+      encoder.close();
+      return out.toByteArray();
+   }
+
+   private InputStream decoding(InputStream in) throws IOException {
+      if ("gzip".equals(encoding))
+         return new GZIPInputStream(in);
+      if ("deflate".equals(encoding))
+         return new InflaterInputStream(in);
+      return in;
+   }
+
+   @Benchmark
+   public byte[] decode(Bytes bytes) throws IOException {
+      byte[] decoded = ByteStreams.toByteArray(decoding(new ByteArrayInputStream(wire)));
+      bytes.wireBytes += wire.length;
+      bytes.documentBytes += decoded.length;
+      return decoded;
+   }
+
+   @Benchmark
+   public Object parse(Bytes bytes) throws IOException {
+      // as the response parsers do, reading the decompressed stream into the document first
+      String xml = new String(ByteStreams.toByteArray(decoding(new ByteArrayInputStream(wire))), Charsets.UTF_8);
+      bytes.wireBytes += wire.length;
+      bytes.documentBytes += document.length;
+      return parser.fromXML(xml, payload.getType());
+   }
+}
@@ -0,0 +1,93 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.vcloud.director.v1_5.benchmark;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.io.IOException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.jclouds.vcloud.director.v1_5.domain.Task;
+import org.jclouds.vcloud.director.v1_5.domain.VApp;
+import org.jclouds.vcloud.director.v1_5.domain.VAppTemplate;
+import org.jclouds.vcloud.director.v1_5.domain.Vm;
+import org.jclouds.vcloud.director.v1_5.domain.dmtf.Envelope;
+import org.jclouds.vcloud.director.v1_5.domain.query.QueryResultRecords;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Resources;
+
+/**
+ * The XML payloads the benchmarks parse: the test fixtures as they are, and scaled up variants
+ * with their repeated element copied (with fresh uuids) to the sizes large organisations see.
+ */
+public enum Payloads {
+
+   VAPP("/vapp/vApp.xml", VApp.class, "Vm", 1),
+   VAPP_1K_VMS("/vapp/vApp.xml", VApp.class, "Vm", 1000),
+   VM("/vm/vm.xml", Vm.class, null, 1),
+   VAPP_TEMPLATE("/vapptemplate/vAppTemplate.xml", VAppTemplate.class, null, 1),
+   ENVELOPE("/dmtf/envelope.xml", Envelope.class, null, 1),
+   QUERY_RESULT_RECORDS("/query/allCatalogs.xml", QueryResultRecords.class, "CatalogRecord", 1),
+   QUERY_RESULT_RECORDS_10K("/query/allCatalogs.xml", QueryResultRecords.class, "CatalogRecord", 10000),
+   TASK("/task/task.xml", Task.class, null, 1);
+
+   private static final Pattern UUID = Pattern
+         .compile("[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}");
+
+   private final String resource;
+   private final Class<?> type;
+   private final String repeatedElement;
+   private final int copies;
+
+   Payloads(String resource, Class<?> type, String repeatedElement, int copies) {
+      this.resource = resource;
+      this.type = type;
+      this.repeatedElement = repeatedElement;
+      this.copies = copies;
+   }
+
+   public Class<?> getType() {
+      return type;
+   }
+
+   public String getXml() throws IOException {
+      String xml = Resources.toString(Resources.getResource(Payloads.class, resource), Charsets.UTF_8);
+      return copies > 1 ? repeat(xml, repeatedElement, copies) : xml;
+   }
+
+   /**
+    * @return the document with its first {@code element} occurring {@code copies} times in a row
+    */
+   static String repeat(String xml, String element, int copies) {
+      int start = xml.indexOf("<" + element + " ");
+      checkArgument(start >= 0, "no %s in payload", element);
+      int openEnd = xml.indexOf('>', start);
+      int end = xml.charAt(openEnd - 1) == '/' ? openEnd + 1 : xml.indexOf("</" + element + ">", start)
+            + element.length() + 3;
+      String original = xml.substring(start, end);
+
+      StringBuilder builder = new StringBuilder(xml.length() + original.length() * copies);
+      builder.append(xml, 0, end);
+      for (int i = 1; i < copies; i++) {
+         Matcher uuid = UUID.matcher(original);
+         builder.append('\n').append(uuid.replaceAll(String.format("%08x-0000-4000-8000-%012x", i, i)));
+      }
+      return builder.append(xml, end, xml.length()).toString();
+   }
+}
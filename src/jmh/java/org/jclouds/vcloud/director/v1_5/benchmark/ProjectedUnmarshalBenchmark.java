@@ -0,0 +1,75 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.vcloud.director.v1_5.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.jclouds.vcloud.director.v1_5.domain.VApp;
+import org.jclouds.vcloud.director.v1_5.functions.ParseVAppForNodes;
+import org.jclouds.vcloud.director.v1_5.xml.VCloudDirectorJAXBParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.base.Charsets;
+
+/**
+ * Reading a whole vApp against reading it through {@link ParseVAppForNodes#PROJECTION}, as
+ * listing nodes does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProjectedUnmarshalBenchmark {
+
+   @Param({ "VAPP", "VAPP_1K_VMS" })
+   public Payloads payload;
+
+   private VCloudDirectorJAXBParser parser;
+   private String xml;
+   private byte[] bytes;
+
+   @Setup
+   public void setup() throws IOException {
+      parser = new VCloudDirectorJAXBParser("false", true, 32);
+      xml = payload.getXml();
+      bytes = xml.getBytes(Charsets.UTF_8);
+   }
+
+   @Benchmark
+   public VApp whole() throws IOException {
+      return parser.fromXML(xml, VApp.class);
+   }
+
+   @Benchmark
+   public VApp forNodes() throws IOException {
+      return parser.fromXML(new ByteArrayInputStream(bytes), VApp.class, ParseVAppForNodes.PROJECTION);
+   }
+}
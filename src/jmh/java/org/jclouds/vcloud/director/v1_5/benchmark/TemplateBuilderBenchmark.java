@@ -0,0 +1,140 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.vcloud.director.v1_5.benchmark;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.inject.Provider;
+
+import org.jclouds.compute.domain.Hardware;
+import org.jclouds.compute.domain.Image;
+import org.jclouds.compute.domain.ImageBuilder;
+import org.jclouds.compute.domain.OperatingSystem;
+import org.jclouds.compute.domain.OsFamily;
+import org.jclouds.compute.domain.Template;
+import org.jclouds.compute.domain.TemplateBuilder;
+import org.jclouds.compute.options.TemplateOptions;
+import org.jclouds.compute.strategy.GetImageStrategy;
+import org.jclouds.compute.suppliers.ImageCacheSupplier;
+import org.jclouds.domain.Location;
+import org.jclouds.domain.LocationBuilder;
+import org.jclouds.domain.LocationScope;
+import org.jclouds.rest.AuthorizationException;
+import org.jclouds.vcloud.director.v1_5.builders.TemplateIndexes;
+import org.jclouds.vcloud.director.v1_5.builders.VCloudDirectorTemplateBuilderImpl;
+import org.jclouds.vcloud.director.v1_5.compute.util.VirtualHardwareSpace;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.google.common.collect.ImmutableSet;
+import com.google.inject.util.Providers;
+
+/**
+ * Resolving a template the way {@code templateBuilder()...build()} does, against catalogs of
+ * {@code images} templates and the hardware profiles {@code VirtualHardwareConfigSupplier}
+ * synthesises for up to 16 CPUs and 1 TB of RAM.
+ * <p>
+ * {@code reused} builds repeat the criteria of earlier ones, reusing the template they resolved
+ * without reading the image cache, as an autoscaler asking for the same template does; {@code searched} builds search the
+ * {@code TemplateIndex} of the context, as builds with new criteria do between refreshes of the
+ * image cache; {@code rebuilt} ones index the catalog first, as the first build after a refresh
+ * does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TemplateBuilderBenchmark {
+
+   private static final Location VDC = new LocationBuilder().scope(LocationScope.ZONE).id("vdc").description("vdc")
+         .build();
+   private static final OsFamily[] FAMILIES = { OsFamily.UBUNTU, OsFamily.CENTOS, OsFamily.WINDOWS, OsFamily.SUSE };
+
+   @Param({ "100", "5000" })
+   public int images;
+
+   @Param({ "reused", "searched", "rebuilt" })
+   public String index;
+
+   private Supplier<Set<? extends Location>> locations;
+   private ImageCacheSupplier imageCache;
+   private VirtualHardwareSpace space;
+   private Supplier<Set<? extends Hardware>> hardwares;
+   private TemplateIndexes indexes;
+
+   @Setup
+   public void setup() {
+      ImmutableSet.Builder<Image> catalog = ImmutableSet.builder();
+      for (int i = 0; i < images; i++) {
+         String id = "vappTemplate-" + i;
+         catalog.add(new ImageBuilder().ids(id).name(id).status(Image.Status.AVAILABLE)
+               .operatingSystem(OperatingSystem.builder().family(FAMILIES[i % FAMILIES.length])
+                     .version((10 + i % 9) + ".04").is64Bit(i % 5 != 0).description(id).build()).build());
+      }
+      locations = Suppliers.<Set<? extends Location>> ofInstance(ImmutableSet.of(VDC));
+      indexes = new TemplateIndexes(3600);
+      // as the context supplies them, so that the indexes count their refreshes
+      imageCache = new ImageCacheSupplier(
+            indexes.refreshing(Suppliers.<Set<? extends Image>> ofInstance(catalog.build())), 3600,
+            new AtomicReference<AuthorizationException>(), Providers.<GetImageStrategy> of(null));
+      space = new VirtualHardwareSpace(16, 512, 1024 * 1024, "");
+      hardwares = Suppliers.<Set<? extends Hardware>> ofInstance(space.getHardwares());
+   }
+
+   private TemplateBuilder templateBuilder() {
+      return new VCloudDirectorTemplateBuilderImpl(locations, imageCache, hardwares, Suppliers.ofInstance(VDC),
+            new Provider<TemplateOptions>() {
+               @Override
+               public TemplateOptions get() {
+                  return new TemplateOptions();
+               }
+            }, Providers.<TemplateBuilder> of(null), "rebuilt".equals(index) ? new TemplateIndexes(3600) : indexes,
+            space) {
+         @Override
+         protected List<?> criteria() {
+            return "reused".equals(TemplateBuilderBenchmark.this.index) ? super.criteria() : null;
+         }
+      };
+   }
+
+   @Benchmark
+   public Template byOsAndSize() {
+      return templateBuilder().osFamily(OsFamily.UBUNTU).osVersionMatches("16").os64Bit(true).minCores(2)
+            .minRam(4096).build();
+   }
+
+   @Benchmark
+   public Template byImageId() {
+      return templateBuilder().imageId("vappTemplate-" + (images - 1)).minRam(2048).build();
+   }
+}
@@ -0,0 +1,82 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.vcloud.director.v1_5.benchmark;
+
+import static com.google.common.base.Preconditions.checkState;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.jclouds.vcloud.director.v1_5.xml.VCloudDirectorJAXBParser;
+import org.jclouds.xml.XMLParser;
+import org.jclouds.xml.internal.JAXBParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of unmarshalling vCD payloads the way {@code @JAXBResponseParser} methods do, through
+ * the context's {@link XMLParser}. Run with {@code -prof gc} to also report allocation per op.
+ * <p>
+ * {@code jclouds} is the stock parser, building a context per call; {@code unpooled} is
+ * {@link VCloudDirectorJAXBParser} creating an unmarshaller per call from its cached context, and
+ * {@code pooled} and {@code prewarmed} reuse pooled ones, without and with
+ * {@code jclouds.vcloud-director.xml.prewarm}. Run with {@code -t 8} for many concurrent callers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UnmarshalBenchmark {
+
+   @Param
+   public Payloads payload;
+
+   @Param({ "jclouds", "unpooled", "pooled", "prewarmed" })
+   public String parserType;
+
+   private XMLParser parser;
+   private String xml;
+   private Class<?> type;
+
+   @Setup
+   public void setup() throws IOException {
+      if ("jclouds".equals(parserType))
+         parser = new JAXBParser("false");
+      else
+         parser = new VCloudDirectorJAXBParser("false", "prewarmed".equals(parserType),
+               "unpooled".equals(parserType) ? 0 : 32);
+      xml = payload.getXml();
+      type = payload.getType();
+      checkState(type.isInstance(unmarshal()), "%s did not parse as %s", payload, type);
+   }
+
+   @Benchmark
+   public Object unmarshal() throws IOException {
+      return parser.fromXML(xml, type);
+   }
+}
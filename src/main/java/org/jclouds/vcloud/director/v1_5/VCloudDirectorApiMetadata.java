@@ -23,10 +23,30 @@ import static org.jclouds.Constants.PROPERTY_SESSION_INTERVAL;
 import static org.jclouds.compute.config.ComputeServiceProperties.TIMEOUT_NODE_SUSPENDED;
 import static org.jclouds.compute.config.ComputeServiceProperties.TIMEOUT_NODE_TERMINATED;
 import static org.jclouds.reflect.Reflection2.typeToken;
+import static org.jclouds.vcloud.director.v1_5.VCloudDirectorConstants.PROPERTY_VCLOUD_DIRECTOR_CIRCUIT_BREAKER_FAILURE_THRESHOLD;
+import static org.jclouds.vcloud.director.v1_5.VCloudDirectorConstants.PROPERTY_VCLOUD_DIRECTOR_CIRCUIT_BREAKER_OPEN_DURATION;
+import static org.jclouds.vcloud.director.v1_5.VCloudDirectorConstants.PROPERTY_VCLOUD_DIRECTOR_COMPRESSION;
+import static org.jclouds.vcloud.director.v1_5.VCloudDirectorConstants.PROPERTY_VCLOUD_DIRECTOR_CONDITIONAL_GET_CACHE_MAX_BYTES;
+import static org.jclouds.vcloud.director.v1_5.VCloudDirectorConstants.PROPERTY_VCLOUD_DIRECTOR_ENTITY_CACHE_DERIVE_HREFS;
+import static org.jclouds.vcloud.director.v1_5.VCloudDirectorConstants.PROPERTY_VCLOUD_DIRECTOR_ENTITY_CACHE_MISSING_TTL;
+import static org.jclouds.vcloud.director.v1_5.VCloudDirectorConstants.PROPERTY_VCLOUD_DIRECTOR_ENTITY_CACHE_SIZE;
+import static org.jclouds.vcloud.director.v1_5.VCloudDirectorConstants.PROPERTY_VCLOUD_DIRECTOR_ENVELOPE_CACHE_MAX_WEIGHT;
+import static org.jclouds.vcloud.director.v1_5.VCloudDirectorConstants.PROPERTY_VCLOUD_DIRECTOR_ENVELOPE_CACHE_REFRESH_AFTER;
 import static org.jclouds.vcloud.director.v1_5.VCloudDirectorConstants.PROPERTY_VCLOUD_DIRECTOR_HARDWARE_MAX_CPU;
 import static org.jclouds.vcloud.director.v1_5.VCloudDirectorConstants.PROPERTY_VCLOUD_DIRECTOR_HARDWARE_MAX_RAM;
 import static org.jclouds.vcloud.director.v1_5.VCloudDirectorConstants.PROPERTY_VCLOUD_DIRECTOR_HARDWARE_MIN_RAM;
+import static org.jclouds.vcloud.director.v1_5.VCloudDirectorConstants.PROPERTY_VCLOUD_DIRECTOR_IMAGE_SNAPSHOT_DIRECTORY;
+import static org.jclouds.vcloud.director.v1_5.VCloudDirectorConstants.PROPERTY_VCLOUD_DIRECTOR_INVENTORY_FULL_SYNC_INTERVAL;
+import static org.jclouds.vcloud.director.v1_5.VCloudDirectorConstants.PROPERTY_VCLOUD_DIRECTOR_INVENTORY_MAX_STALENESS;
+import static org.jclouds.vcloud.director.v1_5.VCloudDirectorConstants.PROPERTY_VCLOUD_DIRECTOR_NODE_CONVERSION_PARALLELISM;
 import static org.jclouds.vcloud.director.v1_5.VCloudDirectorConstants.PROPERTY_VCLOUD_DIRECTOR_PREDEFINED_HARDWARE_PROFILES;
+import static org.jclouds.vcloud.director.v1_5.VCloudDirectorConstants.PROPERTY_VCLOUD_DIRECTOR_RETRY_BUDGET_MIN_PER_SECOND;
+import static org.jclouds.vcloud.director.v1_5.VCloudDirectorConstants.PROPERTY_VCLOUD_DIRECTOR_RETRY_BUDGET_RATIO;
+import static org.jclouds.vcloud.director.v1_5.VCloudDirectorConstants.PROPERTY_VCLOUD_DIRECTOR_RETRY_ERROR_CODE_BUDGETS;
+import static org.jclouds.vcloud.director.v1_5.VCloudDirectorConstants.PROPERTY_VCLOUD_DIRECTOR_RETRY_MAX_DELAY;
+import static org.jclouds.vcloud.director.v1_5.VCloudDirectorConstants.PROPERTY_VCLOUD_DIRECTOR_SESSION_STORE_DIRECTORY;
+import static org.jclouds.vcloud.director.v1_5.VCloudDirectorConstants.PROPERTY_VCLOUD_DIRECTOR_XML_POOL_SIZE;
+import static org.jclouds.vcloud.director.v1_5.VCloudDirectorConstants.PROPERTY_VCLOUD_DIRECTOR_XML_PREWARM;
 import static org.jclouds.vcloud.director.v1_5.VCloudDirectorConstants.PROPERTY_VCLOUD_DIRECTOR_TIMEOUT_TASK_COMPLETED;
 import static org.jclouds.vcloud.director.v1_5.VCloudDirectorConstants.PROPERTY_VCLOUD_DIRECTOR_VERSION_SCHEMA;
 import static org.jclouds.vcloud.director.v1_5.VCloudDirectorConstants.PROPERTY_VCLOUD_DIRECTOR_XML_NAMESPACE;
@@ -36,10 +56,10 @@ import java.net.URI;
 import java.util.Properties;
 
 import org.jclouds.compute.ComputeServiceContext;
-import org.jclouds.http.okhttp.config.OkHttpCommandExecutorServiceModule;
 import org.jclouds.rest.internal.BaseHttpApiMetadata;
 import org.jclouds.vcloud.director.v1_5.compute.config.VCloudDirectorComputeServiceContextModule;
 import org.jclouds.vcloud.director.v1_5.config.VCloudDirectorHttpApiModule;
+import org.jclouds.vcloud.director.v1_5.config.VCloudDirectorOkHttpCommandExecutorServiceModule;
 
 import com.google.common.collect.ImmutableSet;
 import com.google.inject.Module;
@@ -84,12 +104,43 @@ public class VCloudDirectorApiMetadata extends BaseHttpApiMetadata<VCloudDirecto
       properties.setProperty(TIMEOUT_NODE_TERMINATED, "" + 5 * 60 * 1000);
       properties.setProperty(TIMEOUT_NODE_SUSPENDED, "" + 5 * 60 * 1000);
 
-      // Be more conservative about exponential backoff with vCloudDirector - have seen throttling
+      // Be more conservative about backoff with vCloudDirector - have seen throttling
       // far more with vCD than other clouds like AWS.
-      // This will backoff each time for a delay of 100 * failureCount^2, to a max of 100*100 = 10 seconds.
-      // The exponential backoff times will be: 100ms, 400ms, 900ms, 1600ms, 2500ms, 5000ms
+      // Client error retries back off with decorrelated jitter: each delay is drawn between 100ms and
+      // three times the previous delay, to a max of 10 seconds, so that callers failing together do
+      // not retry together. A server Retry-After is honoured up to the same max.
       properties.setProperty(PROPERTY_MAX_RETRIES, "" + 6); // jclouds default is 5
       properties.setProperty(PROPERTY_RETRY_DELAY_START, "" + 100); // jclouds default is 50
+      properties.setProperty(PROPERTY_VCLOUD_DIRECTOR_RETRY_MAX_DELAY, "" + 10 * 1000);
+      properties.setProperty(PROPERTY_VCLOUD_DIRECTOR_RETRY_ERROR_CODE_BUDGETS, "");
+      // Retries may add at most 20% to the request rate, plus a small floor so that a quiet client can still retry.
+      properties.setProperty(PROPERTY_VCLOUD_DIRECTOR_RETRY_BUDGET_RATIO, "" + 0.2);
+      properties.setProperty(PROPERTY_VCLOUD_DIRECTOR_RETRY_BUDGET_MIN_PER_SECOND, "" + 10);
+
+      // Fail fast once a vCD cell has failed this many requests in a row, probing it again every 30 seconds.
+      properties.setProperty(PROPERTY_VCLOUD_DIRECTOR_CIRCUIT_BREAKER_FAILURE_THRESHOLD, "" + 5);
+      properties.setProperty(PROPERTY_VCLOUD_DIRECTOR_CIRCUIT_BREAKER_OPEN_DURATION, "" + 30 * 1000);
+
+      properties.setProperty(PROPERTY_VCLOUD_DIRECTOR_SESSION_STORE_DIRECTORY, "");
+      properties.setProperty(PROPERTY_VCLOUD_DIRECTOR_XML_PREWARM, "" + false);
+      properties.setProperty(PROPERTY_VCLOUD_DIRECTOR_XML_POOL_SIZE, "" + 32);
+      properties.setProperty(PROPERTY_VCLOUD_DIRECTOR_CONDITIONAL_GET_CACHE_MAX_BYTES, "" + 32 * 1024 * 1024);
+      properties.setProperty(PROPERTY_VCLOUD_DIRECTOR_COMPRESSION, "" + true);
+
+      // Remember up to 10000 resolved entities, and for 10 seconds which urns resolve to none.
+      properties.setProperty(PROPERTY_VCLOUD_DIRECTOR_ENTITY_CACHE_SIZE, "" + 10000);
+      properties.setProperty(PROPERTY_VCLOUD_DIRECTOR_ENTITY_CACHE_MISSING_TTL, "" + 10 * 1000);
+      properties.setProperty(PROPERTY_VCLOUD_DIRECTOR_ENTITY_CACHE_DERIVE_HREFS, "" + true);
+      // Keep about 64MB of OVF envelopes, refreshing those in use a minute before the session interval expires them.
+      properties.setProperty(PROPERTY_VCLOUD_DIRECTOR_ENVELOPE_CACHE_MAX_WEIGHT, "" + 64 * 1024);
+      properties.setProperty(PROPERTY_VCLOUD_DIRECTOR_ENVELOPE_CACHE_REFRESH_AFTER, "" + 4 * 60 * 1000);
+
+      properties.setProperty(PROPERTY_VCLOUD_DIRECTOR_IMAGE_SNAPSHOT_DIRECTORY, "");
+      // List from a local model of the vApps only when asked to, reading all of them every ten minutes.
+      properties.setProperty(PROPERTY_VCLOUD_DIRECTOR_INVENTORY_MAX_STALENESS, "" + 0);
+      properties.setProperty(PROPERTY_VCLOUD_DIRECTOR_INVENTORY_FULL_SYNC_INTERVAL, "" + 10 * 60 * 1000);
+      // Convert up to ten vms at once when listing node details.
+      properties.setProperty(PROPERTY_VCLOUD_DIRECTOR_NODE_CONVERSION_PARALLELISM, "" + 10);
 
       return properties;
    }
@@ -107,7 +158,7 @@ public class VCloudDirectorApiMetadata extends BaseHttpApiMetadata<VCloudDirecto
                  .view(typeToken(ComputeServiceContext.class))
                  .defaultModules(ImmutableSet.<Class<? extends Module>>of(
                          VCloudDirectorHttpApiModule.class,
-                         OkHttpCommandExecutorServiceModule.class,
+                         VCloudDirectorOkHttpCommandExecutorServiceModule.class,
                          VCloudDirectorComputeServiceContextModule.class));
       }
 
@@ -65,6 +65,137 @@ public final class VCloudDirectorConstants {
     */
    public static final String PROPERTY_VCLOUD_DIRECTOR_PREDEFINED_HARDWARE_PROFILES = "jclouds.vcloud-director.hardware-profiles.predefined";
 
+   /**
+    * The upper bound, in milliseconds, of a single backoff delay between retries. A server
+    * {@code Retry-After} longer than this fails the request instead of blocking the caller.
+    */
+   public static final String PROPERTY_VCLOUD_DIRECTOR_RETRY_MAX_DELAY = "jclouds.vcloud-director.retry.max-delay";
+
+   /**
+    * Per minor error code retry limits, overriding {@code jclouds.max-retries}; for example
+    * {@code BUSY_ENTITY=10,OPERATION_LIMITS_EXCEEDED=4}.
+    */
+   public static final String PROPERTY_VCLOUD_DIRECTOR_RETRY_ERROR_CODE_BUDGETS = "jclouds.vcloud-director.retry.error-code-budgets";
+
+   /**
+    * The fraction of requests that may be retried, across all callers sharing a context.
+    */
+   public static final String PROPERTY_VCLOUD_DIRECTOR_RETRY_BUDGET_RATIO = "jclouds.vcloud-director.retry.budget-ratio";
+
+   /**
+    * The number of retries per second always allowed, regardless of the request rate.
+    */
+   public static final String PROPERTY_VCLOUD_DIRECTOR_RETRY_BUDGET_MIN_PER_SECOND = "jclouds.vcloud-director.retry.budget-min-per-second";
+
+   /**
+    * The number of consecutive failed requests (server errors or I/O failures) to one endpoint and
+    * api that opens its circuit breaker. Zero disables the circuit breakers.
+    */
+   public static final String PROPERTY_VCLOUD_DIRECTOR_CIRCUIT_BREAKER_FAILURE_THRESHOLD = "jclouds.vcloud-director.circuit-breaker.failure-threshold";
+
+   /**
+    * How long, in milliseconds, an open circuit breaker fails requests fast before letting a
+    * single probe request through.
+    */
+   public static final String PROPERTY_VCLOUD_DIRECTOR_CIRCUIT_BREAKER_OPEN_DURATION = "jclouds.vcloud-director.circuit-breaker.open-duration";
+
+   /**
+    * A directory in which to keep session tokens, encrypted with the credential, so that later
+    * processes using the same endpoint and identity reuse the session instead of logging in again.
+    * Sessions are then left open on close. Empty (the default) disables the store.
+    */
+   public static final String PROPERTY_VCLOUD_DIRECTOR_SESSION_STORE_DIRECTORY = "jclouds.vcloud-director.session-store.directory";
+
+   /**
+    * Whether to build a single JAXB context for the whole vCD domain model when the context starts,
+    * rather than one per payload type on first use, so that the first requests are not slowed by
+    * JAXB initialisation.
+    */
+   public static final String PROPERTY_VCLOUD_DIRECTOR_XML_PREWARM = "jclouds.vcloud-director.xml.prewarm";
+
+   /**
+    * How many idle unmarshallers, and as many marshallers, to keep for each JAXB context, so that
+    * they are reused across requests instead of created for each one. Zero disables pooling.
+    */
+   public static final String PROPERTY_VCLOUD_DIRECTOR_XML_POOL_SIZE = "jclouds.vcloud-director.xml.pool-size";
+
+   /**
+    * How many bytes of vApps, vms, vdcs, catalogs and networks, read with their ETag or
+    * Last-Modified validator, to keep per context, so that reading one again sends a conditional GET
+    * and, when the server answers 304 Not Modified, reuses the cached entity instead of downloading
+    * and parsing it again. Zero disables the cache.
+    */
+   public static final String PROPERTY_VCLOUD_DIRECTOR_CONDITIONAL_GET_CACHE_MAX_BYTES = "jclouds.vcloud-director.conditional-get.cache-max-bytes";
+
+   /**
+    * Whether to ask for responses compressed with gzip or deflate, decompressing them as the
+    * response parsers read them, so that large documents such as OVF envelopes, vApps and query
+    * pages cross slow links in a fraction of the bytes.
+    */
+   public static final String PROPERTY_VCLOUD_DIRECTOR_COMPRESSION = "jclouds.vcloud-director.compression";
+
+   /**
+    * How many entities, and as many hrefs, to keep for resolving URNs, evicting the least recently
+    * used beyond that.
+    */
+   public static final String PROPERTY_VCLOUD_DIRECTOR_ENTITY_CACHE_SIZE = "jclouds.vcloud-director.entity-cache.size";
+
+   /**
+    * For how many milliseconds to remember that the entity resolver found no entity for a URN,
+    * failing to resolve it again without a request.
+    */
+   public static final String PROPERTY_VCLOUD_DIRECTOR_ENTITY_CACHE_MISSING_TTL = "jclouds.vcloud-director.entity-cache.missing-ttl";
+
+   /**
+    * Whether to build the hrefs of the vApps, vApp templates, vdcs, orgs, catalogs, catalog items,
+    * media, networks and tasks from their URN and the endpoint, rather than ask the entity resolver
+    * for them.
+    */
+   public static final String PROPERTY_VCLOUD_DIRECTOR_ENTITY_CACHE_DERIVE_HREFS = "jclouds.vcloud-director.entity-cache.derive-hrefs";
+
+   /**
+    * How many kilobytes of OVF envelopes, as estimated from the hardware items, disks and networks
+    * they describe, to keep in the envelope cache, evicting the least recently used beyond that.
+    * The cache records its hit, miss and eviction counts in {@code LoadingCache.stats()}.
+    */
+   public static final String PROPERTY_VCLOUD_DIRECTOR_ENVELOPE_CACHE_MAX_WEIGHT = "jclouds.vcloud-director.envelope-cache.max-weight";
+
+   /**
+    * How many milliseconds after reading an OVF envelope to read it again in the background, on
+    * the next use, so that envelopes in use are replaced before they expire with the session
+    * interval. Zero, or a value beyond the session interval, disables it.
+    */
+   public static final String PROPERTY_VCLOUD_DIRECTOR_ENVELOPE_CACHE_REFRESH_AFTER = "jclouds.vcloud-director.envelope-cache.refresh-after";
+
+   /**
+    * A directory in which to keep, per endpoint and org, the vApp templates the images were built
+    * from and the operating system of each, so that later processes build their images from it at
+    * once, and then only read the OVF envelopes of templates added or changed since. Empty (the
+    * default) disables the snapshot.
+    */
+   public static final String PROPERTY_VCLOUD_DIRECTOR_IMAGE_SNAPSHOT_DIRECTORY = "jclouds.vcloud-director.image-snapshot.directory";
+
+   /**
+    * How many milliseconds the compute service may list nodes and locations from its local model
+    * of the vApps and vdcs before syncing it, reading again only those new, changed, or operated on
+    * by a task since the last sync. Zero (the default) disables the model, reading every vApp on
+    * each listing.
+    */
+   public static final String PROPERTY_VCLOUD_DIRECTOR_INVENTORY_MAX_STALENESS = "jclouds.vcloud-director.inventory.max-staleness";
+
+   /**
+    * How many milliseconds apart the local model of the vApps and vdcs reads every one of them
+    * again, picking up the changes that neither their query records nor tasks show.
+    */
+   public static final String PROPERTY_VCLOUD_DIRECTOR_INVENTORY_FULL_SYNC_INTERVAL = "jclouds.vcloud-director.inventory.full-sync-interval";
+
+   /**
+    * How many vms to convert to node metadata at once, on threads of their own, when listing the
+    * details of nodes, as each conversion reads the vApp and hardware of its vm. One converts them
+    * one after another on the listing thread.
+    */
+   public static final String PROPERTY_VCLOUD_DIRECTOR_NODE_CONVERSION_PARALLELISM = "jclouds.vcloud-director.node-conversion.parallelism";
+
    /** TODO javadoc */
    /*
    public static final TypeToken<RestContext<SessionApi, SessionAsyncApi>> SESSION_CONTEXT_TYPE =
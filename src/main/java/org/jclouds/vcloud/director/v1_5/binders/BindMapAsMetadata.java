@@ -24,7 +24,6 @@ import javax.inject.Inject;
 import javax.inject.Singleton;
 
 import org.jclouds.http.HttpRequest;
-import org.jclouds.rest.binders.BindToXMLPayload;
 import org.jclouds.vcloud.director.v1_5.domain.Metadata;
 import org.jclouds.xml.XMLParser;
 
@@ -32,7 +31,7 @@ import org.jclouds.xml.XMLParser;
  * Changes a Map to the crufty {@link Metadata type}
  */
 @Singleton
-public class BindMapAsMetadata extends BindToXMLPayload {
+public class BindMapAsMetadata extends BindToStreamingXMLPayload {
 
    @Inject
    public BindMapAsMetadata(final XMLParser xmlParser) {
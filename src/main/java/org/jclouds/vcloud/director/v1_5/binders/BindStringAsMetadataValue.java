@@ -24,7 +24,6 @@ import javax.xml.bind.annotation.XmlElement;
 import javax.xml.bind.annotation.XmlRootElement;
 
 import org.jclouds.http.HttpRequest;
-import org.jclouds.rest.binders.BindToXMLPayload;
 import org.jclouds.vcloud.director.v1_5.VCloudDirectorMediaType;
 import org.jclouds.vcloud.director.v1_5.domain.Resource;
 import org.jclouds.xml.XMLParser;
@@ -33,7 +32,7 @@ import org.jclouds.xml.XMLParser;
  * Changes a String to the crufty {@link MetadataValue type}
  */
 @Singleton
-public class BindStringAsMetadataValue extends BindToXMLPayload {
+public class BindStringAsMetadataValue extends BindToStreamingXMLPayload {
    @XmlRootElement(name = "MetadataValue")
    public static class MetadataValue extends Resource {
       public static final String MEDIA_TYPE = VCloudDirectorMediaType.METADATA_VALUE;
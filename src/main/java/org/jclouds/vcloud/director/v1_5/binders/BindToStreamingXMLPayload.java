@@ -0,0 +1,53 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.vcloud.director.v1_5.binders;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.jclouds.http.HttpRequest;
+import org.jclouds.rest.binders.BindToXMLPayload;
+import org.jclouds.vcloud.director.v1_5.xml.VCloudDirectorJAXBParser;
+import org.jclouds.vcloud.director.v1_5.xml.XMLPayload;
+import org.jclouds.xml.XMLParser;
+
+/**
+ * Binds the input as an {@link XMLPayload}, marshalled when the request is sent, rather than as a
+ * string of the whole document. Bound in place of {@link BindToXMLPayload} for every
+ * {@code @BinderParam(BindToXMLPayload.class)}.
+ * <p>
+ * Falls back to binding a string when the context's {@link XMLParser} is not a
+ * {@link VCloudDirectorJAXBParser}.
+ */
+@Singleton
+public class BindToStreamingXMLPayload extends BindToXMLPayload {
+
+   @Inject
+   public BindToStreamingXMLPayload(XMLParser xmlParser) {
+      super(xmlParser);
+   }
+
+   @Override
+   public <R extends HttpRequest> R bindToRequest(R request, Object input) {
+      if (!(xmlParser instanceof VCloudDirectorJAXBParser))
+         return super.bindToRequest(request, input);
+      request.setPayload(new XMLPayload(VCloudDirectorJAXBParser.class.cast(xmlParser), checkNotNull(input, "input")));
+      return request;
+   }
+}
@@ -24,6 +24,8 @@ import com.google.common.base.Optional;
 import com.google.common.base.Predicate;
 import com.google.common.base.Predicates;
 import com.google.common.base.Supplier;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ComparisonChain;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
@@ -42,16 +44,17 @@ import org.jclouds.compute.domain.TemplateBuilderSpec;
 import org.jclouds.compute.domain.internal.NullEqualToIsParentOrIsGrandparentOfCurrentLocation;
 import org.jclouds.compute.domain.internal.TemplateImpl;
 import org.jclouds.compute.options.TemplateOptions;
-import org.jclouds.compute.predicates.ImagePredicates;
 import org.jclouds.compute.reference.ComputeServiceConstants;
 import org.jclouds.compute.suppliers.ImageCacheSupplier;
 import org.jclouds.domain.Location;
+import org.jclouds.javax.annotation.Nullable;
 import org.jclouds.logging.Logger;
 
 import javax.annotation.Resource;
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Provider;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
@@ -64,7 +67,6 @@ import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
 import static com.google.common.collect.Iterables.filter;
 import static com.google.common.collect.Iterables.find;
-import static com.google.common.collect.Iterables.size;
 import static com.google.common.collect.Iterables.transform;
 import static com.google.common.collect.Iterables.tryFind;
 import static com.google.common.collect.Lists.newArrayList;
@@ -109,8 +111,21 @@ import static org.jclouds.compute.util.ComputeServiceUtils.getSpace;
  *   <li>{@code TemplateImpl}
  * </ul>
  * Adds <pre>{@code @Override}</pre> (to avoid errors from http://errorprone.info/bugpattern/MissingOverride).
+ * <p>
+ * Unlike the original, builds search a {@link TemplateIndex} of the images and hardware profiles,
+ * shared by the builders of a context through {@link TemplateIndexes}, instead of scanning them in
+ * full: images are narrowed by operating system family, 64-bit flag and version before the image
+ * predicate runs, looked up by id, and hardware profiles are tried in order of preference until
+ * one matches. The criteria matched as regular expressions are compiled once, rather than by
+ * {@link String#matches(String)} for every image or hardware profile. A build with the same
+ * {@link #criteria()} as an earlier one over the same index and locations reuses the image,
+ * hardware and location it resolved, with its own options; while the index is
+ * {@link TemplateIndexes#getCurrent(Set) current}, without reading the images.
  */
 public class TemplateBuilderImpl implements TemplateBuilder {
+   // the patterns of the criteria matched as regular expressions, which builders often share
+   private static final Cache<String, Pattern> PATTERNS = CacheBuilder.newBuilder().maximumSize(256).build();
+
    @Resource
    @Named(ComputeServiceConstants.COMPUTE_LOGGER)
    protected Logger logger = Logger.NULL;
@@ -121,6 +136,7 @@ public class TemplateBuilderImpl implements TemplateBuilder {
    protected final Supplier<Location> defaultLocation;
    protected final Provider<TemplateOptions> optionsProvider;
    protected final Provider<TemplateBuilder> defaultTemplateProvider;
+   protected final TemplateIndexes indexes;
 
    @VisibleForTesting
    protected Location location;
@@ -166,12 +182,14 @@ public class TemplateBuilderImpl implements TemplateBuilder {
    protected TemplateOptions options;
    @VisibleForTesting
    protected Boolean forceCacheReload;
+   // the index of the images and hardware profiles the current build searches
+   protected TemplateIndex index;
 
    @Inject
    protected TemplateBuilderImpl(@Memoized Supplier<Set<? extends Location>> locations,
          @Memoized Supplier<Set<? extends Image>> images, @Memoized Supplier<Set<? extends Hardware>> hardwares,
          Supplier<Location> defaultLocation, @Named("DEFAULT") Provider<TemplateOptions> optionsProvider,
-         @Named("DEFAULT") Provider<TemplateBuilder> defaultTemplateProvider) {
+         @Named("DEFAULT") Provider<TemplateBuilder> defaultTemplateProvider, TemplateIndexes indexes) {
       this.locations = checkNotNull(locations, "locations");
       checkArgument(images instanceof ImageCacheSupplier, "an instance of the ImageCacheSupplier is needed");
       this.images = ImageCacheSupplier.class.cast(images);
@@ -179,6 +197,7 @@ public class TemplateBuilderImpl implements TemplateBuilder {
       this.defaultLocation = checkNotNull(defaultLocation, "defaultLocation");
       this.optionsProvider = checkNotNull(optionsProvider, "optionsProvider");
       this.defaultTemplateProvider = checkNotNull(defaultTemplateProvider, "defaultTemplateProvider");
+      this.indexes = checkNotNull(indexes, "indexes");
    }
 
    static Predicate<Hardware> supportsImagesPredicate(final Iterable<? extends Image> images) {
@@ -237,7 +256,7 @@ public class TemplateBuilderImpl implements TemplateBuilder {
             if (input.getName() == null)
                returnVal = false;
             else
-               returnVal = input.getName().contains(osName) || input.getName().matches(osName);
+               returnVal = containsOrMatches(input.getName(), osName);
          }
          return returnVal;
       }
@@ -256,8 +275,7 @@ public class TemplateBuilderImpl implements TemplateBuilder {
             if (input.getDescription() == null)
                returnVal = false;
             else
-               returnVal = input.getDescription().contains(osDescription)
-                     || input.getDescription().matches(osDescription);
+               returnVal = containsOrMatches(input.getDescription(), osDescription);
          }
          return returnVal;
       }
@@ -273,10 +291,7 @@ public class TemplateBuilderImpl implements TemplateBuilder {
       public boolean apply(OperatingSystem input) {
          boolean returnVal = true;
          if (osVersion != null) {
-            if (input.getVersion() == null)
-               returnVal = false;
-            else
-               returnVal = input.getVersion().contains(osVersion) || input.getVersion().matches(osVersion);
+            returnVal = matchesOsVersion(input.getVersion());
          }
          return returnVal;
       }
@@ -287,6 +302,25 @@ public class TemplateBuilderImpl implements TemplateBuilder {
       }
    };
 
+   /**
+    * As {@code value.contains(regex) || value.matches(regex)}, compiling each regex only once.
+    */
+   @VisibleForTesting
+   static boolean containsOrMatches(String value, String regex) {
+      if (value.contains(regex))
+         return true;
+      Pattern pattern = PATTERNS.getIfPresent(regex);
+      if (pattern == null) {
+         pattern = Pattern.compile(regex);
+         PATTERNS.put(regex, pattern);
+      }
+      return pattern.matcher(value).matches();
+   }
+
+   private boolean matchesOsVersion(String version) {
+      return version != null && containsOrMatches(version, osVersion);
+   }
+
    protected final Predicate<OperatingSystem> os64BitPredicate = new Predicate<OperatingSystem>() {
       @Override
       public boolean apply(OperatingSystem input) {
@@ -314,7 +348,7 @@ public class TemplateBuilderImpl implements TemplateBuilder {
             if (input.getArch() == null)
                returnVal = false;
             else
-               returnVal = input.getArch().contains(osArch) || input.getArch().matches(osArch);
+               returnVal = containsOrMatches(input.getArch(), osArch);
          }
          return returnVal;
       }
@@ -333,7 +367,7 @@ public class TemplateBuilderImpl implements TemplateBuilder {
             if (input.getVersion() == null)
                returnVal = false;
             else
-               returnVal = input.getVersion().contains(imageVersion) || input.getVersion().matches(imageVersion);
+               returnVal = containsOrMatches(input.getVersion(), imageVersion);
          }
          return returnVal;
       }
@@ -352,8 +386,7 @@ public class TemplateBuilderImpl implements TemplateBuilder {
             if (input.getName() == null)
                returnVal = false;
             else
-               returnVal = input.getName().equals(imageName) || input.getName().contains(imageName)
-                        || input.getName().matches(imageName);
+               returnVal = input.getName().equals(imageName) || containsOrMatches(input.getName(), imageName);
          }
          return returnVal;
       }
@@ -373,8 +406,7 @@ public class TemplateBuilderImpl implements TemplateBuilder {
                returnVal = false;
             else
                returnVal = input.getDescription().equals(imageDescription)
-                     || input.getDescription().contains(imageDescription)
-                     || input.getDescription().matches(imageDescription);
+                     || containsOrMatches(input.getDescription(), imageDescription);
          }
          return returnVal;
       }
@@ -412,8 +444,7 @@ public class TemplateBuilderImpl implements TemplateBuilder {
             if (input.getHypervisor() == null)
                returnVal = false;
             else
-               returnVal = input.getHypervisor().contains(hypervisor)
-                     || input.getHypervisor().matches(hypervisor);
+               returnVal = containsOrMatches(input.getHypervisor(), hypervisor);
          }
          return returnVal;
       }
@@ -705,10 +736,31 @@ public class TemplateBuilderImpl implements TemplateBuilder {
       if (options == null)
          options = optionsProvider.get();
       logger.debug(">> searching params(%s)", this);
-      Set<? extends Image> images = getImages();
-      checkState(!images.isEmpty(), "no images present!");
       Set<? extends Hardware> hardwaresToSearch = hardwares.get();
       checkState(!hardwaresToSearch.isEmpty(), "no hardware profiles present!");
+      // before resolution, which may widen the location
+      List<?> criteria = criteria();
+      Set<? extends Location> locationsToSearch = locations.get();
+      long refreshes = indexes.getRefreshes();
+      if (criteria != null && !reloadsImages()) {
+         // without reading the images, while the index is known to be of those the image cache holds
+         TemplateIndex current = indexes.getCurrent(hardwaresToSearch);
+         if (current != null) {
+            index = current;
+            Template resolved = index.getTemplate(criteria, locationsToSearch);
+            if (resolved != null)
+               return reuse(resolved);
+         }
+      }
+
+      Set<? extends Image> images = getImages();
+      checkState(!images.isEmpty(), "no images present!");
+      index = indexes.get(refreshes, images, hardwaresToSearch);
+      if (criteria != null) {
+         Template resolved = index.getTemplate(criteria, locationsToSearch);
+         if (resolved != null)
+            return reuse(resolved);
+      }
 
       Image image = null;
       if (imageId != null) {
@@ -741,21 +793,64 @@ public class TemplateBuilderImpl implements TemplateBuilder {
 
       logger.debug("<<   matched image(%s) hardware(%s) location(%s)", image.getId(), hardware.getId(),
             location.getId());
-      return new TemplateImpl(image, hardware, location, options);
+      Template template = new TemplateImpl(image, hardware, location, options);
+      if (criteria != null)
+         index.putTemplate(criteria, locationsToSearch, template);
+      return template;
+   }
+
+   private Template reuse(Template resolved) {
+      location = resolved.getLocation();
+      logger.debug("<<   reused image(%s) hardware(%s) location(%s)", resolved.getImage().getId(),
+            resolved.getHardware().getId(), location.getId());
+      return new TemplateImpl(resolved.getImage(), resolved.getHardware(), location, options);
+   }
+
+   /**
+    * @return everything the template this builds depends on but its options, or null if that
+    *         includes an image predicate or chooser, which cannot be compared with those of other
+    *         builders. Subclasses with criteria of their own must add them.
+    */
+   @Nullable
+   protected List<?> criteria() {
+      if (imagePredicate != null || imageChooser != null)
+         return null;
+      return Arrays.asList(getClass(), location, imageId, hardwareId, hypervisor, imageVersion, osFamily, osVersion,
+            os64Bit, osName, osDescription, osArch, imageName, imageDescription, minCores, minRam, minDisk, biggest,
+            fastest);
    }
 
    private Iterable<? extends Image> findSupportedImages(Set<? extends Image> images) {
       Predicate<Image> imagePredicate = buildImagePredicate();
-      Iterable<? extends Image> supportedImages = filter(images, imagePredicate);
-      if (size(supportedImages) == 0) {
+      // read once, as hardware and image resolution iterate it again
+      List<Image> supportedImages = ImmutableList.<Image> copyOf(filter(candidateImages(index), imagePredicate));
+      if (supportedImages.isEmpty()) {
          throw throwNoSuchElementExceptionAfterLoggingImageIds(
                format("no image matched predicate: %s", imagePredicate), images);
       }
       return supportedImages;
    }
 
+   /**
+    * @return the images of the index which may satisfy {@link #buildImagePredicate()}, which
+    *         still runs on each of them; narrowed by the operating system family, 64-bit flag and
+    *         version asked for. Subclasses whose image predicate does not require those must
+    *         override this as well.
+    */
+   protected List<? extends Image> candidateImages(TemplateIndex index) {
+      Predicate<String> versionMatches = null;
+      if (osVersion != null)
+         versionMatches = new Predicate<String>() {
+            @Override
+            public boolean apply(String input) {
+               return matchesOsVersion(input);
+            }
+         };
+      return index.getImages(osFamily, os64Bit, versionMatches);
+   }
+
    private Image loadImageWithId(Iterable<? extends Image> images) {
-      Optional<? extends Image> image = tryFind(images, ImagePredicates.idEquals(imageId));
+      Optional<? extends Image> image = Optional.fromNullable(index.getImage(imageId));
       if (!image.isPresent()) {
          image = this.images.get(imageId); // Load the image from the cache, and refresh if missing
          if (!image.isPresent()) {
@@ -793,6 +888,18 @@ public class TemplateBuilderImpl implements TemplateBuilder {
    protected Hardware resolveHardware(Set<? extends Hardware> hardwarel, final Iterable<? extends Image> images) {
       Ordering<Hardware> hardwareOrdering = hardwareSorter();
 
+      if (index != null && index.isOf(hardwarel)) {
+         Predicate<Hardware> hardwarePredicate = buildHardwarePredicate();
+         Predicate<Hardware> supportsImages = supportsImagesPredicate(images);
+         for (Hardware hardware : index.getHardwares(hardwareOrdering)) {
+            if (hardwarePredicate.apply(hardware) && supportsImages.apply(hardware)) {
+               logger.trace("<<   matched hardware(%s)", hardware.getId());
+               return hardware;
+            }
+         }
+         // none matches; search them all again, to fail as the full search does
+      }
+
       Iterable<Predicate<Image>> supportsImagePredicates = Iterables.transform(hardwarel,
                new Function<Hardware, Predicate<Image>>() {
 
@@ -893,7 +1000,16 @@ public class TemplateBuilderImpl implements TemplateBuilder {
       return maxes;
    }
    protected Set<? extends Image> getImages() {
-      return forceCacheReload != null && forceCacheReload ? images.rebuildCache() : images.get();
+      if (!reloadsImages())
+         return images.get();
+      Set<? extends Image> rebuilt = images.rebuildCache();
+      // as the image cache does not block reads while rebuilding
+      indexes.imagesRefreshed();
+      return rebuilt;
+   }
+
+   private boolean reloadsImages() {
+      return forceCacheReload != null && forceCacheReload;
    }
 
    protected Predicate<Image> buildImagePredicate() {
@@ -0,0 +1,222 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.vcloud.director.v1_5.builders;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.jclouds.compute.domain.Hardware;
+import org.jclouds.compute.domain.Image;
+import org.jclouds.compute.domain.OperatingSystem;
+import org.jclouds.compute.domain.OsFamily;
+import org.jclouds.compute.domain.Template;
+import org.jclouds.domain.Location;
+import org.jclouds.javax.annotation.Nullable;
+
+import com.google.common.base.Objects;
+import com.google.common.base.Predicate;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Ordering;
+import com.google.common.primitives.Ints;
+
+/**
+ * The images and hardware profiles a {@link TemplateBuilderImpl} searches, indexed once for each
+ * set the memoized suppliers return rather than scanned in full by every build.
+ * <p>
+ * Images are bucketed by operating system family and 64-bit flag, and within each bucket by
+ * operating system version, so that a version pattern is matched once per distinct version
+ * rather than once per image. Hardware profiles are sorted in each order of preference builders
+ * ask for, so that the profile a build picks is the first of them it accepts.
+ * <p>
+ * The templates resolved from them are kept by the criteria they were built with, so that a
+ * build repeating the criteria of an earlier one reuses its image, hardware and location. Being
+ * part of the index, they are dropped with it when the images or hardware profiles change, and
+ * each is only reused while the locations are those it was resolved among.
+ */
+public class TemplateIndex {
+
+   private final List<Image> images;
+   private final Set<? extends Hardware> hardwares;
+   // positions in images, by family and 64-bit flag, then by version
+   private final Map<Bucket, Map<String, int[]>> buckets;
+   private final Map<String, Image> imagesById;
+   private final Cache<Ordering<Hardware>, List<Hardware>> sortedHardwares = CacheBuilder.newBuilder()
+         .maximumSize(8).build();
+   private final Cache<List<?>, Resolved> templates = CacheBuilder.newBuilder().maximumSize(256).build();
+
+   public TemplateIndex(Set<? extends Image> images, Set<? extends Hardware> hardwares) {
+      this.images = ImmutableList.<Image> copyOf(images);
+      this.hardwares = hardwares;
+
+      Map<Bucket, Map<String, List<Integer>>> positions = Maps.newLinkedHashMap();
+      Map<String, Image> imagesById = Maps.newHashMap();
+      for (int i = 0; i < this.images.size(); i++) {
+         Image image = this.images.get(i);
+         OperatingSystem os = image.getOperatingSystem();
+         Bucket bucket = new Bucket(os.getFamily(), os.is64Bit());
+         Map<String, List<Integer>> versions = positions.get(bucket);
+         if (versions == null)
+            positions.put(bucket, versions = Maps.newLinkedHashMap());
+         List<Integer> version = versions.get(os.getVersion());
+         if (version == null)
+            versions.put(os.getVersion(), version = Lists.newArrayList());
+         version.add(i);
+         // the first image with an id, as a linear search would find
+         if (!imagesById.containsKey(image.getId()))
+            imagesById.put(image.getId(), image);
+      }
+      this.buckets = Maps.newHashMap();
+      for (Map.Entry<Bucket, Map<String, List<Integer>>> bucket : positions.entrySet()) {
+         Map<String, int[]> versions = Maps.newHashMap();
+         for (Map.Entry<String, List<Integer>> version : bucket.getValue().entrySet())
+            versions.put(version.getKey(), Ints.toArray(version.getValue()));
+         buckets.put(bucket.getKey(), versions);
+      }
+      this.imagesById = imagesById;
+   }
+
+   /**
+    * @return whether this indexes the same images and hardware profiles, by identity, in the same
+    *         order
+    */
+   public boolean isOf(Set<? extends Image> images, Set<? extends Hardware> hardwares) {
+      return sameElements(this.images, images) && isOf(hardwares);
+   }
+
+   /**
+    * @return whether this indexes the same hardware profiles, by identity, in the same order
+    */
+   public boolean isOf(Set<? extends Hardware> hardwares) {
+      return this.hardwares == hardwares || sameElements(this.hardwares, hardwares);
+   }
+
+   private static boolean sameElements(Collection<?> indexed, Set<?> other) {
+      if (indexed.size() != other.size())
+         return false;
+      Iterator<?> it = other.iterator();
+      for (Object element : indexed) {
+         if (element != it.next())
+            return false;
+      }
+      return true;
+   }
+
+   public List<Image> getImages() {
+      return images;
+   }
+
+   /**
+    * @return the images whose operating system is of {@code family}, is or is not 64-bit and has a
+    *         version {@code versionMatches} accepts, skipping each criterion which is null, in the
+    *         order of {@link #getImages()}
+    */
+   public List<Image> getImages(@Nullable OsFamily family, @Nullable Boolean is64Bit,
+         @Nullable Predicate<String> versionMatches) {
+      if (family == null && is64Bit == null && versionMatches == null)
+         return images;
+      BitSet matched = new BitSet(images.size());
+      for (Map.Entry<Bucket, Map<String, int[]>> bucket : buckets.entrySet()) {
+         if (family != null && family != bucket.getKey().family)
+            continue;
+         if (is64Bit != null && is64Bit.booleanValue() != bucket.getKey().is64Bit)
+            continue;
+         for (Map.Entry<String, int[]> version : bucket.getValue().entrySet()) {
+            if (versionMatches != null && !versionMatches.apply(version.getKey()))
+               continue;
+            for (int i : version.getValue())
+               matched.set(i);
+         }
+      }
+      List<Image> result = Lists.newArrayListWithCapacity(matched.cardinality());
+      for (int i = matched.nextSetBit(0); i >= 0; i = matched.nextSetBit(i + 1))
+         result.add(images.get(i));
+      return result;
+   }
+
+   @Nullable
+   public Image getImage(String id) {
+      return imagesById.get(id);
+   }
+
+   /**
+    * @return the hardware profiles, most preferred by {@code ordering} first; profiles it ranks
+    *         equally stay in the order of the set, so that the first one a build accepts is the
+    *         one {@link Ordering#max(Iterable)} would pick
+    */
+   public List<Hardware> getHardwares(Ordering<Hardware> ordering) {
+      List<Hardware> sorted = sortedHardwares.getIfPresent(ordering);
+      if (sorted == null) {
+         sorted = ImmutableList.<Hardware> copyOf(ordering.reverse().sortedCopy(hardwares));
+         sortedHardwares.put(ordering, sorted);
+      }
+      return sorted;
+   }
+
+   /**
+    * @return the template last resolved for {@code criteria} among {@code locations}, or null
+    */
+   @Nullable
+   public Template getTemplate(List<?> criteria, Set<? extends Location> locations) {
+      Resolved resolved = templates.getIfPresent(criteria);
+      return resolved != null && resolved.locations == locations ? resolved.template : null;
+   }
+
+   public void putTemplate(List<?> criteria, Set<? extends Location> locations, Template template) {
+      templates.put(criteria, new Resolved(locations, template));
+   }
+
+   private static class Resolved {
+      private final Set<? extends Location> locations;
+      private final Template template;
+
+      private Resolved(Set<? extends Location> locations, Template template) {
+         this.locations = locations;
+         this.template = template;
+      }
+   }
+
+   private static class Bucket {
+      private final OsFamily family;
+      private final boolean is64Bit;
+
+      private Bucket(@Nullable OsFamily family, boolean is64Bit) {
+         this.family = family;
+         this.is64Bit = is64Bit;
+      }
+
+      @Override
+      public boolean equals(Object o) {
+         if (!(o instanceof Bucket))
+            return false;
+         Bucket that = (Bucket) o;
+         return family == that.family && is64Bit == that.is64Bit;
+      }
+
+      @Override
+      public int hashCode() {
+         return Objects.hashCode(family, is64Bit);
+      }
+   }
+}
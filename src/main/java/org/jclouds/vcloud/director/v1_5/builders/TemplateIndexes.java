@@ -0,0 +1,136 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.vcloud.director.v1_5.builders;
+
+import static org.jclouds.Constants.PROPERTY_SESSION_INTERVAL;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.jclouds.compute.domain.Hardware;
+import org.jclouds.compute.domain.Image;
+import org.jclouds.javax.annotation.Nullable;
+
+import com.google.common.base.Supplier;
+
+/**
+ * Keeps the {@link TemplateIndex} of the images and hardware profiles the memoized suppliers last
+ * returned, shared by every {@link TemplateBuilderImpl} of a context, and replaces it once they
+ * return others.
+ * <p>
+ * It also counts the refreshes of the image cache: each load of the images it supplies through
+ * {@link #refreshing(Supplier)}, and each reset {@link #imagesRefreshed() reported} otherwise.
+ * While there has been none since the latest index was built, and the loaded images have not
+ * outlived the session interval the image cache memoizes them for, that index is
+ * {@link #getCurrent(Set) current}: builds may reuse the templates resolved from it without
+ * reading the images, which copies the whole image cache.
+ */
+@Singleton
+public class TemplateIndexes {
+
+   private final long maxAgeNanos;
+   private final AtomicLong refreshes = new AtomicLong();
+   private volatile long loadedAt;
+   private final AtomicReference<Indexed> latest = new AtomicReference<Indexed>();
+
+   @Inject
+   public TemplateIndexes(@Named(PROPERTY_SESSION_INTERVAL) long seconds) {
+      this.maxAgeNanos = TimeUnit.SECONDS.toNanos(seconds);
+   }
+
+   /**
+    * @return {@code images}, counting each load of them as a refresh; counted as it starts, as the
+    *         image cache blocks reads until it has reset its images to those loaded
+    */
+   public Supplier<Set<? extends Image>> refreshing(final Supplier<Set<? extends Image>> images) {
+      return new Supplier<Set<? extends Image>>() {
+         @Override
+         public Set<? extends Image> get() {
+            loadedAt = System.nanoTime();
+            refreshes.incrementAndGet();
+            return images.get();
+         }
+
+         @Override
+         public String toString() {
+            return "refreshing(" + images + ")";
+         }
+      };
+   }
+
+   /**
+    * Counts a refresh of the image cache, once it has been reset to images not loaded through
+    * {@link #refreshing(Supplier)}.
+    */
+   public void imagesRefreshed() {
+      refreshes.incrementAndGet();
+   }
+
+   /**
+    * @return the refreshes counted so far; read before the images, to pass along with them to
+    *         {@link #get(long, Set, Set)}
+    */
+   public long getRefreshes() {
+      return refreshes.get();
+   }
+
+   /**
+    * @param refreshes
+    *           the refreshes counted before {@code images} were read
+    */
+   public TemplateIndex get(long refreshes, Set<? extends Image> images, Set<? extends Hardware> hardwares) {
+      Indexed indexed = latest.get();
+      if (indexed == null || !indexed.index.isOf(images, hardwares)) {
+         indexed = new Indexed(new TemplateIndex(images, hardwares), refreshes);
+         latest.set(indexed);
+      } else if (indexed.refreshes != refreshes) {
+         latest.set(new Indexed(indexed.index, refreshes));
+      }
+      return indexed.index;
+   }
+
+   /**
+    * @return the latest index, if it is of {@code hardwares} and of the images the image cache
+    *         holds now, or null if that cannot be told without reading them
+    */
+   @Nullable
+   public TemplateIndex getCurrent(Set<? extends Hardware> hardwares) {
+      Indexed indexed = latest.get();
+      long refreshes = this.refreshes.get();
+      // none counted means the images are not loaded through refreshing(), so any may have changed
+      if (indexed == null || refreshes == 0 || indexed.refreshes != refreshes
+            || System.nanoTime() - loadedAt >= maxAgeNanos || !indexed.index.isOf(hardwares))
+         return null;
+      return indexed.index;
+   }
+
+   private static class Indexed {
+      private final TemplateIndex index;
+      private final long refreshes;
+
+      private Indexed(TemplateIndex index, long refreshes) {
+         this.index = index;
+         this.refreshes = refreshes;
+      }
+   }
+}
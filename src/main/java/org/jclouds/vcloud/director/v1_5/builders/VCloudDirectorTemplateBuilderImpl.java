@@ -31,6 +31,7 @@ import org.jclouds.compute.domain.OperatingSystem;
 import org.jclouds.compute.domain.TemplateBuilder;
 import org.jclouds.compute.options.TemplateOptions;
 import org.jclouds.domain.Location;
+import org.jclouds.vcloud.director.v1_5.compute.util.VirtualHardwareSpace;
 
 import com.google.common.base.Predicate;
 import com.google.common.base.Predicates;
@@ -39,12 +40,53 @@ import com.google.common.collect.Iterables;
 import com.google.inject.Inject;
 
 public class VCloudDirectorTemplateBuilderImpl extends TemplateBuilderImpl {
+    private final VirtualHardwareSpace space;
+
     @Inject
     protected VCloudDirectorTemplateBuilderImpl(@Memoized Supplier<Set<? extends Location>> locations,
             @Memoized Supplier<Set<? extends Image>> images, @Memoized Supplier<Set<? extends Hardware>> hardwares,
             Supplier<Location> defaultLocation, @Named("DEFAULT") Provider<TemplateOptions> optionsProvider,
-            @Named("DEFAULT") Provider<TemplateBuilder> defaultTemplateProvider) {
-        super(locations, images, hardwares, defaultLocation, optionsProvider, defaultTemplateProvider);
+            @Named("DEFAULT") Provider<TemplateBuilder> defaultTemplateProvider, TemplateIndexes indexes,
+            VirtualHardwareSpace space) {
+        super(locations, images, hardwares, defaultLocation, optionsProvider, defaultTemplateProvider, indexes);
+        this.space = space;
+    }
+
+    /**
+     * Unlike the super class, looks the profile up by id in the {@link VirtualHardwareSpace} the
+     * profiles come from, rather than among all of them.
+     */
+    @Override
+    protected Hardware findHardwareWithId(Set<? extends Hardware> hardwaresToSearch) {
+        if (space.isOf(hardwaresToSearch)) {
+            Hardware hardware = space.getHardware(hardwareId);
+            if (hardware != null && hardwareIdPredicate.apply(hardware))
+                return hardware;
+        }
+        return super.findHardwareWithId(hardwaresToSearch);
+    }
+
+    /**
+     * Unlike the super class, works out the synthetic profile the builder prefers from its minimum
+     * cores and RAM, and compares it only with the predefined profiles, rather than with every
+     * profile of the {@link VirtualHardwareSpace}.
+     */
+    @Override
+    protected Hardware resolveHardware(Set<? extends Hardware> hardwarel, Iterable<? extends Image> images) {
+        if (!space.isOf(hardwarel))
+            return super.resolveHardware(hardwarel, images);
+        Predicate<Hardware> hardwarePredicate = Predicates.and(buildHardwarePredicate(), supportsImagesPredicate(images));
+        // synthetic profiles first, as they come in the set, so that ties go the same way
+        List<Hardware> candidates = newArrayList();
+        Hardware synthetic = space.getSyntheticHardware(minCores, minRam, biggest, fastest);
+        // the synthetic profiles differ only in cores and RAM, so if this one fails, all do
+        if (synthetic != null && hardwarePredicate.apply(synthetic))
+            candidates.add(synthetic);
+        Iterables.addAll(candidates, Iterables.filter(space.getPredefinedHardwares(), hardwarePredicate));
+        if (candidates.isEmpty())
+            // to fail as the full search does
+            return super.resolveHardware(hardwarel, images);
+        return hardwareSorter().max(candidates);
     }
 
     /**
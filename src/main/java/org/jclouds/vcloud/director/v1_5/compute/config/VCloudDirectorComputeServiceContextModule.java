@@ -17,6 +17,10 @@
 package org.jclouds.vcloud.director.v1_5.compute.config;
 
 import static org.jclouds.Constants.PROPERTY_SESSION_INTERVAL;
+import static org.jclouds.Constants.PROPERTY_USER_THREADS;
+import static org.jclouds.vcloud.director.v1_5.VCloudDirectorConstants.PROPERTY_VCLOUD_DIRECTOR_ENTITY_CACHE_SIZE;
+import static org.jclouds.vcloud.director.v1_5.VCloudDirectorConstants.PROPERTY_VCLOUD_DIRECTOR_ENVELOPE_CACHE_MAX_WEIGHT;
+import static org.jclouds.vcloud.director.v1_5.VCloudDirectorConstants.PROPERTY_VCLOUD_DIRECTOR_ENVELOPE_CACHE_REFRESH_AFTER;
 
 import java.net.URI;
 import java.util.Set;
@@ -35,6 +39,7 @@ import org.jclouds.domain.Location;
 import org.jclouds.functions.IdentityFunction;
 import org.jclouds.location.Provider;
 import org.jclouds.vcloud.director.v1_5.annotations.Login;
+import org.jclouds.vcloud.director.v1_5.builders.TemplateIndexes;
 import org.jclouds.vcloud.director.v1_5.builders.VCloudDirectorTemplateBuilderImpl;
 import org.jclouds.vcloud.director.v1_5.compute.functions.HardwareForVm;
 import org.jclouds.vcloud.director.v1_5.compute.functions.ImageForVAppTemplate;
@@ -45,8 +50,12 @@ import org.jclouds.vcloud.director.v1_5.compute.functions.VdcToLocation;
 import org.jclouds.vcloud.director.v1_5.compute.functions.VmToNodeMetadata;
 import org.jclouds.vcloud.director.v1_5.compute.options.VCloudDirectorTemplateOptions;
 import org.jclouds.vcloud.director.v1_5.compute.strategy.VCloudDirectorComputeServiceAdapter;
+import org.jclouds.vcloud.director.v1_5.compute.strategy.VCloudDirectorInventory;
 import org.jclouds.vcloud.director.v1_5.compute.strategy.VcloudDirectorAdaptingComputeServiceStrategies;
+import org.jclouds.vcloud.director.v1_5.compute.suppliers.ImageSnapshotStore;
+import org.jclouds.vcloud.director.v1_5.compute.suppliers.VAppTemplateImageSupplier;
 import org.jclouds.vcloud.director.v1_5.compute.suppliers.VirtualHardwareConfigSupplier;
+import org.jclouds.vcloud.director.v1_5.compute.util.EnvelopeWeigher;
 import org.jclouds.vcloud.director.v1_5.domain.Entity;
 import org.jclouds.vcloud.director.v1_5.domain.ResourceEntity;
 import org.jclouds.vcloud.director.v1_5.domain.Session;
@@ -63,7 +72,10 @@ import com.google.common.base.Function;
 import com.google.common.base.Supplier;
 import com.google.common.base.Suppliers;
 import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.inject.Injector;
 import com.google.inject.Provides;
 import com.google.inject.Singleton;
 import com.google.inject.TypeLiteral;
@@ -104,6 +116,24 @@ public class VCloudDirectorComputeServiceContextModule extends
       });
    }
 
+   @Override
+   protected boolean shouldEagerlyParseImages(Injector injector) {
+      // the images are always supplied through supplyNonParsingImages, so that builds see them refresh
+      return false;
+   }
+
+   @Override
+   protected Supplier<Set<? extends Image>> supplyNonParsingImages(Supplier<Set<? extends Image>> imageSupplier,
+         Injector injector) {
+      if (injector.getInstance(ImageSnapshotStore.class).isEnabled()
+            || injector.getInstance(VCloudDirectorInventory.class).isEnabled())
+         // builds the images from the snapshot of an earlier process, and with the inventory syncs them
+         // incrementally, reading only the envelopes of changed templates
+         imageSupplier = injector.getInstance(VAppTemplateImageSupplier.class);
+      // counts the refreshes, so that repeated template builds need not copy the image cache in between
+      return injector.getInstance(TemplateIndexes.class).refreshing(imageSupplier);
+   }
+
    @Provides
    @Login
    protected Supplier<URI> loginUrl(@Provider Supplier<URI> provider) {
@@ -148,8 +178,9 @@ public class VCloudDirectorComputeServiceContextModule extends
 
    @Provides
    @Singleton
-   LoadingCache<String, Entity> resolveEntityCache(ResolveEntity loader, @Named(PROPERTY_SESSION_INTERVAL) int seconds) {
-      return CacheBuilder.newBuilder().expireAfterWrite(seconds, TimeUnit.SECONDS).build(loader);
+   LoadingCache<String, Entity> resolveEntityCache(ResolveEntity loader, @Named(PROPERTY_SESSION_INTERVAL) int seconds,
+         @Named(PROPERTY_VCLOUD_DIRECTOR_ENTITY_CACHE_SIZE) long size) {
+      return CacheBuilder.newBuilder().maximumSize(size).expireAfterWrite(seconds, TimeUnit.SECONDS).build(loader);
    }
 
    @Provides
@@ -175,8 +206,17 @@ public class VCloudDirectorComputeServiceContextModule extends
 
    @Provides
    @Singleton
-   LoadingCache<URI, Envelope> provideEnvelopeCache(ResolveEnvelope loader, @Named(PROPERTY_SESSION_INTERVAL) int seconds) {
-      return CacheBuilder.newBuilder().expireAfterWrite(seconds, TimeUnit.SECONDS).build(loader);
+   LoadingCache<URI, Envelope> provideEnvelopeCache(ResolveEnvelope loader, @Named(PROPERTY_SESSION_INTERVAL) int seconds,
+         @Named(PROPERTY_VCLOUD_DIRECTOR_ENVELOPE_CACHE_MAX_WEIGHT) long maxWeight,
+         @Named(PROPERTY_VCLOUD_DIRECTOR_ENVELOPE_CACHE_REFRESH_AFTER) long refreshAfter,
+         @Named(PROPERTY_USER_THREADS) ListeningExecutorService userExecutor) {
+      CacheBuilder<URI, Envelope> builder = CacheBuilder.newBuilder().weigher(new EnvelopeWeigher())
+            .maximumWeight(maxWeight).expireAfterWrite(seconds, TimeUnit.SECONDS).recordStats();
+      if (refreshAfter <= 0 || refreshAfter >= TimeUnit.SECONDS.toMillis(seconds))
+         return builder.build(loader);
+      // envelopes still in use are read again in the background, and served from the cache meanwhile
+      return builder.refreshAfterWrite(refreshAfter, TimeUnit.MILLISECONDS)
+            .build(CacheLoader.asyncReloading(loader, userExecutor));
    }
 
 }
@@ -65,7 +65,7 @@ public class HardwareForVAppTemplate implements Function<VAppTemplate, Hardware>
          logger.warn("multiple hardware choices found. using first", ovf);
       }
       VirtualHardwareSection hardware = Iterables.get(ovf.getVirtualSystem().getVirtualHardwareSections(), 0);
-      HardwareBuilder builder = rasdToHardwareBuilder.apply(hardware.getItems());
+      HardwareBuilder builder = rasdToHardwareBuilder.apply(hardware.getView());
       Link vdc = Iterables.find(checkNotNull(from, "from").getLinks(), LinkPredicates.typeEquals(VCloudDirectorMediaType.VDC));
       if (vdc != null) {
          builder.location(findLocationForResource.apply(vdc));
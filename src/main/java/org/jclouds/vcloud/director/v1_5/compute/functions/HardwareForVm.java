@@ -27,15 +27,11 @@ import org.jclouds.compute.domain.Processor;
 import org.jclouds.compute.predicates.ImagePredicates;
 import org.jclouds.logging.Logger;
 import org.jclouds.vcloud.director.v1_5.domain.Vm;
-import org.jclouds.vcloud.director.v1_5.domain.dmtf.cim.ResourceAllocationSettingData;
-import org.jclouds.vcloud.director.v1_5.domain.dmtf.ovf.SectionType;
-import org.jclouds.vcloud.director.v1_5.domain.section.VirtualHardwareSection;
+import org.jclouds.vcloud.director.v1_5.domain.dmtf.ovf.VirtualHardwareView;
 import org.jclouds.vcloud.director.v1_5.functions.VirtualHardwareSectionForVApp;
 
 import com.google.common.base.Function;
-import com.google.common.base.Predicate;
 import com.google.common.collect.ImmutableList;
-import com.google.common.collect.Iterables;
 
 public class HardwareForVm implements Function<Vm, Hardware> {
 
@@ -61,54 +57,20 @@ public class HardwareForVm implements Function<Vm, Hardware> {
       checkNotNull(from, "VM");
       // TODO make this work with composite vApps
 
-      VirtualHardwareSection hardware = findVirtualHardwareSectionForVm.apply(from);
-      HardwareBuilder builder = rasdToHardwareBuilder.apply(hardware.getItems());
+      VirtualHardwareView hardware = findVirtualHardwareSectionForVm.apply(from).getView();
+      HardwareBuilder builder = rasdToHardwareBuilder.apply(hardware);
       /*
       builder.location(findLocationForResource.apply(Iterables.find(checkNotNull(from, "from").getLinks(), 
             LinkPredicates.typeEquals(VCloudDirectorMediaType.VDC))));
             */
       builder.ids(from.getHref().toASCIIString()).name(from.getName()).supportsImage(
               ImagePredicates.idEquals(from.getHref().toASCIIString()));
-      VirtualHardwareSection virtualHardwareSection = findVirtualHardwareSection(from);
-      int ram = extractRamFrom(virtualHardwareSection);
-      double cores = extractCoresFrom(virtualHardwareSection);
       builder.id(from.getId())
              .name(from.getName())
              .hypervisor("esxi")
              .providerId(from.getHref().toString())
-             .ram(ram)
-             .processors(ImmutableList.of(new Processor(cores, 1)));
+             .ram((int) hardware.getMemoryMb())
+             .processors(ImmutableList.of(new Processor(hardware.getCpuCount(), 1)));
       return builder.build();
    }
-
-   private double extractCoresFrom(VirtualHardwareSection virtualHardwareSection) {
-      ResourceAllocationSettingData resourceAllocationSettingData = Iterables.find(virtualHardwareSection.getItems(), new
-              Predicate<ResourceAllocationSettingData>() {
-                 @Override
-                 public boolean apply(ResourceAllocationSettingData input) {
-                    return input.getResourceType() == ResourceAllocationSettingData.ResourceType.PROCESSOR;
-                 }
-              });
-      return resourceAllocationSettingData.getVirtualQuantity().doubleValue();   }
-
-   private VirtualHardwareSection findVirtualHardwareSection(Vm from) {
-      return (VirtualHardwareSection) Iterables.find(from.getSections(), new
-              Predicate<SectionType>() {
-                 @Override
-                 public boolean apply(SectionType input) {
-                    return input.getInfo().getValue().equals("Virtual hardware requirements");
-                 }
-              });
-   }
-
-   private int extractRamFrom(VirtualHardwareSection virtualHardwareSection) {
-      ResourceAllocationSettingData resourceAllocationSettingData = Iterables.find(virtualHardwareSection.getItems(), new
-              Predicate<ResourceAllocationSettingData>() {
-                 @Override
-                 public boolean apply(ResourceAllocationSettingData input) {
-                    return input.getResourceType() == ResourceAllocationSettingData.ResourceType.MEMORY;
-                 }
-              });
-      return resourceAllocationSettingData.getVirtualQuantity().intValue();
-   }
 }
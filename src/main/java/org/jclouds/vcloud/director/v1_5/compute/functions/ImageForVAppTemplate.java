@@ -77,17 +77,24 @@ public class ImageForVAppTemplate implements Function<QueryResultVAppTemplateRec
          return null;
       }
 
-      ImageBuilder builder = new ImageBuilder();
-      builder.ids(getVappId(from));
-      builder.uri(from.getHref());
-      builder.name(from.getName());
-      builder.description(String.format("%s_%s", from.getName(), from.getCatalogName()));
       OperatingSystem os;
       if (ovf.getVirtualSystem() != null) {
          os = setOsDetails(ovf.getVirtualSystem().getOperatingSystemSection());
       } else {
          os = OperatingSystem.builder().description(UNRECOGNIZED).build();
       }
+      return apply(from, os);
+   }
+
+   /**
+    * @return the image of the template, running {@code os} as read from its OVF envelope before
+    */
+   public Image apply(QueryResultVAppTemplateRecord from, OperatingSystem os) {
+      ImageBuilder builder = new ImageBuilder();
+      builder.ids(getVappId(from));
+      builder.uri(from.getHref());
+      builder.name(from.getName());
+      builder.description(String.format("%s_%s", from.getName(), from.getCatalogName()));
       builder.operatingSystem(os);
       builder.status(toPortableImageStatus.apply(from.getStatus()));
 
@@ -155,8 +162,9 @@ public class ImageForVAppTemplate implements Function<QueryResultVAppTemplateRec
             if (description != null) {
                String stripped = description.contains(" (") ? description.substring(0,
                        description.indexOf(" (")) : description;
-               if (stripped.toLowerCase().contains(osFamily)) {
-                  return stripped.substring(stripped.toLowerCase().indexOf(osFamily) + osFamily.length()).trim();
+               int family = stripped.toLowerCase().indexOf(osFamily);
+               if (family >= 0) {
+                  return stripped.substring(family + osFamily.length()).trim();
                }
             }
             return null;
@@ -83,7 +83,7 @@ public class VmToNodeMetadata implements Function<Vm, NodeMetadata> {
       builder.hostname(from.getName());
       builder.group(nodeNamingConvention.groupInUniqueNameOrNull(from.getName()));
       URI vAppRef = VCloudDirectorComputeUtils.getVAppParent(from);
-      VApp vAppParent = api.getVAppApi().get(vAppRef);
+      VApp vAppParent = api.getVAppApi().getForNodes(vAppRef);
       if (vAppParent == null) {
          // See https://github.com/cloudsoft/jclouds-vcloud-director/issues/35
          // Happens if the VM has been deleted between listing all vApps and us retrieving this vApp.
@@ -44,6 +44,7 @@ import org.jclouds.compute.domain.Template;
 import org.jclouds.compute.reference.ComputeServiceConstants;
 import org.jclouds.compute.reference.ComputeServiceConstants.Timeouts;
 import org.jclouds.domain.LoginCredentials;
+import org.jclouds.javax.annotation.Nullable;
 import org.jclouds.logging.Logger;
 import org.jclouds.scriptbuilder.domain.OsFamily;
 import org.jclouds.scriptbuilder.domain.Statement;
@@ -51,6 +52,7 @@ import org.jclouds.util.Predicates2;
 import org.jclouds.vcloud.director.v1_5.VCloudDirectorApi;
 import org.jclouds.vcloud.director.v1_5.VCloudDirectorException;
 import org.jclouds.vcloud.director.v1_5.compute.options.VCloudDirectorTemplateOptions;
+import org.jclouds.vcloud.director.v1_5.compute.suppliers.VirtualHardwareConfigSupplier;
 import org.jclouds.vcloud.director.v1_5.compute.util.VCloudDirectorComputeUtils;
 import org.jclouds.vcloud.director.v1_5.domain.Link;
 import org.jclouds.vcloud.director.v1_5.domain.Reference;
@@ -64,7 +66,9 @@ import org.jclouds.vcloud.director.v1_5.domain.Vdc;
 import org.jclouds.vcloud.director.v1_5.domain.Vm;
 import org.jclouds.vcloud.director.v1_5.domain.dmtf.cim.CimString;
 import org.jclouds.vcloud.director.v1_5.domain.dmtf.cim.ResourceAllocationSettingData;
+import org.jclouds.vcloud.director.v1_5.domain.dmtf.cim.ResourceAllocationSettingData.ResourceType;
 import org.jclouds.vcloud.director.v1_5.domain.dmtf.ovf.MsgType;
+import org.jclouds.vcloud.director.v1_5.domain.dmtf.ovf.VirtualHardwareView;
 import org.jclouds.vcloud.director.v1_5.domain.network.Network;
 import org.jclouds.vcloud.director.v1_5.domain.network.NetworkAssignment;
 import org.jclouds.vcloud.director.v1_5.domain.network.NetworkConfiguration;
@@ -77,21 +81,19 @@ import org.jclouds.vcloud.director.v1_5.domain.params.InstantiationParams;
 import org.jclouds.vcloud.director.v1_5.domain.params.SourcedCompositionItemParam;
 import org.jclouds.vcloud.director.v1_5.domain.params.UndeployVAppParams;
 import org.jclouds.vcloud.director.v1_5.domain.query.QueryResultRecordType;
-import org.jclouds.vcloud.director.v1_5.domain.query.QueryResultRecords;
 import org.jclouds.vcloud.director.v1_5.domain.query.QueryResultVAppTemplateRecord;
 import org.jclouds.vcloud.director.v1_5.domain.section.GuestCustomizationSection;
 import org.jclouds.vcloud.director.v1_5.domain.section.NetworkConfigSection;
 import org.jclouds.vcloud.director.v1_5.domain.section.NetworkConnectionSection;
 import org.jclouds.vcloud.director.v1_5.domain.section.VirtualHardwareSection;
+import org.jclouds.vcloud.director.v1_5.functions.URNResolver;
 import org.jclouds.vcloud.director.v1_5.predicates.ReferencePredicates;
 import org.jclouds.vcloud.director.v1_5.predicates.TaskSuccess;
 
 import com.google.common.base.Function;
-import com.google.common.base.Objects;
 import com.google.common.base.Optional;
 import com.google.common.base.Predicate;
 import com.google.common.base.Predicates;
-import com.google.common.base.Splitter;
 import com.google.common.base.Supplier;
 import com.google.common.collect.FluentIterable;
 import com.google.common.collect.ImmutableList;
@@ -115,12 +117,17 @@ public class VCloudDirectorComputeServiceAdapter implements
    private final VCloudDirectorApi api;
    private final Supplier<Set<Hardware>> hardwareProfileSupplier;
    private final Timeouts timeouts;
+   private final URNResolver urnResolver;
+   private final VCloudDirectorInventory inventory;
 
    @Inject
-   public VCloudDirectorComputeServiceAdapter(VCloudDirectorApi api, Supplier<Set<Hardware>> hardwareProfileSupplier, Timeouts timeouts) {
+   public VCloudDirectorComputeServiceAdapter(VCloudDirectorApi api, Supplier<Set<Hardware>> hardwareProfileSupplier, Timeouts timeouts,
+         URNResolver urnResolver, VCloudDirectorInventory inventory) {
       this.api = checkNotNull(api, "api");
       this.hardwareProfileSupplier = hardwareProfileSupplier;
       this.timeouts = timeouts;
+      this.urnResolver = urnResolver;
+      this.inventory = inventory;
    }
 
    protected boolean waitForTask(Task task, long timeoutMillis) {
@@ -181,6 +188,7 @@ public class VCloudDirectorComputeServiceAdapter implements
               .sourcedItems(ImmutableList.of(vmItem))
               .build();
       VApp vApp = api.getVdcApi().composeVApp(vdc.getId(), compositionParams);
+      inventory.markStale();
       Task compositionTask = Iterables.getFirst(vApp.getTasks(), null);
 
       logger.debug(">> awaiting vApp(%s) deployment", vApp.getId());
@@ -229,12 +237,7 @@ public class VCloudDirectorComputeServiceAdapter implements
       }
 
       // Configure VirtualHardware on a VM
-      Optional<Hardware> hardwareOptional = Iterables.tryFind(listHardwareProfiles(), new Predicate<Hardware>() {
-         @Override
-         public boolean apply(Hardware input) {
-            return input.getId().equals(hardwareId);
-         }
-      });
+      Optional<Hardware> hardwareOptional = findHardwareProfile(hardwareId);
 
       // virtualCpus and memory templateOptions get the precedence over the default values given by hardwareId
       Integer virtualCpus = templateOptions.getVirtualCpus() == null ? getCoresFromHardware(hardwareOptional) : templateOptions.getVirtualCpus();
@@ -254,15 +257,17 @@ public class VCloudDirectorComputeServiceAdapter implements
       }
 
       VirtualHardwareSection virtualHardwareSection = api.getVmApi().getVirtualHardwareSection(vm.getHref());
+      // the items to edit, all looked up in one pass over the section as fetched
+      VirtualHardwareView hardware = virtualHardwareSection.getView();
 
-      Predicate<ResourceAllocationSettingData> processorPredicate = resourceTypeEquals(ResourceAllocationSettingData.ResourceType.PROCESSOR);
-      virtualHardwareSection = updateVirtualHardwareSection(virtualHardwareSection, processorPredicate, virtualCpus + " virtual CPU(s)", BigInteger.valueOf(virtualCpus.intValue()));
-      Predicate<ResourceAllocationSettingData> memoryPredicate = resourceTypeEquals(ResourceAllocationSettingData.ResourceType.MEMORY);
-      virtualHardwareSection = updateVirtualHardwareSection(virtualHardwareSection, memoryPredicate, ram + " MB of memory", BigInteger.valueOf(ram.intValue()));
+      virtualHardwareSection = updateVirtualHardwareSection(virtualHardwareSection, hardware.getFirst(ResourceType.PROCESSOR),
+            ResourceType.PROCESSOR, virtualCpus + " virtual CPU(s)", BigInteger.valueOf(virtualCpus.intValue()));
+      virtualHardwareSection = updateVirtualHardwareSection(virtualHardwareSection, hardware.getFirst(ResourceType.MEMORY),
+            ResourceType.MEMORY, ram + " MB of memory", BigInteger.valueOf(ram.intValue()));
       if (disk != null) {
-         Predicate<ResourceAllocationSettingData> diskPredicate = resourceTypeEquals(ResourceAllocationSettingData.ResourceType.DISK_DRIVE);
-         Predicate<ResourceAllocationSettingData> elementPredicate = elementNameEquals("Hard disk 1");
-         virtualHardwareSection = updateVirtualHardwareSectionDisk(virtualHardwareSection, Predicates.and(diskPredicate, elementPredicate), BigInteger.valueOf(disk.intValue()));
+         VirtualHardwareView.Disk hardDisk1 = hardware.findDisk("Hard disk 1");
+         virtualHardwareSection = updateVirtualHardwareSectionDisk(virtualHardwareSection, hardDisk1 != null ? hardDisk1.getItem() : null,
+               BigInteger.valueOf(disk.intValue()));
       }
       // NOTE this is not efficient but the vCD API v1.5 don't support editing hardware sections during provisioning
       Task editVirtualHardwareSectionTask = api.getVmApi().editVirtualHardwareSection(vm.getHref(), virtualHardwareSection);
@@ -324,8 +329,8 @@ public class VCloudDirectorComputeServiceAdapter implements
    }
 
    private VirtualHardwareSection updateVirtualHardwareSection(VirtualHardwareSection virtualHardwareSection, 
-            Predicate<ResourceAllocationSettingData> predicate, final String elementName, final BigInteger virtualQuantity) {
-      return updateVirtualHardwareSection(virtualHardwareSection, predicate, new Function<ResourceAllocationSettingData, ResourceAllocationSettingData>() {
+            @Nullable ResourceAllocationSettingData item, ResourceType resourceType, final String elementName, final BigInteger virtualQuantity) {
+      return updateVirtualHardwareSection(virtualHardwareSection, item, resourceType, new Function<ResourceAllocationSettingData, ResourceAllocationSettingData>() {
          @Override
          public ResourceAllocationSettingData apply(ResourceAllocationSettingData input) {
             return input.toBuilder().elementName(elementName).virtualQuantity(virtualQuantity).build();
@@ -338,8 +343,8 @@ public class VCloudDirectorComputeServiceAdapter implements
    }
 
    private VirtualHardwareSection updateVirtualHardwareSectionDisk(VirtualHardwareSection virtualHardwareSection, 
-            Predicate<ResourceAllocationSettingData> predicate, final BigInteger capacity) {
-      return updateVirtualHardwareSection(virtualHardwareSection, predicate, new Function<ResourceAllocationSettingData, ResourceAllocationSettingData>() {
+            @Nullable ResourceAllocationSettingData item, final BigInteger capacity) {
+      return updateVirtualHardwareSection(virtualHardwareSection, item, "Hard disk 1", new Function<ResourceAllocationSettingData, ResourceAllocationSettingData>() {
          @Override
          public ResourceAllocationSettingData apply(ResourceAllocationSettingData input) {
             Set<CimString> oldHostResources = input.getHostResources();
@@ -376,46 +381,33 @@ public class VCloudDirectorComputeServiceAdapter implements
       });
    }
 
-   private VirtualHardwareSection updateVirtualHardwareSection(VirtualHardwareSection virtualHardwareSection, Predicate<ResourceAllocationSettingData>
-            predicate, Function<ResourceAllocationSettingData, ResourceAllocationSettingData> modifier) {
-      Set<? extends ResourceAllocationSettingData> oldItems = virtualHardwareSection.getItems();
-      Set<ResourceAllocationSettingData> newItems = Sets.<ResourceAllocationSettingData>newLinkedHashSet(oldItems);
-      Optional<? extends ResourceAllocationSettingData> oldResourceAllocationSettingData = Iterables.tryFind(oldItems, predicate);
-      if (oldResourceAllocationSettingData.isPresent()) {
-         ResourceAllocationSettingData newResourceAllocationSettingData = modifier.apply(oldResourceAllocationSettingData.get());
-         newItems.remove(oldResourceAllocationSettingData.get());
-         newItems.add(newResourceAllocationSettingData);
-         return virtualHardwareSection.toBuilder().items(newItems).build();
-      } else {
-         logger.warn("Unable to find hardware section matching %s; cannot apply %s", predicate, modifier);
+   private VirtualHardwareSection updateVirtualHardwareSection(VirtualHardwareSection virtualHardwareSection,
+            @Nullable ResourceAllocationSettingData oldItem, Object description,
+            Function<ResourceAllocationSettingData, ResourceAllocationSettingData> modifier) {
+      if (oldItem == null) {
+         logger.warn("Unable to find hardware section item %s; cannot apply %s", description, modifier);
          return virtualHardwareSection;
       }
+      ResourceAllocationSettingData newItem = modifier.apply(oldItem);
+      Set<ResourceAllocationSettingData> newItems = Sets.newLinkedHashSet();
+      for (ResourceAllocationSettingData item : virtualHardwareSection.getItems()) {
+         newItems.add(item == oldItem ? newItem : item);
+      }
+      return virtualHardwareSection.toBuilder().items(newItems).build();
    }
 
-   private Predicate<ResourceAllocationSettingData> resourceTypeEquals(final ResourceAllocationSettingData.ResourceType resourceType) {
-      return new Predicate<ResourceAllocationSettingData>() {
-         @Override
-         public boolean apply(ResourceAllocationSettingData rasd) {
-            return rasd.getResourceType() == resourceType;
-         }
-         @Override
-         public String toString() {
-            return "resourceTypeEquals(" + resourceType + ")";
-         }
-      };
-   }
-
-   private Predicate<ResourceAllocationSettingData> elementNameEquals(final String name) {
-      return new Predicate<ResourceAllocationSettingData>() {
-         @Override
-         public boolean apply(ResourceAllocationSettingData rasd) {
-            return Objects.equal(rasd.getElementName(), name);
-         }
+   private Optional<Hardware> findHardwareProfile(final String hardwareId) {
+      if (hardwareProfileSupplier instanceof VirtualHardwareConfigSupplier) {
+         // parsed from the id, rather than found among every profile
+         return Optional.fromNullable(((VirtualHardwareConfigSupplier) hardwareProfileSupplier).getSpace()
+               .getHardware(hardwareId));
+      }
+      return Iterables.tryFind(listHardwareProfiles(), new Predicate<Hardware>() {
          @Override
-         public String toString() {
-            return "elementNameEquals(" + name + ")";
+         public boolean apply(Hardware input) {
+            return input.getId().equals(hardwareId);
          }
-      };
+      });
    }
 
    private Integer getCoresFromHardware(Optional<Hardware> hardwareOptional) {
@@ -539,21 +531,7 @@ public class VCloudDirectorComputeServiceAdapter implements
 
    @Override
    public Iterable<Vm> listNodes() {
-      return FluentIterable.from(getAllQueryResultRecords("vApp"))
-              .transform(new Function<QueryResultRecordType, VApp>() {
-                 @Override
-                 public VApp apply(QueryResultRecordType input) {
-                    try {
-                       return api.getVAppApi().get(input.getHref());
-                    } catch (VCloudDirectorException e) {
-                       // If the VApp is in an inconsistent state, the server will return at 500 error and an
-                       // exception will be thrown, in which case we can only skip this VApp
-                       logger.debug(String.format("Cannot get details for vApp %s, ignoring. Exception was: %s", input.getHref(), e));
-                       return null;
-                    }
-                 }
-              })
-              .filter(Predicates.notNull())
+      return FluentIterable.from(inventory.isEnabled() ? inventory.getVApps() : readVApps())
               .filter(new Predicate<VApp>() {
                  @Override
                  public boolean apply(VApp input) {
@@ -576,6 +554,24 @@ public class VCloudDirectorComputeServiceAdapter implements
               .toSet();
    }
 
+   private Iterable<VApp> readVApps() {
+      return FluentIterable.from(getAllQueryResultRecords("vApp"))
+              .transform(new Function<QueryResultRecordType, VApp>() {
+                 @Override
+                 public VApp apply(QueryResultRecordType input) {
+                    try {
+                       return api.getVAppApi().getForNodes(input.getHref());
+                    } catch (VCloudDirectorException e) {
+                       // If the VApp is in an inconsistent state, the server will return at 500 error and an
+                       // exception will be thrown, in which case we can only skip this VApp
+                       logger.debug(String.format("Cannot get details for vApp %s, ignoring. Exception was: %s", input.getHref(), e));
+                       return null;
+                    }
+                 }
+              })
+              .filter(Predicates.notNull());
+   }
+
    @Override
    public Iterable<Vm> listNodesByIds(final Iterable<String> ids) {
       return null;
@@ -584,9 +580,17 @@ public class VCloudDirectorComputeServiceAdapter implements
    @Override
    public Iterable<Vdc> listLocations() {
       Org org = getOrgForSession();
-      return FluentIterable.from(org.getLinks())
-              .filter(ReferencePredicates.<Link>typeEquals(VDC))
-              .transform(new Function<Link, Vdc>() {
+      FluentIterable<Link> vdcLinks = FluentIterable.from(org.getLinks())
+              .filter(ReferencePredicates.<Link>typeEquals(VDC));
+      if (inventory.isEnabled()) {
+         return ImmutableSet.copyOf(inventory.getVdcs(vdcLinks.transform(new Function<Link, URI>() {
+            @Override
+            public URI apply(Link input) {
+               return input.getHref();
+            }
+         })));
+      }
+      return vdcLinks.transform(new Function<Link, Vdc>() {
                  @Override
                  public Vdc apply(Link input) {
                     return api.getVdcApi().get(input.getHref());
@@ -642,6 +646,7 @@ public class VCloudDirectorComputeServiceAdapter implements
       }
 
       Task removeTask = api.getVAppApi().remove(vAppRef);
+      inventory.markStale();
       logger.debug(">> awaiting vApp(%s) remove completion", vApp.getId());
       boolean vAppRemoved = waitForTask(removeTask, timeouts.nodeTerminated);
       logger.trace("<< vApp(%s) remove completions(%s)", vApp.getId(), vAppRemoved);
@@ -685,38 +690,11 @@ public class VCloudDirectorComputeServiceAdapter implements
 
 
    private Set<QueryResultRecordType> getAllQueryResultRecords(String type) {
-      QueryResultRecords queryResultRecords = api.getQueryApi().queryAll(type);
-      Set<QueryResultRecordType> result = Sets.newHashSet(queryResultRecords.getRecords());
-      QueryResultRecords currentRecords = queryResultRecords;
-      Map<String, String> splittedQuery = getQueryMapFromRel(currentRecords, Link.Rel.LAST_PAGE);
-      int lastPage = splittedQuery.isEmpty() ? 1 : Integer.valueOf(splittedQuery.get("page"));
-
-      while (currentRecords.getPage() < lastPage) {
-         for (Link link : currentRecords.getLinks()) {
-            if (link.getRel() == Link.Rel.NEXT_PAGE) {
-               splittedQuery = getQueryMapFromRel(currentRecords, Link.Rel.NEXT_PAGE);
-               currentRecords = api.getQueryApi().query(type, splittedQuery.get("page"),
-                       splittedQuery.get("pageSize"), splittedQuery.get("format"));
-               result.addAll(currentRecords.getRecords());
-               break;
-            }
-         }
-      }
+      Set<QueryResultRecordType> result = VCloudDirectorComputeUtils.getAllQueryResultRecords(api, type, null);
+      // the records carry the hrefs of their entities, which later lookups by urn can then reuse
+      urnResolver.prefetch(result);
       return result;
    }
 
-   private Map<String, String> getQueryMapFromRel(QueryResultRecords records, Link.Rel rel) {
-      for (Link link : records.getLinks()) {
-         if (link.getRel() == rel) {
-            return Splitter.on("&")
-                    .omitEmptyStrings()
-                    .trimResults()
-                    .withKeyValueSeparator("=")
-                    .split(link.getHref().getQuery());
-         }
-      }
-      return Maps.newHashMap();
-   }
-
 
 }
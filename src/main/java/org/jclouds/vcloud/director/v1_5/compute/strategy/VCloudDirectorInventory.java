@@ -0,0 +1,307 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.vcloud.director.v1_5.compute.strategy;
+
+import static org.jclouds.vcloud.director.v1_5.VCloudDirectorConstants.PROPERTY_VCLOUD_DIRECTOR_INVENTORY_FULL_SYNC_INTERVAL;
+import static org.jclouds.vcloud.director.v1_5.VCloudDirectorConstants.PROPERTY_VCLOUD_DIRECTOR_INVENTORY_MAX_STALENESS;
+
+import java.net.URI;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Resource;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.jclouds.compute.reference.ComputeServiceConstants;
+import org.jclouds.date.DateService;
+import org.jclouds.javax.annotation.Nullable;
+import org.jclouds.logging.Logger;
+import org.jclouds.vcloud.director.v1_5.VCloudDirectorApi;
+import org.jclouds.vcloud.director.v1_5.VCloudDirectorException;
+import org.jclouds.vcloud.director.v1_5.compute.util.VCloudDirectorComputeUtils;
+import org.jclouds.vcloud.director.v1_5.domain.VApp;
+import org.jclouds.vcloud.director.v1_5.domain.Vdc;
+import org.jclouds.vcloud.director.v1_5.domain.Vm;
+import org.jclouds.vcloud.director.v1_5.domain.query.QueryResultRecordType;
+import org.jclouds.vcloud.director.v1_5.domain.query.QueryResultTaskRecord;
+import org.jclouds.vcloud.director.v1_5.functions.URNResolver;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Objects;
+import com.google.common.base.Ticker;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+/**
+ * A local model of the vApps, with their vms, and of the vdcs, which the compute adapter lists
+ * from instead of reading every one of them again on each listing.
+ * <p>
+ * A listing within {@code jclouds.vcloud-director.inventory.max-staleness} milliseconds of the last
+ * sync answers from the model alone. Otherwise the model is synced: the vApp records are queried,
+ * a request per page, along with the tasks which ended since the last sync, and only the vApps and
+ * vdcs which are new, whose record changed, or which one of those tasks operated on are read again.
+ * Every {@code jclouds.vcloud-director.inventory.full-sync-interval} milliseconds, all of them are,
+ * catching the changes neither shows, such as the addresses the guest tools report.
+ * <p>
+ * One sync runs at a time, building the next model while listings within the max staleness keep
+ * answering from the last, and replacing it once built. A task marks a vdc to be read again only
+ * if it operated on the vdc, and a vApp only if it operated on the vApp or one of its vms.
+ * <p>
+ * A max staleness of zero, the default, disables the model.
+ */
+@Singleton
+public class VCloudDirectorInventory {
+
+   // how far back to look for tasks before the last sync, allowing for skew between our clock and vCD's
+   @VisibleForTesting
+   static final long TASK_OVERLAP_MILLIS = 60 * 1000;
+
+   @Resource
+   @Named(ComputeServiceConstants.COMPUTE_LOGGER)
+   protected Logger logger = Logger.NULL;
+
+   private final VCloudDirectorApi api;
+   private final URNResolver urnResolver;
+   private final DateService dates;
+   private final long maxStalenessNanos;
+   private final long fullSyncIntervalNanos;
+   private final Ticker ticker;
+
+   // serialises syncs, and guards all below but the published models
+   private final Object syncLock = new Object();
+   private final Set<URI> touchedVApps = Sets.newHashSet();
+   private final Set<URI> touchedVdcs = Sets.newHashSet();
+   private final Map<URI, Date> seenTasks = Maps.newHashMap();
+   private Date taskHorizon;
+   private Long vAppsFullySynced;
+   private Long vdcsFullySynced;
+
+   // the models last synced, each replaced whole once a sync has built the next
+   private volatile VAppModel vAppModel = new VAppModel(ImmutableMap.<URI, QueryResultRecordType> of(),
+         ImmutableMap.<URI, VApp> of(), null, 0);
+   private volatile Map<URI, Vdc> vdcs = ImmutableMap.of();
+   // how many times the model was marked stale, so that a sync in progress meanwhile does not count as fresh
+   private final AtomicLong staleMarks = new AtomicLong();
+
+   @Inject
+   public VCloudDirectorInventory(VCloudDirectorApi api, URNResolver urnResolver, DateService dates,
+         @Named(PROPERTY_VCLOUD_DIRECTOR_INVENTORY_MAX_STALENESS) long maxStaleness,
+         @Named(PROPERTY_VCLOUD_DIRECTOR_INVENTORY_FULL_SYNC_INTERVAL) long fullSyncInterval) {
+      this(api, urnResolver, dates, maxStaleness, fullSyncInterval, Ticker.systemTicker());
+   }
+
+   @VisibleForTesting
+   VCloudDirectorInventory(VCloudDirectorApi api, URNResolver urnResolver, DateService dates, long maxStaleness,
+         long fullSyncInterval, Ticker ticker) {
+      this.api = api;
+      this.urnResolver = urnResolver;
+      this.dates = dates;
+      this.maxStalenessNanos = TimeUnit.MILLISECONDS.toNanos(maxStaleness);
+      this.fullSyncIntervalNanos = TimeUnit.MILLISECONDS.toNanos(fullSyncInterval);
+      this.ticker = ticker;
+   }
+
+   public boolean isEnabled() {
+      return maxStalenessNanos > 0;
+   }
+
+   /**
+    * Has the next listing sync the model, as after creating or destroying a node.
+    */
+   public void markStale() {
+      staleMarks.incrementAndGet();
+   }
+
+   /**
+    * @return the vApps, as read by {@link org.jclouds.vcloud.director.v1_5.features.VAppApi#getForNodes(URI)}
+    */
+   public Iterable<VApp> getVApps() {
+      VAppModel model = vAppModel;
+      if (isFresh(model, ticker.read()))
+         return ImmutableList.copyOf(model.vApps.values());
+      synchronized (syncLock) {
+         // another listing may have synced while this one waited
+         model = vAppModel;
+         long now = ticker.read();
+         if (isFresh(model, now))
+            return ImmutableList.copyOf(model.vApps.values());
+         long marks = staleMarks.get();
+
+         boolean full = vAppsFullySynced == null || now - vAppsFullySynced >= fullSyncIntervalNanos;
+         pollTasks(model);
+         Set<QueryResultRecordType> records = VCloudDirectorComputeUtils.getAllQueryResultRecords(api, "vApp", null);
+         urnResolver.prefetch(records);
+
+         ImmutableMap.Builder<URI, QueryResultRecordType> syncedRecords = ImmutableMap.builder();
+         Map<URI, VApp> read = Maps.newLinkedHashMap();
+         int reads = 0;
+         for (QueryResultRecordType record : records) {
+            URI href = record.getHref();
+            VApp vApp = model.vApps.get(href);
+            if (full || vApp == null || touchedVApps.contains(href) || !Objects.equal(record, model.records.get(href))) {
+               vApp = readVApp(href);
+               reads++;
+            }
+            if (vApp != null) {
+               syncedRecords.put(href, record);
+               read.put(href, vApp);
+            }
+         }
+         vAppModel = model = new VAppModel(syncedRecords.build(), ImmutableMap.copyOf(read), now, marks);
+         touchedVApps.clear();
+         if (full)
+            vAppsFullySynced = now;
+         logger.debug("<< synced %d vApps, reading %d", model.vApps.size(), reads);
+         return ImmutableList.copyOf(model.vApps.values());
+      }
+   }
+
+   /**
+    * @return the vdcs at {@code hrefs}, reading only those new to the model or changed since
+    */
+   public Iterable<Vdc> getVdcs(Iterable<URI> hrefs) {
+      synchronized (syncLock) {
+         long now = ticker.read();
+         boolean full = vdcsFullySynced == null || now - vdcsFullySynced >= fullSyncIntervalNanos;
+         if (!full)
+            pollTasks(vAppModel);
+         Map<URI, Vdc> model = vdcs;
+         Map<URI, Vdc> read = Maps.newLinkedHashMap();
+         for (URI href : hrefs) {
+            Vdc vdc = model.get(href);
+            if (full || vdc == null || touchedVdcs.contains(href))
+               vdc = api.getVdcApi().get(href);
+            if (vdc != null)
+               read.put(href, vdc);
+         }
+         vdcs = ImmutableMap.copyOf(read);
+         touchedVdcs.clear();
+         if (full)
+            vdcsFullySynced = now;
+         return ImmutableList.copyOf(read.values());
+      }
+   }
+
+   private boolean isFresh(VAppModel model, long now) {
+      return model.synced != null && now - model.synced < maxStalenessNanos && model.staleMarks == staleMarks.get();
+   }
+
+   /**
+    * Marks the vApps and vdcs which the tasks ended since the last poll operated on, to be read
+    * again by the next sync of each.
+    *
+    * @param model
+    *           the vApps as last synced, whose vms a task may have operated on
+    */
+   private void pollTasks(VAppModel model) {
+      Date now = new Date();
+      if (taskHorizon != null) {
+         Date since = new Date(taskHorizon.getTime() - TASK_OVERLAP_MILLIS);
+         for (QueryResultRecordType record : VCloudDirectorComputeUtils.getAllQueryResultRecords(api, "task",
+               "endDate=gt=" + dates.iso8601DateFormat(since))) {
+            if (!(record instanceof QueryResultTaskRecord) || seenTasks.containsKey(record.getHref()))
+               continue;
+            QueryResultTaskRecord task = QueryResultTaskRecord.class.cast(record);
+            seenTasks.put(task.getHref(), task.getEndDate() != null ? task.getEndDate() : now);
+            URI object = toURI(task.getObject());
+            if (object == null)
+               continue;
+            if (isOfType(task, object, "vdc")) {
+               touchedVdcs.add(object);
+            } else if (isOfType(task, object, "vapp") || isOfType(task, object, "vm")) {
+               URI vApp = model.vAppsOfVms.get(object);
+               touchedVApps.add(vApp != null ? vApp : object);
+            }
+         }
+         // tasks ended before the next poll looks back to will not be seen again
+         for (Iterator<Date> ended = seenTasks.values().iterator(); ended.hasNext();) {
+            if (ended.next().before(new Date(now.getTime() - TASK_OVERLAP_MILLIS)))
+               ended.remove();
+         }
+      }
+      taskHorizon = now;
+   }
+
+   /**
+    * @return whether the object of {@code task} is of {@code type}, as the task record says or,
+    *         failing that, as the path of its href does
+    */
+   private static boolean isOfType(QueryResultTaskRecord task, URI object, String type) {
+      if (task.getObjectType() != null)
+         return type.equalsIgnoreCase(task.getObjectType());
+      String path = object.getPath();
+      if (path == null)
+         return false;
+      if ("vdc".equals(type))
+         return path.contains("/vdc/");
+      return path.contains("/" + type + "-") || path.contains("/" + type + "/");
+   }
+
+   @Nullable
+   private VApp readVApp(URI href) {
+      try {
+         return api.getVAppApi().getForNodes(href);
+      } catch (VCloudDirectorException e) {
+         // If the VApp is in an inconsistent state, the server will return at 500 error and an
+         // exception will be thrown, in which case we can only skip this VApp
+         logger.debug("Cannot get details for vApp %s, ignoring. Exception was: %s", href, e);
+         return null;
+      }
+   }
+
+   @Nullable
+   private static URI toURI(@Nullable String href) {
+      try {
+         return href == null ? null : URI.create(href);
+      } catch (IllegalArgumentException e) {
+         return null;
+      }
+   }
+
+   private static class VAppModel {
+      private final Map<URI, QueryResultRecordType> records;
+      private final Map<URI, VApp> vApps;
+      private final Map<URI, URI> vAppsOfVms;
+      // when it was synced, by the ticker, or null if never
+      private final Long synced;
+      private final long staleMarks;
+
+      private VAppModel(Map<URI, QueryResultRecordType> records, Map<URI, VApp> vApps, @Nullable Long synced,
+            long staleMarks) {
+         this.records = records;
+         this.vApps = vApps;
+         this.synced = synced;
+         this.staleMarks = staleMarks;
+         // never changed once built
+         this.vAppsOfVms = Maps.newHashMap();
+         for (Map.Entry<URI, VApp> vApp : vApps.entrySet()) {
+            if (vApp.getValue().getChildren() == null)
+               continue;
+            for (Vm vm : vApp.getValue().getChildren().getVms())
+               vAppsOfVms.put(vm.getHref(), vApp.getKey());
+         }
+      }
+   }
+}
@@ -0,0 +1,231 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.vcloud.director.v1_5.compute.strategy;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.jclouds.compute.domain.NodeMetadata;
+import org.jclouds.compute.domain.NodeMetadataBuilder;
+import org.jclouds.compute.functions.GroupNamingConvention;
+import org.jclouds.compute.predicates.NodePredicates;
+import org.jclouds.javax.annotation.Nullable;
+import org.jclouds.vcloud.director.v1_5.domain.ResourceEntity;
+import org.jclouds.vcloud.director.v1_5.domain.Vm;
+
+import com.google.common.base.Function;
+import com.google.common.base.Objects;
+import com.google.common.base.Predicate;
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import com.google.common.collect.SetMultimap;
+import com.google.common.collect.Sets;
+import com.google.common.collect.TreeMultimap;
+
+/**
+ * An index of the vms listed by the compute adapter on what their {@link NodeMetadata} would be
+ * matched on: group, location, status and name, so that listing the details of the nodes matching
+ * a predicate only converts the vms which may match it.
+ * <p>
+ * The group, status and name of a node are worked out from its vm, as
+ * {@link org.jclouds.vcloud.director.v1_5.compute.functions.VmToNodeMetadata} does. Its location,
+ * the vdc of its vApp, is only known once the vm has been converted, and is kept until the vm
+ * changes; vms not converted yet match any location.
+ * <p>
+ * {@link NodePredicates#inGroup(String)}, {@link NodePredicates#runningInGroup(String)},
+ * {@link NodePredicates#locationId(String)}, {@link NodePredicates#RUNNING},
+ * {@link NodePredicates#TERMINATED}, {@link NodePredicates#SUSPENDED} and
+ * {@link #nameStartsWith(String)} are looked up in the index; any other predicate is matched
+ * against every vm. The former are recognised by their class, and the groups or locations they
+ * accept found by trying them on each one indexed, as they keep those to themselves;
+ * {@code VCloudDirectorNodeIndexTest} checks this still holds for the jclouds version in use.
+ */
+@Singleton
+public class VCloudDirectorNodeIndex {
+
+   // the classes of the instances NodePredicates returns, which always match as they did when created
+   private static final Class<?> IN_GROUP = NodePredicates.inGroup("group").getClass();
+   private static final Class<?> RUNNING_IN_GROUP = NodePredicates.runningInGroup("group").getClass();
+   private static final Class<?> LOCATION_ID = NodePredicates.locationId("location").getClass();
+
+   private final GroupNamingConvention namingConvention;
+   private final Function<ResourceEntity.Status, NodeMetadata.Status> statusForStatus;
+
+   // all guarded by this, and keyed by vm id
+   private final Map<String, Vm> vms = Maps.newLinkedHashMap();
+   private final SetMultimap<String, String> byGroup = HashMultimap.create();
+   private final SetMultimap<NodeMetadata.Status, String> byStatus = HashMultimap.create();
+   private final TreeMultimap<String, String> byName = TreeMultimap.create();
+   private final SetMultimap<String, String> byLocation = HashMultimap.create();
+   private final Map<String, String> locations = Maps.newHashMap();
+
+   @Inject
+   public VCloudDirectorNodeIndex(GroupNamingConvention.Factory namingConvention,
+         Function<ResourceEntity.Status, NodeMetadata.Status> statusForStatus) {
+      this.namingConvention = checkNotNull(namingConvention, "namingConvention").createWithoutPrefix();
+      this.statusForStatus = checkNotNull(statusForStatus, "statusForStatus");
+   }
+
+   /**
+    * @return a predicate matching the nodes whose name starts with {@code prefix}, which the index
+    *         looks up rather than matches against every vm
+    */
+   public static Predicate<NodeMetadata> nameStartsWith(String prefix) {
+      return new NameStartsWith(checkNotNull(prefix, "prefix"));
+   }
+
+   /**
+    * Indexes {@code listed}, the vms now in the org, in place of those indexed before.
+    *
+    * @return those of {@code listed} which may match {@code filter}
+    */
+   public synchronized List<Vm> candidates(Iterable<Vm> listed, Predicate<?> filter) {
+      Map<String, Vm> current = Maps.newLinkedHashMap();
+      for (Vm vm : listed)
+         current.put(vm.getId(), vm);
+      for (String id : ImmutableList.copyOf(vms.keySet())) {
+         if (!Objects.equal(current.get(id), vms.get(id)))
+            remove(id);
+      }
+      for (Vm vm : current.values()) {
+         if (!vms.containsKey(vm.getId()))
+            add(vm);
+      }
+
+      Set<String> ids = lookup(filter);
+      if (ids == null)
+         return ImmutableList.copyOf(vms.values());
+      ImmutableList.Builder<Vm> candidates = ImmutableList.builder();
+      for (String id : ids)
+         candidates.add(vms.get(id));
+      return candidates.build();
+   }
+
+   /**
+    * Records the location of {@code node}, converted from an indexed vm.
+    */
+   public synchronized void indexLocation(NodeMetadata node) {
+      if (node.getLocation() == null || !vms.containsKey(node.getId()))
+         return;
+      String previous = locations.put(node.getId(), node.getLocation().getId());
+      if (previous != null)
+         byLocation.remove(previous, node.getId());
+      byLocation.put(node.getLocation().getId(), node.getId());
+   }
+
+   private void add(Vm vm) {
+      String id = vm.getId();
+      vms.put(id, vm);
+      byStatus.put(statusForStatus.apply(vm.getStatus()), id);
+      if (vm.getName() == null)
+         return;
+      byName.put(vm.getName(), id);
+      String group = namingConvention.groupInUniqueNameOrNull(vm.getName());
+      if (group != null)
+         byGroup.put(group, id);
+   }
+
+   private void remove(String id) {
+      Vm vm = vms.remove(id);
+      byStatus.remove(statusForStatus.apply(vm.getStatus()), id);
+      String location = locations.remove(id);
+      if (location != null)
+         byLocation.remove(location, id);
+      if (vm.getName() == null)
+         return;
+      byName.remove(vm.getName(), id);
+      String group = namingConvention.groupInUniqueNameOrNull(vm.getName());
+      if (group != null)
+         byGroup.remove(group, id);
+   }
+
+   /**
+    * @return the ids of the vms which may match {@code filter}, or null if it is not one the index
+    *         can look up
+    */
+   @Nullable
+   private Set<String> lookup(Predicate<?> filter) {
+      if (filter == NodePredicates.RUNNING)
+         return ImmutableSet.copyOf(byStatus.get(NodeMetadata.Status.RUNNING));
+      if (filter == NodePredicates.TERMINATED)
+         return ImmutableSet.copyOf(byStatus.get(NodeMetadata.Status.TERMINATED));
+      if (filter == NodePredicates.SUSPENDED)
+         return ImmutableSet.copyOf(byStatus.get(NodeMetadata.Status.SUSPENDED));
+      if (filter instanceof NameStartsWith) {
+         String prefix = NameStartsWith.class.cast(filter).prefix;
+         ImmutableSet.Builder<String> ids = ImmutableSet.builder();
+         for (Map.Entry<String, Collection<String>> named : byName.asMap().tailMap(prefix, true).entrySet()) {
+            if (!named.getKey().startsWith(prefix))
+               break;
+            ids.addAll(named.getValue());
+         }
+         return ids.build();
+      }
+      if (filter.getClass() == IN_GROUP || filter.getClass() == RUNNING_IN_GROUP) {
+         @SuppressWarnings("unchecked")
+         Predicate<NodeMetadata> inGroup = (Predicate<NodeMetadata>) filter;
+         boolean running = filter.getClass() == RUNNING_IN_GROUP;
+         ImmutableSet.Builder<String> ids = ImmutableSet.builder();
+         for (String group : byGroup.keySet()) {
+            // they only match on the group, and the status of running ones
+            if (!inGroup.apply(new NodeMetadataBuilder().ids(group).group(group).status(NodeMetadata.Status.RUNNING)
+                  .build()))
+               continue;
+            ids.addAll(running ? Sets.intersection(byGroup.get(group), byStatus.get(NodeMetadata.Status.RUNNING))
+                  : byGroup.get(group));
+         }
+         return ids.build();
+      }
+      if (filter.getClass() == LOCATION_ID) {
+         ImmutableSet.Builder<String> ids = ImmutableSet.builder();
+         for (String location : byLocation.keySet()) {
+            // equal when of the same id
+            if (NodePredicates.locationId(location).equals(filter))
+               ids.addAll(byLocation.get(location));
+         }
+         return ids.addAll(Sets.difference(vms.keySet(), locations.keySet())).build();
+      }
+      return null;
+   }
+
+   private static class NameStartsWith implements Predicate<NodeMetadata> {
+      private final String prefix;
+
+      private NameStartsWith(String prefix) {
+         this.prefix = prefix;
+      }
+
+      @Override
+      public boolean apply(NodeMetadata input) {
+         return input.getName() != null && input.getName().startsWith(prefix);
+      }
+
+      @Override
+      public String toString() {
+         return "nameStartsWith(" + prefix + ")";
+      }
+   }
+}
@@ -17,10 +17,21 @@
 package org.jclouds.vcloud.director.v1_5.compute.strategy;
 
 import static com.google.common.base.Preconditions.checkNotNull;
+import static org.jclouds.vcloud.director.v1_5.VCloudDirectorConstants.PROPERTY_VCLOUD_DIRECTOR_NODE_CONVERSION_PARALLELISM;
 
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
+import javax.annotation.PreDestroy;
 import javax.annotation.Resource;
+import javax.inject.Singleton;
 
 import org.jclouds.compute.ComputeServiceAdapter;
 import org.jclouds.compute.config.ComputeServiceAdapterContextModule.AddDefaultCredentialsToImage;
@@ -42,7 +53,15 @@ import com.google.common.base.Function;
 import com.google.common.base.Functions;
 import com.google.common.base.Predicate;
 import com.google.common.base.Predicates;
+import com.google.common.base.Throwables;
+import com.google.common.collect.AbstractIterator;
 import com.google.common.collect.FluentIterable;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import com.google.inject.Inject;
 import com.google.inject.name.Named;
 
@@ -51,6 +70,7 @@ import com.google.inject.name.Named;
  * filter out any null values returned by the nodeMetadataAdapter. The addLoginCredentials 
  * thus also guards against null input.
  */
+@Singleton
 public class VcloudDirectorAdaptingComputeServiceStrategies extends AdaptingComputeServiceStrategies<Vm, Hardware, QueryResultVAppTemplateRecord, Vdc> {
 
    // TODO Longer term, fix this in core jclouds and delete when that is available in a stable release.
@@ -62,18 +82,35 @@ public class VcloudDirectorAdaptingComputeServiceStrategies extends AdaptingComp
    private final Map<String, Credentials> credentialStore;
    private final ComputeServiceAdapter<Vm, Hardware, QueryResultVAppTemplateRecord, Vdc> client;
    private final Function<Vm, NodeMetadata> nodeMetadataAdapter;
+   private final VCloudDirectorNodeIndex nodeIndex;
+   private final int conversionParallelism;
+   // its own threads, so that a listing iterated on a user thread never waits on the user threads
+   private final ListeningExecutorService conversionExecutor;
 
    @Inject
    public VcloudDirectorAdaptingComputeServiceStrategies(Map<String, Credentials> credentialStore,
             PrioritizeCredentialsFromTemplate prioritizeCredentialsFromTemplate,
             ComputeServiceAdapter<Vm, Hardware, QueryResultVAppTemplateRecord, Vdc> client, Function<Vm, NodeMetadata> nodeMetadataAdapter,
             Function<QueryResultVAppTemplateRecord, Image> imageAdapter,
-            AddDefaultCredentialsToImage addDefaultCredentialsToImage) {
+            AddDefaultCredentialsToImage addDefaultCredentialsToImage, VCloudDirectorNodeIndex nodeIndex,
+            @Named(PROPERTY_VCLOUD_DIRECTOR_NODE_CONVERSION_PARALLELISM) int conversionParallelism) {
       super(credentialStore, prioritizeCredentialsFromTemplate, client, nodeMetadataAdapter, imageAdapter, addDefaultCredentialsToImage);
       this.credentialStore = checkNotNull(credentialStore, "credentialStore");
       this.client = client;
       this.nodeMetadataAdapter = Functions.compose(addLoginCredentials, checkNotNull(nodeMetadataAdapter,
                "nodeMetadataAdapter"));
+      this.nodeIndex = checkNotNull(nodeIndex, "nodeIndex");
+      this.conversionParallelism = conversionParallelism;
+      ThreadPoolExecutor executor = new ThreadPoolExecutor(Math.max(conversionParallelism, 1),
+               Math.max(conversionParallelism, 1), 60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+               new ThreadFactoryBuilder().setNameFormat("vcloud-director-node-conversion-%d").setDaemon(true).build());
+      executor.allowCoreThreadTimeOut(true);
+      this.conversionExecutor = MoreExecutors.listeningDecorator(executor);
+   }
+
+   @PreDestroy
+   public void shutdownConversions() {
+      conversionExecutor.shutdownNow();
    }
    
    private final Function<NodeMetadata, NodeMetadata> addLoginCredentials = new Function<NodeMetadata, NodeMetadata>() {
@@ -92,11 +129,86 @@ public class VcloudDirectorAdaptingComputeServiceStrategies extends AdaptingComp
       }
    };
 
+   private final Function<NodeMetadata, NodeMetadata> indexLocation = new Function<NodeMetadata, NodeMetadata>() {
+
+      @Override
+      public NodeMetadata apply(NodeMetadata arg0) {
+         if (arg0 != null) nodeIndex.indexLocation(arg0);
+         return arg0;
+      }
+
+      @Override
+      public String toString() {
+         return "indexLocation()";
+      }
+   };
+
+   /**
+    * Converts only the nodes which the {@link VCloudDirectorNodeIndex} finds may match
+    * {@code filter}, still matching each against it.
+    * <p>
+    * Like the listing of {@link AdaptingComputeServiceStrategies}, the nodes are converted as the
+    * result is iterated, and again on each iteration; up to
+    * {@code jclouds.vcloud-director.node-conversion.parallelism} of them are converted at once,
+    * on threads of their own, ahead of the iteration, returning them in the order they were listed
+    * in. At most that many are left converting by an iteration which stops early.
+    */
    @Override
    public Iterable<? extends NodeMetadata> listDetailsOnNodesMatching(Predicate<? super NodeMetadata> filter) {
-      return FluentIterable.from(client.listNodes())
-               .transform(nodeMetadataAdapter)
+      final List<Vm> candidates = nodeIndex.candidates(client.listNodes(), filter);
+      FluentIterable<NodeMetadata> nodes;
+      if (conversionParallelism > 1) {
+         nodes = new FluentIterable<NodeMetadata>() {
+            @Override
+            public Iterator<NodeMetadata> iterator() {
+               return new ConvertingIterator(candidates);
+            }
+         };
+      } else {
+         nodes = FluentIterable.from(candidates).transform(nodeMetadataAdapter);
+      }
+      return nodes
+               .transform(indexLocation)
                .filter(Predicates.notNull())
                .filter(filter);
    }
+
+   /**
+    * Converts the vms on the conversion threads, keeping up to {@link #conversionParallelism} of
+    * them converting ahead of the one returned next.
+    */
+   private class ConvertingIterator extends AbstractIterator<NodeMetadata> {
+
+      private final Iterator<Vm> vms;
+      private final Deque<ListenableFuture<NodeMetadata>> converting = new ArrayDeque<ListenableFuture<NodeMetadata>>();
+
+      private ConvertingIterator(List<Vm> vms) {
+         this.vms = vms.iterator();
+      }
+
+      @Override
+      protected NodeMetadata computeNext() {
+         while (converting.size() < conversionParallelism && vms.hasNext()) {
+            final Vm vm = vms.next();
+            converting.add(conversionExecutor.submit(new Callable<NodeMetadata>() {
+               @Override
+               public NodeMetadata call() {
+                  return nodeMetadataAdapter.apply(vm);
+               }
+            }));
+         }
+         if (converting.isEmpty())
+            return endOfData();
+         try {
+            return Futures.getUnchecked(converting.poll());
+         } catch (UncheckedExecutionException e) {
+            // as when converting on the calling thread; the conversions ahead are no longer wanted
+            for (ListenableFuture<NodeMetadata> ahead : converting)
+               ahead.cancel(true);
+            converting.clear();
+            Throwables.throwIfUnchecked(e.getCause());
+            throw e;
+         }
+      }
+   }
 }
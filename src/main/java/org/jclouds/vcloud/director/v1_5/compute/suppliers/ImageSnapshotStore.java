@@ -0,0 +1,244 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.vcloud.director.v1_5.compute.suppliers;
+
+import static com.google.common.base.Charsets.UTF_8;
+import static org.jclouds.vcloud.director.v1_5.VCloudDirectorConstants.PROPERTY_VCLOUD_DIRECTOR_IMAGE_SNAPSHOT_DIRECTORY;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.Date;
+import java.util.Map;
+
+import javax.annotation.Resource;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.jclouds.compute.domain.OperatingSystem;
+import org.jclouds.compute.domain.OsFamily;
+import org.jclouds.compute.reference.ComputeServiceConstants;
+import org.jclouds.domain.Credentials;
+import org.jclouds.javax.annotation.Nullable;
+import org.jclouds.location.Provider;
+import org.jclouds.logging.Logger;
+import org.jclouds.vcloud.director.v1_5.domain.query.QueryResultVAppTemplateRecord;
+
+import com.google.common.base.Objects;
+import com.google.common.base.Strings;
+import com.google.common.base.Supplier;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import com.google.common.hash.Hashing;
+
+/**
+ * Keeps on disk, one file per endpoint and org, the vApp templates the images were last built from
+ * and the operating system read from the OVF envelope of each, so that a later process can build
+ * its images without reading every envelope again.
+ * <p>
+ * Each file holds the query record fields an image is made of, length prefixed, and is mapped into
+ * memory to read it. Any file that cannot be read back is treated as absent.
+ */
+@Singleton
+public class ImageSnapshotStore {
+
+   private static final int MAGIC = 0x76434449;
+   private static final byte VERSION = 1;
+
+   @Resource
+   @Named(ComputeServiceConstants.COMPUTE_LOGGER)
+   protected Logger logger = Logger.NULL;
+
+   private final Path directory;
+   private final Supplier<URI> endpoint;
+   private final Supplier<Credentials> credentials;
+
+   @Inject
+   public ImageSnapshotStore(@Named(PROPERTY_VCLOUD_DIRECTOR_IMAGE_SNAPSHOT_DIRECTORY) String directory,
+         @Provider Supplier<URI> endpoint, @Provider Supplier<Credentials> credentials) {
+      this.directory = Strings.isNullOrEmpty(directory) ? null : Paths.get(directory);
+      this.endpoint = endpoint;
+      this.credentials = credentials;
+   }
+
+   public boolean isEnabled() {
+      return directory != null;
+   }
+
+   /**
+    * @return the stored templates keyed by href, or an empty map if there are none
+    */
+   public Map<URI, Entry> get() {
+      if (!isEnabled())
+         return ImmutableMap.of();
+      Path file = file();
+      if (!Files.exists(file))
+         return ImmutableMap.of();
+      try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+         ByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+         if (in.getInt() != MAGIC || in.get() != VERSION || !key().equals(readString(in)))
+            throw new IOException("not a snapshot of these images");
+         int count = in.getInt();
+         Map<URI, Entry> entries = Maps.newLinkedHashMap();
+         for (int i = 0; i < count; i++) {
+            Entry entry = readEntry(in);
+            entries.put(entry.getRecord().getHref(), entry);
+         }
+         return entries;
+      } catch (IOException e) {
+         logger.debug("discarding image snapshot %s: %s", file, e.getMessage());
+      } catch (RuntimeException e) {
+         // truncated or corrupt
+         logger.debug("discarding image snapshot %s: %s", file, e.getMessage());
+      }
+      return ImmutableMap.of();
+   }
+
+   /**
+    * Stores the templates, replacing any previous snapshot; failures are logged, not thrown.
+    */
+   public void put(Collection<Entry> entries) {
+      if (!isEnabled())
+         return;
+      Path file = file();
+      try {
+         ByteArrayOutputStream bytes = new ByteArrayOutputStream(256 * entries.size() + 64);
+         DataOutputStream out = new DataOutputStream(bytes);
+         out.writeInt(MAGIC);
+         out.writeByte(VERSION);
+         writeString(out, key());
+         out.writeInt(entries.size());
+         for (Entry entry : entries)
+            writeEntry(out, entry);
+         out.flush();
+
+         Files.createDirectories(directory);
+         Path temp = Files.createTempFile(directory, "images", ".tmp");
+         try {
+            Files.write(temp, bytes.toByteArray());
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+         } finally {
+            Files.deleteIfExists(temp);
+         }
+      } catch (IOException e) {
+         logger.warn(e, "could not store image snapshot in %s", file);
+      }
+   }
+
+   private Path file() {
+      return directory.resolve(Hashing.sha256().hashString(key(), UTF_8) + ".images");
+   }
+
+   private String key() {
+      String identity = Strings.nullToEmpty(credentials.get().identity);
+      return endpoint.get() + "\n" + identity.substring(identity.lastIndexOf('@') + 1);
+   }
+
+   private static void writeEntry(DataOutputStream out, Entry entry) throws IOException {
+      QueryResultVAppTemplateRecord record = entry.getRecord();
+      writeString(out, record.getHref().toString());
+      writeString(out, record.getName());
+      writeString(out, record.getCatalogName());
+      writeString(out, record.getStatus());
+      writeString(out, record.getVdc());
+      out.writeLong(record.getCreationDate() == null ? Long.MIN_VALUE : record.getCreationDate().getTime());
+      OperatingSystem os = entry.getOperatingSystem();
+      writeString(out, os.getFamily() == null ? null : os.getFamily().name());
+      writeString(out, os.getVersion());
+      writeString(out, os.getDescription());
+      out.writeBoolean(os.is64Bit());
+   }
+
+   private static Entry readEntry(ByteBuffer in) {
+      QueryResultVAppTemplateRecord.Builder<?> record = QueryResultVAppTemplateRecord.builder();
+      record.href(URI.create(readString(in)));
+      record.name(readString(in)).catalogName(readString(in)).status(readString(in)).vdc(readString(in));
+      long creationDate = in.getLong();
+      if (creationDate != Long.MIN_VALUE)
+         record.creationDate(new Date(creationDate));
+      String family = readString(in);
+      OperatingSystem os = OperatingSystem.builder().family(family == null ? null : OsFamily.valueOf(family))
+            .version(readString(in)).description(readString(in)).is64Bit(in.get() != 0).build();
+      return new Entry(record.build(), os);
+   }
+
+   private static void writeString(DataOutputStream out, @Nullable String value) throws IOException {
+      if (value == null) {
+         out.writeInt(-1);
+         return;
+      }
+      byte[] bytes = value.getBytes(UTF_8);
+      out.writeInt(bytes.length);
+      out.write(bytes);
+   }
+
+   @Nullable
+   private static String readString(ByteBuffer in) {
+      int length = in.getInt();
+      if (length < 0)
+         return null;
+      if (length > in.remaining())
+         throw new BufferUnderflowException();
+      byte[] bytes = new byte[length];
+      in.get(bytes);
+      return new String(bytes, UTF_8);
+   }
+
+   /**
+    * A template as it was queried, and the operating system its OVF envelope describes.
+    */
+   public static class Entry {
+      private final QueryResultVAppTemplateRecord record;
+      private final OperatingSystem operatingSystem;
+
+      public Entry(QueryResultVAppTemplateRecord record, OperatingSystem operatingSystem) {
+         this.record = record;
+         this.operatingSystem = operatingSystem;
+      }
+
+      public QueryResultVAppTemplateRecord getRecord() {
+         return record;
+      }
+
+      public OperatingSystem getOperatingSystem() {
+         return operatingSystem;
+      }
+
+      /**
+       * @return whether the image of {@code current} is the one built from this entry's record,
+       *         having the same href and fields
+       */
+      public boolean isCurrent(QueryResultVAppTemplateRecord current) {
+         return Objects.equal(record.getHref(), current.getHref()) && Objects.equal(record.getName(), current.getName())
+               && Objects.equal(record.getCatalogName(), current.getCatalogName())
+               && Objects.equal(record.getStatus(), current.getStatus())
+               && Objects.equal(record.getVdc(), current.getVdc())
+               && Objects.equal(record.getCreationDate(), current.getCreationDate());
+      }
+   }
+}
@@ -0,0 +1,149 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.vcloud.director.v1_5.compute.suppliers;
+
+import static org.jclouds.Constants.PROPERTY_USER_THREADS;
+
+import java.net.URI;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.Resource;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Provider;
+import javax.inject.Singleton;
+
+import org.jclouds.collect.Memoized;
+import org.jclouds.compute.ComputeServiceAdapter;
+import org.jclouds.compute.config.ComputeServiceAdapterContextModule.AddDefaultCredentialsToImage;
+import org.jclouds.compute.domain.Hardware;
+import org.jclouds.compute.domain.Image;
+import org.jclouds.compute.reference.ComputeServiceConstants;
+import org.jclouds.compute.suppliers.ImageCacheSupplier;
+import org.jclouds.logging.Logger;
+import org.jclouds.vcloud.director.v1_5.builders.TemplateIndexes;
+import org.jclouds.vcloud.director.v1_5.compute.functions.ImageForVAppTemplate;
+import org.jclouds.vcloud.director.v1_5.compute.suppliers.ImageSnapshotStore.Entry;
+import org.jclouds.vcloud.director.v1_5.domain.Vdc;
+import org.jclouds.vcloud.director.v1_5.domain.Vm;
+import org.jclouds.vcloud.director.v1_5.domain.query.QueryResultVAppTemplateRecord;
+
+import com.google.common.base.Supplier;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ListeningExecutorService;
+
+/**
+ * Supplies the images of the vApp templates, starting from the {@link ImageSnapshotStore snapshot}
+ * an earlier process left.
+ * <p>
+ * The first call answers from the snapshot, if there is one, and queries the templates in the
+ * background, replacing the images of the image cache once done and reporting that refresh to the
+ * {@link TemplateIndexes}. That and every later call query the templates and only read the OVF
+ * envelopes of those which are new or changed since the images were last built. Each build is stored as the new snapshot.
+ */
+@Singleton
+public class VAppTemplateImageSupplier implements Supplier<Set<? extends Image>> {
+
+   @Resource
+   @Named(ComputeServiceConstants.COMPUTE_LOGGER)
+   protected Logger logger = Logger.NULL;
+
+   private final ComputeServiceAdapter<Vm, Hardware, QueryResultVAppTemplateRecord, Vdc> adapter;
+   private final ImageForVAppTemplate imageForVAppTemplate;
+   private final AddDefaultCredentialsToImage addDefaultCredentials;
+   private final ImageSnapshotStore store;
+   private final ListeningExecutorService userExecutor;
+   private final Provider<Supplier<Set<? extends Image>>> imageCache;
+   private final TemplateIndexes indexes;
+   private Map<URI, Entry> entries;
+
+   @Inject
+   public VAppTemplateImageSupplier(ComputeServiceAdapter<Vm, Hardware, QueryResultVAppTemplateRecord, Vdc> adapter,
+         ImageForVAppTemplate imageForVAppTemplate, AddDefaultCredentialsToImage addDefaultCredentials,
+         ImageSnapshotStore store, @Named(PROPERTY_USER_THREADS) ListeningExecutorService userExecutor,
+         @Memoized Provider<Supplier<Set<? extends Image>>> imageCache, TemplateIndexes indexes) {
+      this.adapter = adapter;
+      this.imageForVAppTemplate = imageForVAppTemplate;
+      this.addDefaultCredentials = addDefaultCredentials;
+      this.store = store;
+      this.userExecutor = userExecutor;
+      this.imageCache = imageCache;
+      this.indexes = indexes;
+   }
+
+   @Override
+   public synchronized Set<? extends Image> get() {
+      if (entries != null)
+         return build();
+      entries = store.get();
+      if (entries.isEmpty())
+         return build();
+
+      ImmutableSet.Builder<Image> images = ImmutableSet.builder();
+      for (Entry entry : entries.values())
+         images.add(addDefaultCredentials.apply(imageForVAppTemplate.apply(entry.getRecord(), entry.getOperatingSystem())));
+      logger.debug(">> revalidating %d images from their snapshot", entries.size());
+      userExecutor.execute(new Runnable() {
+         @Override
+         public void run() {
+            try {
+               Set<? extends Image> rebuilt = build();
+               Supplier<Set<? extends Image>> cache = imageCache.get();
+               if (cache instanceof ImageCacheSupplier) {
+                  ImageCacheSupplier.class.cast(cache).reset(rebuilt);
+                  indexes.imagesRefreshed();
+               }
+            } catch (RuntimeException e) {
+               logger.warn(e, "could not revalidate the images from their snapshot");
+            }
+         }
+      });
+      return images.build();
+   }
+
+   /**
+    * @return the images of the templates, reusing the operating system of those already built from
+    *         the same record
+    */
+   private synchronized Set<? extends Image> build() {
+      Map<URI, Entry> previous = entries != null ? entries : ImmutableMap.<URI, Entry> of();
+      Map<URI, Entry> current = Maps.newLinkedHashMap();
+      ImmutableSet.Builder<Image> images = ImmutableSet.builder();
+      int read = 0;
+      for (QueryResultVAppTemplateRecord record : adapter.listImages()) {
+         Entry entry = previous.get(record.getHref());
+         Image image;
+         if (entry != null && entry.isCurrent(record)) {
+            image = imageForVAppTemplate.apply(record, entry.getOperatingSystem());
+         } else {
+            image = imageForVAppTemplate.apply(record);
+            read++;
+            if (image == null)
+               continue;
+         }
+         current.put(record.getHref(), new Entry(record, image.getOperatingSystem()));
+         images.add(addDefaultCredentials.apply(image));
+      }
+      logger.debug("<< built %d images, reading %d envelopes", current.size(), read);
+      entries = current;
+      store.put(current.values());
+      return images.build();
+   }
+}
@@ -19,43 +19,35 @@ package org.jclouds.vcloud.director.v1_5.compute.suppliers;
 import java.util.Set;
 
 import javax.inject.Inject;
-import javax.inject.Named;
 
 import org.jclouds.compute.domain.Hardware;
-import org.jclouds.vcloud.director.v1_5.VCloudDirectorConstants;
-import org.jclouds.vcloud.director.v1_5.compute.util.HardwareProfiles;
+import org.jclouds.vcloud.director.v1_5.compute.util.VirtualHardwareSpace;
 
-import com.google.common.base.Splitter;
 import com.google.common.base.Supplier;
-import com.google.common.collect.ImmutableSet;
 
+/**
+ * The hardware profiles of the {@link VirtualHardwareSpace}, which only creates them once they
+ * are first asked for.
+ */
 public class VirtualHardwareConfigSupplier implements Supplier<Set<Hardware>> {
 
-   private final ImmutableSet<Hardware> hardwareConfigs;
+   private final VirtualHardwareSpace space;
+
+   public VirtualHardwareConfigSupplier(int maxCpu, int minRam, int maxRam, String predefinedProfiles) {
+      this(new VirtualHardwareSpace(maxCpu, minRam, maxRam, predefinedProfiles));
+   }
 
    @Inject
-   public VirtualHardwareConfigSupplier(@Named(VCloudDirectorConstants.PROPERTY_VCLOUD_DIRECTOR_HARDWARE_MAX_CPU) int maxCpuFromProperties,
-                                        @Named(VCloudDirectorConstants.PROPERTY_VCLOUD_DIRECTOR_HARDWARE_MIN_RAM) int minRamFromProperties,
-                                        @Named(VCloudDirectorConstants.PROPERTY_VCLOUD_DIRECTOR_HARDWARE_MAX_RAM) int maxRamFromProperties,
-                                        @Named(VCloudDirectorConstants.PROPERTY_VCLOUD_DIRECTOR_PREDEFINED_HARDWARE_PROFILES) String predefinedProfiles) {
-      // Synthetic profiles
-      ImmutableSet.Builder<Hardware> builder = ImmutableSet.builder();
-      for (int cpu = 1; cpu <= maxCpuFromProperties; cpu++) {
-         for (int ram = minRamFromProperties; ram <= maxRamFromProperties; ram *= 2) {
-            builder.add(HardwareProfiles.createHardwareProfile(cpu, ram));
-         }
-      }
-      // Predefined profiles, supplied explicitly by the user
-      if (predefinedProfiles != null) {
-         for (String profile : Splitter.on(",").trimResults().omitEmptyStrings().split(predefinedProfiles)) {
-            builder.add(HardwareProfiles.createHardwareProfile(profile));
-         }
-      }
-      this.hardwareConfigs = builder.build();
+   public VirtualHardwareConfigSupplier(VirtualHardwareSpace space) {
+      this.space = space;
+   }
+
+   public VirtualHardwareSpace getSpace() {
+      return space;
    }
 
    @Override
    public Set<Hardware> get() {
-      return hardwareConfigs;
+      return space.getHardwares();
    }
 }
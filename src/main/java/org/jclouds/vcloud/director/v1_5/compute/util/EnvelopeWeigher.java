@@ -0,0 +1,77 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.vcloud.director.v1_5.compute.util;
+
+import java.net.URI;
+import java.util.Collection;
+
+import org.jclouds.vcloud.director.v1_5.domain.dmtf.Envelope;
+import org.jclouds.vcloud.director.v1_5.domain.dmtf.VirtualSystem;
+import org.jclouds.vcloud.director.v1_5.domain.dmtf.ovf.DiskSection;
+import org.jclouds.vcloud.director.v1_5.domain.dmtf.ovf.NetworkSection;
+import org.jclouds.vcloud.director.v1_5.domain.dmtf.ovf.VirtualHardwareSection;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Weigher;
+
+/**
+ * Weighs the OVF envelopes of the envelope cache by an estimate of their footprint on the heap, in
+ * kilobytes.
+ * <p>
+ * Most of an envelope is its virtual hardware items, each a dozen or so CIM strings, so the
+ * estimate counts the items, disks and networks it holds rather than walk every
+ * object it is made of.
+ */
+public class EnvelopeWeigher implements Weigher<URI, Envelope> {
+
+   @VisibleForTesting
+   static final int ENVELOPE_BYTES = 2048;
+   @VisibleForTesting
+   static final int SECTION_BYTES = 512;
+   @VisibleForTesting
+   static final int ITEM_BYTES = 1024;
+   @VisibleForTesting
+   static final int ENTRY_BYTES = 256;
+
+   @Override
+   public int weigh(URI href, Envelope envelope) {
+      long bytes = ENVELOPE_BYTES + 2L * href.toString().length();
+      bytes += SECTION_BYTES * (long) (size(envelope.getCustomizationSections())
+            + size(envelope.getNetworkConfigSections()) + size(envelope.getLeaseSettingsSections()));
+      if (envelope.getNetworkSections() != null) {
+         for (NetworkSection section : envelope.getNetworkSections())
+            bytes += SECTION_BYTES + ENTRY_BYTES * (long) size(section.getNetworks());
+      }
+      if (envelope.getDiskSections() != null) {
+         for (DiskSection section : envelope.getDiskSections())
+            bytes += SECTION_BYTES + ENTRY_BYTES * (long) size(section.getDisks());
+      }
+      VirtualSystem system = envelope.getVirtualSystem();
+      if (system != null) {
+         bytes += SECTION_BYTES;
+         if (system.getVirtualHardwareSections() != null) {
+            for (VirtualHardwareSection section : system.getVirtualHardwareSections())
+               bytes += SECTION_BYTES + ITEM_BYTES * (long) size(section.getItems());
+         }
+      }
+      return (int) Math.min(Integer.MAX_VALUE, Math.max(1, bytes / 1024));
+   }
+
+   private static int size(Collection<?> collection) {
+      return collection == null ? 0 : collection.size();
+   }
+}
@@ -18,6 +18,7 @@ package org.jclouds.vcloud.director.v1_5.compute.util;
 
 import static com.google.common.collect.Iterables.filter;
 import java.net.URI;
+import java.util.Map;
 import java.util.Random;
 import java.util.Set;
 
@@ -25,6 +26,7 @@ import org.jclouds.cim.OSType;
 import org.jclouds.compute.domain.CIMOperatingSystem;
 import org.jclouds.compute.domain.OperatingSystem;
 import org.jclouds.domain.LoginCredentials;
+import org.jclouds.javax.annotation.Nullable;
 import org.jclouds.vcloud.director.v1_5.VCloudDirectorApi;
 import org.jclouds.vcloud.director.v1_5.domain.Link;
 import org.jclouds.vcloud.director.v1_5.domain.Reference;
@@ -37,19 +39,25 @@ import org.jclouds.vcloud.director.v1_5.domain.dmtf.cim.ResourceAllocationSettin
 import org.jclouds.vcloud.director.v1_5.domain.dmtf.cim.ResourceAllocationSettingData.ResourceType;
 import org.jclouds.vcloud.director.v1_5.domain.network.Network;
 import org.jclouds.vcloud.director.v1_5.domain.network.NetworkConnection;
+import org.jclouds.vcloud.director.v1_5.domain.query.QueryResultRecordType;
+import org.jclouds.vcloud.director.v1_5.domain.query.QueryResultRecords;
 import org.jclouds.vcloud.director.v1_5.domain.section.GuestCustomizationSection;
 import org.jclouds.vcloud.director.v1_5.domain.section.NetworkConnectionSection;
 import org.jclouds.vcloud.director.v1_5.domain.section.OperatingSystemSection;
 import org.jclouds.vcloud.director.v1_5.domain.section.VirtualHardwareSection;
+import org.jclouds.vcloud.director.v1_5.features.QueryApi;
 import org.jclouds.vcloud.director.v1_5.functions.SectionForVApp;
 
 import com.google.common.base.Function;
 import com.google.common.base.Optional;
 import com.google.common.base.Predicate;
+import com.google.common.base.Splitter;
 import com.google.common.collect.FluentIterable;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ImmutableSet.Builder;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 import com.google.inject.Inject;
 
 public class VCloudDirectorComputeUtils {
@@ -186,4 +194,49 @@ public class VCloudDirectorComputeUtils {
       }
       return optionalLink.get().getHref();
    }
+
+   /**
+    * @return the records of every page of the query of {@code type}, restricted by {@code filter}
+    *         if it is not null
+    */
+   public static Set<QueryResultRecordType> getAllQueryResultRecords(VCloudDirectorApi api, String type,
+         @Nullable String filter) {
+      QueryApi queryApi = api.getQueryApi();
+      QueryResultRecords queryResultRecords = filter == null ? queryApi.queryAll(type) : queryApi.query(type, filter);
+      Set<QueryResultRecordType> result = Sets.newLinkedHashSet(queryResultRecords.getRecords());
+      QueryResultRecords currentRecords = queryResultRecords;
+      Map<String, String> splittedQuery = getQueryMapFromRel(currentRecords, Link.Rel.LAST_PAGE);
+      int lastPage = splittedQuery.isEmpty() ? 1 : Integer.valueOf(splittedQuery.get("page"));
+
+      while (currentRecords.getPage() < lastPage) {
+         for (Link link : currentRecords.getLinks()) {
+            if (link.getRel() == Link.Rel.NEXT_PAGE) {
+               splittedQuery = getQueryMapFromRel(currentRecords, Link.Rel.NEXT_PAGE);
+               if (filter == null) {
+                  currentRecords = queryApi.query(type, splittedQuery.get("page"), splittedQuery.get("pageSize"),
+                        splittedQuery.get("format"));
+               } else {
+                  currentRecords = queryApi.query(Integer.valueOf(splittedQuery.get("page")),
+                        Integer.valueOf(splittedQuery.get("pageSize")), splittedQuery.get("format"), type, filter);
+               }
+               result.addAll(currentRecords.getRecords());
+               break;
+            }
+         }
+      }
+      return result;
+   }
+
+   private static Map<String, String> getQueryMapFromRel(QueryResultRecords records, Link.Rel rel) {
+      for (Link link : records.getLinks()) {
+         if (link.getRel() == rel) {
+            return Splitter.on("&")
+                    .omitEmptyStrings()
+                    .trimResults()
+                    .withKeyValueSeparator("=")
+                    .split(link.getHref().getQuery());
+         }
+      }
+      return Maps.newHashMap();
+   }
 }
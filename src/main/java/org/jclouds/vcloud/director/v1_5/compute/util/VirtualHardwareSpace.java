@@ -0,0 +1,171 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.vcloud.director.v1_5.compute.util;
+
+import static org.jclouds.vcloud.director.v1_5.VCloudDirectorConstants.PROPERTY_VCLOUD_DIRECTOR_HARDWARE_MAX_CPU;
+import static org.jclouds.vcloud.director.v1_5.VCloudDirectorConstants.PROPERTY_VCLOUD_DIRECTOR_HARDWARE_MAX_RAM;
+import static org.jclouds.vcloud.director.v1_5.VCloudDirectorConstants.PROPERTY_VCLOUD_DIRECTOR_HARDWARE_MIN_RAM;
+import static org.jclouds.vcloud.director.v1_5.VCloudDirectorConstants.PROPERTY_VCLOUD_DIRECTOR_PREDEFINED_HARDWARE_PROFILES;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.jclouds.compute.domain.Hardware;
+import org.jclouds.javax.annotation.Nullable;
+
+import com.google.common.base.Splitter;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.primitives.Ints;
+
+/**
+ * The hardware profiles a vCD compute service offers: a synthetic one for each number of CPUs up
+ * to {@code jclouds.vcloud-director.hardware-profiles.max-cpu} and each doubling of RAM from
+ * {@code min-ram} up to {@code max-ram}, followed by the {@code predefined} ones.
+ * <p>
+ * Synthetic profiles are only created when asked for: by id, by the smallest, biggest or fastest
+ * one with enough CPUs and RAM, or all of them by {@link #getHardwares()}, which builds the set
+ * once.
+ */
+@Singleton
+public class VirtualHardwareSpace {
+
+   private final int maxCpu;
+   // the RAM of the synthetic profiles, in MB, ascending
+   private final int[] rams;
+   private final List<Hardware> predefined;
+   private final Map<String, Hardware> predefinedById;
+   private final Supplier<Set<Hardware>> hardwares = Suppliers.memoize(new Supplier<Set<Hardware>>() {
+      @Override
+      public Set<Hardware> get() {
+         ImmutableSet.Builder<Hardware> builder = ImmutableSet.builder();
+         for (int cpu = 1; cpu <= maxCpu; cpu++) {
+            for (int ram : rams) {
+               builder.add(HardwareProfiles.createHardwareProfile(cpu, ram));
+            }
+         }
+         builder.addAll(predefined);
+         return builder.build();
+      }
+   });
+
+   @Inject
+   public VirtualHardwareSpace(@Named(PROPERTY_VCLOUD_DIRECTOR_HARDWARE_MAX_CPU) int maxCpu,
+         @Named(PROPERTY_VCLOUD_DIRECTOR_HARDWARE_MIN_RAM) int minRam,
+         @Named(PROPERTY_VCLOUD_DIRECTOR_HARDWARE_MAX_RAM) int maxRam,
+         @Named(PROPERTY_VCLOUD_DIRECTOR_PREDEFINED_HARDWARE_PROFILES) String predefinedProfiles) {
+      this.maxCpu = maxCpu;
+      List<Integer> rams = Lists.newArrayList();
+      for (int ram = minRam; ram <= maxRam; ram *= 2) {
+         rams.add(ram);
+      }
+      this.rams = Ints.toArray(rams);
+      ImmutableList.Builder<Hardware> predefined = ImmutableList.builder();
+      Map<String, Hardware> predefinedById = Maps.newHashMap();
+      if (predefinedProfiles != null) {
+         for (String profile : Splitter.on(",").trimResults().omitEmptyStrings().split(predefinedProfiles)) {
+            Hardware hardware = HardwareProfiles.createHardwareProfile(profile);
+            predefined.add(hardware);
+            if (!predefinedById.containsKey(hardware.getId()))
+               predefinedById.put(hardware.getId(), hardware);
+         }
+      }
+      this.predefined = predefined.build();
+      this.predefinedById = predefinedById;
+   }
+
+   /**
+    * @return every profile, synthetic ones first
+    */
+   public Set<Hardware> getHardwares() {
+      return hardwares.get();
+   }
+
+   /**
+    * @return the predefined profiles, in the order they were configured
+    */
+   public List<Hardware> getPredefinedHardwares() {
+      return predefined;
+   }
+
+   /**
+    * @return whether {@code hardwares} looks like the set of {@link #getHardwares()}, having as many
+    *         profiles and the smallest and biggest synthetic ones, without comparing all of them
+    */
+   public boolean isOf(Set<? extends Hardware> hardwares) {
+      if (hardwares.size() != getHardwares().size())
+         return false;
+      if (maxCpu < 1 || rams.length == 0)
+         return true;
+      return Iterables.contains(hardwares, HardwareProfiles.createHardwareProfile(1, rams[0]))
+            && Iterables.contains(hardwares, HardwareProfiles.createHardwareProfile(maxCpu, rams[rams.length - 1]));
+   }
+
+   /**
+    * @return the profile with {@code id}, as the first with that id in {@link #getHardwares()}, or
+    *         null if there is none
+    */
+   @Nullable
+   public Hardware getHardware(String id) {
+      Matcher matcher = HardwareProfiles.SHORT_NAME_PATTERN.matcher(id);
+      if (matcher.matches()) {
+         Hardware parsed = HardwareProfiles.createHardwareProfile(id);
+         int cpu = (int) parsed.getProcessors().get(0).getCores();
+         // only ids formatted as the synthetic profile of these CPUs and RAM name it
+         if (cpu >= 1 && cpu <= maxCpu && Ints.contains(rams, parsed.getRam())
+               && HardwareProfiles.createHardwareProfile(cpu, parsed.getRam()).getId().equals(id))
+            return parsed;
+      }
+      return predefinedById.get(id);
+   }
+
+   /**
+    * @return the synthetic profile with at least {@code minCores} CPUs and {@code minRam} MB of
+    *         RAM a template builder prefers: the one with the fewest CPUs, or the most if
+    *         {@code biggest} or {@code fastest}, then with the least RAM, or the most if
+    *         {@code biggest}; or null if none has enough
+    */
+   @Nullable
+   public Hardware getSyntheticHardware(double minCores, int minRam, boolean biggest, boolean fastest) {
+      int cpu = Math.max(1, (int) Math.ceil(minCores));
+      if (cpu > maxCpu || rams.length == 0 || rams[rams.length - 1] < minRam)
+         return null;
+      if (biggest || fastest)
+         cpu = maxCpu;
+      int ram;
+      if (biggest) {
+         ram = rams[rams.length - 1];
+      } else {
+         int i = 0;
+         while (rams[i] < minRam)
+            i++;
+         ram = rams[i];
+      }
+      return HardwareProfiles.createHardwareProfile(cpu, ram);
+   }
+}
@@ -29,10 +29,18 @@ import org.jclouds.location.config.LocationModule;
 import org.jclouds.location.suppliers.ImplicitLocationSupplier;
 import org.jclouds.location.suppliers.implicit.OnlyLocationOrFirstZone;
 import org.jclouds.rest.ConfiguresHttpApi;
+import org.jclouds.rest.binders.BindToXMLPayload;
 import org.jclouds.rest.config.HttpApiModule;
 import org.jclouds.vcloud.director.v1_5.VCloudDirectorApi;
+import org.jclouds.vcloud.director.v1_5.binders.BindToStreamingXMLPayload;
+import org.jclouds.vcloud.director.v1_5.handlers.BackoffPolicy;
+import org.jclouds.vcloud.director.v1_5.handlers.DecorrelatedJitterBackoffPolicy;
 import org.jclouds.vcloud.director.v1_5.handlers.VCloudDirectorErrorHandler;
+import org.jclouds.vcloud.director.v1_5.handlers.VCloudDirectorRedirectionRetryHandler;
 import org.jclouds.vcloud.director.v1_5.handlers.VcloudDirectorClientErrorRetryHandler;
+import org.jclouds.vcloud.director.v1_5.handlers.VcloudDirectorServerErrorRetryHandler;
+import org.jclouds.vcloud.director.v1_5.xml.VCloudDirectorJAXBParser;
+import org.jclouds.xml.XMLParser;
 
 import com.google.common.collect.ImmutableSet;
 import com.google.inject.Provides;
@@ -48,6 +56,9 @@ public class VCloudDirectorHttpApiModule extends HttpApiModule<VCloudDirectorApi
    @Override
    protected void configure() {
       bind(DateAdapter.class).to(Iso8601DateAdapter.class);
+      bind(BackoffPolicy.class).to(DecorrelatedJitterBackoffPolicy.class);
+      bind(XMLParser.class).to(VCloudDirectorJAXBParser.class);
+      bind(BindToXMLPayload.class).to(BindToStreamingXMLPayload.class);
       super.configure();
    }
 
@@ -80,6 +91,8 @@ public class VCloudDirectorHttpApiModule extends HttpApiModule<VCloudDirectorApi
 
    @Override
    protected void bindRetryHandlers() {
+      bind(HttpRetryHandler.class).annotatedWith(Redirection.class).to(VCloudDirectorRedirectionRetryHandler.class);
       bind(HttpRetryHandler.class).annotatedWith(ClientError.class).to(VcloudDirectorClientErrorRetryHandler.class);
+      bind(HttpRetryHandler.class).annotatedWith(ServerError.class).to(VcloudDirectorServerErrorRetryHandler.class);
    }
 }
@@ -0,0 +1,87 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.vcloud.director.v1_5.config;
+
+import static org.jclouds.vcloud.director.v1_5.VCloudDirectorConstants.PROPERTY_VCLOUD_DIRECTOR_COMPRESSION;
+
+import javax.inject.Named;
+import javax.inject.Provider;
+import javax.inject.Singleton;
+
+import org.jclouds.http.HttpCommandExecutorService;
+import org.jclouds.http.config.ConfiguresHttpCommandExecutorService;
+import org.jclouds.http.okhttp.OkHttpClientSupplier;
+import org.jclouds.http.okhttp.OkHttpCommandExecutorService;
+import org.jclouds.http.okhttp.config.OkHttpCommandExecutorServiceModule;
+import org.jclouds.vcloud.director.v1_5.handlers.CircuitBreakers;
+import org.jclouds.vcloud.director.v1_5.handlers.CircuitBreakingHttpCommandExecutorService;
+import org.jclouds.vcloud.director.v1_5.handlers.ConditionalGetCache;
+import org.jclouds.vcloud.director.v1_5.handlers.ConditionalGetHttpCommandExecutorService;
+import org.jclouds.vcloud.director.v1_5.handlers.ContentEncodingInterceptor;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Provides;
+import com.google.inject.Scopes;
+import com.google.inject.util.Modules;
+
+import okhttp3.OkHttpClient;
+
+/**
+ * Configures the okhttp driver, with every command it executes guarded by the circuit breaker of
+ * its endpoint and api, GETs revalidating the entities of the {@link ConditionalGetCache}, and
+ * response compression negotiated by a {@link ContentEncodingInterceptor}.
+ * <p>
+ * The driver's executor is final, so cannot be wrapped by a method interceptor; it is bound as
+ * the delegate of a {@link ConditionalGetHttpCommandExecutorService}, itself the delegate of a
+ * {@link CircuitBreakingHttpCommandExecutorService}, instead.
+ */
+@ConfiguresHttpCommandExecutorService
+public class VCloudDirectorOkHttpCommandExecutorServiceModule extends AbstractModule {
+
+   @Override
+   protected void configure() {
+      install(Modules.override(new OkHttpCommandExecutorServiceModule()).with(new WrappingModule()));
+   }
+
+   private static class WrappingModule extends AbstractModule {
+
+      @Override
+      protected void configure() {
+         bind(OkHttpCommandExecutorService.class).in(Scopes.SINGLETON);
+      }
+
+      @Provides
+      @Singleton
+      protected OkHttpClientSupplier compressing(@Named(PROPERTY_VCLOUD_DIRECTOR_COMPRESSION) final boolean compression) {
+         return new OkHttpClientSupplier() {
+            @Override
+            public OkHttpClient get() {
+               return new OkHttpClient.Builder().addInterceptor(new ContentEncodingInterceptor(compression)).build();
+            }
+         };
+      }
+
+      @Provides
+      @Singleton
+      protected HttpCommandExecutorService wrapping(OkHttpCommandExecutorService okhttp,
+            ConditionalGetCache conditionalGets, Provider<CircuitBreakers> circuitBreakers) {
+         // a 304 the cache answers counts as a success of the breaker like any other response
+         return new CircuitBreakingHttpCommandExecutorService(
+               new ConditionalGetHttpCommandExecutorService(okhttp, conditionalGets), circuitBreakers);
+      }
+   }
+}
@@ -31,6 +31,7 @@ import org.jclouds.vcloud.director.v1_5.domain.dmtf.ovf.DeploymentOptionSection;
 import org.jclouds.vcloud.director.v1_5.domain.dmtf.ovf.DiskSection;
 import org.jclouds.vcloud.director.v1_5.domain.dmtf.ovf.NetworkSection;
 import org.jclouds.vcloud.director.v1_5.domain.dmtf.ovf.ProductSection;
+import org.jclouds.vcloud.director.v1_5.domain.dmtf.ovf.SectionIndex;
 import org.jclouds.vcloud.director.v1_5.domain.dmtf.ovf.SectionType;
 import org.jclouds.vcloud.director.v1_5.domain.dmtf.ovf.StartupSection;
 import org.jclouds.vcloud.director.v1_5.domain.section.CustomizationSection;
@@ -152,6 +153,8 @@ public abstract class AbstractVAppType extends ResourceEntity {
    @XmlAttribute
    private Boolean deployed;
 
+   private final transient SectionIndex.Lazy sectionIndex = new SectionIndex.Lazy();
+
    protected AbstractVAppType() {
       // for JAXB and Builders
    }
@@ -198,6 +201,13 @@ public abstract class AbstractVAppType extends ResourceEntity {
       return sections != null ? ImmutableSet.copyOf(sections) : ImmutableSet.<SectionType>of();
    }
 
+   /**
+    * @return the first of {@link #getSections()} that is a {@code type}, or null if there is none
+    */
+   public <S extends SectionType> S getSection(Class<S> type) {
+      return sectionIndex.get(sections, type);
+   }
+
    /**
     * Gets the value of the deployed property.
     */
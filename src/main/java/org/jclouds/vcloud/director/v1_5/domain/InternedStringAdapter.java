@@ -0,0 +1,45 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.vcloud.director.v1_5.domain;
+
+import javax.xml.bind.annotation.adapters.XmlAdapter;
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+
+/**
+ * Unmarshals attribute values that repeat across entities, such as media types, to one shared
+ * instance per value, so that inventories of parsed entities do not hold a copy in every link.
+ */
+public class InternedStringAdapter extends XmlAdapter<String, String> {
+
+   private static final Interner<String> VALUES = Interners.newWeakInterner();
+
+   public static String intern(String value) {
+      return value != null ? VALUES.intern(value) : null;
+   }
+
+   @Override
+   public String unmarshal(String value) {
+      return intern(value);
+   }
+
+   @Override
+   public String marshal(String value) {
+      return value;
+   }
+}
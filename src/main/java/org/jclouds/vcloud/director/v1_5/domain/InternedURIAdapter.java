@@ -0,0 +1,47 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.vcloud.director.v1_5.domain;
+
+import java.net.URI;
+
+import javax.xml.bind.annotation.adapters.XmlAdapter;
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+
+/**
+ * Unmarshals hrefs to one shared {@link URI} per address, as the same org, vdc, network and
+ * storage profile hrefs are linked to from every entity within them.
+ */
+public class InternedURIAdapter extends XmlAdapter<String, URI> {
+
+   private static final Interner<URI> HREFS = Interners.newWeakInterner();
+
+   public static URI intern(URI href) {
+      return href != null ? HREFS.intern(href) : null;
+   }
+
+   @Override
+   public URI unmarshal(String href) {
+      return href != null ? intern(URI.create(href.trim())) : null;
+   }
+
+   @Override
+   public String marshal(URI href) {
+      return href != null ? href.toString() : null;
+   }
+}
@@ -26,6 +26,7 @@ import javax.xml.bind.annotation.XmlAttribute;
 import javax.xml.bind.annotation.XmlRootElement;
 import javax.xml.bind.annotation.XmlSeeAlso;
 import javax.xml.bind.annotation.XmlType;
+import javax.xml.bind.annotation.adapters.XmlJavaTypeAdapter;
 
 import org.jclouds.logging.Logger;
 
@@ -115,10 +116,12 @@ public class Reference {
    }
 
    @XmlAttribute(required = true)
+   @XmlJavaTypeAdapter(InternedURIAdapter.class)
    private URI href;
    @XmlAttribute
    private String name;
    @XmlAttribute
+   @XmlJavaTypeAdapter(InternedStringAdapter.class)
    private String type;
 
    protected Reference(Builder<?> builder) {
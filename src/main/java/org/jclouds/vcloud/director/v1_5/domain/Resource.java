@@ -28,6 +28,7 @@ import javax.xml.bind.annotation.XmlAttribute;
 import javax.xml.bind.annotation.XmlElement;
 import javax.xml.bind.annotation.XmlRootElement;
 import javax.xml.bind.annotation.XmlType;
+import javax.xml.bind.annotation.adapters.XmlJavaTypeAdapter;
 
 import org.jclouds.logging.Logger;
 
@@ -121,8 +122,10 @@ public class Resource {
    }
 
    @XmlAttribute
+   @XmlJavaTypeAdapter(InternedURIAdapter.class)
    private URI href;
    @XmlAttribute
+   @XmlJavaTypeAdapter(InternedStringAdapter.class)
    private String type;
    @XmlElement(name = "Link")
    private Set<Link> links = Sets.newLinkedHashSet();
@@ -33,6 +33,7 @@ import org.jclouds.vcloud.director.v1_5.domain.dmtf.ovf.DeploymentOptionSection;
 import org.jclouds.vcloud.director.v1_5.domain.dmtf.ovf.DiskSection;
 import org.jclouds.vcloud.director.v1_5.domain.dmtf.ovf.NetworkSection;
 import org.jclouds.vcloud.director.v1_5.domain.dmtf.ovf.ProductSection;
+import org.jclouds.vcloud.director.v1_5.domain.dmtf.ovf.SectionIndex;
 import org.jclouds.vcloud.director.v1_5.domain.dmtf.ovf.SectionType;
 import org.jclouds.vcloud.director.v1_5.domain.dmtf.ovf.StartupSection;
 import org.jclouds.vcloud.director.v1_5.domain.section.CustomizationSection;
@@ -44,7 +45,6 @@ import org.jclouds.vcloud.director.v1_5.domain.section.OperatingSystemSection;
 import org.jclouds.vcloud.director.v1_5.domain.section.RuntimeInfoSection;
 import org.jclouds.vcloud.director.v1_5.domain.section.VirtualHardwareSection;
 
-
 import com.google.common.base.Objects;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Sets;
@@ -175,6 +175,8 @@ public class VAppTemplate extends ResourceEntity {
    @XmlAttribute
    private Boolean goldMaster;
 
+   private final transient SectionIndex.Lazy sectionIndex = new SectionIndex.Lazy();
+
    protected VAppTemplate(Builder<?> builder) {
       super(builder);
       this.owner = builder.owner;
@@ -231,6 +233,13 @@ public class VAppTemplate extends ResourceEntity {
       return sections != null ? ImmutableSet.copyOf(sections) : ImmutableSet.<SectionType>of();
    }
 
+   /**
+    * @return the first of {@link #getSections()} that is a {@code type}, or null if there is none
+    */
+   public <S extends SectionType> S getSection(Class<S> type) {
+      return sectionIndex.get(sections, type);
+   }
+
    /**
     * Gets the value of the vAppScopedLocalId property.
     */
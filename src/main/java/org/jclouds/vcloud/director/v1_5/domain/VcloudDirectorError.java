@@ -19,7 +19,7 @@ package org.jclouds.vcloud.director.v1_5.domain;
 import com.google.common.base.MoreObjects;
 
 /**
- * @see {@link org.jclouds.vcloud.director.v1_5.handlers.ErrorHandler} for code to parse, and thus instantiate, a vCD error.
+ * @see {@link org.jclouds.vcloud.director.v1_5.handlers.VcloudDirectorUtils} for code to parse, and thus instantiate, a vCD error.
  */
 public class VcloudDirectorError {
    
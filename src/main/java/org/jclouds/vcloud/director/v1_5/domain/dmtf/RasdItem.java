@@ -27,9 +27,11 @@ import javax.xml.bind.annotation.XmlAttribute;
 import javax.xml.bind.annotation.XmlElement;
 import javax.xml.bind.annotation.XmlRootElement;
 import javax.xml.bind.annotation.XmlSchemaType;
+import javax.xml.bind.annotation.adapters.XmlJavaTypeAdapter;
 
-import org.jclouds.vcloud.director.v1_5.domain.dmtf.cim.ResourceAllocationSettingData;
+import org.jclouds.vcloud.director.v1_5.domain.InternedStringAdapter;
 import org.jclouds.vcloud.director.v1_5.domain.Link;
+import org.jclouds.vcloud.director.v1_5.domain.dmtf.cim.ResourceAllocationSettingData;
 
 import com.google.common.base.Objects;
 import com.google.common.base.MoreObjects.ToStringHelper;
@@ -112,6 +114,7 @@ public class RasdItem extends ResourceAllocationSettingData {
    }
 
    @XmlAttribute(name = "type", namespace = VCLOUD_1_5_NS)
+   @XmlJavaTypeAdapter(InternedStringAdapter.class)
    private String type;
    @XmlAttribute(name = "href", namespace = VCLOUD_1_5_NS)
    @XmlSchemaType(name = "anyURI")
@@ -21,13 +21,17 @@ import static com.google.common.base.Objects.equal;
 
 import java.util.Map;
 
+import javax.xml.bind.Unmarshaller;
 import javax.xml.bind.annotation.XmlAnyAttribute;
 import javax.xml.bind.annotation.XmlType;
 import javax.xml.bind.annotation.XmlValue;
 import javax.xml.namespace.QName;
 
+import org.jclouds.vcloud.director.v1_5.domain.InternedStringAdapter;
 
 import com.google.common.base.Objects;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
 import com.google.common.collect.Maps;
 
 /**
@@ -40,6 +44,8 @@ import com.google.common.collect.Maps;
 @XmlType(name = "cimString")
 public class CimString {
 
+   private static final Interner<QName> ATTRIBUTE_NAMES = Interners.newWeakInterner();
+
    public CimString() {
       // JAXB
    }
@@ -80,6 +86,21 @@ public class CimString {
        return otherAttributes;
    }
 
+   /**
+    * Shares the names and values of other attributes, such as {@code vcloud:capacity} on every
+    * disk's host resource, between all parsed instances.
+    */
+   @SuppressWarnings("unused")
+   private void afterUnmarshal(Unmarshaller unmarshaller, Object parent) {
+      if (otherAttributes == null || otherAttributes.isEmpty())
+         return;
+      Map<QName, String> interned = Maps.newLinkedHashMapWithExpectedSize(otherAttributes.size());
+      for (Map.Entry<QName, String> attribute : otherAttributes.entrySet()) {
+         interned.put(ATTRIBUTE_NAMES.intern(attribute.getKey()), InternedStringAdapter.intern(attribute.getValue()));
+      }
+      otherAttributes = interned;
+   }
+
    @Override
    public int hashCode() {
       return Objects.hashCode(value);
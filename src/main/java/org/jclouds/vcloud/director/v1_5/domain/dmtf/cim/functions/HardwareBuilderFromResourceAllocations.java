@@ -16,8 +16,7 @@
  */
 package org.jclouds.vcloud.director.v1_5.domain.dmtf.cim.functions;
 
-import static com.google.common.collect.Iterables.filter;
-import static com.google.common.collect.Iterables.find;
+import static com.google.common.collect.Iterables.concat;
 import static com.google.common.collect.Iterables.transform;
 
 import javax.inject.Singleton;
@@ -26,9 +25,9 @@ import org.jclouds.compute.domain.HardwareBuilder;
 import org.jclouds.compute.domain.Processor;
 import org.jclouds.compute.domain.Volume;
 import org.jclouds.compute.domain.internal.VolumeImpl;
-import org.jclouds.vcloud.director.v1_5.domain.dmtf.CIMPredicates;
 import org.jclouds.vcloud.director.v1_5.domain.dmtf.cim.ResourceAllocationSettingData;
 import org.jclouds.vcloud.director.v1_5.domain.dmtf.cim.ResourceAllocationSettingData.ResourceType;
+import org.jclouds.vcloud.director.v1_5.domain.dmtf.ovf.VirtualHardwareView;
 
 import com.google.common.base.Function;
 
@@ -37,9 +36,13 @@ public class HardwareBuilderFromResourceAllocations implements
          Function<Iterable<? extends ResourceAllocationSettingData>, HardwareBuilder> {
    @Override
    public HardwareBuilder apply(Iterable<? extends ResourceAllocationSettingData> from) {
+      return apply(VirtualHardwareView.of(from));
+   }
+
+   public HardwareBuilder apply(VirtualHardwareView from) {
       HardwareBuilder builder = new HardwareBuilder();
-      builder.volumes(transform(filter(from, CIMPredicates.resourceTypeIn(ResourceType.DISK_DRIVE,
-               ResourceType.BASE_PARTITIONABLE_UNIT, ResourceType.PARTITIONABLE_UNIT)),
+      builder.volumes(transform(concat(from.getItems(ResourceType.DISK_DRIVE),
+               from.getItems(ResourceType.BASE_PARTITIONABLE_UNIT), from.getItems(ResourceType.PARTITIONABLE_UNIT)),
                new Function<ResourceAllocationSettingData, Volume>() {
 
                   @Override
@@ -49,9 +52,9 @@ public class HardwareBuilderFromResourceAllocations implements
 
                }));
 
-      builder.ram((int) find(from, CIMPredicates.resourceTypeIn(ResourceType.MEMORY)).getVirtualQuantity().longValue());
+      builder.ram((int) from.getMemoryMb());
 
-      builder.processors(transform(filter(from, CIMPredicates.resourceTypeIn(ResourceType.PROCESSOR)),
+      builder.processors(transform(from.getItems(ResourceType.PROCESSOR),
                new Function<ResourceAllocationSettingData, Processor>() {
 
                   @Override
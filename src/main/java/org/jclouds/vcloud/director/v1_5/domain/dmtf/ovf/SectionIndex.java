@@ -0,0 +1,103 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.vcloud.director.v1_5.domain.dmtf.ovf;
+
+import java.util.List;
+import java.util.Map;
+
+import org.jclouds.javax.annotation.Nullable;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+
+/**
+ * The sections of a vApp, vm or template, keyed by their class and each of its superclasses up to
+ * {@link SectionType}, so that finding one is a lookup rather than a scan.
+ * <p>
+ * Where several sections share a class, the first one in document order is kept, as the scans
+ * this replaces did. Only classes are keyed; looking up an interface, which a raw
+ * {@code Class} may name, scans the sections instead.
+ */
+public final class SectionIndex {
+
+   private static final SectionIndex EMPTY = new SectionIndex(ImmutableList.<SectionType>of(),
+         ImmutableMap.<Class<?>, SectionType>of());
+
+   private final List<SectionType> all;
+   private final Map<Class<?>, SectionType> sections;
+
+   private SectionIndex(List<SectionType> all, Map<Class<?>, SectionType> sections) {
+      this.all = all;
+      this.sections = sections;
+   }
+
+   public static SectionIndex of(@Nullable Iterable<? extends SectionType> sections) {
+      if (sections == null)
+         return EMPTY;
+      ImmutableList.Builder<SectionType> all = ImmutableList.builder();
+      Map<Class<?>, SectionType> index = Maps.newHashMap();
+      for (SectionType section : sections) {
+         if (section == null)
+            continue;
+         all.add(section);
+         for (Class<?> type = section.getClass(); SectionType.class.isAssignableFrom(type); type = type.getSuperclass()) {
+            if (!index.containsKey(type))
+               index.put(type, section);
+         }
+      }
+      return index.isEmpty() ? EMPTY : new SectionIndex(all.build(), ImmutableMap.copyOf(index));
+   }
+
+   /**
+    * @return the first section that is an instance of {@code type}, or null if there is none
+    */
+   @Nullable
+   public <S extends SectionType> S get(Class<S> type) {
+      if (type.isInterface()) {
+         for (SectionType section : all) {
+            if (type.isInstance(section))
+               return type.cast(section);
+         }
+         return null;
+      }
+      return type.cast(sections.get(type));
+   }
+
+   /**
+    * A {@link SectionIndex} of the sections of a domain object, built the first time one is looked
+    * up, as JAXB fills the sections in after constructing the object.
+    */
+   public static final class Lazy {
+
+      private volatile SectionIndex index;
+
+      /**
+       * @return the first of {@code sections} that is an instance of {@code type}, or null if there
+       *         is none; {@code sections} must be the same on every call
+       */
+      @Nullable
+      public <S extends SectionType> S get(@Nullable Iterable<? extends SectionType> sections, Class<S> type) {
+         SectionIndex built = index;
+         if (built == null) {
+            built = of(sections);
+            index = built;
+         }
+         return built.get(type);
+      }
+   }
+}
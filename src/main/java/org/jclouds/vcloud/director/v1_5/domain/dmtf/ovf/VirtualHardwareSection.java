@@ -136,6 +136,8 @@ public class VirtualHardwareSection extends SectionType {
    @XmlAnyElement(lax = true)
    protected List<Object> any;
 
+   private transient volatile VirtualHardwareView view;
+
    protected VirtualHardwareSection(Builder<?> builder) {
       super(builder);
       this.virtualSystem = builder.virtualSystem;
@@ -178,6 +180,18 @@ public class VirtualHardwareSection extends SectionType {
       return ImmutableSet.copyOf(items);
    }
 
+   /**
+    * @return a view of the items, built on first use
+    */
+   public VirtualHardwareView getView() {
+      VirtualHardwareView result = view;
+      if (result == null) {
+         result = VirtualHardwareView.of(items);
+         view = result;
+      }
+      return result;
+   }
+
    @Override
    public int hashCode() {
       return Objects.hashCode(super.hashCode(), transport, virtualSystem, items);
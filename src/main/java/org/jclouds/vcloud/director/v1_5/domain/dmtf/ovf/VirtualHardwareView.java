@@ -0,0 +1,285 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.vcloud.director.v1_5.domain.dmtf.ovf;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.math.BigInteger;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.namespace.QName;
+
+import org.jclouds.javax.annotation.Nullable;
+import org.jclouds.vcloud.director.v1_5.domain.dmtf.cim.CimString;
+import org.jclouds.vcloud.director.v1_5.domain.dmtf.cim.ResourceAllocationSettingData;
+import org.jclouds.vcloud.director.v1_5.domain.dmtf.cim.ResourceAllocationSettingData.ResourceType;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Objects;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.primitives.Ints;
+import com.google.common.primitives.Longs;
+
+/**
+ * The parts of a {@link VirtualHardwareSection} that describing and resizing a VM looks at, read
+ * from its items once: the CPU count and memory size, each disk and network card, and the items
+ * grouped by {@link ResourceType}.
+ *
+ * @see VirtualHardwareSection#getView()
+ */
+public final class VirtualHardwareView {
+
+   /**
+    * A {@link ResourceType#DISK_DRIVE disk drive} item, with the capacity and bus vCD records as
+    * attributes of its host resource.
+    */
+   public static final class Disk {
+      private final ResourceAllocationSettingData item;
+      private final long capacityMb;
+      private final int busType;
+      private final String busSubType;
+
+      private Disk(ResourceAllocationSettingData item) {
+         this.item = item;
+         CimString hostResource = Iterables.getFirst(item.getHostResources(), null);
+         Map<QName, String> attributes = hostResource != null && hostResource.getOtherAttributes() != null
+               ? hostResource.getOtherAttributes() : Collections.<QName, String> emptyMap();
+         this.capacityMb = parseLong(attribute(attributes, "capacity"));
+         this.busType = parseInt(attribute(attributes, "busType"));
+         this.busSubType = attribute(attributes, "busSubType");
+      }
+
+      public ResourceAllocationSettingData getItem() {
+         return item;
+      }
+
+      public String getElementName() {
+         return item.getElementName();
+      }
+
+      public String getAddressOnParent() {
+         return item.getAddressOnParent();
+      }
+
+      /**
+       * @return the capacity in MB, or -1 if the item does not say
+       */
+      public long getCapacityMb() {
+         return capacityMb;
+      }
+
+      /**
+       * @return the vCD bus type, such as 6 for SCSI, or -1 if the item does not say
+       */
+      public int getBusType() {
+         return busType;
+      }
+
+      @Nullable
+      public String getBusSubType() {
+         return busSubType;
+      }
+
+      @Override
+      public String toString() {
+         return MoreObjects.toStringHelper(this).add("elementName", getElementName())
+               .add("capacityMb", capacityMb).add("busType", busType).add("busSubType", busSubType).toString();
+      }
+   }
+
+   /**
+    * An {@link ResourceType#ETHERNET_ADAPTER ethernet adapter} item, with the network it is
+    * connected to.
+    */
+   public static final class Nic {
+      private final ResourceAllocationSettingData item;
+      private final int index;
+      private final String network;
+      private final String ipAddress;
+      private final boolean primary;
+
+      private Nic(ResourceAllocationSettingData item) {
+         this.item = item;
+         this.index = parseInt(item.getAddressOnParent());
+         CimString connection = Iterables.getFirst(item.getConnections(), null);
+         Map<QName, String> attributes = connection != null && connection.getOtherAttributes() != null
+               ? connection.getOtherAttributes() : Collections.<QName, String> emptyMap();
+         this.network = connection != null ? connection.getValue() : null;
+         this.ipAddress = attribute(attributes, "ipAddress");
+         this.primary = Boolean.parseBoolean(attribute(attributes, "primaryNetworkConnection"));
+      }
+
+      public ResourceAllocationSettingData getItem() {
+         return item;
+      }
+
+      /**
+       * @return the network connection index, or -1 if the item does not say
+       */
+      public int getIndex() {
+         return index;
+      }
+
+      @Nullable
+      public String getMacAddress() {
+         return item.getAddress();
+      }
+
+      @Nullable
+      public String getNetwork() {
+         return network;
+      }
+
+      @Nullable
+      public String getIpAddress() {
+         return ipAddress;
+      }
+
+      public boolean isPrimary() {
+         return primary;
+      }
+
+      @Override
+      public String toString() {
+         return MoreObjects.toStringHelper(this).add("index", index).add("network", network)
+               .add("ipAddress", ipAddress).add("primary", primary).toString();
+      }
+   }
+
+   private final Map<ResourceType, List<ResourceAllocationSettingData>> itemsByType;
+   private final int cpuCount;
+   private final long memoryMb;
+   private final List<Disk> disks;
+   private final List<Nic> nics;
+
+   public static VirtualHardwareView of(Iterable<? extends ResourceAllocationSettingData> items) {
+      return new VirtualHardwareView(checkNotNull(items, "items"));
+   }
+
+   private VirtualHardwareView(Iterable<? extends ResourceAllocationSettingData> items) {
+      EnumMap<ResourceType, List<ResourceAllocationSettingData>> byType = new EnumMap<ResourceType, List<ResourceAllocationSettingData>>(ResourceType.class);
+      ImmutableList.Builder<Disk> disks = ImmutableList.builder();
+      ImmutableList.Builder<Nic> nics = ImmutableList.builder();
+      for (ResourceAllocationSettingData item : items) {
+         ResourceType type = item.getResourceType();
+         if (type == null)
+            continue;
+         List<ResourceAllocationSettingData> ofType = byType.get(type);
+         if (ofType == null) {
+            ofType = Lists.newArrayListWithCapacity(2);
+            byType.put(type, ofType);
+         }
+         ofType.add(item);
+         if (type == ResourceType.DISK_DRIVE)
+            disks.add(new Disk(item));
+         else if (type == ResourceType.ETHERNET_ADAPTER)
+            nics.add(new Nic(item));
+      }
+      for (Map.Entry<ResourceType, List<ResourceAllocationSettingData>> entry : byType.entrySet()) {
+         entry.setValue(ImmutableList.copyOf(entry.getValue()));
+      }
+      this.itemsByType = Collections.unmodifiableMap(byType);
+      this.cpuCount = (int) quantityOfFirst(ResourceType.PROCESSOR);
+      this.memoryMb = quantityOfFirst(ResourceType.MEMORY);
+      this.disks = disks.build();
+      this.nics = nics.build();
+   }
+
+   private long quantityOfFirst(ResourceType type) {
+      ResourceAllocationSettingData item = getFirst(type);
+      BigInteger quantity = item != null ? item.getVirtualQuantity() : null;
+      return quantity != null ? quantity.longValue() : 0;
+   }
+
+   /**
+    * @return the virtual CPUs of the first processor item, or 0 if there is none
+    */
+   public int getCpuCount() {
+      return cpuCount;
+   }
+
+   /**
+    * @return the memory of the first memory item, as vCD reports it in MB, or 0 if there is none
+    */
+   public long getMemoryMb() {
+      return memoryMb;
+   }
+
+   public List<Disk> getDisks() {
+      return disks;
+   }
+
+   /**
+    * @return the disk with the given element name, such as {@code Hard disk 1}, or null
+    */
+   @Nullable
+   public Disk findDisk(String elementName) {
+      for (Disk disk : disks) {
+         if (Objects.equal(disk.getElementName(), elementName))
+            return disk;
+      }
+      return null;
+   }
+
+   public List<Nic> getNics() {
+      return nics;
+   }
+
+   /**
+    * @return the items of the given type, in the order of the section
+    */
+   public List<ResourceAllocationSettingData> getItems(ResourceType type) {
+      List<ResourceAllocationSettingData> items = itemsByType.get(type);
+      return items != null ? items : ImmutableList.<ResourceAllocationSettingData> of();
+   }
+
+   @Nullable
+   public ResourceAllocationSettingData getFirst(ResourceType type) {
+      List<ResourceAllocationSettingData> items = itemsByType.get(type);
+      return items != null ? items.get(0) : null;
+   }
+
+   @Override
+   public String toString() {
+      return MoreObjects.toStringHelper(this).add("cpuCount", cpuCount).add("memoryMb", memoryMb)
+            .add("disks", disks).add("nics", nics).toString();
+   }
+
+   @Nullable
+   private static String attribute(Map<QName, String> attributes, String localPart) {
+      for (Map.Entry<QName, String> attribute : attributes.entrySet()) {
+         if (localPart.equals(attribute.getKey().getLocalPart()))
+            return attribute.getValue();
+      }
+      return null;
+   }
+
+   private static long parseLong(@Nullable String value) {
+      Long parsed = value != null ? Longs.tryParse(value.trim()) : null;
+      return parsed != null ? parsed : -1;
+   }
+
+   private static int parseInt(@Nullable String value) {
+      Integer parsed = value != null ? Ints.tryParse(value.trim()) : null;
+      return parsed != null ? parsed : -1;
+   }
+}
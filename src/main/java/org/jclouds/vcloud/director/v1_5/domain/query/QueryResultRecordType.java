@@ -26,7 +26,10 @@ import java.util.Set;
 import javax.xml.bind.annotation.XmlAttribute;
 import javax.xml.bind.annotation.XmlElement;
 import javax.xml.bind.annotation.XmlSeeAlso;
+import javax.xml.bind.annotation.adapters.XmlJavaTypeAdapter;
 
+import org.jclouds.vcloud.director.v1_5.domain.InternedStringAdapter;
+import org.jclouds.vcloud.director.v1_5.domain.InternedURIAdapter;
 import org.jclouds.vcloud.director.v1_5.domain.Link;
 
 
@@ -53,7 +56,8 @@ import com.google.common.collect.Sets;
       QueryResultAdminVdcRecord.class,
       QueryResultAdminUserRecord.class,
       QueryResultStrandedUserRecord.class,
-      QueryResultMediaRecord.class}
+      QueryResultMediaRecord.class,
+      QueryResultTaskRecord.class}
 )
 public class QueryResultRecordType {
 
@@ -132,10 +136,12 @@ public class QueryResultRecordType {
    @XmlElement(name = "Link")
    private Set<Link> links = Sets.newLinkedHashSet();
    @XmlAttribute
+   @XmlJavaTypeAdapter(InternedURIAdapter.class)
    private URI href;
    @XmlAttribute
    private String id;
    @XmlAttribute
+   @XmlJavaTypeAdapter(InternedStringAdapter.class)
    private String type;
 
    protected QueryResultRecordType(Builder<?> builder) {
@@ -0,0 +1,232 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.vcloud.director.v1_5.domain.query;
+
+import static com.google.common.base.Objects.equal;
+
+import java.util.Date;
+
+import javax.xml.bind.annotation.XmlAttribute;
+import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.bind.annotation.XmlSchemaType;
+import javax.xml.bind.annotation.XmlType;
+
+import com.google.common.base.MoreObjects.ToStringHelper;
+import com.google.common.base.Objects;
+
+/**
+ * Represents the results from a Task vCloud query as a record.
+ */
+@XmlRootElement(name = "TaskRecord")
+@XmlType(name = "QueryResultTaskRecordType")
+public class QueryResultTaskRecord extends QueryResultRecordType {
+
+   public static Builder<?> builder() {
+      return new ConcreteBuilder();
+   }
+
+   @Override
+   public Builder<?> toBuilder() {
+      return builder().fromQueryResultTaskRecord(this);
+   }
+
+   private static class ConcreteBuilder extends Builder<ConcreteBuilder> {
+   }
+
+   public static class Builder<B extends Builder<B>> extends QueryResultRecordType.Builder<B> {
+
+      private String name;
+      private String status;
+      private Date startDate;
+      private Date endDate;
+      private String object;
+      private String objectName;
+      private String objectType;
+
+      /**
+       * @see QueryResultTaskRecord#getName()
+       */
+      public B name(String val) {
+         this.name = val;
+         return self();
+      }
+
+      /**
+       * @see QueryResultTaskRecord#getStatus()
+       */
+      public B status(String val) {
+         this.status = val;
+         return self();
+      }
+
+      /**
+       * @see QueryResultTaskRecord#getStartDate()
+       */
+      public B startDate(Date val) {
+         this.startDate = val;
+         return self();
+      }
+
+      /**
+       * @see QueryResultTaskRecord#getEndDate()
+       */
+      public B endDate(Date val) {
+         this.endDate = val;
+         return self();
+      }
+
+      /**
+       * @see QueryResultTaskRecord#getObject()
+       */
+      public B object(String val) {
+         this.object = val;
+         return self();
+      }
+
+      /**
+       * @see QueryResultTaskRecord#getObjectName()
+       */
+      public B objectName(String val) {
+         this.objectName = val;
+         return self();
+      }
+
+      /**
+       * @see QueryResultTaskRecord#getObjectType()
+       */
+      public B objectType(String val) {
+         this.objectType = val;
+         return self();
+      }
+
+      @Override
+      public QueryResultTaskRecord build() {
+         return new QueryResultTaskRecord(this);
+      }
+
+      public B fromQueryResultTaskRecord(QueryResultTaskRecord in) {
+         return fromQueryResultRecordType(in)
+                  .name(in.getName())
+                  .status(in.getStatus())
+                  .startDate(in.getStartDate())
+                  .endDate(in.getEndDate())
+                  .object(in.getObject())
+                  .objectName(in.getObjectName())
+                  .objectType(in.getObjectType());
+      }
+   }
+
+   @XmlAttribute
+   private String name;
+   @XmlAttribute
+   private String status;
+   @XmlAttribute
+   @XmlSchemaType(name = "dateTime")
+   private Date startDate;
+   @XmlAttribute
+   @XmlSchemaType(name = "dateTime")
+   private Date endDate;
+   @XmlAttribute
+   private String object;
+   @XmlAttribute
+   private String objectName;
+   @XmlAttribute
+   private String objectType;
+
+   protected QueryResultTaskRecord(Builder<?> builder) {
+      super(builder);
+      this.name = builder.name;
+      this.status = builder.status;
+      this.startDate = builder.startDate;
+      this.endDate = builder.endDate;
+      this.object = builder.object;
+      this.objectName = builder.objectName;
+      this.objectType = builder.objectType;
+   }
+
+   protected QueryResultTaskRecord() {
+      // for JAXB
+   }
+
+   /**
+    * The operation of the task, such as {@code vappDeploy}
+    */
+   public String getName() {
+      return name;
+   }
+
+   /**
+    * The status of the task, such as {@code success}
+    */
+   public String getStatus() {
+      return status;
+   }
+
+   public Date getStartDate() {
+      return startDate;
+   }
+
+   /**
+    * When the task ended, if it has
+    */
+   public Date getEndDate() {
+      return endDate;
+   }
+
+   /**
+    * The href of the entity the task operated on
+    */
+   public String getObject() {
+      return object;
+   }
+
+   public String getObjectName() {
+      return objectName;
+   }
+
+   /**
+    * The type of the entity the task operated on, such as {@code vm}
+    */
+   public String getObjectType() {
+      return objectType;
+   }
+
+   @Override
+   public boolean equals(Object o) {
+      if (this == o)
+         return true;
+      if (o == null || getClass() != o.getClass())
+         return false;
+      QueryResultTaskRecord that = QueryResultTaskRecord.class.cast(o);
+
+      return super.equals(that) && equal(name, that.name) && equal(status, that.status)
+            && equal(startDate, that.startDate) && equal(endDate, that.endDate) && equal(object, that.object)
+            && equal(objectName, that.objectName) && equal(objectType, that.objectType);
+   }
+
+   @Override
+   public int hashCode() {
+      return Objects.hashCode(super.hashCode(), name, status, startDate, endDate, object, objectName, objectType);
+   }
+
+   @Override
+   public ToStringHelper string() {
+      return super.string().add("name", name).add("status", status).add("startDate", startDate)
+            .add("endDate", endDate).add("object", object).add("objectName", objectName)
+            .add("objectType", objectType);
+   }
+}
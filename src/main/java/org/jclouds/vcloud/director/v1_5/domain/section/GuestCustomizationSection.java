@@ -29,8 +29,10 @@ import javax.xml.bind.annotation.XmlElement;
 import javax.xml.bind.annotation.XmlRootElement;
 import javax.xml.bind.annotation.XmlSchemaType;
 import javax.xml.bind.annotation.XmlType;
+import javax.xml.bind.annotation.adapters.XmlJavaTypeAdapter;
 
 import org.jclouds.vcloud.director.v1_5.domain.dmtf.ovf.SectionType;
+import org.jclouds.vcloud.director.v1_5.domain.InternedStringAdapter;
 import org.jclouds.vcloud.director.v1_5.domain.Link;
 
 
@@ -344,6 +346,7 @@ public class GuestCustomizationSection extends SectionType {
    @XmlSchemaType(name = "anyURI")
    private URI href;
    @XmlAttribute
+   @XmlJavaTypeAdapter(InternedStringAdapter.class)
    private String type;
 
    /**
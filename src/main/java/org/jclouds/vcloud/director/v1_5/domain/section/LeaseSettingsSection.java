@@ -30,8 +30,10 @@ import javax.xml.bind.annotation.XmlElement;
 import javax.xml.bind.annotation.XmlRootElement;
 import javax.xml.bind.annotation.XmlSchemaType;
 import javax.xml.bind.annotation.XmlType;
+import javax.xml.bind.annotation.adapters.XmlJavaTypeAdapter;
 
 import org.jclouds.vcloud.director.v1_5.domain.dmtf.ovf.SectionType;
+import org.jclouds.vcloud.director.v1_5.domain.InternedStringAdapter;
 import org.jclouds.vcloud.director.v1_5.domain.Link;
 
 
@@ -175,6 +177,7 @@ public class LeaseSettingsSection extends SectionType {
    @XmlSchemaType(name = "anyURI")
    private URI href;
    @XmlAttribute
+   @XmlJavaTypeAdapter(InternedStringAdapter.class)
    private String type;
 
    private LeaseSettingsSection(Builder<?> builder) {
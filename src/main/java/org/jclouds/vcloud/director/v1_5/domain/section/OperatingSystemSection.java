@@ -30,7 +30,9 @@ import javax.xml.bind.annotation.XmlElement;
 import javax.xml.bind.annotation.XmlRootElement;
 import javax.xml.bind.annotation.XmlSeeAlso;
 import javax.xml.bind.annotation.XmlType;
+import javax.xml.bind.annotation.adapters.XmlJavaTypeAdapter;
 
+import org.jclouds.vcloud.director.v1_5.domain.InternedStringAdapter;
 import org.jclouds.vcloud.director.v1_5.domain.Link;
 
 import com.google.common.base.Objects;
@@ -127,6 +129,7 @@ public class OperatingSystemSection extends org.jclouds.vcloud.director.v1_5.dom
    @XmlAttribute(namespace = VCLOUD_1_5_NS)
    private URI href;
    @XmlAttribute(namespace = VCLOUD_1_5_NS)
+   @XmlJavaTypeAdapter(InternedStringAdapter.class)
    private String type;
    @XmlElement(name = "Link", namespace = VCLOUD_1_5_NS)
    private Set<Link> links = Sets.newLinkedHashSet();
@@ -32,12 +32,14 @@ import org.jclouds.rest.annotations.EndpointParam;
 import org.jclouds.rest.annotations.Fallback;
 import org.jclouds.rest.annotations.JAXBResponseParser;
 import org.jclouds.rest.annotations.RequestFilters;
+import org.jclouds.rest.annotations.ResponseParser;
 import org.jclouds.rest.binders.BindToXMLPayload;
 import org.jclouds.vcloud.director.v1_5.VCloudDirectorMediaType;
 import org.jclouds.vcloud.director.v1_5.domain.Catalog;
 import org.jclouds.vcloud.director.v1_5.domain.CatalogItem;
 import org.jclouds.vcloud.director.v1_5.filters.AddAcceptHeaderToRequest;
 import org.jclouds.vcloud.director.v1_5.filters.AddVCloudAuthorizationAndCookieToRequest;
+import org.jclouds.vcloud.director.v1_5.functions.ParseXMLWithConditionalGetCache;
 import org.jclouds.vcloud.director.v1_5.functions.URNToHref;
 
 /**
@@ -51,7 +53,7 @@ public interface CatalogApi {
     */
    @GET
    @Consumes
-   @JAXBResponseParser
+   @ResponseParser(ParseXMLWithConditionalGetCache.class)
    @Fallback(NullOnNotFoundOr404.class)
    Catalog get(@EndpointParam(parser = URNToHref.class) String catalogUrn);
 
@@ -106,7 +108,7 @@ public interface CatalogApi {
     */
    @GET
    @Consumes
-   @JAXBResponseParser
+   @ResponseParser(ParseXMLWithConditionalGetCache.class)
    @Fallback(NullOnNotFoundOr404.class)
    Catalog get(@EndpointParam URI catalogHref);
 
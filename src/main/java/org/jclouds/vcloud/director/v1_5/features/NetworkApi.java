@@ -24,11 +24,12 @@ import javax.ws.rs.GET;
 import org.jclouds.Fallbacks.NullOnNotFoundOr404;
 import org.jclouds.rest.annotations.EndpointParam;
 import org.jclouds.rest.annotations.Fallback;
-import org.jclouds.rest.annotations.JAXBResponseParser;
 import org.jclouds.rest.annotations.RequestFilters;
+import org.jclouds.rest.annotations.ResponseParser;
 import org.jclouds.vcloud.director.v1_5.domain.network.Network;
 import org.jclouds.vcloud.director.v1_5.filters.AddAcceptHeaderToRequest;
 import org.jclouds.vcloud.director.v1_5.filters.AddVCloudAuthorizationAndCookieToRequest;
+import org.jclouds.vcloud.director.v1_5.functions.ParseXMLWithConditionalGetCache;
 import org.jclouds.vcloud.director.v1_5.functions.URNToHref;
 
 /**
@@ -44,7 +45,7 @@ public interface NetworkApi {
     */
    @GET
    @Consumes
-   @JAXBResponseParser
+   @ResponseParser(ParseXMLWithConditionalGetCache.class)
    @Fallback(NullOnNotFoundOr404.class)
    Network get(@EndpointParam(parser = URNToHref.class) String networkUrn);
 
@@ -53,7 +54,7 @@ public interface NetworkApi {
     */
    @GET
    @Consumes
-   @JAXBResponseParser
+   @ResponseParser(ParseXMLWithConditionalGetCache.class)
    @Fallback(NullOnNotFoundOr404.class)
    Network get(@EndpointParam URI networkHref);
 }
@@ -46,6 +46,7 @@ import org.jclouds.rest.annotations.EndpointParam;
 import org.jclouds.rest.annotations.Fallback;
 import org.jclouds.rest.annotations.JAXBResponseParser;
 import org.jclouds.rest.annotations.RequestFilters;
+import org.jclouds.rest.annotations.ResponseParser;
 import org.jclouds.rest.binders.BindToXMLPayload;
 import org.jclouds.vcloud.director.v1_5.domain.Owner;
 import org.jclouds.vcloud.director.v1_5.domain.ProductSectionList;
@@ -59,6 +60,8 @@ import org.jclouds.vcloud.director.v1_5.domain.section.LeaseSettingsSection;
 import org.jclouds.vcloud.director.v1_5.domain.section.NetworkConfigSection;
 import org.jclouds.vcloud.director.v1_5.filters.AddAcceptHeaderToRequest;
 import org.jclouds.vcloud.director.v1_5.filters.AddVCloudAuthorizationAndCookieToRequest;
+import org.jclouds.vcloud.director.v1_5.functions.ParseVAppForNodes;
+import org.jclouds.vcloud.director.v1_5.functions.ParseXMLWithConditionalGetCache;
 import org.jclouds.vcloud.director.v1_5.functions.URNToHref;
 
 /**
@@ -114,7 +117,7 @@ public interface VAppApi {
     */
    @GET
    @Consumes(VAPP)
-   @JAXBResponseParser
+   @ResponseParser(ParseXMLWithConditionalGetCache.class)
    @Fallback(NullOnNotFoundOr404.class)
    VApp get(@EndpointParam(parser = URNToHref.class) String vAppUrn);
 
@@ -599,10 +602,20 @@ public interface VAppApi {
     */
    @GET
    @Consumes(VAPP)
-   @JAXBResponseParser
+   @ResponseParser(ParseXMLWithConditionalGetCache.class)
    @Fallback(NullOnNotFoundOr404.class)
    VApp get(@EndpointParam URI vAppHref);
 
+   /**
+    * Retrieves a vApp as {@link #get(URI)} does, but reading only what is needed to describe its
+    * VMs as compute nodes; see {@link ParseVAppForNodes} for which parts are left empty.
+    */
+   @GET
+   @Consumes(VAPP)
+   @ResponseParser(ParseVAppForNodes.class)
+   @Fallback(NullOnNotFoundOr404.class)
+   VApp getForNodes(@EndpointParam URI vAppHref);
+
    /**
     * @see VAppApi#edit(URI, VApp)
     */
@@ -30,6 +30,7 @@ import org.jclouds.rest.annotations.EndpointParam;
 import org.jclouds.rest.annotations.Fallback;
 import org.jclouds.rest.annotations.JAXBResponseParser;
 import org.jclouds.rest.annotations.RequestFilters;
+import org.jclouds.rest.annotations.ResponseParser;
 import org.jclouds.rest.binders.BindToXMLPayload;
 import org.jclouds.vcloud.director.v1_5.VCloudDirectorMediaType;
 import org.jclouds.vcloud.director.v1_5.domain.Media;
@@ -45,6 +46,7 @@ import org.jclouds.vcloud.director.v1_5.domain.params.InstantiateVAppParams;
 import org.jclouds.vcloud.director.v1_5.domain.params.UploadVAppTemplateParams;
 import org.jclouds.vcloud.director.v1_5.filters.AddAcceptHeaderToRequest;
 import org.jclouds.vcloud.director.v1_5.filters.AddVCloudAuthorizationAndCookieToRequest;
+import org.jclouds.vcloud.director.v1_5.functions.ParseXMLWithConditionalGetCache;
 import org.jclouds.vcloud.director.v1_5.functions.URNToHref;
 
 /**
@@ -60,7 +62,7 @@ public interface VdcApi {
     */
    @GET
    @Consumes
-   @JAXBResponseParser
+   @ResponseParser(ParseXMLWithConditionalGetCache.class)
    @Fallback(NullOnNotFoundOr404.class)
    Vdc get(@EndpointParam(parser = URNToHref.class) String vdcUrn);
 
@@ -240,7 +242,7 @@ public interface VdcApi {
     */
    @GET
    @Consumes
-   @JAXBResponseParser
+   @ResponseParser(ParseXMLWithConditionalGetCache.class)
    @Fallback(NullOnNotFoundOr404.class)
    Vdc get(@EndpointParam URI vdcHref);
 
@@ -69,6 +69,7 @@ import org.jclouds.vcloud.director.v1_5.domain.section.RuntimeInfoSection;
 import org.jclouds.vcloud.director.v1_5.domain.section.VirtualHardwareSection;
 import org.jclouds.vcloud.director.v1_5.filters.AddAcceptHeaderToRequest;
 import org.jclouds.vcloud.director.v1_5.filters.AddVCloudAuthorizationAndCookieToRequest;
+import org.jclouds.vcloud.director.v1_5.functions.ParseXMLWithConditionalGetCache;
 import org.jclouds.vcloud.director.v1_5.functions.ReturnPayloadBytes;
 import org.jclouds.vcloud.director.v1_5.functions.URNToHref;
 
@@ -86,7 +87,7 @@ public interface VmApi {
     */
    @GET
    @Consumes(VM)
-   @JAXBResponseParser
+   @ResponseParser(ParseXMLWithConditionalGetCache.class)
    @Fallback(NullOnNotFoundOr404.class)
    Vm get(@EndpointParam(parser = URNToHref.class) String vmUrn);
 
@@ -776,7 +777,7 @@ public interface VmApi {
     */
    @GET
    @Consumes(VM)
-   @JAXBResponseParser
+   @ResponseParser(ParseXMLWithConditionalGetCache.class)
    @Fallback(NullOnNotFoundOr404.class)
    Vm get(@EndpointParam URI vmHref);
 
@@ -22,9 +22,14 @@ import javax.inject.Singleton;
 import org.jclouds.http.HttpException;
 import org.jclouds.http.HttpRequest;
 import org.jclouds.http.HttpRequestFilter;
+import org.jclouds.javax.annotation.Nullable;
 import org.jclouds.vcloud.director.v1_5.annotations.Session;
+import org.jclouds.vcloud.director.v1_5.handlers.ConditionalGetCache;
+import org.jclouds.vcloud.director.v1_5.handlers.RetryBudget;
 
 import com.google.common.base.Supplier;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableMultimap;
 import com.google.common.net.HttpHeaders;
 
@@ -32,20 +37,41 @@ import com.google.common.net.HttpHeaders;
 public class AddVCloudAuthorizationAndCookieToRequest implements HttpRequestFilter {
 
    private final Supplier<String> sessionSupplier;
+   private final RetryBudget retryBudget;
+   private final ConditionalGetCache conditionalGets;
+   // the token each request was sent with; keyed by identity of the unfiltered request of the command
+   private final Cache<HttpRequest, String> tokensUsed = CacheBuilder.newBuilder().weakKeys().build();
 
    @Inject
-   public AddVCloudAuthorizationAndCookieToRequest(@Session Supplier<String> sessionSupplier) {
+   public AddVCloudAuthorizationAndCookieToRequest(@Session Supplier<String> sessionSupplier, RetryBudget retryBudget,
+            ConditionalGetCache conditionalGets) {
       this.sessionSupplier = sessionSupplier;
+      this.retryBudget = retryBudget;
+      this.conditionalGets = conditionalGets;
    }
 
    @Override
    public HttpRequest filter(HttpRequest request) throws HttpException {
+      // only first attempts earn credit towards retries; a retry is filtered with the same request again
+      if (tokensUsed.getIfPresent(request) == null)
+         retryBudget.deposit();
       String token = sessionSupplier.get();
-      return request
+      tokensUsed.put(request, token);
+      HttpRequest filtered = request
                .toBuilder()
                .replaceHeaders(
                         ImmutableMultimap.of("x-vcloud-authorization", token, HttpHeaders.COOKIE, "vcloud-token="
                                  + token)).build();
+      // entities are cached per session, as what a user may see depends on their session
+      return conditionalGets.addValidators(request, filtered, token);
+   }
+
+   /**
+    * @return the session token the request was last sent with, or null if it was never filtered
+    */
+   @Nullable
+   public String getTokenUsedBy(HttpRequest request) {
+      return tokensUsed.getIfPresent(request);
    }
 
 }
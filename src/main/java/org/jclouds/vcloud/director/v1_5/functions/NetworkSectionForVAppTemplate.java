@@ -18,7 +18,6 @@ package org.jclouds.vcloud.director.v1_5.functions;
 
 import javax.inject.Singleton;
 
-import org.jclouds.vcloud.director.v1_5.domain.dmtf.ovf.SectionType;
 import org.jclouds.vcloud.director.v1_5.domain.dmtf.ovf.NetworkSection;
 import org.jclouds.vcloud.director.v1_5.domain.VAppTemplate;
 import com.google.common.base.Function;
@@ -28,11 +27,6 @@ public class NetworkSectionForVAppTemplate implements Function<VAppTemplate, Net
 
    @Override
    public NetworkSection apply(VAppTemplate from) {
-      for (SectionType section : from.getSections()) {
-         if (section instanceof NetworkSection) {
-            return (NetworkSection) section;
-         }
-      }
-      return null;
+      return from.getSection(NetworkSection.class);
    }
 }
@@ -0,0 +1,71 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.vcloud.director.v1_5.functions;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.jclouds.http.HttpResponse;
+import org.jclouds.vcloud.director.v1_5.domain.VApp;
+import org.jclouds.vcloud.director.v1_5.xml.VCloudDirectorJAXBParser;
+import org.jclouds.vcloud.director.v1_5.xml.XMLProjection;
+
+import com.google.common.base.Function;
+import com.google.common.base.Throwables;
+import com.google.common.io.Closeables;
+
+/**
+ * Reads a {@link VApp} with only its links and tasks, and of its VMs only the links and sections
+ * the compute service describes nodes with. The hardware RASD items of each VM are still read, but
+ * product, runtime, snapshot and lease sections, the OVF environment and the vApp's network
+ * configuration are skipped.
+ */
+@Singleton
+public class ParseVAppForNodes implements Function<HttpResponse, VApp> {
+
+   public static final XMLProjection PROJECTION = XMLProjection.keeping(
+         "Link",
+         "Tasks",
+         "Children/Vm/Link",
+         "Children/Vm/VirtualHardwareSection",
+         "Children/Vm/OperatingSystemSection",
+         "Children/Vm/NetworkConnectionSection",
+         "Children/Vm/GuestCustomizationSection");
+
+   private final VCloudDirectorJAXBParser parser;
+
+   @Inject
+   ParseVAppForNodes(VCloudDirectorJAXBParser parser) {
+      this.parser = parser;
+   }
+
+   @Override
+   public VApp apply(HttpResponse from) {
+      InputStream xml = null;
+      try {
+         xml = from.getPayload().openStream();
+         return parser.fromXML(xml, VApp.class, PROJECTION);
+      } catch (IOException e) {
+         throw Throwables.propagate(e);
+      } finally {
+         Closeables.closeQuietly(xml);
+      }
+   }
+}
@@ -0,0 +1,70 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.vcloud.director.v1_5.functions;
+
+import java.io.IOException;
+
+import javax.inject.Inject;
+
+import org.jclouds.http.HttpRequest;
+import org.jclouds.http.HttpResponse;
+import org.jclouds.http.HttpResponseException;
+import org.jclouds.http.HttpUtils;
+import org.jclouds.http.functions.ParseXMLWithJAXB;
+import org.jclouds.rest.InvocationContext;
+import org.jclouds.rest.internal.GeneratedHttpRequest;
+import org.jclouds.util.Strings2;
+import org.jclouds.vcloud.director.v1_5.handlers.ConditionalGetCache.EntityPayload;
+import org.jclouds.xml.XMLParser;
+
+import com.google.common.base.Function;
+
+/**
+ * Parses the entity a GET returns as {@link ParseXMLWithJAXB} does, as the return type of the
+ * invoked method, unless it comes from the
+ * {@link org.jclouds.vcloud.director.v1_5.handlers.ConditionalGetCache}, which keeps the entity
+ * already parsed by an earlier response.
+ */
+public class ParseXMLWithConditionalGetCache implements Function<HttpResponse, Object>, InvocationContext<ParseXMLWithConditionalGetCache> {
+
+   private final XMLParser xml;
+   private Class<?> type;
+
+   @Inject
+   ParseXMLWithConditionalGetCache(XMLParser xml) {
+      this.xml = xml;
+   }
+
+   @Override
+   public Object apply(HttpResponse from) {
+      try {
+         if (from.getPayload() instanceof EntityPayload)
+            return ((EntityPayload) from.getPayload()).getEntity(type, xml);
+         return xml.fromXML(Strings2.toStringAndClose(from.getPayload().openStream()), type);
+      } catch (IOException e) {
+         throw new HttpResponseException("Error parsing input\n" + from, null, from, e);
+      } finally {
+         HttpUtils.releasePayload(from);
+      }
+   }
+
+   @Override
+   public ParseXMLWithConditionalGetCache setContext(HttpRequest request) {
+      type = GeneratedHttpRequest.class.cast(request).getInvocation().getInvokable().getReturnType().getRawType();
+      return this;
+   }
+}
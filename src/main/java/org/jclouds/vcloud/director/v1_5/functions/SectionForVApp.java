@@ -37,11 +37,6 @@ public class SectionForVApp<S extends SectionType> implements Function<AbstractV
    @SuppressWarnings("unchecked")
    @Override
    public S apply(AbstractVAppType from) {
-      for (SectionType section : from.getSections()) {
-         if (sectionType.isAssignableFrom(section.getClass())) {
-            return (S)section;
-         }
-      }
-      return null;
+      return (S) from.getSection(sectionType);
    }
 }
@@ -0,0 +1,193 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.vcloud.director.v1_5.functions;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.jclouds.Constants.PROPERTY_SESSION_INTERVAL;
+import static org.jclouds.vcloud.director.v1_5.VCloudDirectorConstants.PROPERTY_VCLOUD_DIRECTOR_ENTITY_CACHE_DERIVE_HREFS;
+import static org.jclouds.vcloud.director.v1_5.VCloudDirectorConstants.PROPERTY_VCLOUD_DIRECTOR_ENTITY_CACHE_MISSING_TTL;
+import static org.jclouds.vcloud.director.v1_5.VCloudDirectorConstants.PROPERTY_VCLOUD_DIRECTOR_ENTITY_CACHE_SIZE;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.jclouds.javax.annotation.Nullable;
+import org.jclouds.location.Provider;
+import org.jclouds.vcloud.director.v1_5.domain.Entity;
+import org.jclouds.vcloud.director.v1_5.domain.Link;
+import org.jclouds.vcloud.director.v1_5.domain.query.QueryResultRecordType;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Optional;
+import com.google.common.base.Predicate;
+import com.google.common.base.Splitter;
+import com.google.common.base.Supplier;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader.InvalidCacheLoadException;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Iterables;
+
+/**
+ * Resolves the URNs of entities to their hrefs, for {@link URNToHref} and {@link URNToAdminHref}.
+ * <p>
+ * The href of an entity of a well known type is built from its URN and the endpoint, unless
+ * {@code jclouds.vcloud-director.entity-cache.derive-hrefs} is false. Such an href is not checked,
+ * so a deleted entity is only noticed when reading it through the href finds nothing. Others are
+ * looked up in the hrefs of the query results {@link #prefetch(Iterable) prefetched} so far, and
+ * only then resolved by the entity resolver, through the entity cache. A URN the resolver does not find is
+ * remembered for {@code jclouds.vcloud-director.entity-cache.missing-ttl} milliseconds, during
+ * which resolving it again fails without a request.
+ */
+@Singleton
+public class URNResolver {
+
+   // the paths under the endpoint of the entities of each type, followed by the id of the urn; vms
+   // are not among them, as the path of a vm depends on whether it is in a vApp or a vApp template
+   @VisibleForTesting
+   static final Map<String, String> PATHS = ImmutableMap.<String, String> builder()
+         .put("vapp", "vApp/vapp-")
+         .put("vapptemplate", "vAppTemplate/vappTemplate-")
+         .put("vdc", "vdc/")
+         .put("org", "org/")
+         .put("catalog", "catalog/")
+         .put("catalogitem", "catalogItem/")
+         .put("media", "media/")
+         .put("network", "network/")
+         .put("task", "task/")
+         .build();
+   @VisibleForTesting
+   static final Map<String, String> ADMIN_PATHS = ImmutableMap.<String, String> builder()
+         .put("org", "admin/org/")
+         .put("vdc", "admin/vdc/")
+         .put("catalog", "admin/catalog/")
+         .put("network", "admin/network/")
+         .put("user", "admin/user/")
+         .put("group", "admin/group/")
+         .put("role", "admin/role/")
+         .build();
+
+   private final LoadingCache<String, Entity> entities;
+   private final Supplier<URI> endpoint;
+   private final boolean deriveHrefs;
+   private final Cache<String, URI> hrefs;
+   private final Cache<String, Boolean> missing;
+
+   @Inject
+   public URNResolver(LoadingCache<String, Entity> entities, @Provider Supplier<URI> endpoint,
+         @Named(PROPERTY_VCLOUD_DIRECTOR_ENTITY_CACHE_DERIVE_HREFS) boolean deriveHrefs,
+         @Named(PROPERTY_VCLOUD_DIRECTOR_ENTITY_CACHE_SIZE) long size,
+         @Named(PROPERTY_SESSION_INTERVAL) int seconds,
+         @Named(PROPERTY_VCLOUD_DIRECTOR_ENTITY_CACHE_MISSING_TTL) long missingTtl) {
+      this.entities = checkNotNull(entities, "entities");
+      this.endpoint = checkNotNull(endpoint, "endpoint");
+      this.deriveHrefs = deriveHrefs;
+      this.hrefs = CacheBuilder.newBuilder().maximumSize(size).expireAfterWrite(seconds, TimeUnit.SECONDS).build();
+      this.missing = CacheBuilder.newBuilder().maximumSize(size).expireAfterWrite(missingTtl, TimeUnit.MILLISECONDS)
+            .build();
+   }
+
+   /**
+    * @return the href of the entity with {@code urn}
+    * @throws InvalidCacheLoadException
+    *            if its href is not derived and there is no such entity
+    */
+   public URI getHref(String urn) {
+      URI href = deriveHrefs ? derive(urn, PATHS) : null;
+      if (href == null)
+         href = hrefs.getIfPresent(urn);
+      if (href == null) {
+         Entity entity = getEntity(urn);
+         checkArgument(entity.getLinks().size() > 0, "no links found for entity %s", entity);
+         href = Iterables.get(entity.getLinks(), 0).getHref();
+         hrefs.put(urn, href);
+      }
+      return href;
+   }
+
+   /**
+    * @return the admin href of the entity with {@code urn}
+    * @throws InvalidCacheLoadException
+    *            if its href is not derived and there is no such entity
+    */
+   public URI getAdminHref(String urn) {
+      URI href = deriveHrefs ? derive(urn, ADMIN_PATHS) : null;
+      if (href != null)
+         return href;
+      Entity entity = getEntity(urn);
+      Optional<Link> link = Iterables.tryFind(entity.getLinks(), typeContainsAdmin);
+      checkArgument(link.isPresent(), "no admin link found for entity %s", entity);
+      return link.get().getHref();
+   }
+
+   /**
+    * Remembers the hrefs of the records which have a URN, so that resolving them later needs no
+    * request.
+    */
+   public void prefetch(Iterable<? extends QueryResultRecordType> records) {
+      for (QueryResultRecordType record : records) {
+         if (record.getId() != null && record.getId().startsWith("urn:") && record.getHref() != null) {
+            hrefs.put(record.getId(), record.getHref());
+            missing.invalidate(record.getId());
+         }
+      }
+   }
+
+   private Entity getEntity(String urn) {
+      if (missing.getIfPresent(urn) != null)
+         throw new InvalidCacheLoadException("no entity found for " + urn + " recently");
+      try {
+         return entities.getUnchecked(urn);
+      } catch (InvalidCacheLoadException e) {
+         // the resolver answered 404
+         missing.put(urn, Boolean.TRUE);
+         throw e;
+      }
+   }
+
+   /**
+    * @return the href of {@code urn} at the path of its type in {@code paths}, or null if it is not
+    *         the URN of an entity of one of those types
+    */
+   @Nullable
+   private URI derive(String urn, Map<String, String> paths) {
+      List<String> parts = Splitter.on(':').splitToList(urn);
+      if (parts.size() != 4 || !"urn".equals(parts.get(0)) || !"vcloud".equals(parts.get(1))
+            || parts.get(3).isEmpty())
+         return null;
+      String path = paths.get(parts.get(2));
+      if (path == null)
+         return null;
+      String base = endpoint.get().toASCIIString();
+      return URI.create(base + (base.endsWith("/") ? "" : "/") + path + parts.get(3));
+   }
+
+   private static final Predicate<Link> typeContainsAdmin = new Predicate<Link>() {
+      @Override
+      public boolean apply(Link in) {
+         return in.getType().indexOf(".admin.") != -1;
+      }
+   };
+}
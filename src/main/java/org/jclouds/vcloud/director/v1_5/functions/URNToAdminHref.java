@@ -25,40 +25,24 @@ import javax.inject.Inject;
 import javax.inject.Singleton;
 
 import org.jclouds.javax.annotation.Nullable;
-import org.jclouds.vcloud.director.v1_5.domain.Entity;
-import org.jclouds.vcloud.director.v1_5.domain.Link;
 
 import com.google.common.base.Function;
-import com.google.common.base.Optional;
-import com.google.common.base.Predicate;
-import com.google.common.cache.LoadingCache;
-import com.google.common.collect.Iterables;
 
 /**
- * Resolves URN to its Admin HREF via the entity Resolver
+ * Resolves URN to its Admin HREF via the {@link URNResolver}
  */
 @Singleton
 public final class URNToAdminHref implements Function<Object, URI> {
-   private final LoadingCache<String, Entity> resolveEntityCache;
+   private final URNResolver resolver;
 
    @Inject
-   public URNToAdminHref(LoadingCache<String, Entity> resolveEntityCache) {
-      this.resolveEntityCache = checkNotNull(resolveEntityCache, "resolveEntityCache");
+   public URNToAdminHref(URNResolver resolver) {
+      this.resolver = checkNotNull(resolver, "resolver");
    }
 
    @Override
    public URI apply(@Nullable Object from) {
       checkArgument(checkNotNull(from, "urn") instanceof String, "urn is a String argument");
-      Entity entity = resolveEntityCache.getUnchecked(from.toString());
-      Optional<Link> link = Iterables.tryFind(entity.getLinks(), typeContainsAdmin);
-      checkArgument(link.isPresent(), "no admin link found for entity %s", entity);
-      return link.get().getHref();
+      return resolver.getAdminHref(from.toString());
    }
-
-   private static final Predicate<Link> typeContainsAdmin = new Predicate<Link>() {
-      @Override
-      public boolean apply(Link in) {
-         return in.getType().indexOf(".admin.") != -1;
-      }
-   };
 }
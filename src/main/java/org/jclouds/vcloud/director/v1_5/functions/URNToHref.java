@@ -18,7 +18,6 @@ package org.jclouds.vcloud.director.v1_5.functions;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
-import static com.google.common.collect.Iterables.get;
 
 import java.net.URI;
 
@@ -26,28 +25,24 @@ import javax.inject.Inject;
 import javax.inject.Singleton;
 
 import org.jclouds.javax.annotation.Nullable;
-import org.jclouds.vcloud.director.v1_5.domain.Entity;
 
 import com.google.common.base.Function;
-import com.google.common.cache.LoadingCache;
 
 /**
- * Resolves URN to its HREF via the entity Resolver
+ * Resolves URN to its HREF via the {@link URNResolver}
  */
 @Singleton
 public final class URNToHref implements Function<Object, URI> {
-   private final LoadingCache<String, Entity> resolveEntityCache;
+   private final URNResolver resolver;
 
    @Inject
-   public URNToHref(LoadingCache<String, Entity> resolveEntityCache) {
-      this.resolveEntityCache = checkNotNull(resolveEntityCache, "resolveEntityCache");
+   public URNToHref(URNResolver resolver) {
+      this.resolver = checkNotNull(resolver, "resolver");
    }
 
    @Override
    public URI apply(@Nullable Object from) {
       checkArgument(checkNotNull(from, "urn") instanceof String, "urn is a String argument");
-      Entity entity = resolveEntityCache.getUnchecked(from.toString());
-      checkArgument(entity.getLinks().size() > 0, "no links found for entity %s", entity);
-      return get(entity.getLinks(), 0).getHref();
+      return resolver.getHref(from.toString());
    }
 }
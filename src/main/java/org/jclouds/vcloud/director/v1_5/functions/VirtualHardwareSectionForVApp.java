@@ -16,7 +16,6 @@
  */
 package org.jclouds.vcloud.director.v1_5.functions;
 
-import org.jclouds.vcloud.director.v1_5.domain.dmtf.ovf.SectionType;
 import org.jclouds.vcloud.director.v1_5.domain.AbstractVAppType;
 import org.jclouds.vcloud.director.v1_5.domain.section.VirtualHardwareSection;
 
@@ -28,11 +27,6 @@ public class VirtualHardwareSectionForVApp implements Function<AbstractVAppType,
 
    @Override
    public VirtualHardwareSection apply(AbstractVAppType from) {
-      for (SectionType section : from.getSections()) {
-         if (section instanceof VirtualHardwareSection) {
-            return (VirtualHardwareSection) section;
-         }
-      }
-      return null;
+      return from.getSection(VirtualHardwareSection.class);
    }
 }
@@ -0,0 +1,39 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.vcloud.director.v1_5.handlers;
+
+import org.jclouds.http.HttpCommand;
+import org.jclouds.http.HttpResponse;
+import org.jclouds.javax.annotation.Nullable;
+
+/**
+ * Decides whether, and after how long, the vCloud Director retry handlers retry a failed command.
+ * <p>
+ * Bound in {@link org.jclouds.vcloud.director.v1_5.config.VCloudDirectorHttpApiModule}; override
+ * the binding to plug in a different policy.
+ */
+public interface BackoffPolicy {
+
+   /**
+    * Records a failed attempt of the command and, if it may be retried, waits before returning.
+    *
+    * @param errorCode
+    *           the vCloud Director minor error code of the failure, if known
+    * @return true if the command should be retried
+    */
+   boolean backoffAndRetry(HttpCommand command, HttpResponse response, @Nullable String errorCode);
+}
@@ -0,0 +1,146 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.vcloud.director.v1_5.handlers;
+
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Ticker;
+
+/**
+ * A circuit breaker for one vCloud Director endpoint and api.
+ * <p>
+ * While {@link State#CLOSED} every request is let through; {@code failureThreshold} consecutive
+ * failures open the breaker. While {@link State#OPEN} requests are refused until
+ * {@code openDuration} has passed, when the breaker becomes {@link State#HALF_OPEN} and lets a
+ * single probe through. The probe's outcome closes the breaker again or re-opens it.
+ */
+public class CircuitBreaker {
+
+   public enum State {
+      CLOSED, OPEN, HALF_OPEN;
+   }
+
+   /**
+    * Notified of every state change, outside of the breaker's lock.
+    */
+   public interface Listener {
+      void onTransition(CircuitBreaker breaker, State from, State to);
+   }
+
+   private final String name;
+   private final int failureThreshold;
+   private final long openDurationNanos;
+   private final Ticker ticker;
+   private final Listener listener;
+
+   private State state = State.CLOSED;
+   private int consecutiveFailures;
+   private long openedAt;
+   private boolean probeInFlight;
+
+   public CircuitBreaker(String name, int failureThreshold, long openDuration, TimeUnit unit, Ticker ticker,
+         Listener listener) {
+      this.name = name;
+      this.failureThreshold = failureThreshold;
+      this.openDurationNanos = unit.toNanos(openDuration);
+      this.ticker = ticker;
+      this.listener = listener;
+   }
+
+   public String getName() {
+      return name;
+   }
+
+   public synchronized State getState() {
+      return state;
+   }
+
+   /**
+    * @return the time, in milliseconds, until an open breaker lets a probe through, or zero
+    */
+   public synchronized long getRemainingOpenMillis() {
+      if (state != State.OPEN)
+         return 0;
+      return TimeUnit.NANOSECONDS.toMillis(Math.max(openDurationNanos - (ticker.read() - openedAt), 0));
+   }
+
+   /**
+    * @return true if a request may be sent now; the caller must then report its outcome with
+    *         {@link #onSuccess()} or {@link #onFailure()}
+    */
+   public boolean tryAcquire() {
+      State from;
+      synchronized (this) {
+         switch (state) {
+            case CLOSED:
+               return true;
+            case OPEN:
+               if (ticker.read() - openedAt < openDurationNanos)
+                  return false;
+               from = state;
+               state = State.HALF_OPEN;
+               probeInFlight = true;
+               break;
+            default:
+               if (probeInFlight)
+                  return false;
+               probeInFlight = true;
+               return true;
+         }
+      }
+      listener.onTransition(this, from, State.HALF_OPEN);
+      return true;
+   }
+
+   public void onSuccess() {
+      State from;
+      synchronized (this) {
+         // a late outcome of a request sent before the breaker opened says nothing about the probe
+         if (state == State.OPEN)
+            return;
+         consecutiveFailures = 0;
+         probeInFlight = false;
+         if (state == State.CLOSED)
+            return;
+         from = state;
+         state = State.CLOSED;
+      }
+      listener.onTransition(this, from, State.CLOSED);
+   }
+
+   public void onFailure() {
+      State from;
+      synchronized (this) {
+         if (state == State.OPEN)
+            return;
+         consecutiveFailures++;
+         probeInFlight = false;
+         if (state == State.CLOSED && consecutiveFailures < failureThreshold)
+            return;
+         from = state;
+         state = State.OPEN;
+         openedAt = ticker.read();
+      }
+      listener.onTransition(this, from, State.OPEN);
+   }
+
+   @Override
+   public String toString() {
+      return MoreObjects.toStringHelper(this).add("name", name).add("state", getState()).toString();
+   }
+}
@@ -0,0 +1,142 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.vcloud.director.v1_5.handlers;
+
+import static org.jclouds.vcloud.director.v1_5.VCloudDirectorConstants.PROPERTY_VCLOUD_DIRECTOR_CIRCUIT_BREAKER_FAILURE_THRESHOLD;
+import static org.jclouds.vcloud.director.v1_5.VCloudDirectorConstants.PROPERTY_VCLOUD_DIRECTOR_CIRCUIT_BREAKER_OPEN_DURATION;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Resource;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.jclouds.http.HttpCommand;
+import org.jclouds.http.HttpRequest;
+import org.jclouds.logging.Logger;
+import org.jclouds.rest.internal.GeneratedHttpRequest;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Ticker;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.AtomicLongMap;
+
+/**
+ * The {@link CircuitBreaker}s of a context, one per endpoint host and api (for example
+ * {@code vcd.example.com/VAppApi}), with counters of their state transitions and of the requests
+ * they refused.
+ */
+@Singleton
+public class CircuitBreakers implements CircuitBreaker.Listener {
+
+   @Resource
+   protected Logger logger = Logger.NULL;
+
+   private final int failureThreshold;
+   private final LoadingCache<String, CircuitBreaker> breakers;
+   private final AtomicLongMap<String> transitions = AtomicLongMap.create();
+   private final AtomicLongMap<String> rejections = AtomicLongMap.create();
+
+   @Inject
+   CircuitBreakers(@Named(PROPERTY_VCLOUD_DIRECTOR_CIRCUIT_BREAKER_FAILURE_THRESHOLD) int failureThreshold,
+         @Named(PROPERTY_VCLOUD_DIRECTOR_CIRCUIT_BREAKER_OPEN_DURATION) long openDuration) {
+      this(failureThreshold, openDuration, Ticker.systemTicker());
+   }
+
+   @VisibleForTesting
+   CircuitBreakers(final int failureThreshold, final long openDuration, final Ticker ticker) {
+      this.failureThreshold = failureThreshold;
+      this.breakers = CacheBuilder.newBuilder().build(new CacheLoader<String, CircuitBreaker>() {
+         @Override
+         public CircuitBreaker load(String key) {
+            return new CircuitBreaker(key, failureThreshold, openDuration, TimeUnit.MILLISECONDS, ticker,
+                  CircuitBreakers.this);
+         }
+      });
+   }
+
+   public boolean isEnabled() {
+      return failureThreshold > 0;
+   }
+
+   /**
+    * @return the breaker guarding the endpoint and api of the command's current request
+    */
+   public CircuitBreaker forCommand(HttpCommand command) {
+      return breakers.getUnchecked(keyFor(command.getCurrentRequest()));
+   }
+
+   /**
+    * @return false if retrying the command would only pile onto an open breaker
+    */
+   public boolean allowsRetry(HttpCommand command) {
+      return !isEnabled() || forCommand(command).getState() != CircuitBreaker.State.OPEN;
+   }
+
+   void recordRejection(CircuitBreaker breaker) {
+      rejections.incrementAndGet(breaker.getName());
+   }
+
+   /**
+    * @return the current state of every breaker, by name
+    */
+   public Map<String, CircuitBreaker.State> getStates() {
+      ImmutableMap.Builder<String, CircuitBreaker.State> builder = ImmutableMap.builder();
+      for (CircuitBreaker breaker : breakers.asMap().values()) {
+         builder.put(breaker.getName(), breaker.getState());
+      }
+      return builder.build();
+   }
+
+   /**
+    * @return the number of transitions into each state, keyed by {@code <breaker>:<state>}
+    */
+   public Map<String, Long> getTransitions() {
+      return ImmutableMap.copyOf(transitions.asMap());
+   }
+
+   /**
+    * @return the number of requests failed fast, by breaker name
+    */
+   public Map<String, Long> getRejections() {
+      return ImmutableMap.copyOf(rejections.asMap());
+   }
+
+   @Override
+   public void onTransition(CircuitBreaker breaker, CircuitBreaker.State from, CircuitBreaker.State to) {
+      transitions.incrementAndGet(breaker.getName() + ":" + to);
+      if (to == CircuitBreaker.State.OPEN) {
+         logger.warn("circuit breaker %s %s -> %s", breaker.getName(), from, to);
+      } else {
+         logger.info("circuit breaker %s %s -> %s", breaker.getName(), from, to);
+      }
+   }
+
+   @VisibleForTesting
+   static String keyFor(HttpRequest request) {
+      String api = request instanceof GeneratedHttpRequest
+            ? GeneratedHttpRequest.class.cast(request).getInvocation().getInvokable().getOwnerType().getRawType()
+                  .getSimpleName()
+            : "HttpClient";
+      return request.getEndpoint().getHost() + "/" + api;
+   }
+}
@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.vcloud.director.v1_5.handlers;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Provider;
+
+import org.jclouds.http.HttpCommand;
+import org.jclouds.http.HttpCommandExecutorService;
+import org.jclouds.http.HttpResponse;
+import org.jclouds.http.HttpResponseException;
+import org.jclouds.rest.RetryAfterException;
+import org.jclouds.vcloud.director.v1_5.VCloudDirectorException;
+
+import com.google.common.base.Throwables;
+import com.google.common.primitives.Ints;
+
+/**
+ * Guards the {@link HttpCommandExecutorService#invoke(HttpCommand)} of the http driver, which runs
+ * the whole retry and error handler ladder of a command, with the {@link CircuitBreaker} for its
+ * endpoint and api.
+ * <p>
+ * Requests are refused with a {@link RetryAfterException} while the breaker is open. Server
+ * errors and I/O failures count against the breaker; any other outcome, including client errors,
+ * shows the endpoint is answering and counts as a success.
+ */
+public class CircuitBreakingHttpCommandExecutorService implements HttpCommandExecutorService {
+
+   private final HttpCommandExecutorService delegate;
+   private final Provider<CircuitBreakers> circuitBreakers;
+
+   public CircuitBreakingHttpCommandExecutorService(HttpCommandExecutorService delegate,
+         Provider<CircuitBreakers> circuitBreakers) {
+      this.delegate = delegate;
+      this.circuitBreakers = circuitBreakers;
+   }
+
+   @Override
+   public HttpResponse invoke(HttpCommand command) {
+      CircuitBreakers breakers = circuitBreakers.get();
+      if (!breakers.isEnabled())
+         return delegate.invoke(command);
+
+      CircuitBreaker breaker = breakers.forCommand(command);
+      if (!breaker.tryAcquire()) {
+         breakers.recordRejection(breaker);
+         long seconds = TimeUnit.MILLISECONDS.toSeconds(breaker.getRemainingOpenMillis() + 999);
+         throw new RetryAfterException(String.format("circuit breaker %s is open, failing fast: %s",
+               breaker.getName(), command), Ints.saturatedCast(seconds));
+      }
+
+      HttpResponse result;
+      try {
+         result = delegate.invoke(command);
+      } catch (RuntimeException e) {
+         record(breaker, e);
+         throw e;
+      } catch (Error e) {
+         record(breaker, e);
+         throw e;
+      }
+      if (result != null && result.getStatusCode() >= 500) {
+         breaker.onFailure();
+      } else {
+         breaker.onSuccess();
+      }
+      return result;
+   }
+
+   private static void record(CircuitBreaker breaker, Throwable t) {
+      if (isFailure(t)) {
+         breaker.onFailure();
+      } else {
+         breaker.onSuccess();
+      }
+   }
+
+   static boolean isFailure(Throwable t) {
+      for (Throwable cause : Throwables.getCausalChain(t)) {
+         if (cause instanceof IOException)
+            return true;
+         if (cause instanceof HttpResponseException) {
+            HttpResponse response = HttpResponseException.class.cast(cause).getResponse();
+            if (response != null && response.getStatusCode() >= 500)
+               return true;
+         }
+         if (cause instanceof VCloudDirectorException) {
+            Integer code = VCloudDirectorException.class.cast(cause).getMajorErrorCode();
+            if (code != null && code >= 500)
+               return true;
+         }
+      }
+      return false;
+   }
+}
@@ -0,0 +1,234 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.vcloud.director.v1_5.handlers;
+
+import static org.jclouds.http.HttpUtils.closeClientButKeepContentStream;
+import static org.jclouds.vcloud.director.v1_5.VCloudDirectorConstants.PROPERTY_VCLOUD_DIRECTOR_CONDITIONAL_GET_CACHE_MAX_BYTES;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.jclouds.http.HttpRequest;
+import org.jclouds.http.HttpResponse;
+import org.jclouds.io.payloads.ByteArrayPayload;
+import org.jclouds.javax.annotation.Nullable;
+import org.jclouds.vcloud.director.v1_5.VCloudDirectorMediaType;
+import org.jclouds.xml.XMLParser;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import com.google.common.net.HttpHeaders;
+
+/**
+ * The entities read by GET requests, with the ETag or Last-Modified validator they were served
+ * with, keyed by their href and the session token they were read with.
+ * <p>
+ * {@link org.jclouds.vcloud.director.v1_5.filters.AddVCloudAuthorizationAndCookieToRequest} asks
+ * it for the validators to send with each GET, and
+ * {@link ConditionalGetHttpCommandExecutorService} hands it each response: a 304 Not Modified is
+ * replaced with the cached entity, and a 200 carrying a validator is cached if it is a vApp, vm,
+ * vdc, catalog or network. Response parsers can then reuse an entity already parsed from the cached
+ * body, through {@link EntityPayload}.
+ * <p>
+ * Holds at most {@code jclouds.vcloud-director.conditional-get.cache-max-bytes} bytes of cached
+ * bodies; zero disables it.
+ */
+@Singleton
+public class ConditionalGetCache {
+
+   /** The media types of the entities worth revalidating; query pages, tasks and the like change too often. */
+   private static final Set<String> CACHEABLE_TYPES = ImmutableSet.of(VCloudDirectorMediaType.VAPP.toLowerCase(Locale.ROOT),
+         VCloudDirectorMediaType.VM.toLowerCase(Locale.ROOT), VCloudDirectorMediaType.VDC.toLowerCase(Locale.ROOT),
+         VCloudDirectorMediaType.CATALOG.toLowerCase(Locale.ROOT), VCloudDirectorMediaType.NETWORK.toLowerCase(Locale.ROOT),
+         VCloudDirectorMediaType.ORG_NETWORK.toLowerCase(Locale.ROOT));
+
+   private final boolean enabled;
+   private final Cache<String, Entry> entries;
+   // the entry each GET was sent to revalidate, or null; keyed by identity of the unfiltered request of the command
+   private final Cache<HttpRequest, Pending> pending = CacheBuilder.newBuilder().weakKeys().build();
+
+   @Inject
+   public ConditionalGetCache(@Named(PROPERTY_VCLOUD_DIRECTOR_CONDITIONAL_GET_CACHE_MAX_BYTES) long maxBytes) {
+      this.enabled = maxBytes > 0;
+      this.entries = CacheBuilder.newBuilder().maximumWeight(Math.max(maxBytes, 0)).weigher(new Weigher<String, Entry>() {
+         @Override
+         public int weigh(String key, Entry entry) {
+            return entry.body.length;
+         }
+      }).build();
+   }
+
+   public boolean isEnabled() {
+      return enabled;
+   }
+
+   /**
+    * Records that {@code request} is about to be sent with {@code token}, adding to
+    * {@code filtered} the validators of the entity cached for it, if any.
+    *
+    * @param request
+    *           the request of the command, before filtering
+    * @param filtered
+    *           the request as filtered so far
+    */
+   public HttpRequest addValidators(HttpRequest request, HttpRequest filtered, String token) {
+      if (!enabled || !"GET".equals(request.getMethod()))
+         return filtered;
+      String key = key(request, token);
+      Entry entry = entries.getIfPresent(key);
+      pending.put(request, new Pending(key, entry));
+      if (entry == null)
+         return filtered;
+      HttpRequest.Builder<?> builder = filtered.toBuilder();
+      if (entry.etag != null)
+         builder.replaceHeader(HttpHeaders.IF_NONE_MATCH, entry.etag);
+      if (entry.lastModified != null)
+         builder.replaceHeader(HttpHeaders.IF_MODIFIED_SINCE, entry.lastModified);
+      return builder.build();
+   }
+
+   /**
+    * @param request
+    *           the request of the command, before filtering
+    * @return the response to return for {@code request}: the cached entity in place of a 304 Not
+    *         Modified, the response itself otherwise
+    */
+   public HttpResponse apply(HttpRequest request, HttpResponse response) {
+      Pending sent = pending.getIfPresent(request);
+      if (sent == null)
+         return response;
+      pending.invalidate(request);
+
+      if (response.getStatusCode() == 304) {
+         if (sent.entry == null)
+            return response;
+         HttpResponse cached = response.toBuilder().statusCode(200).message("OK").build();
+         cached.setPayload(sent.entry.newPayload());
+         return cached;
+      }
+      if (response.getStatusCode() != 200 || response.getPayload() == null) {
+         entries.invalidate(sent.key);
+         return response;
+      }
+      String etag = response.getFirstHeaderOrNull(HttpHeaders.ETAG);
+      String lastModified = response.getFirstHeaderOrNull(HttpHeaders.LAST_MODIFIED);
+      String contentType = response.getPayload().getContentMetadata().getContentType();
+      if (etag == null && lastModified == null || !isCacheable(contentType)) {
+         entries.invalidate(sent.key);
+         return response;
+      }
+      Entry entry = new Entry(etag, lastModified, closeClientButKeepContentStream(response), contentType);
+      entries.put(sent.key, entry);
+      response.setPayload(entry.newPayload());
+      return response;
+   }
+
+   /**
+    * Forgets the entity cached for {@code request}, which failed.
+    *
+    * @param request
+    *           the request of the command, before filtering
+    */
+   public void invalidate(HttpRequest request) {
+      Pending sent = pending.getIfPresent(request);
+      if (sent == null)
+         return;
+      pending.invalidate(request);
+      entries.invalidate(sent.key);
+   }
+
+   private static boolean isCacheable(@Nullable String contentType) {
+      if (contentType == null)
+         return false;
+      int parameters = contentType.indexOf(';');
+      String mediaType = parameters < 0 ? contentType : contentType.substring(0, parameters);
+      return CACHEABLE_TYPES.contains(mediaType.trim().toLowerCase(Locale.ROOT));
+   }
+
+   private static String key(HttpRequest request, String token) {
+      return token + ' ' + request.getEndpoint();
+   }
+
+   private static class Pending {
+      private final String key;
+      private final Entry entry;
+
+      private Pending(String key, @Nullable Entry entry) {
+         this.key = key;
+         this.entry = entry;
+      }
+   }
+
+   private static class Entry {
+      private final String etag;
+      private final String lastModified;
+      private final byte[] body;
+      private final String contentType;
+      private final ConcurrentMap<Class<?>, Object> parsed = Maps.newConcurrentMap();
+
+      private Entry(@Nullable String etag, @Nullable String lastModified, byte[] body, @Nullable String contentType) {
+         this.etag = etag;
+         this.lastModified = lastModified;
+         this.body = body;
+         this.contentType = contentType;
+      }
+
+      private EntityPayload newPayload() {
+         EntityPayload payload = new EntityPayload(this);
+         payload.getContentMetadata().setContentType(contentType);
+         return payload;
+      }
+   }
+
+   /**
+    * The body of a cached entity, which also keeps the objects parsed from it, so that every
+    * response revalidating the entity returns the same object.
+    */
+   public static class EntityPayload extends ByteArrayPayload {
+
+      private final Entry entry;
+
+      private EntityPayload(Entry entry) {
+         super(entry.body);
+         this.entry = entry;
+      }
+
+      /**
+       * @return the entity parsed as {@code type} by {@code parser}, parsing it on first use
+       */
+      public <T> T getEntity(Class<T> type, XMLParser parser) throws IOException {
+         Object parsed = entry.parsed.get(type);
+         if (parsed == null) {
+            parsed = parser.fromXML(new String(entry.body, StandardCharsets.UTF_8), type);
+            Object previous = entry.parsed.putIfAbsent(type, parsed);
+            if (previous != null)
+               parsed = previous;
+         }
+         return type.cast(parsed);
+      }
+   }
+}
@@ -0,0 +1,60 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.vcloud.director.v1_5.handlers;
+
+import org.jclouds.http.HttpCommand;
+import org.jclouds.http.HttpCommandExecutorService;
+import org.jclouds.http.HttpRequest;
+import org.jclouds.http.HttpResponse;
+import org.jclouds.http.HttpResponseException;
+
+/**
+ * Completes the conditional GETs of the {@link ConditionalGetCache} sent by the http driver,
+ * returning the cached entity when the server answers 304 Not Modified, and caching the entities
+ * of other GETs which carry a validator.
+ */
+public class ConditionalGetHttpCommandExecutorService implements HttpCommandExecutorService {
+
+   private final HttpCommandExecutorService delegate;
+   private final ConditionalGetCache cache;
+
+   public ConditionalGetHttpCommandExecutorService(HttpCommandExecutorService delegate, ConditionalGetCache cache) {
+      this.delegate = delegate;
+      this.cache = cache;
+   }
+
+   @Override
+   public HttpResponse invoke(HttpCommand command) {
+      if (!cache.isEnabled())
+         return delegate.invoke(command);
+
+      HttpResponse response;
+      try {
+         response = delegate.invoke(command);
+      } catch (RuntimeException e) {
+         cache.invalidate(command.getCurrentRequest());
+         throw e;
+      }
+      // the request the filters last ran on, which redirects may have replaced
+      HttpRequest request = command.getCurrentRequest();
+      response = cache.apply(request, response);
+      if (response.getStatusCode() == 304)
+         throw new HttpResponseException(command, response, "not modified, but there is no cached entity for "
+               + request.getRequestLine());
+      return response;
+   }
+}
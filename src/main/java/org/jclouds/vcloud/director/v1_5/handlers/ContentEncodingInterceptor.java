@@ -0,0 +1,94 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.vcloud.director.v1_5.handlers;
+
+import java.io.IOException;
+import java.util.zip.Inflater;
+
+import com.google.common.net.HttpHeaders;
+
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.ForwardingSource;
+import okio.GzipSource;
+import okio.InflaterSource;
+import okio.Okio;
+import okio.Source;
+
+/**
+ * Negotiates the compression of responses for the okhttp driver.
+ * <p>
+ * When enabled, requests ask for gzip or deflate, and a compressed response body is decompressed
+ * as it is read, so that the response parsers stream straight from the compressed bytes. When
+ * disabled, requests ask for an uncompressed body, which okhttp would otherwise ask gzip for.
+ * Requests which already choose an encoding, or ask for a range of bytes, are left as they are.
+ */
+public class ContentEncodingInterceptor implements Interceptor {
+
+   private final boolean compression;
+
+   public ContentEncodingInterceptor(boolean compression) {
+      this.compression = compression;
+   }
+
+   @Override
+   public Response intercept(Chain chain) throws IOException {
+      Request request = chain.request();
+      if (request.header(HttpHeaders.ACCEPT_ENCODING) != null || request.header(HttpHeaders.RANGE) != null)
+         return chain.proceed(request);
+      if (!compression)
+         return chain.proceed(request.newBuilder().header(HttpHeaders.ACCEPT_ENCODING, "identity").build());
+
+      Response response = chain.proceed(request.newBuilder().header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate").build());
+      String encoding = response.header(HttpHeaders.CONTENT_ENCODING);
+      if (encoding == null || !hasBody(response))
+         return response;
+      Source decoded;
+      if ("gzip".equalsIgnoreCase(encoding)) {
+         decoded = new GzipSource(response.body().source());
+      } else if ("deflate".equalsIgnoreCase(encoding)) {
+         final Inflater inflater = new Inflater();
+         decoded = new ForwardingSource(new InflaterSource(response.body().source(), inflater)) {
+            @Override
+            public void close() throws IOException {
+               try {
+                  super.close();
+               } finally {
+                  inflater.end();
+               }
+            }
+         };
+      } else {
+         return response;
+      }
+      // the length of the decompressed body is unknown until it is read
+      return response.newBuilder()
+            .removeHeader(HttpHeaders.CONTENT_ENCODING)
+            .removeHeader(HttpHeaders.CONTENT_LENGTH)
+            .body(ResponseBody.create(response.body().contentType(), -1, Okio.buffer(decoded)))
+            .build();
+   }
+
+   private static boolean hasBody(Response response) {
+      if (response.body() == null || "HEAD".equals(response.request().method()))
+         return false;
+      int code = response.code();
+      return (code >= 200 || code < 100) && code != 204 && code != 304;
+   }
+}
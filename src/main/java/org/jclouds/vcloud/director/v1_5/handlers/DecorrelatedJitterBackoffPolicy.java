@@ -0,0 +1,183 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.vcloud.director.v1_5.handlers;
+
+import static org.jclouds.Constants.PROPERTY_MAX_RETRIES;
+import static org.jclouds.Constants.PROPERTY_RETRY_DELAY_START;
+import static org.jclouds.vcloud.director.v1_5.VCloudDirectorConstants.PROPERTY_VCLOUD_DIRECTOR_RETRY_ERROR_CODE_BUDGETS;
+import static org.jclouds.vcloud.director.v1_5.VCloudDirectorConstants.PROPERTY_VCLOUD_DIRECTOR_RETRY_MAX_DELAY;
+
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Resource;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.jclouds.date.DateService;
+import org.jclouds.http.HttpCommand;
+import org.jclouds.http.HttpResponse;
+import org.jclouds.javax.annotation.Nullable;
+import org.jclouds.logging.Logger;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Splitter;
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.net.HttpHeaders;
+import com.google.common.primitives.Ints;
+import com.google.common.primitives.Longs;
+
+/**
+ * Backs off with decorrelated jitter: each delay is drawn uniformly between the start delay and
+ * three times the previous delay of the same command, capped at
+ * {@code jclouds.vcloud-director.retry.max-delay}. Unlike a deterministic exponential ladder this
+ * keeps callers that failed together from retrying together.
+ * <p>
+ * A {@code Retry-After} header is honoured as a lower bound on the delay. The number of retries is
+ * limited per minor error code (falling back to {@code jclouds.max-retries}) and by the shared
+ * {@link RetryBudget}, and commands are not retried while their {@link CircuitBreaker} is open.
+ */
+@Singleton
+public class DecorrelatedJitterBackoffPolicy implements BackoffPolicy {
+
+   @Resource
+   protected Logger logger = Logger.NULL;
+
+   private final int maxRetries;
+   private final long delayStart;
+   private final long maxDelay;
+   private final Map<String, Integer> errorCodeBudgets;
+   private final RetryBudget retryBudget;
+   private final CircuitBreakers circuitBreakers;
+   private final DateService dateService;
+   private final Cache<HttpCommand, Long> previousDelays = CacheBuilder.newBuilder().weakKeys().build();
+
+   @Inject
+   protected DecorrelatedJitterBackoffPolicy(@Named(PROPERTY_MAX_RETRIES) int maxRetries,
+         @Named(PROPERTY_RETRY_DELAY_START) long delayStart, @Named(PROPERTY_VCLOUD_DIRECTOR_RETRY_MAX_DELAY) long maxDelay,
+         @Named(PROPERTY_VCLOUD_DIRECTOR_RETRY_ERROR_CODE_BUDGETS) String errorCodeBudgets, RetryBudget retryBudget,
+         CircuitBreakers circuitBreakers, DateService dateService) {
+      this.maxRetries = maxRetries;
+      this.delayStart = Math.max(delayStart, 1);
+      this.maxDelay = Math.max(maxDelay, this.delayStart);
+      this.errorCodeBudgets = parseErrorCodeBudgets(errorCodeBudgets);
+      this.retryBudget = retryBudget;
+      this.circuitBreakers = circuitBreakers;
+      this.dateService = dateService;
+   }
+
+   @Override
+   public boolean backoffAndRetry(HttpCommand command, HttpResponse response, @Nullable String errorCode) {
+      command.incrementFailureCount();
+      if (!command.isReplayable()) {
+         logger.error("Cannot retry after %s, command is not replayable: %s", describe(response, errorCode), command);
+         return false;
+      }
+      int failureCount = command.getFailureCount();
+      int limit = retryLimit(errorCode);
+      if (failureCount > limit) {
+         logger.error("Cannot retry after %s, command has exceeded retry limit %d: %s", describe(response, errorCode),
+               limit, command);
+         return false;
+      }
+      long retryAfter = retryAfterMillis(response);
+      if (retryAfter > maxDelay) {
+         logger.error("Cannot retry after %s, server asked to wait %d ms which exceeds %d ms: %s",
+               describe(response, errorCode), retryAfter, maxDelay, command);
+         return false;
+      }
+      if (!circuitBreakers.allowsRetry(command)) {
+         logger.error("Cannot retry after %s, circuit breaker is open: %s", describe(response, errorCode), command);
+         return false;
+      }
+      if (!retryBudget.tryWithdraw()) {
+         logger.error("Cannot retry after %s, retry budget exhausted: %s", describe(response, errorCode), command);
+         return false;
+      }
+      long delay = Math.max(retryAfter, nextDelay(command));
+      logger.debug("Retry %d/%d: delaying for %d ms after %s: %s", failureCount, limit, delay,
+            describe(response, errorCode), command);
+      sleep(delay);
+      return true;
+   }
+
+   @VisibleForTesting
+   int retryLimit(@Nullable String errorCode) {
+      Integer budget = errorCode != null ? errorCodeBudgets.get(errorCode) : null;
+      return budget != null ? budget : maxRetries;
+   }
+
+   @VisibleForTesting
+   long nextDelay(HttpCommand command) {
+      Long previous = previousDelays.getIfPresent(command);
+      long upper = previous != null ? Math.min(previous * 3, maxDelay) : delayStart;
+      long delay = upper > delayStart ? ThreadLocalRandom.current().nextLong(delayStart, upper + 1) : delayStart;
+      previousDelays.put(command, delay);
+      return delay;
+   }
+
+   /**
+    * @return the delay requested by a {@code Retry-After} header, in either of its delta-seconds
+    *         or HTTP-date forms, or zero if there is none
+    */
+   @VisibleForTesting
+   long retryAfterMillis(HttpResponse response) {
+      String retryAfter = response.getFirstHeaderOrNull(HttpHeaders.RETRY_AFTER);
+      if (retryAfter == null)
+         return 0;
+      Long seconds = Longs.tryParse(retryAfter.trim());
+      if (seconds != null)
+         return TimeUnit.SECONDS.toMillis(Math.max(seconds, 0));
+      try {
+         return Math.max(dateService.rfc1123DateParse(retryAfter.trim()).getTime() - System.currentTimeMillis(), 0);
+      } catch (IllegalArgumentException e) {
+         logger.debug("Ignoring unparseable %s header: %s", HttpHeaders.RETRY_AFTER, retryAfter);
+         return 0;
+      }
+   }
+
+   protected void sleep(long delay) {
+      try {
+         Thread.sleep(delay);
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         throw Throwables.propagate(e);
+      }
+   }
+
+   private static String describe(HttpResponse response, @Nullable String errorCode) {
+      return errorCode != null ? response.getStatusCode() + " " + errorCode : "status " + response.getStatusCode();
+   }
+
+   private static Map<String, Integer> parseErrorCodeBudgets(String errorCodeBudgets) {
+      ImmutableMap.Builder<String, Integer> builder = ImmutableMap.builder();
+      for (Map.Entry<String, String> entry : Splitter.on(',').trimResults().omitEmptyStrings()
+            .withKeyValueSeparator(Splitter.on('=').trimResults()).split(errorCodeBudgets).entrySet()) {
+         Integer budget = Ints.tryParse(entry.getValue());
+         if (budget == null)
+            throw new IllegalArgumentException(String.format("invalid retry budget for %s: %s", entry.getKey(),
+                  entry.getValue()));
+         builder.put(entry.getKey(), budget);
+      }
+      return builder.build();
+   }
+}
@@ -19,16 +19,21 @@ package org.jclouds.vcloud.director.v1_5.handlers;
 import static org.jclouds.http.HttpUtils.closeClientButKeepContentStream;
 import static org.jclouds.http.HttpUtils.releasePayload;
 
+import java.util.Map;
+
 import javax.annotation.PreDestroy;
 import javax.annotation.Resource;
+import javax.inject.Provider;
 
 import org.jclouds.domain.Credentials;
 import org.jclouds.http.HttpCommand;
 import org.jclouds.http.HttpResponse;
-import org.jclouds.http.handlers.BackoffLimitedRetryHandler;
+import org.jclouds.http.HttpRetryHandler;
 import org.jclouds.logging.Logger;
+import org.jclouds.vcloud.director.v1_5.VCloudDirectorApi;
+import org.jclouds.vcloud.director.v1_5.filters.AddVCloudAuthorizationAndCookieToRequest;
 import org.jclouds.vcloud.director.v1_5.domain.SessionWithToken;
-import org.jclouds.vcloud.director.v1_5.login.SessionApi;
+import org.jclouds.vcloud.director.v1_5.login.SessionTokenStore;
 
 import com.google.common.cache.LoadingCache;
 import com.google.inject.Inject;
@@ -39,20 +44,33 @@ import com.google.inject.Singleton;
  * expired, the server returns HTTP response code 401. The token expires after a configurable
  * interval of api inactivity. The default is 30 minutes after the token is created. After the
  * token expires, you must log in again to obtain a new token.
+ * <p>
+ * Only the session the failed request was sent with is invalidated, and only if it is still the
+ * current one. Concurrent requests failing with the same expired token therefore evict it once,
+ * and their retries all wait on the single login of the session cache.
  */
 @Singleton
-public class InvalidateSessionAndRetryOn401AndLogoutOnClose extends BackoffLimitedRetryHandler {
+public class InvalidateSessionAndRetryOn401AndLogoutOnClose implements HttpRetryHandler {
    @Resource
    protected Logger logger = Logger.NULL;
 
    private final LoadingCache<Credentials, SessionWithToken> authenticationResponseCache;
-   private final SessionApi sessionApi;
+   private final Provider<VCloudDirectorApi> api;
+   private final BackoffPolicy backoffPolicy;
+   private final AddVCloudAuthorizationAndCookieToRequest authorization;
+   private final SessionTokenStore sessionStore;
 
    @Inject
    protected InvalidateSessionAndRetryOn401AndLogoutOnClose(
-            LoadingCache<Credentials, SessionWithToken> authenticationResponseCache, SessionApi sessionApi) {
+            LoadingCache<Credentials, SessionWithToken> authenticationResponseCache, Provider<VCloudDirectorApi> api,
+            BackoffPolicy backoffPolicy, AddVCloudAuthorizationAndCookieToRequest authorization,
+            SessionTokenStore sessionStore) {
       this.authenticationResponseCache = authenticationResponseCache;
-      this.sessionApi = sessionApi;
+      // a provider, as the api's own requests are retried through this handler
+      this.api = api;
+      this.backoffPolicy = backoffPolicy;
+      this.authorization = authorization;
+      this.sessionStore = sessionStore;
    }
 
    @Override
@@ -61,9 +79,12 @@ public class InvalidateSessionAndRetryOn401AndLogoutOnClose extends BackoffLimit
       try {
          if (response.getStatusCode() == 401) {
             closeClientButKeepContentStream(response);
-            logger.debug("invalidating session");
-            authenticationResponseCache.invalidateAll();
-            retry = super.shouldRetryRequest(command, response);
+            String token = authorization.getTokenUsedBy(command.getCurrentRequest());
+            // a request sent without a session, such as a login, was refused its credentials
+            if (token != null) {
+               invalidateSessionWithToken(token);
+               retry = backoffPolicy.backoffAndRetry(command, response, null);
+            }
          }
          return retry;
       } finally {
@@ -71,14 +92,27 @@ public class InvalidateSessionAndRetryOn401AndLogoutOnClose extends BackoffLimit
       }
    }
 
+   private void invalidateSessionWithToken(String token) {
+      Map<Credentials, SessionWithToken> sessions = authenticationResponseCache.asMap();
+      for (Map.Entry<Credentials, SessionWithToken> entry : sessions.entrySet()) {
+         // conditional, so that a session another request already replaced is left alone
+         if (token.equals(entry.getValue().getToken()) && sessions.remove(entry.getKey(), entry.getValue())) {
+            logger.debug("invalidating session %s", entry.getValue().getSession());
+         }
+      }
+   }
+
    /**
     * it is important that we close any sessions on close to help the server not become overloaded.
+    * Sessions kept in a {@link SessionTokenStore} are left open for the next process to reuse.
     */
    @PreDestroy
    public void logoutOnClose() {
+      if (sessionStore.isEnabled())
+         return;
       for (SessionWithToken s : authenticationResponseCache.asMap().values()) {
          try {
-            sessionApi.logoutSessionWithToken(s.getSession().getHref(), s.getToken());
+            api.get().getSessionApi().logoutSessionWithToken(s.getSession().getHref(), s.getToken());
          } catch (Exception e) {
             logger.error(e, "error logging out session %s", s.getSession());
          }
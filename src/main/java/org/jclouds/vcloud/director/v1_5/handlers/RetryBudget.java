@@ -0,0 +1,102 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.vcloud.director.v1_5.handlers;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static org.jclouds.vcloud.director.v1_5.VCloudDirectorConstants.PROPERTY_VCLOUD_DIRECTOR_RETRY_BUDGET_MIN_PER_SECOND;
+import static org.jclouds.vcloud.director.v1_5.VCloudDirectorConstants.PROPERTY_VCLOUD_DIRECTOR_RETRY_BUDGET_RATIO;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Ticker;
+
+/**
+ * A retry budget shared by every caller of a context, so that retries can never add more than a
+ * fixed fraction to the request rate.
+ * <p>
+ * Each request deposits {@code ratio} of a retry and each retry withdraws a whole one. A small
+ * reserve, refilled over time, lets a client that makes few requests still retry occasionally.
+ * Unused credit is capped, so a long healthy period cannot bank a burst of retries for the next
+ * outage.
+ */
+@Singleton
+public class RetryBudget {
+
+   /** Credit is kept in thousandths of a retry, so that repeated deposits do not accumulate rounding error. */
+   private static final long RETRY = 1000;
+   private static final long MAX_BALANCE = 100 * RETRY;
+
+   private final long deposit;
+   private final long minPerSecond;
+   private final Ticker ticker;
+
+   private long balance;
+   private long reserve;
+   private long lastRefill;
+
+   @Inject
+   RetryBudget(@Named(PROPERTY_VCLOUD_DIRECTOR_RETRY_BUDGET_RATIO) double ratio,
+         @Named(PROPERTY_VCLOUD_DIRECTOR_RETRY_BUDGET_MIN_PER_SECOND) int minPerSecond) {
+      this(ratio, minPerSecond, Ticker.systemTicker());
+   }
+
+   @VisibleForTesting
+   RetryBudget(double ratio, int minPerSecond, Ticker ticker) {
+      checkArgument(ratio >= 0, "ratio must be non-negative");
+      checkArgument(minPerSecond >= 0, "minPerSecond must be non-negative");
+      this.deposit = Math.round(ratio * RETRY);
+      this.minPerSecond = minPerSecond * RETRY;
+      this.ticker = ticker;
+      this.reserve = this.minPerSecond;
+      this.lastRefill = ticker.read();
+   }
+
+   /**
+    * Records a request being sent.
+    */
+   public synchronized void deposit() {
+      balance = Math.min(balance + deposit, MAX_BALANCE);
+   }
+
+   /**
+    * @return true if a retry may be made, in which case it is charged to the budget
+    */
+   public synchronized boolean tryWithdraw() {
+      long now = ticker.read();
+      // the reserve never holds more than a second's worth, so a longer gap need not be measured
+      long elapsed = Math.min(now - lastRefill, TimeUnit.SECONDS.toNanos(1));
+      long refill = minPerSecond * elapsed / TimeUnit.SECONDS.toNanos(1);
+      if (refill > 0) {
+         reserve = Math.min(minPerSecond, reserve + refill);
+         lastRefill = now;
+      }
+      if (reserve >= RETRY) {
+         reserve -= RETRY;
+         return true;
+      }
+      if (balance >= RETRY) {
+         balance -= RETRY;
+         return true;
+      }
+      return false;
+   }
+}
@@ -0,0 +1,95 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.vcloud.director.v1_5.handlers;
+
+import static org.jclouds.http.HttpUtils.closeClientButKeepContentStream;
+
+import java.nio.charset.StandardCharsets;
+
+import javax.annotation.Resource;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.jclouds.http.HttpResponse;
+import org.jclouds.logging.Logger;
+import org.jclouds.vcloud.director.v1_5.VCloudDirectorMediaType;
+import org.jclouds.vcloud.director.v1_5.domain.Error;
+import org.jclouds.xml.XMLParser;
+
+import com.google.common.base.Optional;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Decodes the {@link Error} payload of a failed response exactly once.
+ * <p>
+ * The retry handlers and the {@link VCloudDirectorErrorHandler} both look at the same
+ * {@link HttpResponse} for a failed command, so the decoded result is attached to that response
+ * (weakly, by identity) and reused by whichever handler asks second. Unmarshalling goes through
+ * the shared {@link XMLParser}, which keeps its JAXB contexts, rather than
+ * {@link javax.xml.bind.JAXB}, which builds a new one per call.
+ */
+@Singleton
+public class VCloudDirectorErrorDecoder {
+
+   @Resource
+   protected Logger logger = Logger.NULL;
+
+   private final XMLParser parser;
+   private final Cache<HttpResponse, Optional<Error>> decoded = CacheBuilder.newBuilder().weakKeys().build();
+
+   @Inject
+   public VCloudDirectorErrorDecoder(XMLParser parser) {
+      this.parser = parser;
+   }
+
+   /**
+    * @return the error carried by the response, or {@code null} if the response has no error
+    *         payload or it could not be parsed
+    */
+   public Error decode(HttpResponse response) {
+      if (!hasErrorPayload(response))
+         return null;
+      Optional<Error> error = decoded.getIfPresent(response);
+      if (error == null) {
+         error = Optional.fromNullable(unmarshal(response));
+         decoded.put(response, error);
+      }
+      return error.orNull();
+   }
+
+   private Error unmarshal(HttpResponse response) {
+      // it is important to always read fully and close streams
+      byte[] data = closeClientButKeepContentStream(response);
+      if (data == null)
+         return null;
+      try {
+         return parser.fromXML(new String(data, StandardCharsets.UTF_8), Error.class);
+      } catch (Exception e) {
+         logger.warn(e, "error parsing error");
+         return null;
+      }
+   }
+
+   private static boolean hasErrorPayload(HttpResponse response) {
+      if (response.getPayload() == null)
+         return false;
+      String contentType = response.getPayload().getContentMetadata().getContentType();
+      // expected "application/vnd.vmware.vcloud.error+xml;version=1.5"
+      return contentType != null && contentType.toLowerCase().contains(VCloudDirectorMediaType.ERROR);
+   }
+}
@@ -18,11 +18,10 @@ package org.jclouds.vcloud.director.v1_5.handlers;
 
 import static org.jclouds.http.HttpUtils.closeClientButKeepContentStream;
 
-import java.io.ByteArrayInputStream;
 import java.nio.charset.StandardCharsets;
 
+import javax.inject.Inject;
 import javax.inject.Singleton;
-import javax.xml.bind.JAXB;
 
 import org.jclouds.http.HttpCommand;
 import org.jclouds.http.HttpErrorHandler;
@@ -31,37 +30,43 @@ import org.jclouds.http.HttpResponseException;
 import org.jclouds.rest.AuthorizationException;
 import org.jclouds.rest.ResourceNotFoundException;
 import org.jclouds.vcloud.director.v1_5.VCloudDirectorException;
-import org.jclouds.vcloud.director.v1_5.VCloudDirectorMediaType;
 import org.jclouds.vcloud.director.v1_5.domain.Error;
 
-import com.google.common.base.Throwables;
-
 /**
  * This will parse and set an appropriate exception on the command object.
  */
 @Singleton
 public class VCloudDirectorErrorHandler implements HttpErrorHandler {
 
+   private final VCloudDirectorErrorDecoder decoder;
+
+   @Inject
+   protected VCloudDirectorErrorHandler(VCloudDirectorErrorDecoder decoder) {
+      this.decoder = decoder;
+   }
+
    @Override
    public void handleError(HttpCommand command, HttpResponse response) {
+      // answers a conditional GET, which the ConditionalGetCache replaces with the cached entity
+      if (response.getStatusCode() == 304)
+         return;
+
       // it is important to always read fully and close streams
       byte[] data = closeClientButKeepContentStream(response);
 
-      // Create default exception
-      String message = data != null
-            ? new String(data, StandardCharsets.UTF_8)
-            : String.format("%s -> %s", command.getCurrentRequest().getRequestLine(), response.getStatusLine());
-      Exception exception = new HttpResponseException(command, response, message);
-      
-      // Try to create a VCloudDirectorException from XML payload, if it exists
-      if (response.getPayload() != null && response.getPayload().getContentMetadata().getContentType().startsWith(VCloudDirectorMediaType.ERROR)) {
-	      try {
-	         Error error = JAXB.unmarshal(new ByteArrayInputStream(data), Error.class);
-	         exception = new VCloudDirectorException(error);
-	         message = error.getMessage();
-	      } catch (Exception e) {
-	         Throwables.propagate(e);
-	      }
+      // Use the VCloudDirectorException from the XML payload, if it exists (and was not already
+      // decoded by a retry handler), otherwise create a default exception
+      String message;
+      Exception exception;
+      Error error = decoder.decode(response);
+      if (error != null) {
+         message = error.getMessage();
+         exception = new VCloudDirectorException(error);
+      } else {
+         message = data != null
+               ? new String(data, StandardCharsets.UTF_8)
+               : String.format("%s -> %s", command.getCurrentRequest().getRequestLine(), response.getStatusLine());
+         exception = new HttpResponseException(command, response, message);
       }
 
       // Create custom exception for error codes we know about
@@ -0,0 +1,43 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.vcloud.director.v1_5.handlers;
+
+import org.jclouds.http.HttpCommand;
+import org.jclouds.http.HttpResponse;
+import org.jclouds.http.handlers.BackoffLimitedRetryHandler;
+import org.jclouds.http.handlers.RedirectionRetryHandler;
+
+import com.google.inject.Inject;
+
+/**
+ * Follows redirects as jclouds does, but leaves a 304 Not Modified, which has nowhere to redirect
+ * to, as the answer to the conditional GET of the {@link ConditionalGetCache} it is.
+ */
+public class VCloudDirectorRedirectionRetryHandler extends RedirectionRetryHandler {
+
+   @Inject
+   protected VCloudDirectorRedirectionRetryHandler(BackoffLimitedRetryHandler backoffHandler) {
+      super(backoffHandler);
+   }
+
+   @Override
+   public boolean shouldRetryRequest(HttpCommand command, HttpResponse response) {
+      if (response.getStatusCode() == 304)
+         return false;
+      return super.shouldRetryRequest(command, response);
+   }
+}
@@ -22,29 +22,40 @@ import java.util.Set;
 
 import org.jclouds.http.HttpCommand;
 import org.jclouds.http.HttpResponse;
+import org.jclouds.http.HttpRetryHandler;
 import org.jclouds.http.annotation.ClientError;
-import org.jclouds.http.handlers.BackoffLimitedRetryHandler;
 import org.jclouds.vcloud.director.v1_5.domain.VcloudDirectorError;
 
 import com.google.inject.Inject;
 
 /**
- * Handles Retryable responses with error codes in the 4xx range
+ * Handles Retryable responses with error codes in the 4xx range, backing off according to the
+ * {@link BackoffPolicy}. Throttled requests (429) are always retried, after any {@code Retry-After} the
+ * server asks for. Expired sessions (401) are left to {@link InvalidateSessionAndRetryOn401AndLogoutOnClose}.
  */
-public class VcloudDirectorClientErrorRetryHandler extends BackoffLimitedRetryHandler {
+public class VcloudDirectorClientErrorRetryHandler implements HttpRetryHandler {
 
    private final VcloudDirectorUtils utils;
    private final Set<String> retryableCodes;
+   private final BackoffPolicy backoffPolicy;
+   private final InvalidateSessionAndRetryOn401AndLogoutOnClose sessionRetryHandler;
 
    @Inject
    protected VcloudDirectorClientErrorRetryHandler(VcloudDirectorUtils utils, 
-         @ClientError Set<String> retryableCodes) {
+         @ClientError Set<String> retryableCodes, BackoffPolicy backoffPolicy,
+         InvalidateSessionAndRetryOn401AndLogoutOnClose sessionRetryHandler) {
       this.utils = utils;
       this.retryableCodes = retryableCodes;
+      this.backoffPolicy = backoffPolicy;
+      this.sessionRetryHandler = sessionRetryHandler;
    }
 
    @Override
    public boolean shouldRetryRequest(HttpCommand command, HttpResponse response) {
+      if (response.getStatusCode() == 401)
+         return sessionRetryHandler.shouldRetryRequest(command, response);
+      if (response.getStatusCode() == 429)
+         return backoffPolicy.backoffAndRetry(command, response, null);
       if (response.getStatusCode() == 400 || response.getStatusCode() == 403 || response.getStatusCode() == 409) {
          // Content can be null in the case of HEAD requests
          if (response.getPayload() != null) {
@@ -60,12 +71,7 @@ public class VcloudDirectorClientErrorRetryHandler extends BackoffLimitedRetryHa
 
    protected boolean shouldRetryRequestOnError(HttpCommand command, HttpResponse response, VcloudDirectorError error) {
       if (retryableCodes.contains(error.getMinorErrorCode()))
-         return super.shouldRetryRequest(command, response);
+         return backoffPolicy.backoffAndRetry(command, response, error.getMinorErrorCode());
       return false;
    }
-
-   @Override
-   public void imposeBackoffExponentialDelay(long period, int pow, int failureCount, int max, String commandDescription) {
-      imposeBackoffExponentialDelay(period, period * 100L, pow, failureCount, max, commandDescription);
-   }
 }
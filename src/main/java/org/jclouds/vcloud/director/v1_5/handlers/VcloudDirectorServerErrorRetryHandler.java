@@ -0,0 +1,59 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.vcloud.director.v1_5.handlers;
+
+import static org.jclouds.http.HttpUtils.closeClientButKeepContentStream;
+
+import org.jclouds.http.HttpCommand;
+import org.jclouds.http.HttpResponse;
+import org.jclouds.http.HttpRetryHandler;
+import org.jclouds.vcloud.director.v1_5.domain.VcloudDirectorError;
+
+import com.google.inject.Inject;
+
+/**
+ * Handles Retryable responses with error codes in the 5xx range, backing off according to the
+ * {@link BackoffPolicy} so that {@code Retry-After}, the retry budget and the circuit breakers
+ * apply to them as they do to client errors. The vCloud Director minor error code, when the body
+ * carries one, selects the retry limit; 501 is never retried.
+ */
+public class VcloudDirectorServerErrorRetryHandler implements HttpRetryHandler {
+
+   private final VcloudDirectorUtils utils;
+   private final BackoffPolicy backoffPolicy;
+
+   @Inject
+   protected VcloudDirectorServerErrorRetryHandler(VcloudDirectorUtils utils, BackoffPolicy backoffPolicy) {
+      this.utils = utils;
+      this.backoffPolicy = backoffPolicy;
+   }
+
+   @Override
+   public boolean shouldRetryRequest(HttpCommand command, HttpResponse response) {
+      if (response.getStatusCode() == 501)
+         return false;
+      String errorCode = null;
+      // Content can be null in the case of HEAD requests
+      if (response.getPayload() != null) {
+         closeClientButKeepContentStream(response);
+         VcloudDirectorError error = utils.parseVcloudDirectorErrorFromContent(command.getCurrentRequest(), response);
+         if (error != null)
+            errorCode = error.getMinorErrorCode();
+      }
+      return backoffPolicy.backoffAndRetry(command, response, errorCode);
+   }
+}
@@ -16,50 +16,34 @@
  */
 package org.jclouds.vcloud.director.v1_5.handlers;
 
-import javax.annotation.Resource;
 import javax.inject.Inject;
-import javax.inject.Provider;
 import javax.inject.Singleton;
 
 import org.jclouds.http.HttpRequest;
 import org.jclouds.http.HttpResponse;
-import org.jclouds.http.functions.ParseSax;
-import org.jclouds.http.functions.ParseSax.Factory;
-import org.jclouds.logging.Logger;
-import org.jclouds.vcloud.director.v1_5.VCloudDirectorMediaType;
+import org.jclouds.vcloud.director.v1_5.domain.Error;
 import org.jclouds.vcloud.director.v1_5.domain.VcloudDirectorError;
 
 @Singleton
 public class VcloudDirectorUtils {
 
-   private final ParseSax.Factory factory;
-   private final Provider<ErrorHandler> errorHandlerProvider;
-
-   @Resource
-   protected Logger logger = Logger.NULL;
+   private final VCloudDirectorErrorDecoder decoder;
 
    @Inject
-   protected VcloudDirectorUtils(Factory factory, Provider<ErrorHandler> errorHandlerProvider) {
-      this.factory = factory;
-      this.errorHandlerProvider = errorHandlerProvider;
+   protected VcloudDirectorUtils(VCloudDirectorErrorDecoder decoder) {
+      this.decoder = decoder;
    }
 
    public VcloudDirectorError parseVcloudDirectorErrorFromContent(HttpRequest request, HttpResponse response) {
-      if (response.getPayload() == null)
-         return null;
- 
-      String contentType = response.getPayload().getContentMetadata().getContentType();
-      if (contentType == null || !contentType.toLowerCase().contains(VCloudDirectorMediaType.ERROR)) {
-         // expected "application/vnd.vmware.vcloud.error+xml;version=1.5"
+      Error error = decoder.decode(response);
+      if (error == null)
          return null;
-      }
 
-      try {
-         VcloudDirectorError error = factory.create(errorHandlerProvider.get()).setContext(request).apply(response);
-         return error;
-      } catch (RuntimeException e) {
-         logger.warn(e, "error parsing error");
-         return null;
-      }
+      VcloudDirectorError result = new VcloudDirectorError();
+      result.setMinorErrorCode(error.getMinorErrorCode());
+      result.setMessage(error.getMessage());
+      if (error.getMajorErrorCode() != null)
+         result.setMajorErrorCode(error.getMajorErrorCode().toString());
+      return result;
    }
 }
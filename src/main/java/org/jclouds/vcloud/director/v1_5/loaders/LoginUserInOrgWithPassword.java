@@ -18,34 +18,60 @@ package org.jclouds.vcloud.director.v1_5.loaders;
 
 import java.net.URI;
 
+import javax.annotation.Resource;
 import javax.inject.Inject;
+import javax.inject.Provider;
 import javax.inject.Singleton;
 
 import org.jclouds.domain.Credentials;
+import org.jclouds.logging.Logger;
 import org.jclouds.vcloud.director.v1_5.VCloudDirectorApi;
 import org.jclouds.vcloud.director.v1_5.annotations.Login;
+import org.jclouds.vcloud.director.v1_5.domain.Session;
 import org.jclouds.vcloud.director.v1_5.domain.SessionWithToken;
+import org.jclouds.vcloud.director.v1_5.login.SessionTokenStore;
 
 import com.google.common.base.Supplier;
 import com.google.common.cache.CacheLoader;
 
 @Singleton
 public class LoginUserInOrgWithPassword extends CacheLoader<Credentials, SessionWithToken> {
-   private final VCloudDirectorApi api;
+   @Resource
+   protected Logger logger = Logger.NULL;
+
+   private final Provider<VCloudDirectorApi> api;
    private final Supplier<URI> loginUrl;
+   private final SessionTokenStore sessionStore;
 
    @Inject
-   public LoginUserInOrgWithPassword(VCloudDirectorApi api, @Login Supplier<URI> loginUrl) {
+   public LoginUserInOrgWithPassword(Provider<VCloudDirectorApi> api, @Login Supplier<URI> loginUrl,
+         SessionTokenStore sessionStore) {
+      // a provider, as the api's retry handlers depend on the session cache this loads
       this.api = api;
       this.loginUrl = loginUrl;
+      this.sessionStore = sessionStore;
    }
 
    @Override
    public SessionWithToken load(Credentials input) {
+      URI endpoint = loginUrl.get();
+      SessionWithToken stored = sessionStore.get(endpoint, input);
+      if (stored != null) {
+         try {
+            Session session = api.get().getSessionApi().getSessionWithToken(stored.getSession().getHref(), stored.getToken());
+            logger.debug("reusing stored session %s", session.getHref());
+            return stored.toBuilder().session(session).build();
+         } catch (RuntimeException e) {
+            logger.debug("stored session %s is no longer valid: %s", stored.getSession().getHref(), e.getMessage());
+            sessionStore.remove(endpoint, input);
+         }
+      }
       String user = input.identity.substring(0, input.identity.lastIndexOf('@'));
       String org = input.identity.substring(input.identity.lastIndexOf('@') + 1);
       String password = input.credential;
-      return api.getSessionApi().loginUserInOrgWithPassword(loginUrl.get(), user, org, password);
+      SessionWithToken session = api.get().getSessionApi().loginUserInOrgWithPassword(endpoint, user, org, password);
+      sessionStore.put(endpoint, input, session);
+      return session;
    }
 
    @Override
@@ -0,0 +1,195 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.vcloud.director.v1_5.login;
+
+import static com.google.common.base.Charsets.UTF_8;
+import static org.jclouds.vcloud.director.v1_5.VCloudDirectorConstants.PROPERTY_VCLOUD_DIRECTOR_SESSION_STORE_DIRECTORY;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+
+import javax.annotation.Resource;
+import javax.crypto.Cipher;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.PBEKeySpec;
+import javax.crypto.spec.SecretKeySpec;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.jclouds.domain.Credentials;
+import org.jclouds.javax.annotation.Nullable;
+import org.jclouds.logging.Logger;
+import org.jclouds.vcloud.director.v1_5.domain.Session;
+import org.jclouds.vcloud.director.v1_5.domain.SessionWithToken;
+
+import com.google.common.base.Strings;
+import com.google.common.hash.Hashing;
+
+/**
+ * Keeps session tokens on disk, one file per endpoint and identity, so that a later process can
+ * reuse a session rather than log in again.
+ * <p>
+ * Only the session href and token are kept, encrypted with AES/GCM under a key derived from the
+ * credential, so a file is useless without the password it was created with. Any file that cannot
+ * be read back is treated as absent.
+ */
+@Singleton
+public class SessionTokenStore {
+
+   private static final byte VERSION = 1;
+   private static final int SALT_LENGTH = 16;
+   private static final int IV_LENGTH = 12;
+   private static final int KEY_ITERATIONS = 10000;
+
+   @Resource
+   protected Logger logger = Logger.NULL;
+
+   private final Path directory;
+   private final SecureRandom random = new SecureRandom();
+
+   @Inject
+   public SessionTokenStore(@Named(PROPERTY_VCLOUD_DIRECTOR_SESSION_STORE_DIRECTORY) String directory) {
+      this.directory = Strings.isNullOrEmpty(directory) ? null : Paths.get(directory);
+   }
+
+   public boolean isEnabled() {
+      return directory != null;
+   }
+
+   /**
+    * @return the stored session, with only its href set, or null if there is none
+    */
+   @Nullable
+   public SessionWithToken get(URI endpoint, Credentials credentials) {
+      if (!isEnabled())
+         return null;
+      Path file = fileFor(endpoint, credentials);
+      if (!Files.exists(file))
+         return null;
+      try {
+         ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(file));
+         if (in.get() != VERSION)
+            throw new GeneralSecurityException("unknown version");
+         byte[] salt = new byte[SALT_LENGTH];
+         byte[] iv = new byte[IV_LENGTH];
+         in.get(salt).get(iv);
+         byte[] sealed = new byte[in.remaining()];
+         in.get(sealed);
+         String plain = new String(cipher(Cipher.DECRYPT_MODE, endpoint, credentials, salt, iv).doFinal(sealed), UTF_8);
+         int newline = plain.indexOf('\n');
+         return SessionWithToken.builder().token(plain.substring(newline + 1))
+               .session(Session.builder().href(URI.create(plain.substring(0, newline))).build()).build();
+      } catch (IOException e) {
+         logger.debug("could not read stored session %s: %s", file, e.getMessage());
+      } catch (GeneralSecurityException e) {
+         logger.debug("discarding stored session %s: %s", file, e.getMessage());
+         remove(endpoint, credentials);
+      } catch (RuntimeException e) {
+         logger.debug("discarding stored session %s: %s", file, e.getMessage());
+         remove(endpoint, credentials);
+      }
+      return null;
+   }
+
+   /**
+    * Stores the session, replacing any previous one; failures are logged, not thrown.
+    */
+   public void put(URI endpoint, Credentials credentials, SessionWithToken session) {
+      if (!isEnabled())
+         return;
+      Path file = fileFor(endpoint, credentials);
+      try {
+         byte[] salt = new byte[SALT_LENGTH];
+         byte[] iv = new byte[IV_LENGTH];
+         random.nextBytes(salt);
+         random.nextBytes(iv);
+         byte[] plain = (session.getSession().getHref() + "\n" + session.getToken()).getBytes(UTF_8);
+         byte[] sealed = cipher(Cipher.ENCRYPT_MODE, endpoint, credentials, salt, iv).doFinal(plain);
+         byte[] out = ByteBuffer.allocate(1 + SALT_LENGTH + IV_LENGTH + sealed.length).put(VERSION).put(salt).put(iv)
+               .put(sealed).array();
+
+         Files.createDirectories(directory);
+         Path temp = createOwnerOnlyTempFile();
+         try {
+            Files.write(temp, out);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+         } finally {
+            Files.deleteIfExists(temp);
+         }
+      } catch (IOException e) {
+         logger.warn(e, "could not store session in %s", file);
+      } catch (GeneralSecurityException e) {
+         logger.warn(e, "could not store session in %s", file);
+      }
+   }
+
+   public void remove(URI endpoint, Credentials credentials) {
+      if (!isEnabled())
+         return;
+      Path file = fileFor(endpoint, credentials);
+      try {
+         Files.deleteIfExists(file);
+      } catch (IOException e) {
+         logger.warn(e, "could not remove stored session %s", file);
+      }
+   }
+
+   private Path createOwnerOnlyTempFile() throws IOException {
+      try {
+         return Files.createTempFile(directory, "session", ".tmp",
+               PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+      } catch (UnsupportedOperationException e) {
+         return Files.createTempFile(directory, "session", ".tmp");
+      }
+   }
+
+   private Path fileFor(URI endpoint, Credentials credentials) {
+      return directory.resolve(Hashing.sha256().hashString(keyFor(endpoint, credentials), UTF_8) + ".session");
+   }
+
+   private static String keyFor(URI endpoint, Credentials credentials) {
+      return endpoint + "\n" + credentials.identity;
+   }
+
+   private static Cipher cipher(int mode, URI endpoint, Credentials credentials, byte[] salt, byte[] iv)
+         throws GeneralSecurityException {
+      char[] password = Strings.nullToEmpty(credentials.credential).toCharArray();
+      PBEKeySpec spec = new PBEKeySpec(password, salt, KEY_ITERATIONS, 128);
+      try {
+         byte[] key = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256").generateSecret(spec).getEncoded();
+         Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+         cipher.init(mode, new SecretKeySpec(key, "AES"), new GCMParameterSpec(128, iv));
+         // binds the file to its endpoint and identity
+         cipher.updateAAD(keyFor(endpoint, credentials).getBytes(UTF_8));
+         return cipher;
+      } finally {
+         spec.clearPassword();
+         Arrays.fill(password, '\0');
+      }
+   }
+}
@@ -0,0 +1,80 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.vcloud.director.v1_5.xml;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
+
+/**
+ * A {@link JAXBContext} with bounded pools of the {@link Unmarshaller}s and {@link Marshaller}s it
+ * creates, which are not thread-safe but are cheap to reuse once a caller is done with them.
+ * <p>
+ * Callers {@code borrow} one, use it on their own thread and {@code release} it when it completed
+ * normally; one that threw is simply dropped. When the pool is empty a new one is created, and when
+ * it is full a released one is left to the garbage collector, so the pool never blocks.
+ */
+final class JAXBPool {
+
+   private final JAXBContext context;
+   private final boolean prettyPrint;
+   private final Queue<Unmarshaller> unmarshallers;
+   private final Queue<Marshaller> marshallers;
+
+   JAXBPool(JAXBContext context, boolean prettyPrint, int size) {
+      checkArgument(size >= 0, "pool size must be non-negative, was %s", size);
+      this.context = checkNotNull(context, "context");
+      this.prettyPrint = prettyPrint;
+      this.unmarshallers = size > 0 ? new ArrayBlockingQueue<Unmarshaller>(size) : null;
+      this.marshallers = size > 0 ? new ArrayBlockingQueue<Marshaller>(size) : null;
+   }
+
+   JAXBContext getContext() {
+      return context;
+   }
+
+   Unmarshaller borrowUnmarshaller() throws JAXBException {
+      Unmarshaller unmarshaller = unmarshallers != null ? unmarshallers.poll() : null;
+      return unmarshaller != null ? unmarshaller : context.createUnmarshaller();
+   }
+
+   void release(Unmarshaller unmarshaller) {
+      if (unmarshallers != null)
+         unmarshallers.offer(unmarshaller);
+   }
+
+   Marshaller borrowMarshaller() throws JAXBException {
+      Marshaller marshaller = marshallers != null ? marshallers.poll() : null;
+      if (marshaller == null) {
+         marshaller = context.createMarshaller();
+         marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, prettyPrint);
+      }
+      return marshaller;
+   }
+
+   void release(Marshaller marshaller) {
+      if (marshallers != null)
+         marshallers.offer(marshaller);
+   }
+}
@@ -0,0 +1,226 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.vcloud.director.v1_5.xml;
+
+import static org.jclouds.Constants.PROPERTY_PRETTY_PRINT_PAYLOADS;
+import static org.jclouds.vcloud.director.v1_5.VCloudDirectorConstants.PROPERTY_VCLOUD_DIRECTOR_XML_POOL_SIZE;
+import static org.jclouds.vcloud.director.v1_5.VCloudDirectorConstants.PROPERTY_VCLOUD_DIRECTOR_XML_PREWARM;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Set;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.JAXBIntrospector;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.transform.stream.StreamSource;
+
+import org.jclouds.xml.XMLParser;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Joiner;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+/**
+ * An {@link XMLParser} that, unlike {@link org.jclouds.xml.internal.JAXBParser}, does not build a
+ * new {@link JAXBContext} for every payload it reads or writes.
+ * <p>
+ * Contexts are cached per type. When {@code jclouds.vcloud-director.xml.prewarm} is set, a single
+ * context for every root element of the domain model, as listed in the
+ * {@code jaxb.index} of each domain package, is built when the parser is created and used for all
+ * of them.
+ * <p>
+ * Each context keeps a pool of {@code jclouds.vcloud-director.xml.pool-size} unmarshallers and
+ * marshallers, so that the response parsers and payload binders of every feature api reuse them
+ * rather than create new ones per request.
+ * <p>
+ * Documents can also be read through an {@link XMLProjection}, building only the parts of the
+ * domain object a caller needs, and written straight to a stream, as {@link XMLPayload} does.
+ */
+@Singleton
+public class VCloudDirectorJAXBParser implements XMLParser {
+
+   @VisibleForTesting
+   static final Set<String> DOMAIN_PACKAGES = ImmutableSet.of(
+         "org.jclouds.vcloud.director.v1_5.domain",
+         "org.jclouds.vcloud.director.v1_5.domain.dmtf",
+         "org.jclouds.vcloud.director.v1_5.domain.dmtf.ovf",
+         "org.jclouds.vcloud.director.v1_5.domain.dmtf.ovf.environment",
+         "org.jclouds.vcloud.director.v1_5.domain.network",
+         "org.jclouds.vcloud.director.v1_5.domain.org",
+         "org.jclouds.vcloud.director.v1_5.domain.params",
+         "org.jclouds.vcloud.director.v1_5.domain.query",
+         "org.jclouds.vcloud.director.v1_5.domain.section");
+
+   private final boolean prettyPrint;
+   private final int poolSize;
+   private final JAXBPool domain;
+   private final XMLInputFactory inputFactory;
+   private final LoadingCache<Class<?>, JAXBPool> pools = CacheBuilder.newBuilder().build(
+         new CacheLoader<Class<?>, JAXBPool>() {
+            @Override
+            public JAXBPool load(Class<?> type) throws JAXBException {
+               return new JAXBPool(JAXBContext.newInstance(type), prettyPrint, poolSize);
+            }
+         });
+
+   @Inject
+   public VCloudDirectorJAXBParser(@Named(PROPERTY_PRETTY_PRINT_PAYLOADS) String prettyPrint,
+         @Named(PROPERTY_VCLOUD_DIRECTOR_XML_PREWARM) boolean prewarm,
+         @Named(PROPERTY_VCLOUD_DIRECTOR_XML_POOL_SIZE) int poolSize) {
+      this.prettyPrint = Boolean.valueOf(prettyPrint);
+      this.poolSize = poolSize;
+      this.domain = prewarm ? createDomainPool() : null;
+      this.inputFactory = XMLInputFactory.newFactory();
+      inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+      inputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+   }
+
+   private JAXBPool createDomainPool() {
+      try {
+         JAXBPool pool = new JAXBPool(JAXBContext.newInstance(Joiner.on(':').join(DOMAIN_PACKAGES),
+               VCloudDirectorJAXBParser.class.getClassLoader()), prettyPrint, poolSize);
+         // loads the unmarshalling machinery ahead of the first response
+         pool.release(pool.borrowUnmarshaller());
+         return pool;
+      } catch (JAXBException e) {
+         throw new IllegalStateException("cannot create JAXB context for the vCloud Director domain", e);
+      }
+   }
+
+   @Override
+   public String toXML(Object src) throws IOException {
+      return toXML(src, src.getClass());
+   }
+
+   @Override
+   public <T> String toXML(Object src, Class<T> type) throws IOException {
+      try {
+         // always the type's own context, as a marshaller declares every namespace its context knows
+         JAXBPool pool = poolFor(type);
+         Marshaller marshaller = pool.borrowMarshaller();
+         StringWriter writer = new StringWriter();
+         marshaller.marshal(src, writer);
+         pool.release(marshaller);
+         return writer.toString();
+      } catch (JAXBException ex) {
+         throw new IOException("Could not marshall object", ex);
+      }
+   }
+
+   /**
+    * Writes what {@link #toXML(Object)} returns to {@code out} as UTF-8, without building a string
+    * of the document first.
+    */
+   public void toXML(Object src, OutputStream out) throws IOException {
+      try {
+         JAXBPool pool = poolFor(src.getClass());
+         Marshaller marshaller = pool.borrowMarshaller();
+         marshaller.marshal(src, out);
+         pool.release(marshaller);
+      } catch (JAXBException ex) {
+         throw new IOException("Could not marshall object", ex);
+      }
+   }
+
+   @SuppressWarnings("unchecked")
+   @Override
+   public <T> T fromXML(String xml, Class<T> type) throws IOException {
+      if (xml.charAt(0) == '\uFEFF')
+         xml = xml.substring(1);
+      try {
+         if (domain != null && isDomainType(type)) {
+            Unmarshaller unmarshaller = domain.borrowUnmarshaller();
+            Object parsed = JAXBIntrospector.getValue(unmarshaller.unmarshal(new StringReader(xml)));
+            if (!type.isInstance(parsed)) {
+               // another domain type has the same root element name
+               parsed = unmarshaller.unmarshal(new StreamSource(new StringReader(xml)), type).getValue();
+            }
+            domain.release(unmarshaller);
+            return (T) parsed;
+         }
+         JAXBPool pool = poolFor(type);
+         Unmarshaller unmarshaller = pool.borrowUnmarshaller();
+         T parsed = (T) unmarshaller.unmarshal(new StringReader(xml));
+         pool.release(unmarshaller);
+         return parsed;
+      } catch (Exception ex) {
+         throw new IOException("Could not unmarshal document into type: " + type.getSimpleName() + "\n" + xml, ex);
+      }
+   }
+
+   /**
+    * Reads the document as {@link #fromXML(String, Class)} does, skipping the elements outside
+    * {@code projection} without building objects for them.
+    */
+   public <T> T fromXML(InputStream xml, Class<T> type, XMLProjection projection) throws IOException {
+      XMLStreamReader reader = null;
+      try {
+         reader = projection.filter(inputFactory.createXMLStreamReader(xml));
+         JAXBPool pool = domain != null && isDomainType(type) ? domain : poolFor(type);
+         Unmarshaller unmarshaller = pool.borrowUnmarshaller();
+         T parsed = unmarshaller.unmarshal(reader, type).getValue();
+         pool.release(unmarshaller);
+         return parsed;
+      } catch (Exception ex) {
+         throw new IOException("Could not unmarshal document into type: " + type.getSimpleName() + " with " + projection, ex);
+      } finally {
+         closeQuietly(reader);
+      }
+   }
+
+   private static void closeQuietly(XMLStreamReader reader) {
+      if (reader == null)
+         return;
+      try {
+         reader.close();
+      } catch (XMLStreamException ignored) {
+      }
+   }
+
+   private JAXBPool poolFor(Class<?> type) throws JAXBException {
+      try {
+         return pools.getUnchecked(type);
+      } catch (UncheckedExecutionException e) {
+         if (e.getCause() instanceof JAXBException)
+            throw (JAXBException) e.getCause();
+         throw e;
+      }
+   }
+
+   @VisibleForTesting
+   static boolean isDomainType(Class<?> type) {
+      return type.isAnnotationPresent(XmlRootElement.class) && type.getPackage() != null
+            && DOMAIN_PACKAGES.contains(type.getPackage().getName());
+   }
+}
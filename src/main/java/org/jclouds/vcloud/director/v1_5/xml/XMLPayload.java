@@ -0,0 +1,117 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.vcloud.director.v1_5.xml;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import javax.ws.rs.core.MediaType;
+
+import org.jclouds.io.payloads.BaseMutableContentMetadata;
+import org.jclouds.io.payloads.BasePayload;
+
+import com.google.common.base.Throwables;
+
+/**
+ * A request payload of a domain object, marshalled by {@link VCloudDirectorJAXBParser} straight
+ * into the bytes the request is written from.
+ * <p>
+ * The document is built the first time its length or content is asked for, when the request is
+ * sent, and never held as a string. Its bytes are kept so that retried requests and wire logging
+ * read the same document again.
+ */
+public final class XMLPayload extends BasePayload<Object> {
+
+   private final VCloudDirectorJAXBParser parser;
+   private volatile Buffer buffer;
+
+   public XMLPayload(VCloudDirectorJAXBParser parser, Object src) {
+      super(checkNotNull(src, "src"), new LazyLengthMetadata());
+      this.parser = checkNotNull(parser, "parser");
+      ((LazyLengthMetadata) getContentMetadata()).payload = this;
+      getContentMetadata().setContentType(MediaType.APPLICATION_XML);
+   }
+
+   @Override
+   public InputStream openStream() throws IOException {
+      return buffer().openStream();
+   }
+
+   @Override
+   public boolean isRepeatable() {
+      return true;
+   }
+
+   private Buffer buffer() throws IOException {
+      Buffer result = buffer;
+      if (result == null) {
+         synchronized (this) {
+            result = buffer;
+            if (result == null) {
+               result = new Buffer();
+               parser.toXML(content, result);
+               buffer = result;
+            }
+         }
+      }
+      return result;
+   }
+
+   /**
+    * Streams from the array it was written to, rather than a copy of it.
+    */
+   private static final class Buffer extends ByteArrayOutputStream {
+
+      Buffer() {
+         super(1024);
+      }
+
+      InputStream openStream() {
+         return new ByteArrayInputStream(buf, 0, count);
+      }
+   }
+
+   /**
+    * Reports the length of the document, marshalling it on first use, unless one has been set.
+    */
+   private static final class LazyLengthMetadata extends BaseMutableContentMetadata {
+
+      private XMLPayload payload;
+      private boolean lengthSet;
+
+      @Override
+      public Long getContentLength() {
+         if (lengthSet || payload == null)
+            return super.getContentLength();
+         try {
+            return (long) payload.buffer().size();
+         } catch (IOException e) {
+            throw Throwables.propagate(e);
+         }
+      }
+
+      @Override
+      public void setContentLength(Long contentLength) {
+         lengthSet = true;
+         super.setContentLength(contentLength);
+      }
+   }
+}
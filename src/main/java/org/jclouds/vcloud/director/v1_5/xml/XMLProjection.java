@@ -0,0 +1,157 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.vcloud.director.v1_5.xml;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.util.StreamReaderDelegate;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+
+/**
+ * The elements of a document to read, as paths of element local names below its root element,
+ * for example {@code Link} or {@code Children/Vm/NetworkConnectionSection}.
+ * <p>
+ * A {@link #filter(XMLStreamReader) filtered} reader passes on the root element, the elements along
+ * each path and everything inside the element a path ends at, with their attributes. Any other
+ * element is skipped over as a whole, so unmarshalling never builds objects for it and the
+ * corresponding properties are left empty. Namespaces are not considered, as the vCloud and OVF
+ * element names do not clash where it matters.
+ */
+public final class XMLProjection {
+
+   private static final class Node {
+      // an element with no children listed is read whole
+      private final Map<String, Node> children = Maps.newHashMap();
+   }
+
+   private final Node root = new Node();
+   private final String description;
+
+   private XMLProjection(Iterable<String> paths) {
+      for (String path : paths) {
+         Node node = root;
+         for (String name : Splitter.on('/').split(path)) {
+            checkArgument(!name.isEmpty(), "invalid path %s", path);
+            Node child = node.children.get(name);
+            if (child == null) {
+               child = new Node();
+               node.children.put(name, child);
+            }
+            node = child;
+         }
+      }
+      this.description = Joiner.on(", ").join(paths);
+   }
+
+   /**
+    * @param paths
+    *           the elements to read; an element also listed as part of a longer path is read whole
+    */
+   public static XMLProjection keeping(String... paths) {
+      checkArgument(paths.length > 0, "no elements to keep");
+      return new XMLProjection(ImmutableList.copyOf(paths));
+   }
+
+   /**
+    * @return a reader passing on only the elements of this projection from the document
+    *         {@code reader} is at the start of
+    */
+   public XMLStreamReader filter(XMLStreamReader reader) {
+      return new ProjectingReader(reader, root);
+   }
+
+   @Override
+   public String toString() {
+      return "XMLProjection(" + description + ")";
+   }
+
+   private static final class ProjectingReader extends StreamReaderDelegate {
+
+      private final Node root;
+      // the projection node for each element currently open
+      private final Deque<Node> open = new ArrayDeque<Node>();
+
+      private ProjectingReader(XMLStreamReader reader, Node root) {
+         super(reader);
+         this.root = root;
+      }
+
+      @Override
+      public int next() throws XMLStreamException {
+         while (true) {
+            int event = super.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+               Node node = nodeFor(getLocalName());
+               if (node == null) {
+                  skipElement();
+                  continue;
+               }
+               open.push(node);
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+               open.pop();
+            }
+            return event;
+         }
+      }
+
+      private Node nodeFor(String localName) {
+         if (open.isEmpty())
+            return root;
+         Node parent = open.peek();
+         // inside an element read whole
+         if (parent.children.isEmpty())
+            return parent;
+         return parent.children.get(localName);
+      }
+
+      private void skipElement() throws XMLStreamException {
+         for (int depth = 1; depth > 0;) {
+            int event = super.next();
+            if (event == XMLStreamConstants.START_ELEMENT)
+               depth++;
+            else if (event == XMLStreamConstants.END_ELEMENT)
+               depth--;
+         }
+      }
+
+      @Override
+      public int nextTag() throws XMLStreamException {
+         int event = next();
+         while (event == XMLStreamConstants.CHARACTERS && isWhiteSpace()
+               || event == XMLStreamConstants.CDATA && isWhiteSpace()
+               || event == XMLStreamConstants.SPACE
+               || event == XMLStreamConstants.PROCESSING_INSTRUCTION
+               || event == XMLStreamConstants.COMMENT) {
+            event = next();
+         }
+         if (event != XMLStreamConstants.START_ELEMENT && event != XMLStreamConstants.END_ELEMENT)
+            throw new XMLStreamException("expected start or end tag", getLocation());
+         return event;
+      }
+   }
+}
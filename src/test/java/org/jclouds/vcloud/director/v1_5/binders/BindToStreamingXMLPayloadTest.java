@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.vcloud.director.v1_5.binders;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.io.IOException;
+
+import javax.ws.rs.core.MediaType;
+
+import org.jclouds.http.HttpRequest;
+import org.jclouds.io.Payload;
+import org.jclouds.util.Strings2;
+import org.jclouds.vcloud.director.v1_5.domain.Metadata;
+import org.jclouds.vcloud.director.v1_5.xml.VCloudDirectorJAXBParser;
+import org.jclouds.vcloud.director.v1_5.xml.XMLPayload;
+import org.jclouds.xml.XMLParser;
+import org.jclouds.xml.internal.JAXBParser;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Tests behavior of {@code BindToStreamingXMLPayload}.
+ */
+@Test(groups = "unit", testName = "BindToStreamingXMLPayloadTest")
+public class BindToStreamingXMLPayloadTest {
+
+   private static final Metadata METADATA = Metadata.toMetadata(ImmutableMap.of("foo", "bar"));
+
+   private static HttpRequest request() {
+      return HttpRequest.builder().method("PUT").endpoint("http://momma").build();
+   }
+
+   public void testBindsAPayloadMarshalledWhenRead() throws IOException {
+      XMLParser xml = new VCloudDirectorJAXBParser("true", false, 4);
+      HttpRequest request = new BindToStreamingXMLPayload(xml).bindToRequest(request(), METADATA);
+
+      Payload payload = request.getPayload();
+      assertTrue(payload instanceof XMLPayload);
+      assertSame(payload.getRawContent(), METADATA);
+      assertTrue(payload.isRepeatable());
+      assertEquals(payload.getContentMetadata().getContentType(), MediaType.APPLICATION_XML);
+
+      String expected = new JAXBParser("true").toXML(METADATA);
+      assertEquals(Strings2.toStringAndClose(payload.openStream()), expected);
+      assertEquals(Strings2.toStringAndClose(payload.openStream()), expected);
+      assertEquals(payload.getContentMetadata().getContentLength().longValue(), expected.getBytes(Charsets.UTF_8).length);
+   }
+
+   public void testSetContentLengthIsKept() {
+      XMLParser xml = new VCloudDirectorJAXBParser("false", false, 4);
+      Payload payload = new BindToStreamingXMLPayload(xml).bindToRequest(request(), METADATA).getPayload();
+
+      payload.getContentMetadata().setContentLength(42L);
+      assertEquals(payload.getContentMetadata().getContentLength().longValue(), 42L);
+   }
+
+   public void testBindsAStringWithOtherParsers() throws IOException {
+      XMLParser xml = new JAXBParser("false");
+      HttpRequest request = new BindToStreamingXMLPayload(xml).bindToRequest(request(), METADATA);
+
+      assertEquals(request.getPayload().getRawContent(), xml.toXML(METADATA));
+      assertEquals(request.getPayload().getContentMetadata().getContentType(), MediaType.APPLICATION_XML);
+   }
+}
@@ -0,0 +1,57 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.vcloud.director.v1_5.builders;
+
+import static org.jclouds.vcloud.director.v1_5.builders.TemplateBuilderImpl.containsOrMatches;
+import static org.testng.Assert.assertEquals;
+
+import java.util.regex.PatternSyntaxException;
+
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+/**
+ * Tests behavior of {@code TemplateBuilderImpl}
+ */
+@Test(groups = "unit", testName = "TemplateBuilderImplTest")
+public class TemplateBuilderImplTest {
+
+   @DataProvider(name = "criteria")
+   public Object[][] criteria() {
+      return new Object[][] {
+            { "Ubuntu 16.04", "16.04" },
+            { "Ubuntu 16.04", "16\\.0[0-9]" },
+            { "Ubuntu 16.04", "^Ubuntu 16.*$" },
+            { "Ubuntu 16.04", "Ubuntu 14.*" },
+            { "Ubuntu 16.04", "ubuntu.*" },
+            { "ubuntu [server]", "[server" },
+            { "", "" } };
+   }
+
+   @Test(dataProvider = "criteria")
+   public void testContainsOrMatchesAsStringDoes(String value, String regex) {
+      boolean expected = value.contains(regex) || value.matches(regex);
+      assertEquals(containsOrMatches(value, regex), expected);
+      // and again, with the pattern cached
+      assertEquals(containsOrMatches(value, regex), expected);
+   }
+
+   @Test(expectedExceptions = PatternSyntaxException.class)
+   public void testInvalidRegexNotContainedFailsAsStringDoes() {
+      containsOrMatches("ubuntu server", "[server");
+   }
+}
@@ -0,0 +1,290 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.vcloud.director.v1_5.builders;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.inject.Provider;
+
+import org.jclouds.compute.domain.Hardware;
+import org.jclouds.compute.domain.Image;
+import org.jclouds.compute.domain.ImageBuilder;
+import org.jclouds.compute.domain.OperatingSystem;
+import org.jclouds.compute.domain.OsFamily;
+import org.jclouds.compute.domain.Template;
+import org.jclouds.compute.domain.TemplateBuilder;
+import org.jclouds.compute.options.TemplateOptions;
+import org.jclouds.compute.strategy.GetImageStrategy;
+import org.jclouds.compute.suppliers.ImageCacheSupplier;
+import org.jclouds.domain.Location;
+import org.jclouds.domain.LocationBuilder;
+import org.jclouds.domain.LocationScope;
+import org.jclouds.rest.AuthorizationException;
+import org.jclouds.vcloud.director.v1_5.compute.suppliers.VirtualHardwareConfigSupplier;
+import org.jclouds.vcloud.director.v1_5.compute.util.VirtualHardwareSpace;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Function;
+import com.google.common.base.Predicate;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.google.common.collect.FluentIterable;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.inject.util.Providers;
+
+/**
+ * Tests behavior of {@code TemplateIndex} and the {@code TemplateBuilderImpl} builds searching it
+ */
+@Test(groups = "unit", testName = "TemplateIndexTest")
+public class TemplateIndexTest {
+
+   private static final Location VDC = new LocationBuilder().scope(LocationScope.ZONE).id("vdc").description("vdc").build();
+   static final Set<Location> LOCATIONS = ImmutableSet.of(VDC);
+
+   static final Set<Image> IMAGES = ImmutableSet.of(
+         image("ubuntu-16-64", OsFamily.UBUNTU, "16.04", true),
+         image("ubuntu-16-32", OsFamily.UBUNTU, "16.04", false),
+         image("ubuntu-14-64", OsFamily.UBUNTU, "14.04", true),
+         image("centos-7-64", OsFamily.CENTOS, "7", true),
+         image("windows-2012-64", OsFamily.WINDOWS, "2012", true));
+
+   static final VirtualHardwareSpace SPACE = new VirtualHardwareSpace(4, 512, 8192, "");
+   static final Set<Hardware> HARDWARES = SPACE.getHardwares();
+
+   static Image image(String id, OsFamily family, String version, boolean is64Bit) {
+      return new ImageBuilder().ids(id).name(id).status(Image.Status.AVAILABLE)
+            .operatingSystem(OperatingSystem.builder().family(family).version(version).is64Bit(is64Bit)
+                  .description(id).build()).build();
+   }
+
+   static TemplateBuilder templateBuilder(Set<? extends Image> images, Set<? extends Hardware> hardwares,
+         TemplateIndexes indexes) {
+      return templateBuilder(images, hardwares, LOCATIONS, indexes, new AtomicInteger());
+   }
+
+   static TemplateBuilder templateBuilder(Set<? extends Image> images, Set<? extends Hardware> hardwares,
+         Set<? extends Location> locations, TemplateIndexes indexes, AtomicInteger searches) {
+      return templateBuilder(images, hardwares, locations, indexes, searches, SPACE);
+   }
+
+   /**
+    * @param searches
+    *           counts the builds which search the images
+    * @param space
+    *           the space the builder works out synthetic profiles in, if {@code hardwares} are its
+    */
+   static TemplateBuilder templateBuilder(Set<? extends Image> images, Set<? extends Hardware> hardwares,
+         Set<? extends Location> locations, TemplateIndexes indexes, final AtomicInteger searches,
+         VirtualHardwareSpace space) {
+      return templateBuilder(imageCache(Suppliers.<Set<? extends Image>> ofInstance(images)), hardwares, locations,
+            indexes, searches, space);
+   }
+
+   static TemplateBuilder templateBuilder(ImageCacheSupplier imageCache, Set<? extends Hardware> hardwares,
+         Set<? extends Location> locations, TemplateIndexes indexes, final AtomicInteger searches,
+         VirtualHardwareSpace space) {
+      return new VCloudDirectorTemplateBuilderImpl(Suppliers.<Set<? extends Location>> ofInstance(locations),
+            imageCache, Suppliers.<Set<? extends Hardware>> ofInstance(hardwares), Suppliers.ofInstance(VDC),
+            new Provider<TemplateOptions>() {
+               @Override
+               public TemplateOptions get() {
+                  return new TemplateOptions();
+               }
+            }, Providers.<TemplateBuilder> of(null), indexes, space) {
+         @Override
+         protected List<? extends Image> candidateImages(TemplateIndex index) {
+            searches.incrementAndGet();
+            return super.candidateImages(index);
+         }
+      };
+   }
+
+   static ImageCacheSupplier imageCache(Supplier<Set<? extends Image>> images) {
+      return new ImageCacheSupplier(images, 60, new AtomicReference<AuthorizationException>(),
+            Providers.<GetImageStrategy> of(null));
+   }
+
+   private static List<String> ids(Iterable<? extends Image> images) {
+      return FluentIterable.from(images).transform(new Function<Image, String>() {
+         @Override
+         public String apply(Image input) {
+            return input.getId();
+         }
+      }).toList();
+   }
+
+   public void testImagesAreNarrowedByFamilyBitsAndVersionInOrder() {
+      TemplateIndex index = new TemplateIndex(IMAGES, HARDWARES);
+
+      assertEquals(ids(index.getImages(null, null, null)), ids(IMAGES));
+      assertEquals(ids(index.getImages(OsFamily.UBUNTU, null, null)),
+            ImmutableList.of("ubuntu-16-64", "ubuntu-16-32", "ubuntu-14-64"));
+      assertEquals(ids(index.getImages(null, true, new Predicate<String>() {
+         @Override
+         public boolean apply(String input) {
+            return input.startsWith("1");
+         }
+      })), ImmutableList.of("ubuntu-16-64", "ubuntu-14-64"));
+      assertEquals(ids(index.getImages(OsFamily.SUSE, null, null)), ImmutableList.of());
+      assertEquals(index.getImage("centos-7-64").getId(), "centos-7-64");
+   }
+
+   public void testHardwaresAreSortedMostPreferredFirst() {
+      TemplateIndex index = new TemplateIndex(IMAGES, HARDWARES);
+
+      List<Hardware> biggestFirst = index.getHardwares(TemplateBuilderImpl.DEFAULT_SIZE_ORDERING);
+      assertEquals(biggestFirst.get(0).getId(), "4CPU_8GB_RAM");
+      assertEquals(biggestFirst.get(biggestFirst.size() - 1).getId(), "1CPU_0.5GB_RAM");
+      assertSame(index.getHardwares(TemplateBuilderImpl.DEFAULT_SIZE_ORDERING), biggestFirst);
+   }
+
+   public void testBuildResolvesAsFullSearch() {
+      TemplateIndexes indexes = new TemplateIndexes(60);
+
+      Template template = templateBuilder(IMAGES, HARDWARES, indexes).osFamily(OsFamily.UBUNTU)
+            .osVersionMatches("16").os64Bit(true).minCores(2).minRam(3000).build();
+      assertEquals(template.getImage().getId(), "ubuntu-16-64");
+      assertEquals(template.getHardware().getId(), "2CPU_4GB_RAM");
+
+      template = templateBuilder(IMAGES, HARDWARES, indexes).osFamily(OsFamily.UBUNTU).biggest().build();
+      assertEquals(template.getHardware().getId(), "4CPU_8GB_RAM");
+
+      template = templateBuilder(IMAGES, HARDWARES, indexes).imageId("centos-7-64").minRam(1024).build();
+      assertEquals(template.getImage().getId(), "centos-7-64");
+      assertEquals(template.getHardware().getId(), "1CPU_1GB_RAM");
+   }
+
+   public void testIndexIsSharedUntilImagesChange() {
+      TemplateIndexes indexes = new TemplateIndexes(60);
+      TemplateIndex index = indexes.get(0, IMAGES, HARDWARES);
+
+      assertSame(indexes.get(0, ImmutableSet.copyOf(IMAGES), HARDWARES), index);
+      Set<Image> refreshed = ImmutableSet.<Image> builder().addAll(IMAGES)
+            .add(image("ubuntu-18-64", OsFamily.UBUNTU, "18.04", true)).build();
+      assertNotSame(indexes.get(0, refreshed, HARDWARES), index);
+   }
+
+   public void testRepeatedCriteriaReuseTheResolvedTemplate() {
+      TemplateIndexes indexes = new TemplateIndexes(60);
+      AtomicInteger searches = new AtomicInteger();
+
+      Template first = templateBuilder(IMAGES, HARDWARES, LOCATIONS, indexes, searches).osFamily(OsFamily.UBUNTU)
+            .minRam(3000).build();
+      Template second = templateBuilder(IMAGES, HARDWARES, LOCATIONS, indexes, searches).osFamily(OsFamily.UBUNTU)
+            .minRam(3000).options(new TemplateOptions().inboundPorts(8080)).build();
+      assertEquals(searches.get(), 1);
+      assertSame(second.getImage(), first.getImage());
+      assertSame(second.getHardware(), first.getHardware());
+      assertEquals(second.getOptions().getInboundPorts(), new int[] { 8080 });
+      assertEquals(first.getOptions().getInboundPorts(), new int[] { 22 });
+
+      templateBuilder(IMAGES, HARDWARES, LOCATIONS, indexes, searches).osFamily(OsFamily.UBUNTU).minRam(1024).build();
+      assertEquals(searches.get(), 2);
+   }
+
+   public void testResolvedTemplatesAreDroppedWhenSuppliersRefresh() {
+      TemplateIndexes indexes = new TemplateIndexes(60);
+      AtomicInteger searches = new AtomicInteger();
+
+      templateBuilder(IMAGES, HARDWARES, LOCATIONS, indexes, searches).osFamily(OsFamily.UBUNTU).build();
+      templateBuilder(IMAGES, HARDWARES, ImmutableSet.of(VDC), indexes, searches).osFamily(OsFamily.UBUNTU).build();
+      assertEquals(searches.get(), 2);
+
+      Set<Image> refreshed = ImmutableSet.<Image> builder().add(image("ubuntu-18-64", OsFamily.UBUNTU, "18.04", true))
+            .addAll(IMAGES).build();
+      Template template = templateBuilder(refreshed, HARDWARES, LOCATIONS, indexes, searches).osFamily(OsFamily.UBUNTU)
+            .osVersionMatches("18").build();
+      assertEquals(searches.get(), 3);
+      assertEquals(template.getImage().getId(), "ubuntu-18-64");
+
+      templateBuilder(refreshed, new VirtualHardwareConfigSupplier(4, 512, 8192, "").get(), LOCATIONS, indexes,
+            searches).osFamily(OsFamily.UBUNTU).osVersionMatches("18").build();
+      assertEquals(searches.get(), 4);
+   }
+
+   public void testRepeatedCriteriaDoNotReadTheImagesUntilTheyRefresh() {
+      TemplateIndexes indexes = new TemplateIndexes(60);
+      final AtomicInteger reads = new AtomicInteger();
+      ImageCacheSupplier imageCache = new ImageCacheSupplier(
+            indexes.refreshing(Suppliers.<Set<? extends Image>> ofInstance(IMAGES)), 60,
+            new AtomicReference<AuthorizationException>(), Providers.<GetImageStrategy> of(null)) {
+         @Override
+         public Set<? extends Image> get() {
+            reads.incrementAndGet();
+            return super.get();
+         }
+      };
+      AtomicInteger searches = new AtomicInteger();
+
+      for (int i = 0; i < 3; i++)
+         templateBuilder(imageCache, HARDWARES, LOCATIONS, indexes, searches, SPACE).osFamily(OsFamily.UBUNTU)
+               .minRam(3000).build();
+      // the first build loads them, so the index it built is only known to be current once read again
+      assertEquals(reads.get(), 2);
+      assertEquals(searches.get(), 1);
+
+      // a new criteria reads them, as the index is not known to hold a template for it
+      templateBuilder(imageCache, HARDWARES, LOCATIONS, indexes, searches, SPACE).osFamily(OsFamily.CENTOS).build();
+      assertEquals(reads.get(), 3);
+      assertEquals(searches.get(), 2);
+
+      indexes.imagesRefreshed();
+      templateBuilder(imageCache, HARDWARES, LOCATIONS, indexes, searches, SPACE).osFamily(OsFamily.UBUNTU)
+            .minRam(3000).build();
+      templateBuilder(imageCache, HARDWARES, LOCATIONS, indexes, searches, SPACE).osFamily(OsFamily.UBUNTU)
+            .minRam(3000).build();
+      assertEquals(reads.get(), 4);
+      // the same images, so the same index
+      assertEquals(searches.get(), 2);
+
+      imageCache.rebuildCache();
+      templateBuilder(imageCache, HARDWARES, LOCATIONS, indexes, searches, SPACE).osFamily(OsFamily.UBUNTU)
+            .minRam(3000).build();
+      assertEquals(reads.get(), 5);
+   }
+
+   public void testImagesAreReadOnceTheyMayHaveExpired() {
+      TemplateIndexes indexes = new TemplateIndexes(0);
+      ImageCacheSupplier imageCache = imageCache(indexes.refreshing(Suppliers.<Set<? extends Image>> ofInstance(IMAGES)));
+      templateBuilder(imageCache, HARDWARES, LOCATIONS, indexes, new AtomicInteger(), SPACE).osFamily(OsFamily.UBUNTU)
+            .build();
+
+      assertEquals(indexes.getRefreshes(), 1);
+      assertNull(indexes.getCurrent(HARDWARES));
+   }
+
+   public void testNoMatchFailsAsFullSearch() {
+      try {
+         templateBuilder(IMAGES, HARDWARES, new TemplateIndexes(60)).osFamily(OsFamily.UBUNTU).minRam(64 * 1024).build();
+         fail("expected NoSuchElementException");
+      } catch (NoSuchElementException expected) {
+         assertTrue(expected.getMessage().startsWith("no hardware profiles match params"), expected.getMessage());
+      }
+   }
+}
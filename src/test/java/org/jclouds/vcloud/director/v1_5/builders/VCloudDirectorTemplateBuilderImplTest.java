@@ -0,0 +1,88 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.vcloud.director.v1_5.builders;
+
+import static org.jclouds.vcloud.director.v1_5.builders.TemplateIndexTest.IMAGES;
+import static org.jclouds.vcloud.director.v1_5.builders.TemplateIndexTest.LOCATIONS;
+import static org.testng.Assert.assertEquals;
+
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jclouds.compute.domain.Hardware;
+import org.jclouds.compute.domain.OsFamily;
+import org.jclouds.compute.domain.TemplateBuilder;
+import org.jclouds.vcloud.director.v1_5.compute.util.VirtualHardwareSpace;
+import org.testng.annotations.Test;
+
+/**
+ * Tests behavior of {@code VCloudDirectorTemplateBuilderImpl}
+ */
+@Test(groups = "unit", testName = "VCloudDirectorTemplateBuilderImplTest")
+public class VCloudDirectorTemplateBuilderImplTest {
+
+   private static final VirtualHardwareSpace SPACE = new VirtualHardwareSpace(4, 512, 8192,
+         "2CPU_3GB_RAM, 8CPU_64GB_RAM, 1CPU_0.5GB_RAM, 3CPU_4.0GB_RAM");
+   private static final Set<Hardware> HARDWARES = SPACE.getHardwares();
+   // describes other profiles, so builders given it search them all
+   private static final VirtualHardwareSpace OTHER = new VirtualHardwareSpace(1, 512, 512, "");
+
+   public void testSyntheticProfilesAreWorkedOutAsFullSearchFindsThem() {
+      for (double minCores : new double[] { 0, 1, 1.5, 3, 4, 5, 8, 9 }) {
+         for (int minRam : new int[] { 0, 512, 600, 3000, 3072, 8192, 9000, 65536, 100000 }) {
+            for (int flags = 0; flags < 4; flags++) {
+               assertEquals(resolve(SPACE, minCores, minRam, flags), resolve(OTHER, minCores, minRam, flags),
+                     "minCores " + minCores + " minRam " + minRam + " biggest " + ((flags & 1) != 0) + " fastest "
+                           + ((flags & 2) != 0));
+            }
+         }
+      }
+   }
+
+   public void testProfilesAreLookedUpByIdAsFullSearchFindsThem() {
+      for (String id : new String[] { "2CPU_4GB_RAM", "1CPU_0.5GB_RAM", "3CPU_4.0GB_RAM", "8CPU_64GB_RAM" }) {
+         assertEquals(templateBuilder(SPACE).hardwareId(id).build().getHardware().getId(), id);
+      }
+      for (String id : new String[] { "5CPU_1GB_RAM", "2CPU_4.0GB_RAM", "2CPU_3GB_RAM_LARGE" }) {
+         try {
+            templateBuilder(SPACE).hardwareId(id).build();
+         } catch (NoSuchElementException expected) {
+            continue;
+         }
+         throw new AssertionError("expected NoSuchElementException for " + id);
+      }
+   }
+
+   private static String resolve(VirtualHardwareSpace space, double minCores, int minRam, int flags) {
+      TemplateBuilder builder = templateBuilder(space).osFamily(OsFamily.UBUNTU).minCores(minCores).minRam(minRam);
+      if ((flags & 1) != 0)
+         builder.biggest();
+      if ((flags & 2) != 0)
+         builder.fastest();
+      try {
+         return builder.build().getHardware().getId();
+      } catch (NoSuchElementException e) {
+         return "none";
+      }
+   }
+
+   private static TemplateBuilder templateBuilder(VirtualHardwareSpace space) {
+      return TemplateIndexTest.templateBuilder(IMAGES, HARDWARES, LOCATIONS, new TemplateIndexes(60), new AtomicInteger(),
+            space);
+   }
+}
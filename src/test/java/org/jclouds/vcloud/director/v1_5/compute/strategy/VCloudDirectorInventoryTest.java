@@ -0,0 +1,282 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.vcloud.director.v1_5.compute.strategy;
+
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.startsWith;
+import static org.easymock.EasyMock.verify;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.net.URI;
+import java.util.Date;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.easymock.IAnswer;
+import org.jclouds.date.internal.SimpleDateFormatDateService;
+import org.jclouds.javax.annotation.Nullable;
+import org.jclouds.vcloud.director.v1_5.VCloudDirectorApi;
+import org.jclouds.vcloud.director.v1_5.domain.Entity;
+import org.jclouds.vcloud.director.v1_5.domain.VApp;
+import org.jclouds.vcloud.director.v1_5.domain.VAppChildren;
+import org.jclouds.vcloud.director.v1_5.domain.Vdc;
+import org.jclouds.vcloud.director.v1_5.domain.Vm;
+import org.jclouds.vcloud.director.v1_5.domain.query.QueryResultRecordType;
+import org.jclouds.vcloud.director.v1_5.domain.query.QueryResultRecords;
+import org.jclouds.vcloud.director.v1_5.domain.query.QueryResultTaskRecord;
+import org.jclouds.vcloud.director.v1_5.domain.query.QueryResultVAppRecord;
+import org.jclouds.vcloud.director.v1_5.features.QueryApi;
+import org.jclouds.vcloud.director.v1_5.features.VAppApi;
+import org.jclouds.vcloud.director.v1_5.features.VdcApi;
+import org.jclouds.vcloud.director.v1_5.functions.URNResolver;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Suppliers;
+import com.google.common.base.Ticker;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Tests behavior of {@code VCloudDirectorInventory}
+ */
+@Test(groups = "unit", testName = "VCloudDirectorInventoryTest", singleThreaded = true)
+public class VCloudDirectorInventoryTest {
+
+   private static final long MAX_STALENESS = 30 * 1000;
+   private static final long FULL_SYNC_INTERVAL = 10 * 60 * 1000;
+
+   private static final URI VAPP_1 = URI.create("https://vcloud.example.com/api/vApp/vapp-1");
+   private static final URI VAPP_2 = URI.create("https://vcloud.example.com/api/vApp/vapp-2");
+   private static final URI VAPP_3 = URI.create("https://vcloud.example.com/api/vApp/vapp-3");
+   private static final URI VM_2 = URI.create("https://vcloud.example.com/api/vApp/vm-2");
+   private static final URI VDC_1 = URI.create("https://vcloud.example.com/api/vdc/1");
+   private static final URI VDC_2 = URI.create("https://vcloud.example.com/api/vdc/2");
+
+   private static class ManualTicker extends Ticker {
+      final AtomicLong nanos = new AtomicLong();
+
+      @Override
+      public long read() {
+         return nanos.get();
+      }
+
+      void advance(long millis) {
+         nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+      }
+   }
+
+   private ManualTicker ticker;
+   private VCloudDirectorApi api;
+   private QueryApi queryApi;
+   private VAppApi vAppApi;
+   private VdcApi vdcApi;
+
+   @BeforeMethod
+   public void setUp() {
+      ticker = new ManualTicker();
+      api = createMock(VCloudDirectorApi.class);
+      queryApi = createMock(QueryApi.class);
+      vAppApi = createMock(VAppApi.class);
+      vdcApi = createMock(VdcApi.class);
+      expect(api.getQueryApi()).andReturn(queryApi).anyTimes();
+      expect(api.getVAppApi()).andReturn(vAppApi).anyTimes();
+      expect(api.getVdcApi()).andReturn(vdcApi).anyTimes();
+      replay(api);
+   }
+
+   public void testReadsOnlyNewChangedAndTaskedVAppsBetweenFullSyncs() {
+      VApp vApp1 = vApp(VAPP_1, null);
+      VApp vApp2 = vApp(VAPP_2, VM_2);
+      VApp vApp3 = vApp(VAPP_3, null);
+      expect(queryApi.queryAll("vApp")).andReturn(records(record(VAPP_1, "POWERED_ON"), record(VAPP_2, "POWERED_ON")));
+      expect(vAppApi.getForNodes(VAPP_1)).andReturn(vApp1);
+      expect(vAppApi.getForNodes(VAPP_2)).andReturn(vApp2);
+      // the first vApp changed, a task ended on the vm of the second, and the third is new
+      expect(queryApi.query(startsWith("task"), startsWith("endDate=gt="))).andReturn(records(task(VM_2)));
+      expect(queryApi.queryAll("vApp")).andReturn(records(record(VAPP_1, "POWERED_OFF"), record(VAPP_2, "POWERED_ON"),
+            record(VAPP_3, "POWERED_ON")));
+      expect(vAppApi.getForNodes(VAPP_1)).andReturn(vApp1);
+      expect(vAppApi.getForNodes(VAPP_2)).andReturn(vApp2);
+      expect(vAppApi.getForNodes(VAPP_3)).andReturn(vApp3);
+      // the same task again, and nothing changed
+      expect(queryApi.query(startsWith("task"), startsWith("endDate=gt="))).andReturn(records(task(VM_2)));
+      expect(queryApi.queryAll("vApp")).andReturn(records(record(VAPP_1, "POWERED_OFF"), record(VAPP_2, "POWERED_ON"),
+            record(VAPP_3, "POWERED_ON")));
+      replay(queryApi, vAppApi);
+
+      VCloudDirectorInventory inventory = inventory();
+      assertEquals(inventory.getVApps(), ImmutableList.of(vApp1, vApp2));
+      ticker.advance(MAX_STALENESS);
+      assertEquals(inventory.getVApps(), ImmutableList.of(vApp1, vApp2, vApp3));
+      ticker.advance(MAX_STALENESS);
+      assertEquals(inventory.getVApps(), ImmutableList.of(vApp1, vApp2, vApp3));
+      verify(queryApi, vAppApi);
+   }
+
+   public void testAnswersFromTheModelWithinMaxStalenessUnlessMarkedStale() {
+      VApp vApp1 = vApp(VAPP_1, null);
+      expect(queryApi.queryAll("vApp")).andReturn(records(record(VAPP_1, "POWERED_ON")));
+      expect(vAppApi.getForNodes(VAPP_1)).andReturn(vApp1);
+      expect(queryApi.query(startsWith("task"), startsWith("endDate=gt="))).andReturn(records());
+      expect(queryApi.queryAll("vApp")).andReturn(records());
+      replay(queryApi, vAppApi);
+
+      VCloudDirectorInventory inventory = inventory();
+      assertEquals(inventory.getVApps(), ImmutableList.of(vApp1));
+      ticker.advance(MAX_STALENESS - 1);
+      assertEquals(inventory.getVApps(), ImmutableList.of(vApp1));
+      inventory.markStale();
+      assertEquals(inventory.getVApps(), ImmutableList.of());
+      verify(queryApi, vAppApi);
+   }
+
+   public void testListingsWithinMaxStalenessDoNotWaitForASync() throws Exception {
+      VApp vApp1 = vApp(VAPP_1, null);
+      final Vdc vdc1 = Vdc.builder().href(VDC_1).name("vdc-1").build();
+      final CountDownLatch reading = new CountDownLatch(1);
+      final CountDownLatch listed = new CountDownLatch(1);
+      expect(queryApi.queryAll("vApp")).andReturn(records(record(VAPP_1, "POWERED_ON")));
+      expect(vAppApi.getForNodes(VAPP_1)).andReturn(vApp1);
+      expect(vdcApi.get(VDC_1)).andAnswer(new IAnswer<Vdc>() {
+         @Override
+         public Vdc answer() throws Throwable {
+            reading.countDown();
+            if (!listed.await(2, TimeUnit.SECONDS))
+               throw new AssertionError("the listing waited for the sync");
+            return vdc1;
+         }
+      });
+      replay(queryApi, vAppApi, vdcApi);
+
+      final VCloudDirectorInventory inventory = inventory();
+      inventory.getVApps();
+      ExecutorService executor = Executors.newSingleThreadExecutor();
+      try {
+         Future<Iterable<Vdc>> vdcs = executor.submit(new Callable<Iterable<Vdc>>() {
+            @Override
+            public Iterable<Vdc> call() {
+               return inventory.getVdcs(ImmutableList.of(VDC_1));
+            }
+         });
+         assertTrue(reading.await(10, TimeUnit.SECONDS));
+         assertEquals(inventory.getVApps(), ImmutableList.of(vApp1));
+         listed.countDown();
+         assertEquals(vdcs.get(10, TimeUnit.SECONDS), ImmutableList.of(vdc1));
+      } finally {
+         executor.shutdownNow();
+      }
+      verify(queryApi, vAppApi, vdcApi);
+   }
+
+   public void testReadsEveryVAppOnAFullSync() {
+      VApp vApp1 = vApp(VAPP_1, null);
+      expect(queryApi.queryAll("vApp")).andReturn(records(record(VAPP_1, "POWERED_ON"))).times(2);
+      expect(vAppApi.getForNodes(VAPP_1)).andReturn(vApp1).times(2);
+      expect(queryApi.query(startsWith("task"), startsWith("endDate=gt="))).andReturn(records());
+      replay(queryApi, vAppApi);
+
+      VCloudDirectorInventory inventory = inventory();
+      inventory.getVApps();
+      ticker.advance(FULL_SYNC_INTERVAL);
+      assertEquals(inventory.getVApps(), ImmutableList.of(vApp1));
+      verify(queryApi, vAppApi);
+   }
+
+   public void testReadsOnlyNewVdcsBetweenFullSyncs() {
+      Vdc vdc1 = Vdc.builder().href(VDC_1).name("vdc-1").build();
+      Vdc vdc2 = Vdc.builder().href(VDC_2).name("vdc-2").build();
+      expect(vdcApi.get(VDC_1)).andReturn(vdc1);
+      expect(vdcApi.get(VDC_2)).andReturn(vdc2);
+      expect(queryApi.query(startsWith("task"), startsWith("endDate=gt="))).andReturn(records()).anyTimes();
+      replay(queryApi, vdcApi);
+
+      VCloudDirectorInventory inventory = inventory();
+      assertEquals(inventory.getVdcs(ImmutableList.of(VDC_1)), ImmutableList.of(vdc1));
+      ticker.advance(MAX_STALENESS);
+      assertEquals(inventory.getVdcs(ImmutableList.of(VDC_1, VDC_2)), ImmutableList.of(vdc1, vdc2));
+      assertEquals(inventory.getVdcs(ImmutableList.of(VDC_2)), ImmutableList.of(vdc2));
+      verify(queryApi, vdcApi);
+   }
+
+   public void testReadsVdcsAgainOnlyForTasksOnVdcs() {
+      Vdc vdc1 = Vdc.builder().href(VDC_1).name("vdc-1").build();
+      Vdc vdc2 = Vdc.builder().href(VDC_2).name("vdc-2").build();
+      expect(vdcApi.get(VDC_1)).andReturn(vdc1);
+      expect(vdcApi.get(VDC_2)).andReturn(vdc2).times(2);
+      expect(queryApi.query(startsWith("task"), startsWith("endDate=gt="))).andReturn(
+            records(task("1", VDC_2, "vdc"), task("2", VAPP_1, "vApp"), task("3", VM_2, null)));
+      replay(queryApi, vdcApi);
+
+      VCloudDirectorInventory inventory = inventory();
+      inventory.getVdcs(ImmutableList.of(VDC_1, VDC_2));
+      // starts polling the tasks which end from here on
+      inventory.getVdcs(ImmutableList.of(VDC_1, VDC_2));
+      assertEquals(inventory.getVdcs(ImmutableList.of(VDC_1, VDC_2)), ImmutableList.of(vdc1, vdc2));
+      verify(queryApi, vdcApi);
+   }
+
+   private VCloudDirectorInventory inventory() {
+      return new VCloudDirectorInventory(api, urnResolver(), new SimpleDateFormatDateService(), MAX_STALENESS,
+            FULL_SYNC_INTERVAL, ticker);
+   }
+
+   private static URNResolver urnResolver() {
+      return new URNResolver(CacheBuilder.newBuilder().build(new CacheLoader<String, Entity>() {
+         @Override
+         @Nullable
+         public Entity load(String urn) {
+            return null;
+         }
+      }), Suppliers.ofInstance(URI.create("https://vcloud.example.com/api")), true, 100, 60, 60 * 1000);
+   }
+
+   private static QueryResultRecords records(QueryResultRecordType... records) {
+      return QueryResultRecords.builder().page(1).records(ImmutableSet.copyOf(records)).build();
+   }
+
+   private static QueryResultVAppRecord record(URI href, String status) {
+      return QueryResultVAppRecord.builder().href(href).name(href.getPath()).status(status).build();
+   }
+
+   private static QueryResultTaskRecord task(URI object) {
+      return task("1", object, null);
+   }
+
+   private static QueryResultTaskRecord task(String id, URI object, @Nullable String objectType) {
+      return QueryResultTaskRecord.builder().href(URI.create("https://vcloud.example.com/api/task/" + id))
+            .name("vappDeploy").status("success").endDate(new Date()).object(object.toString()).objectType(objectType)
+            .build();
+   }
+
+   private static VApp vApp(URI href, @Nullable URI vm) {
+      VApp.Builder<?> vApp = VApp.builder().href(href).name(href.getPath());
+      if (vm != null)
+         vApp.children(VAppChildren.builder().vm(Vm.builder().href(vm).name(vm.getPath()).build()).build());
+      return vApp.build();
+   }
+}
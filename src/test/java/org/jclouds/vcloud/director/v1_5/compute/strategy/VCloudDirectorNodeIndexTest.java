@@ -0,0 +1,179 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.vcloud.director.v1_5.compute.strategy;
+
+import static org.jclouds.compute.predicates.NodePredicates.RUNNING;
+import static org.jclouds.compute.predicates.NodePredicates.inGroup;
+import static org.jclouds.compute.predicates.NodePredicates.locationId;
+import static org.jclouds.compute.predicates.NodePredicates.runningInGroup;
+import static org.jclouds.vcloud.director.v1_5.compute.strategy.VCloudDirectorNodeIndex.nameStartsWith;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.net.URI;
+import java.util.List;
+
+import org.jclouds.JcloudsVersion;
+import org.jclouds.compute.domain.NodeMetadata;
+import org.jclouds.compute.domain.NodeMetadataBuilder;
+import org.jclouds.compute.functions.GroupNamingConvention;
+import org.jclouds.compute.predicates.NodePredicates;
+import org.jclouds.domain.LocationBuilder;
+import org.jclouds.domain.LocationScope;
+import org.jclouds.vcloud.director.v1_5.compute.functions.NodemetadataStatusForStatus;
+import org.jclouds.vcloud.director.v1_5.domain.ResourceEntity;
+import org.jclouds.vcloud.director.v1_5.domain.Vm;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Predicate;
+import com.google.common.base.Predicates;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.inject.Guice;
+
+/**
+ * Tests behavior of {@code VCloudDirectorNodeIndex}
+ */
+@Test(groups = "unit", testName = "VCloudDirectorNodeIndexTest")
+public class VCloudDirectorNodeIndexTest {
+
+   private static final Vm WEB_1 = vm("1", "web-1a2", ResourceEntity.Status.POWERED_ON);
+   private static final Vm WEB_2 = vm("2", "web-3b4", ResourceEntity.Status.POWERED_OFF);
+   private static final Vm DB_1 = vm("3", "db-5c6", ResourceEntity.Status.POWERED_ON);
+   private static final Vm BASTION = vm("4", "bastion", ResourceEntity.Status.POWERED_ON);
+   private static final List<Vm> VMS = ImmutableList.of(WEB_1, WEB_2, DB_1, BASTION);
+
+   public void testLooksUpGroups() {
+      VCloudDirectorNodeIndex index = index();
+
+      assertEquals(ImmutableSet.copyOf(index.candidates(VMS, inGroup("web"))), ImmutableSet.of(WEB_1, WEB_2));
+      assertEquals(index.candidates(VMS, inGroup("db")), ImmutableList.of(DB_1));
+      assertEquals(index.candidates(VMS, inGroup("cache")), ImmutableList.of());
+   }
+
+   public void testLooksUpStatusesAsTheyAreConverted() {
+      VCloudDirectorNodeIndex index = index();
+
+      // vApps statuses, as converted by NodemetadataStatusForStatus, are running, and the others terminated
+      assertEquals(ImmutableSet.copyOf(index.candidates(VMS, RUNNING)), ImmutableSet.of(WEB_1, WEB_2, DB_1, BASTION));
+      assertEquals(index.candidates(VMS, runningInGroup("db")), ImmutableList.of(DB_1));
+   }
+
+   public void testLooksUpNamePrefixes() {
+      VCloudDirectorNodeIndex index = index();
+
+      assertEquals(ImmutableSet.copyOf(index.candidates(VMS, nameStartsWith("web-"))), ImmutableSet.of(WEB_1, WEB_2));
+      assertEquals(index.candidates(VMS, nameStartsWith("b")), ImmutableList.of(BASTION));
+      assertEquals(index.candidates(VMS, nameStartsWith("z")), ImmutableList.of());
+   }
+
+   public void testLooksUpLocationsOfConvertedVmsOnly() {
+      VCloudDirectorNodeIndex index = index();
+      index.candidates(VMS, Predicates.alwaysTrue());
+      index.indexLocation(node(WEB_1, "vdc-1"));
+      index.indexLocation(node(DB_1, "vdc-2"));
+
+      assertEquals(ImmutableSet.copyOf(index.candidates(VMS, locationId("vdc-1"))), ImmutableSet.of(WEB_1, WEB_2, BASTION));
+   }
+
+   public void testScansForOtherPredicates() {
+      VCloudDirectorNodeIndex index = index();
+      Predicate<NodeMetadata> other = Predicates.alwaysFalse();
+      Predicate<NodeMetadata> described = new Predicate<NodeMetadata>() {
+         @Override
+         public boolean apply(NodeMetadata input) {
+            return "db".equals(input.getGroup());
+         }
+
+         @Override
+         public String toString() {
+            return inGroup("db").toString();
+         }
+      };
+
+      assertEquals(index.candidates(VMS, other), VMS);
+      assertEquals(index.candidates(VMS, described), VMS);
+   }
+
+   /**
+    * The index recognises these by class and finds the groups and locations they accept by trying
+    * them, which only holds while they are implemented as in the jclouds version checked.
+    */
+   public void testRecognisedNodePredicatesMatchAsTheIndexExpects() {
+      assertEquals(JcloudsVersion.get().toString(), "2.4.0",
+            "check NodePredicates still match as VCloudDirectorNodeIndex expects, then update the version here");
+
+      // a class per factory, whatever the arguments
+      assertSame(inGroup("web").getClass(), inGroup("db").getClass());
+      assertSame(runningInGroup("web").getClass(), runningInGroup("db").getClass());
+      assertSame(locationId("vdc-1").getClass(), locationId("vdc-2").getClass());
+      assertNotSame(inGroup("web").getClass(), runningInGroup("web").getClass());
+
+      // only the group, and the status of running ones, are matched on
+      NodeMetadata probe = new NodeMetadataBuilder().ids("web").group("web").status(NodeMetadata.Status.RUNNING)
+            .build();
+      NodeMetadata node = new NodeMetadataBuilder().ids("urn:vcloud:vm:1").name("web-1a2").group("web")
+            .status(NodeMetadata.Status.SUSPENDED)
+            .location(new LocationBuilder().scope(LocationScope.ZONE).id("vdc-1").description("vdc-1").build())
+            .build();
+      assertTrue(inGroup("web").apply(probe));
+      assertTrue(inGroup("web").apply(node));
+      assertFalse(inGroup("db").apply(probe));
+      assertTrue(runningInGroup("web").apply(probe));
+      assertFalse(runningInGroup("web").apply(node));
+      assertFalse(runningInGroup("db").apply(probe));
+
+      // equal when of the same id, which is what they match locations on
+      assertEquals(locationId("vdc-1"), locationId("vdc-1"));
+      assertNotEquals(locationId("vdc-1"), locationId("vdc-2"));
+      assertTrue(locationId("vdc-1").apply(node));
+      assertFalse(locationId("vdc-2").apply(node));
+   }
+
+   public void testReindexesChangedAndForgetsRemovedVms() {
+      VCloudDirectorNodeIndex index = index();
+      index.candidates(VMS, Predicates.alwaysTrue());
+      index.indexLocation(node(WEB_1, "vdc-1"));
+      Vm renamed = vm("1", "cache-7d8", ResourceEntity.Status.POWERED_ON);
+      List<Vm> vms = ImmutableList.of(renamed, DB_1);
+
+      assertEquals(index.candidates(vms, inGroup("web")), ImmutableList.of());
+      assertEquals(index.candidates(vms, inGroup("cache")), ImmutableList.of(renamed));
+      // the location of the vm was forgotten with the change
+      assertEquals(ImmutableSet.copyOf(index.candidates(vms, locationId("vdc-2"))), ImmutableSet.of(renamed, DB_1));
+   }
+
+   private static VCloudDirectorNodeIndex index() {
+      return new VCloudDirectorNodeIndex(Guice.createInjector().getInstance(GroupNamingConvention.Factory.class),
+            new NodemetadataStatusForStatus());
+   }
+
+   private static Vm vm(String id, String name, ResourceEntity.Status status) {
+      return Vm.builder().id("urn:vcloud:vm:" + id).name(name).href(URI.create("https://vcloud.example.com/api/vApp/vm-" + id))
+            .status(status).build();
+   }
+
+   private static NodeMetadata node(Vm vm, String location) {
+      return new NodeMetadataBuilder().ids(vm.getId()).name(vm.getName()).status(NodeMetadata.Status.RUNNING)
+            .location(new LocationBuilder().scope(LocationScope.ZONE).id(location).description(location).build())
+            .build();
+   }
+}
@@ -0,0 +1,173 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.vcloud.director.v1_5.compute.strategy;
+
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jclouds.compute.ComputeServiceAdapter;
+import org.jclouds.compute.config.ComputeServiceAdapterContextModule.AddDefaultCredentialsToImage;
+import org.jclouds.compute.domain.Hardware;
+import org.jclouds.compute.domain.Image;
+import org.jclouds.compute.domain.NodeMetadata;
+import org.jclouds.compute.domain.NodeMetadataBuilder;
+import org.jclouds.compute.domain.Template;
+import org.jclouds.compute.functions.GroupNamingConvention;
+import org.jclouds.compute.strategy.PopulateDefaultLoginCredentialsForImageStrategy;
+import org.jclouds.compute.strategy.PrioritizeCredentialsFromTemplate;
+import org.jclouds.domain.Credentials;
+import org.jclouds.domain.LoginCredentials;
+import org.jclouds.vcloud.director.v1_5.compute.functions.NodemetadataStatusForStatus;
+import org.jclouds.vcloud.director.v1_5.domain.ResourceEntity;
+import org.jclouds.vcloud.director.v1_5.domain.Vdc;
+import org.jclouds.vcloud.director.v1_5.domain.Vm;
+import org.jclouds.vcloud.director.v1_5.domain.query.QueryResultVAppTemplateRecord;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Function;
+import com.google.common.base.Functions;
+import com.google.common.base.Predicates;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Maps;
+import com.google.inject.Guice;
+
+/**
+ * Tests behavior of {@code VcloudDirectorAdaptingComputeServiceStrategies}
+ */
+@Test(groups = "unit", testName = "VcloudDirectorAdaptingComputeServiceStrategiesTest")
+public class VcloudDirectorAdaptingComputeServiceStrategiesTest {
+
+   private static final List<Vm> VMS = ImmutableList.of(vm("1"), vm("2"), vm("3"), vm("4"));
+
+   public void testConvertsVmsAtOnceReturningThemInOrder() {
+      final CountDownLatch converting = new CountDownLatch(VMS.size());
+      VcloudDirectorAdaptingComputeServiceStrategies strategies = strategies(VMS.size(), new Function<Vm, NodeMetadata>() {
+         @Override
+         public NodeMetadata apply(Vm input) {
+            assertTrue(Thread.currentThread().getName().startsWith("vcloud-director-node-conversion-"));
+            converting.countDown();
+            try {
+               // only returns once every vm is converting
+               assertTrue(converting.await(10, TimeUnit.SECONDS), "vms converted one after another");
+            } catch (InterruptedException e) {
+               throw new IllegalStateException(e);
+            }
+            return "urn:vcloud:vm:3".equals(input.getId()) ? null : node(input);
+         }
+      });
+
+      Iterable<? extends NodeMetadata> nodes = strategies.listDetailsOnNodesMatching(Predicates.alwaysTrue());
+      assertEquals(ids(nodes), ImmutableList.of("urn:vcloud:vm:1", "urn:vcloud:vm:2", "urn:vcloud:vm:4"));
+   }
+
+   public void testConvertsNothingUntilIteratedAndAgainOnEachIteration() {
+      final AtomicInteger conversions = new AtomicInteger();
+      VcloudDirectorAdaptingComputeServiceStrategies strategies = strategies(2, new Function<Vm, NodeMetadata>() {
+         @Override
+         public NodeMetadata apply(Vm input) {
+            conversions.incrementAndGet();
+            return node(input);
+         }
+      });
+
+      Iterable<? extends NodeMetadata> nodes = strategies.listDetailsOnNodesMatching(Predicates.alwaysTrue());
+      assertEquals(conversions.get(), 0);
+      assertEquals(Iterables.size(nodes), VMS.size());
+      assertEquals(conversions.get(), VMS.size());
+      assertEquals(Iterables.size(nodes), VMS.size());
+      assertEquals(conversions.get(), 2 * VMS.size());
+   }
+
+   public void testThrowsWhatTheConversionThrew() {
+      VcloudDirectorAdaptingComputeServiceStrategies strategies = strategies(VMS.size(), new Function<Vm, NodeMetadata>() {
+         @Override
+         public NodeMetadata apply(Vm input) {
+            if ("urn:vcloud:vm:2".equals(input.getId()))
+               throw new IllegalStateException("vApp of " + input.getId());
+            return node(input);
+         }
+      });
+
+      try {
+         Iterables.size(strategies.listDetailsOnNodesMatching(Predicates.alwaysTrue()));
+         fail();
+      } catch (IllegalStateException e) {
+         assertEquals(e.getMessage(), "vApp of urn:vcloud:vm:2");
+      }
+   }
+
+   public void testConvertsOnTheCallingThreadWithoutParallelism() {
+      final Thread caller = Thread.currentThread();
+      VcloudDirectorAdaptingComputeServiceStrategies strategies = strategies(1, new Function<Vm, NodeMetadata>() {
+         @Override
+         public NodeMetadata apply(Vm input) {
+            assertEquals(Thread.currentThread(), caller);
+            return node(input);
+         }
+      });
+
+      assertEquals(Iterables.size(strategies.listDetailsOnNodesMatching(Predicates.alwaysTrue())), VMS.size());
+   }
+
+   @SuppressWarnings("unchecked")
+   private VcloudDirectorAdaptingComputeServiceStrategies strategies(int parallelism,
+         Function<Vm, NodeMetadata> nodeMetadataAdapter) {
+      ComputeServiceAdapter<Vm, Hardware, QueryResultVAppTemplateRecord, Vdc> client = createMock(ComputeServiceAdapter.class);
+      expect(client.listNodes()).andReturn(VMS).anyTimes();
+      replay(client);
+      return new VcloudDirectorAdaptingComputeServiceStrategies(Maps.<String, Credentials> newConcurrentMap(),
+            new PrioritizeCredentialsFromTemplate(Functions.forMap(ImmutableMap.<Template, LoginCredentials> of(), null)),
+            client, nodeMetadataAdapter, Functions.forMap(ImmutableMap.<QueryResultVAppTemplateRecord, Image> of()),
+            new AddDefaultCredentialsToImage(new PopulateDefaultLoginCredentialsForImageStrategy() {
+               @Override
+               public LoginCredentials apply(Object image) {
+                  return null;
+               }
+            }),
+            new VCloudDirectorNodeIndex(Guice.createInjector().getInstance(GroupNamingConvention.Factory.class),
+                  new NodemetadataStatusForStatus()),
+            parallelism);
+   }
+
+   private static List<String> ids(Iterable<? extends NodeMetadata> nodes) {
+      ImmutableList.Builder<String> ids = ImmutableList.builder();
+      for (NodeMetadata node : nodes)
+         ids.add(node.getId());
+      return ids.build();
+   }
+
+   private static Vm vm(String id) {
+      return Vm.builder().id("urn:vcloud:vm:" + id).name("web-" + id).href(URI.create("https://vcloud.example.com/api/vApp/vm-" + id))
+            .status(ResourceEntity.Status.POWERED_ON).build();
+   }
+
+   private static NodeMetadata node(Vm vm) {
+      return new NodeMetadataBuilder().ids(vm.getId()).name(vm.getName()).status(NodeMetadata.Status.RUNNING).build();
+   }
+}
@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.vcloud.director.v1_5.compute.suppliers;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Map;
+
+import org.jclouds.compute.domain.OperatingSystem;
+import org.jclouds.compute.domain.OsFamily;
+import org.jclouds.domain.Credentials;
+import org.jclouds.vcloud.director.v1_5.compute.suppliers.ImageSnapshotStore.Entry;
+import org.jclouds.vcloud.director.v1_5.domain.query.QueryResultVAppTemplateRecord;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Suppliers;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+import com.google.common.io.MoreFiles;
+import com.google.common.io.RecursiveDeleteOption;
+
+/**
+ * Tests behavior of {@code ImageSnapshotStore}
+ */
+@Test(groups = "unit", testName = "ImageSnapshotStoreTest")
+public class ImageSnapshotStoreTest {
+
+   static final URI ENDPOINT = URI.create("https://vcd.example.com/api");
+   static final Credentials CREDENTIALS = new Credentials("user@org", "password");
+   static final OperatingSystem UBUNTU = OperatingSystem.builder().family(OsFamily.UBUNTU).version("16.04")
+         .description("Ubuntu Linux (64-bit)").is64Bit(true).build();
+
+   static QueryResultVAppTemplateRecord record(String id, String name) {
+      return QueryResultVAppTemplateRecord.builder()
+            .href(URI.create("https://vcd.example.com/api/vAppTemplate/vappTemplate-" + id)).name(name)
+            .catalogName("catalog").status("RESOLVED").creationDate(new Date(1500000000000L)).build();
+   }
+
+   static ImageSnapshotStore store(Path directory, String identity) {
+      return new ImageSnapshotStore(directory.toString(), Suppliers.ofInstance(ENDPOINT),
+            Suppliers.ofInstance(new Credentials(identity, "password")));
+   }
+
+   public void testStoredTemplatesAreReadBackPerEndpointAndOrg() throws Exception {
+      Path directory = Files.createTempDirectory("images");
+      try {
+         ImageSnapshotStore store = store(directory, CREDENTIALS.identity);
+         assertTrue(store.get().isEmpty());
+
+         QueryResultVAppTemplateRecord record = record("1", "ubuntu");
+         OperatingSystem unrecognized = OperatingSystem.builder().description("unrecognized").build();
+         store.put(ImmutableList.of(new Entry(record, UBUNTU), new Entry(record("2", "other"), unrecognized)));
+
+         Map<URI, Entry> stored = store(directory, "other-user@org").get();
+         assertEquals(stored.size(), 2);
+         Entry entry = Iterables.get(stored.values(), 0);
+         assertTrue(entry.isCurrent(record));
+         assertEquals(entry.getOperatingSystem(), UBUNTU);
+         assertEquals(Iterables.get(stored.values(), 1).getOperatingSystem(), unrecognized);
+         assertFalse(entry.isCurrent(record("1", "renamed")));
+
+         assertTrue(store(directory, "user@other-org").get().isEmpty());
+      } finally {
+         MoreFiles.deleteRecursively(directory, RecursiveDeleteOption.ALLOW_INSECURE);
+      }
+   }
+
+   public void testCorruptSnapshotIsTreatedAsAbsent() throws Exception {
+      Path directory = Files.createTempDirectory("images");
+      try {
+         ImageSnapshotStore store = store(directory, CREDENTIALS.identity);
+         store.put(ImmutableList.of(new Entry(record("1", "ubuntu"), UBUNTU)));
+         Path file = directory.toFile().listFiles()[0].toPath();
+         byte[] bytes = Files.readAllBytes(file);
+         Files.write(file, Arrays.copyOf(bytes, bytes.length - 8));
+
+         assertTrue(store.get().isEmpty());
+      } finally {
+         MoreFiles.deleteRecursively(directory, RecursiveDeleteOption.ALLOW_INSECURE);
+      }
+   }
+
+   public void testDisabledWithoutDirectory() {
+      ImageSnapshotStore store = new ImageSnapshotStore("", Suppliers.ofInstance(ENDPOINT),
+            Suppliers.ofInstance(CREDENTIALS));
+      assertFalse(store.isEnabled());
+      store.put(ImmutableList.of(new Entry(record("1", "ubuntu"), UBUNTU)));
+      assertTrue(store.get().isEmpty());
+   }
+}
@@ -0,0 +1,133 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.vcloud.director.v1_5.compute.suppliers;
+
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.jclouds.vcloud.director.v1_5.compute.suppliers.ImageSnapshotStoreTest.UBUNTU;
+import static org.jclouds.vcloud.director.v1_5.compute.suppliers.ImageSnapshotStoreTest.record;
+import static org.jclouds.vcloud.director.v1_5.compute.suppliers.ImageSnapshotStoreTest.store;
+import static org.testng.Assert.assertEquals;
+
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.inject.Provider;
+
+import org.jclouds.compute.ComputeServiceAdapter;
+import org.jclouds.compute.config.ComputeServiceAdapterContextModule.AddDefaultCredentialsToImage;
+import org.jclouds.compute.domain.Hardware;
+import org.jclouds.compute.domain.Image;
+import org.jclouds.compute.domain.OperatingSystem;
+import org.jclouds.compute.strategy.GetImageStrategy;
+import org.jclouds.compute.strategy.PopulateDefaultLoginCredentialsForImageStrategy;
+import org.jclouds.compute.suppliers.ImageCacheSupplier;
+import org.jclouds.domain.LoginCredentials;
+import org.jclouds.rest.AuthorizationException;
+import org.jclouds.vcloud.director.v1_5.builders.TemplateIndexes;
+import org.jclouds.vcloud.director.v1_5.compute.functions.ImageForVAppTemplate;
+import org.jclouds.vcloud.director.v1_5.compute.suppliers.ImageSnapshotStore.Entry;
+import org.jclouds.vcloud.director.v1_5.domain.Vdc;
+import org.jclouds.vcloud.director.v1_5.domain.Vm;
+import org.jclouds.vcloud.director.v1_5.domain.dmtf.Envelope;
+import org.jclouds.vcloud.director.v1_5.domain.query.QueryResultVAppTemplateRecord;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Functions;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.io.MoreFiles;
+import com.google.common.io.RecursiveDeleteOption;
+import com.google.common.util.concurrent.MoreExecutors;
+
+/**
+ * Tests behavior of {@code VAppTemplateImageSupplier}
+ */
+@Test(groups = "unit", testName = "VAppTemplateImageSupplierTest")
+public class VAppTemplateImageSupplierTest {
+
+   @SuppressWarnings("unchecked")
+   public void testStartsFromTheSnapshotAndOnlyReadsEnvelopesOfChangedTemplates() throws Exception {
+      Path directory = Files.createTempDirectory("images");
+      try {
+         ImageSnapshotStore store = store(directory, "user@org");
+         store.put(ImmutableList.of(new Entry(record("1", "ubuntu"), UBUNTU), new Entry(record("2", "old"), UBUNTU)));
+
+         ComputeServiceAdapter<Vm, Hardware, QueryResultVAppTemplateRecord, Vdc> adapter = createMock(ComputeServiceAdapter.class);
+         expect(adapter.listImages()).andReturn(ImmutableSet.of(record("1", "ubuntu"), record("2", "new"), record("3", "added")))
+               .anyTimes();
+         replay(adapter);
+         final AtomicInteger envelopesRead = new AtomicInteger();
+         ImageForVAppTemplate imageForVAppTemplate = new ImageForVAppTemplate(
+               Functions.forMap(ImmutableMap.<String, Image.Status> of(), Image.Status.AVAILABLE), Functions.forMap(ImmutableMap.<URI, Envelope> of()), null) {
+            @Override
+            public Image apply(QueryResultVAppTemplateRecord from) {
+               envelopesRead.incrementAndGet();
+               return apply(from, OperatingSystem.builder().description("read").build());
+            }
+         };
+         final ImageCacheSupplier imageCache = new ImageCacheSupplier(Suppliers.<Set<? extends Image>> ofInstance(
+               ImmutableSet.<Image> of()), 60, new AtomicReference<AuthorizationException>(), null);
+
+         TemplateIndexes indexes = new TemplateIndexes(60);
+         VAppTemplateImageSupplier supplier = new VAppTemplateImageSupplier(adapter, imageForVAppTemplate,
+               new AddDefaultCredentialsToImage(new PopulateDefaultLoginCredentialsForImageStrategy() {
+                  @Override
+                  public LoginCredentials apply(Object image) {
+                     return null;
+                  }
+               }), store, MoreExecutors.newDirectExecutorService(), new Provider<Supplier<Set<? extends Image>>>() {
+                  @Override
+                  public Supplier<Set<? extends Image>> get() {
+                     return imageCache;
+                  }
+               }, indexes);
+
+         // answered from the snapshot, while the templates are revalidated in the background
+         Set<? extends Image> images = supplier.get();
+         assertEquals(names(images), ImmutableSet.of("ubuntu", "old"));
+         assertEquals(envelopesRead.get(), 2);
+         assertEquals(imageCache.get("urn:vcloud:vapptemplate:2").get().getName(), "new");
+         assertEquals(imageCache.get("urn:vcloud:vapptemplate:3").get().getName(), "added");
+         assertEquals(indexes.getRefreshes(), 1);
+
+         images = supplier.get();
+         assertEquals(names(images), ImmutableSet.of("ubuntu", "new", "added"));
+         assertEquals(envelopesRead.get(), 2);
+
+         // a later process starts from the revalidated snapshot
+         assertEquals(store(directory, "user@org").get().size(), 3);
+      } finally {
+         MoreFiles.deleteRecursively(directory, RecursiveDeleteOption.ALLOW_INSECURE);
+      }
+   }
+
+   private static Set<String> names(Set<? extends Image> images) {
+      ImmutableSet.Builder<String> names = ImmutableSet.builder();
+      for (Image image : images)
+         names.add(image.getName());
+      return names.build();
+   }
+}
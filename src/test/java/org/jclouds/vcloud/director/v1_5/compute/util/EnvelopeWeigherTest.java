@@ -0,0 +1,79 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.vcloud.director.v1_5.compute.util;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.io.File;
+import java.io.StringReader;
+import java.net.URI;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+
+import org.jclouds.vcloud.director.v1_5.domain.dmtf.Envelope;
+import org.testng.annotations.Test;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+
+/**
+ * Tests behavior of {@code EnvelopeWeigher}
+ */
+@Test(groups = "unit", testName = "EnvelopeWeigherTest")
+public class EnvelopeWeigherTest {
+
+   private static final URI HREF = URI.create("https://vcloud.example.com/api/vAppTemplate/vappTemplate-1/ovf");
+
+   public void testWeighsEnvelopesByTheHardwareTheyDescribe() throws JAXBException {
+      Envelope empty = (Envelope) JAXBContext.newInstance(Envelope.class).createUnmarshaller()
+            .unmarshal(new StringReader("<Envelope xmlns=\"http://schemas.dmtf.org/ovf/envelope/1\"/>"));
+      Envelope envelope = envelope();
+      EnvelopeWeigher weigher = new EnvelopeWeigher();
+
+      assertEquals(weigher.weigh(HREF, empty), EnvelopeWeigher.ENVELOPE_BYTES / 1024);
+      assertTrue(weigher.weigh(HREF, envelope) > weigher.weigh(HREF, empty) + 5, "" + weigher.weigh(HREF, envelope));
+   }
+
+   public void testEvictsEnvelopesBeyondTheMaximumWeight() throws JAXBException {
+      final Envelope envelope = envelope();
+      int weight = new EnvelopeWeigher().weigh(HREF, envelope);
+      LoadingCache<URI, Envelope> cache = CacheBuilder.newBuilder().weigher(new EnvelopeWeigher())
+            .maximumWeight(weight * 3).concurrencyLevel(1).recordStats().build(new CacheLoader<URI, Envelope>() {
+               @Override
+               public Envelope load(URI href) {
+                  return envelope;
+               }
+            });
+
+      for (int i = 0; i < 10; i++)
+         cache.getUnchecked(HREF.resolve("/api/vAppTemplate/vappTemplate-" + i + "/ovf"));
+      cache.getUnchecked(HREF.resolve("/api/vAppTemplate/vappTemplate-9/ovf"));
+
+      assertTrue(cache.size() <= 3, "" + cache.size());
+      assertEquals(cache.stats().missCount(), 10);
+      assertEquals(cache.stats().hitCount(), 1);
+      assertEquals(cache.stats().evictionCount(), 10 - cache.size());
+   }
+
+   private static Envelope envelope() throws JAXBException {
+      return (Envelope) JAXBContext.newInstance(Envelope.class).createUnmarshaller()
+            .unmarshal(new File("src/test/resources/dmtf/envelope.xml"));
+   }
+}
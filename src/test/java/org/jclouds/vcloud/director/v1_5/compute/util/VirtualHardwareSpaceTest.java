@@ -0,0 +1,75 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.vcloud.director.v1_5.compute.util;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Set;
+
+import org.jclouds.compute.domain.Hardware;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Tests behavior of {@code VirtualHardwareSpace}
+ */
+@Test(groups = "unit", testName = "VirtualHardwareSpaceTest")
+public class VirtualHardwareSpaceTest {
+
+   public void testHardwaresAreEveryCpuAndRamThenPredefined() {
+      VirtualHardwareSpace space = new VirtualHardwareSpace(2, 512, 2048, "4CPU_16GB_RAM");
+
+      ImmutableSet.Builder<Hardware> expected = ImmutableSet.builder();
+      for (int cpu = 1; cpu <= 2; cpu++) {
+         for (int ram = 512; ram <= 2048; ram *= 2) {
+            expected.add(HardwareProfiles.createHardwareProfile(cpu, ram));
+         }
+      }
+      expected.add(HardwareProfiles.createHardwareProfile("4CPU_16GB_RAM"));
+      Set<Hardware> hardwares = space.getHardwares();
+      assertEquals(ImmutableList.copyOf(hardwares), ImmutableList.copyOf(expected.build()));
+      assertTrue(space.isOf(ImmutableSet.copyOf(hardwares)));
+      assertTrue(!space.isOf(new VirtualHardwareSpace(2, 512, 1024, "4CPU_16GB_RAM").getHardwares()));
+   }
+
+   public void testHardwareIsParsedFromIdsOfTheSpaceOnly() {
+      VirtualHardwareSpace space = new VirtualHardwareSpace(2, 512, 2048, "4CPU_16GB_RAM");
+
+      assertEquals(space.getHardware("2CPU_1GB_RAM"), HardwareProfiles.createHardwareProfile(2, 1024));
+      assertEquals(space.getHardware("1CPU_0.5GB_RAM"), HardwareProfiles.createHardwareProfile(1, 512));
+      assertEquals(space.getHardware("4CPU_16GB_RAM"), HardwareProfiles.createHardwareProfile("4CPU_16GB_RAM"));
+      assertNull(space.getHardware("3CPU_1GB_RAM"));
+      assertNull(space.getHardware("2CPU_4GB_RAM"));
+      assertNull(space.getHardware("2CPU_1.0GB_RAM"));
+      assertNull(space.getHardware("small"));
+   }
+
+   public void testSyntheticHardwareIsTheOneABuilderPrefers() {
+      VirtualHardwareSpace space = new VirtualHardwareSpace(4, 512, 8192, "");
+
+      assertEquals(space.getSyntheticHardware(0, 0, false, false).getId(), "1CPU_0.5GB_RAM");
+      assertEquals(space.getSyntheticHardware(1.5, 3000, false, false).getId(), "2CPU_4GB_RAM");
+      assertEquals(space.getSyntheticHardware(1.5, 3000, false, true).getId(), "4CPU_4GB_RAM");
+      assertEquals(space.getSyntheticHardware(1.5, 3000, true, false).getId(), "4CPU_8GB_RAM");
+      assertNull(space.getSyntheticHardware(5, 0, false, false));
+      assertNull(space.getSyntheticHardware(1, 8193, false, false));
+   }
+}
@@ -0,0 +1,92 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.vcloud.director.v1_5.domain;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.namespace.QName;
+
+import org.jclouds.vcloud.director.v1_5.domain.dmtf.cim.CimString;
+import org.jclouds.vcloud.director.v1_5.domain.dmtf.cim.ResourceAllocationSettingData;
+import org.jclouds.vcloud.director.v1_5.domain.section.VirtualHardwareSection;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Predicates;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Sets;
+
+@Test(groups = "unit", testName = "InternedAttributesTest")
+public class InternedAttributesTest {
+
+   private static VApp parse() throws JAXBException {
+      return (VApp) JAXBContext.newInstance(VApp.class).createUnmarshaller().unmarshal(new File("src/test/resources/vapp/vApp.xml"));
+   }
+
+   public void testLinkTypesAndHrefsAreSharedAcrossDocuments() throws JAXBException {
+      VApp first = parse();
+      VApp second = parse();
+
+      Set<Object> types = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+      Set<Object> hrefs = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+      Set<Object> distinctHrefs = Sets.newHashSet();
+      Set<Object> distinctTypes = Sets.newHashSet();
+      for (VApp vApp : new VApp[] { first, second }) {
+         for (Link link : Iterables.concat(vApp.getLinks(), Iterables.getOnlyElement(vApp.getChildren().getVms()).getLinks())) {
+            types.add(link.getType());
+            distinctTypes.add(link.getType());
+            hrefs.add(link.getHref());
+            distinctHrefs.add(link.getHref());
+         }
+      }
+      // one instance per value, however many links and documents carry it
+      assertEquals(types.size(), distinctTypes.size());
+      assertEquals(hrefs.size(), distinctHrefs.size());
+      assertSame(first.getType(), second.getType());
+      assertSame(first.getHref(), second.getHref());
+   }
+
+   public void testCimStringAttributeNamesAreShared() throws JAXBException {
+      CimString first = hostResourceOfDisk(parse());
+      CimString second = hostResourceOfDisk(parse());
+
+      assertEquals(first.getOtherAttributes(), second.getOtherAttributes());
+      for (Map.Entry<QName, String> attribute : first.getOtherAttributes().entrySet()) {
+         QName name = Iterables.find(second.getOtherAttributes().keySet(), Predicates.equalTo(attribute.getKey()));
+         assertSame(name, attribute.getKey());
+         assertSame(second.getOtherAttributes().get(name), attribute.getValue());
+      }
+   }
+
+   private static CimString hostResourceOfDisk(VApp vApp) {
+      Vm vm = Iterables.getOnlyElement(vApp.getChildren().getVms());
+      VirtualHardwareSection hardware = Iterables.getOnlyElement(Iterables.filter(vm.getSections(), VirtualHardwareSection.class));
+      for (ResourceAllocationSettingData item : hardware.getItems()) {
+         if (!item.getHostResources().isEmpty())
+            return Iterables.getOnlyElement(item.getHostResources());
+      }
+      throw new AssertionError("no disk in " + vm.getName());
+   }
+}
@@ -0,0 +1,85 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.vcloud.director.v1_5.domain.dmtf.ovf;
+
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+
+import java.io.File;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+
+import org.jclouds.vcloud.director.v1_5.domain.Vm;
+import org.jclouds.vcloud.director.v1_5.domain.section.GuestCustomizationSection;
+import org.jclouds.vcloud.director.v1_5.domain.section.NetworkConnectionSection;
+import org.jclouds.vcloud.director.v1_5.domain.section.OperatingSystemSection;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+
+@Test(groups = "unit", testName = "SectionIndexTest")
+public class SectionIndexTest {
+
+   private static Object unmarshal(Class<?> type, String resource) throws JAXBException {
+      return JAXBContext.newInstance(type).createUnmarshaller().unmarshal(new File(resource));
+   }
+
+   public void testFindsSectionsOfAVmByClassAndSuperclass() throws JAXBException {
+      Vm vm = (Vm) unmarshal(Vm.class, "src/test/resources/vm/vm.xml");
+
+      org.jclouds.vcloud.director.v1_5.domain.section.VirtualHardwareSection hardware = vm
+            .getSection(org.jclouds.vcloud.director.v1_5.domain.section.VirtualHardwareSection.class);
+      assertSame(hardware, Iterables.getOnlyElement(Iterables.filter(vm.getSections(), VirtualHardwareSection.class)));
+      assertSame(vm.getSection(VirtualHardwareSection.class), hardware);
+      assertNotNull(vm.getSection(OperatingSystemSection.class));
+      assertNotNull(vm.getSection(GuestCustomizationSection.class));
+      assertNotNull(vm.getSection(NetworkConnectionSection.class));
+      assertSame(vm.getSection(SectionType.class), Iterables.getFirst(vm.getSections(), null));
+      assertNull(vm.getSection(NetworkSection.class));
+   }
+
+   public void testKeepsTheFirstOfSeveralSectionsOfAClass() {
+      DiskSection first = DiskSection.builder().info(MsgType.builder().value("first").build()).build();
+      DiskSection second = DiskSection.builder().info(MsgType.builder().value("second").build()).build();
+      SectionIndex index = SectionIndex.of(ImmutableList.<SectionType>of(first, second));
+
+      assertSame(index.get(DiskSection.class), first);
+      assertSame(index.get(SectionType.class), first);
+      assertNull(index.get(NetworkSection.class));
+      assertNull(SectionIndex.of(null).get(DiskSection.class));
+   }
+
+   private interface Tagged {
+   }
+
+   private static class TaggedDiskSection extends DiskSection implements Tagged {
+   }
+
+   @SuppressWarnings({ "unchecked", "rawtypes" })
+   public void testScansForInterfaces() {
+      DiskSection untagged = DiskSection.builder().info(MsgType.builder().value("untagged").build()).build();
+      TaggedDiskSection tagged = new TaggedDiskSection();
+      Class interfaceType = Tagged.class;
+
+      assertSame(SectionIndex.of(ImmutableList.<SectionType>of(untagged, tagged)).get(interfaceType), tagged);
+      assertSame(new SectionIndex.Lazy().get(ImmutableList.<SectionType>of(untagged, tagged), interfaceType), tagged);
+      assertNull(SectionIndex.of(ImmutableList.<SectionType>of(untagged)).get(interfaceType));
+   }
+}
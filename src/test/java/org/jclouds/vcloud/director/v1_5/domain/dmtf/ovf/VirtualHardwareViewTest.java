@@ -0,0 +1,88 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.vcloud.director.v1_5.domain.dmtf.ovf;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.io.File;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+
+import org.jclouds.vcloud.director.v1_5.domain.Vm;
+import org.jclouds.vcloud.director.v1_5.domain.dmtf.cim.ResourceAllocationSettingData;
+import org.jclouds.vcloud.director.v1_5.domain.dmtf.cim.ResourceAllocationSettingData.ResourceType;
+import org.jclouds.vcloud.director.v1_5.domain.dmtf.ovf.VirtualHardwareView.Disk;
+import org.jclouds.vcloud.director.v1_5.domain.dmtf.ovf.VirtualHardwareView.Nic;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+
+@Test(groups = "unit", testName = "VirtualHardwareViewTest")
+public class VirtualHardwareViewTest {
+
+   private static VirtualHardwareSection hardwareOf(String resource) throws JAXBException {
+      Vm vm = (Vm) JAXBContext.newInstance(Vm.class).createUnmarshaller().unmarshal(new File(resource));
+      return Iterables.getOnlyElement(Iterables.filter(vm.getSections(), VirtualHardwareSection.class));
+   }
+
+   public void testReadsCpuMemoryDisksAndNics() throws JAXBException {
+      VirtualHardwareSection section = hardwareOf("src/test/resources/vm/vm.xml");
+      VirtualHardwareView hardware = section.getView();
+
+      assertSame(section.getView(), hardware);
+      assertEquals(hardware.getCpuCount(), 1);
+      assertEquals(hardware.getMemoryMb(), 1024);
+
+      Disk disk = Iterables.getOnlyElement(hardware.getDisks());
+      assertEquals(disk.getElementName(), "Hard disk 1");
+      assertEquals(disk.getCapacityMb(), 8192);
+      assertEquals(disk.getBusType(), 6);
+      assertEquals(disk.getBusSubType(), "lsilogic");
+      assertSame(hardware.findDisk("Hard disk 1"), disk);
+      assertNull(hardware.findDisk("Hard disk 2"));
+
+      assertEquals(hardware.getNics().size(), 2);
+      Nic primary = hardware.getNics().get(1);
+      assertEquals(primary.getIndex(), 1);
+      assertEquals(primary.getNetwork(), "internet01-Cloudsoft");
+      assertEquals(primary.getIpAddress(), "173.240.104.172");
+      assertEquals(primary.getMacAddress(), "00:50:56:0a:02:14");
+      assertTrue(primary.isPrimary());
+      assertFalse(hardware.getNics().get(0).isPrimary());
+
+      assertEquals(hardware.getItems(ResourceType.CD_DRIVE).size() + hardware.getItems(ResourceType.DVD_DRIVE).size(), 2);
+      assertSame(hardware.getFirst(ResourceType.DISK_DRIVE), disk.getItem());
+   }
+
+   public void testEmptyWhenItemsAreMissing() {
+      VirtualHardwareView hardware = VirtualHardwareView.of(ImmutableList.of(ResourceAllocationSettingData.builder()
+            .resourceType(ResourceType.DISK_DRIVE).elementName("Hard disk 1").build()));
+
+      assertEquals(hardware.getCpuCount(), 0);
+      assertEquals(hardware.getMemoryMb(), 0);
+      assertEquals(Iterables.getOnlyElement(hardware.getDisks()).getCapacityMb(), -1);
+      assertTrue(hardware.getNics().isEmpty());
+      assertTrue(hardware.getItems(ResourceType.PROCESSOR).isEmpty());
+      assertNull(hardware.getFirst(ResourceType.MEMORY));
+   }
+}
@@ -0,0 +1,129 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.vcloud.director.v1_5.functions;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.fail;
+
+import java.net.URI;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jclouds.javax.annotation.Nullable;
+import org.jclouds.vcloud.director.v1_5.domain.Entity;
+import org.jclouds.vcloud.director.v1_5.domain.Link;
+import org.jclouds.vcloud.director.v1_5.domain.query.QueryResultRecordType;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Suppliers;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheLoader.InvalidCacheLoadException;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Tests behavior of {@code URNResolver}
+ */
+@Test(groups = "unit", testName = "URNResolverTest")
+public class URNResolverTest {
+
+   private static final URI ENDPOINT = URI.create("https://vcloud.example.com/api");
+   private static final String VM = "urn:vcloud:vm:44c5d0c4-3c5e-4a4b-9bd5-b84a9a1b7c1e";
+   private static final String DISK = "urn:vcloud:disk:0b7e5bcd-7d4b-4a1b-8d86-33c8c3e4c2b3";
+   private static final URI DISK_HREF = URI.create("https://vcloud.example.com/api/disk/0b7e5bcd-7d4b-4a1b-8d86-33c8c3e4c2b3");
+
+   public void testDerivesHrefsOfKnownTypesWithoutResolvingThem() {
+      AtomicInteger resolved = new AtomicInteger();
+      URNResolver resolver = resolver(true, resolved);
+
+      assertEquals(resolver.getHref("urn:vcloud:vapp:3"), URI.create("https://vcloud.example.com/api/vApp/vapp-3"));
+      assertEquals(resolver.getHref("urn:vcloud:vapptemplate:1"), URI.create("https://vcloud.example.com/api/vAppTemplate/vappTemplate-1"));
+      assertEquals(resolver.getAdminHref("urn:vcloud:org:2"), URI.create("https://vcloud.example.com/api/admin/org/2"));
+      assertEquals(resolved.get(), 0);
+   }
+
+   public void testResolvesVmsAsTheyMayBeInAVAppTemplate() {
+      AtomicInteger resolved = new AtomicInteger();
+      URNResolver resolver = resolver(true, resolved);
+
+      assertEquals(resolver.getHref(VM), URI.create("https://vcloud.example.com/api/vApp/vm-resolved"));
+      assertEquals(resolved.get(), 1);
+   }
+
+   public void testResolvesOtherUrnsOnceThroughTheEntityCache() {
+      AtomicInteger resolved = new AtomicInteger();
+      URNResolver resolver = resolver(true, resolved);
+
+      assertEquals(resolver.getHref(DISK), DISK_HREF);
+      assertEquals(resolver.getHref(DISK), DISK_HREF);
+      assertEquals(resolved.get(), 1);
+   }
+
+   public void testResolvesEveryUrnWhenNotDerivingHrefs() {
+      AtomicInteger resolved = new AtomicInteger();
+      URNResolver resolver = resolver(false, resolved);
+
+      assertEquals(resolver.getHref("urn:vcloud:vapp:3"), URI.create("https://vcloud.example.com/api/vApp/vapp-resolved"));
+      assertEquals(resolved.get(), 1);
+   }
+
+   public void testPrefetchedHrefsNeedNoResolving() {
+      AtomicInteger resolved = new AtomicInteger();
+      URNResolver resolver = resolver(true, resolved);
+      URI href = URI.create("https://vcloud.example.com/api/disk/prefetched");
+
+      resolver.prefetch(ImmutableList.of(QueryResultRecordType.builder().id(DISK).href(href).build(),
+            QueryResultRecordType.builder().href(URI.create("https://vcloud.example.com/api/disk/noid")).build()));
+
+      assertEquals(resolver.getHref(DISK), href);
+      assertEquals(resolved.get(), 0);
+   }
+
+   public void testMissingEntitiesAreRememberedForAWhile() {
+      AtomicInteger resolved = new AtomicInteger();
+      URNResolver resolver = resolver(true, resolved);
+      String missing = "urn:vcloud:disk:missing";
+
+      for (int i = 0; i < 2; i++) {
+         try {
+            resolver.getHref(missing);
+            fail("resolved " + missing);
+         } catch (InvalidCacheLoadException expected) {
+         }
+      }
+      assertEquals(resolved.get(), 1);
+   }
+
+   private static URNResolver resolver(boolean deriveHrefs, final AtomicInteger resolved) {
+      final ImmutableMap<String, URI> hrefs = ImmutableMap.of(
+            DISK, DISK_HREF,
+            VM, URI.create("https://vcloud.example.com/api/vApp/vm-resolved"),
+            "urn:vcloud:vapp:3", URI.create("https://vcloud.example.com/api/vApp/vapp-resolved"));
+      return new URNResolver(CacheBuilder.newBuilder().build(new CacheLoader<String, Entity>() {
+         @Override
+         @Nullable
+         public Entity load(String urn) {
+            resolved.incrementAndGet();
+            URI href = hrefs.get(urn);
+            // as the resolver's fallback answers a 404
+            return href == null ? null : Entity.builder().id(urn).name(urn)
+                  .link(Link.builder().rel(Link.Rel.ALTERNATE).type("application/vnd.vmware.vcloud.entity+xml")
+                        .href(href).build()).build();
+         }
+      }), Suppliers.ofInstance(ENDPOINT), deriveHrefs, 100, 60, 60 * 1000);
+   }
+}
@@ -0,0 +1,161 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.vcloud.director.v1_5.handlers;
+
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.net.SocketTimeoutException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jclouds.ContextBuilder;
+import org.jclouds.http.HttpCommand;
+import org.jclouds.http.HttpCommandExecutorService;
+import org.jclouds.http.HttpRequest;
+import org.jclouds.http.HttpResponse;
+import org.jclouds.http.HttpResponseException;
+import org.jclouds.logging.config.NullLoggingModule;
+import org.jclouds.rest.ResourceNotFoundException;
+import org.jclouds.rest.RetryAfterException;
+import org.jclouds.vcloud.director.v1_5.VCloudDirectorApiMetadata;
+import org.jclouds.vcloud.director.v1_5.handlers.CircuitBreaker.State;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Ticker;
+import com.google.common.collect.ImmutableSet;
+import com.google.inject.Injector;
+import com.google.inject.Module;
+import com.google.inject.util.Providers;
+
+/**
+ * Tests behavior of {@code CircuitBreaker}, {@code CircuitBreakers} and {@code CircuitBreakingHttpCommandExecutorService}
+ */
+@Test(groups = "unit", testName = "CircuitBreakerTest")
+public class CircuitBreakerTest {
+
+   private static class ManualTicker extends Ticker {
+      final AtomicLong nanos = new AtomicLong();
+
+      @Override
+      public long read() {
+         return nanos.get();
+      }
+   }
+
+   private static HttpCommand command() {
+      return new HttpCommand(HttpRequest.builder().method("GET").endpoint("https://acme.com/api/vApp/vapp-1").build());
+   }
+
+   public void testOpensAfterConsecutiveFailuresAndProbesWhenHalfOpen() {
+      ManualTicker ticker = new ManualTicker();
+      CircuitBreakers breakers = new CircuitBreakers(3, 1000, ticker);
+      CircuitBreaker breaker = breakers.forCommand(command());
+
+      breaker.onFailure();
+      breaker.onFailure();
+      breaker.onSuccess();
+      breaker.onFailure();
+      breaker.onFailure();
+      assertEquals(breaker.getState(), State.CLOSED);
+      breaker.onFailure();
+      assertEquals(breaker.getState(), State.OPEN);
+      assertFalse(breaker.tryAcquire());
+
+      ticker.nanos.addAndGet(TimeUnit.SECONDS.toNanos(1));
+      assertTrue(breaker.tryAcquire());
+      assertEquals(breaker.getState(), State.HALF_OPEN);
+      assertFalse(breaker.tryAcquire(), "only one probe at a time");
+
+      breaker.onFailure();
+      assertEquals(breaker.getState(), State.OPEN);
+
+      ticker.nanos.addAndGet(TimeUnit.SECONDS.toNanos(1));
+      assertTrue(breaker.tryAcquire());
+      breaker.onSuccess();
+      assertEquals(breaker.getState(), State.CLOSED);
+      assertTrue(breaker.tryAcquire());
+
+      assertEquals(breakers.getStates().get("acme.com/HttpClient"), State.CLOSED);
+      assertEquals(breakers.getTransitions().get("acme.com/HttpClient:OPEN"), Long.valueOf(2));
+      assertEquals(breakers.getTransitions().get("acme.com/HttpClient:HALF_OPEN"), Long.valueOf(2));
+      assertEquals(breakers.getTransitions().get("acme.com/HttpClient:CLOSED"), Long.valueOf(1));
+   }
+
+   public void testExecutorFailsFastWhileOpen() {
+      CircuitBreakers breakers = new CircuitBreakers(1, 30000, new ManualTicker());
+      HttpCommand command = command();
+
+      try {
+         executor(breakers, command, new HttpResponseException("timeout", command, null,
+               new SocketTimeoutException())).invoke(command);
+         fail();
+      } catch (HttpResponseException e) {
+         // expected
+      }
+      assertEquals(breakers.forCommand(command).getState(), State.OPEN);
+
+      try {
+         executor(breakers, command, new AssertionError("should not proceed")).invoke(command);
+         fail();
+      } catch (RetryAfterException e) {
+         assertEquals(e.getSeconds(), 30);
+      }
+      assertEquals(breakers.getRejections().get("acme.com/HttpClient"), Long.valueOf(1));
+   }
+
+   public void testClientErrorsDoNotOpenBreaker() {
+      CircuitBreakers breakers = new CircuitBreakers(1, 30000, new ManualTicker());
+      HttpCommand command = command();
+
+      try {
+         executor(breakers, command, new ResourceNotFoundException("gone")).invoke(command);
+         fail();
+      } catch (ResourceNotFoundException e) {
+         // expected
+      }
+      assertEquals(breakers.forCommand(command).getState(), State.CLOSED);
+   }
+
+   public void testServerErrorsOpenBreaker() {
+      HttpCommand command = command();
+      assertTrue(CircuitBreakingHttpCommandExecutorService.isFailure(new HttpResponseException(command,
+            HttpResponse.builder().statusCode(503).build())));
+      assertFalse(CircuitBreakingHttpCommandExecutorService.isFailure(new HttpResponseException(command,
+            HttpResponse.builder().statusCode(400).build())));
+   }
+
+   public void testContextGuardsCommandsWithCircuitBreakers() {
+      Injector injector = ContextBuilder.newBuilder(new VCloudDirectorApiMetadata())
+            .endpoint("https://acme.com/api").credentials("user@org", "password")
+            .modules(ImmutableSet.<Module> of(new NullLoggingModule())).buildInjector();
+
+      assertTrue(injector.getInstance(HttpCommandExecutorService.class) instanceof CircuitBreakingHttpCommandExecutorService);
+   }
+
+   private static HttpCommandExecutorService executor(CircuitBreakers breakers, HttpCommand command, Throwable thrown) {
+      HttpCommandExecutorService delegate = createMock(HttpCommandExecutorService.class);
+      expect(delegate.invoke(command)).andThrow(thrown);
+      replay(delegate);
+      return new CircuitBreakingHttpCommandExecutorService(delegate, Providers.of(breakers));
+   }
+}
@@ -0,0 +1,220 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.vcloud.director.v1_5.handlers;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.io.IOException;
+import java.util.Deque;
+import java.util.List;
+
+import org.jclouds.http.HttpCommand;
+import org.jclouds.http.HttpCommandExecutorService;
+import org.jclouds.http.HttpRequest;
+import org.jclouds.http.HttpResponse;
+import org.jclouds.http.HttpResponseException;
+import org.jclouds.io.Payload;
+import org.jclouds.io.Payloads;
+import org.jclouds.util.Strings2;
+import org.jclouds.vcloud.director.v1_5.VCloudDirectorMediaType;
+import org.jclouds.vcloud.director.v1_5.domain.Vm;
+import org.jclouds.vcloud.director.v1_5.filters.AddVCloudAuthorizationAndCookieToRequest;
+import org.jclouds.vcloud.director.v1_5.handlers.ConditionalGetCache.EntityPayload;
+import org.jclouds.vcloud.director.v1_5.xml.VCloudDirectorJAXBParser;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Supplier;
+import com.google.common.collect.Lists;
+import com.google.common.io.Resources;
+import com.google.common.net.HttpHeaders;
+
+/**
+ * Tests behavior of {@code ConditionalGetCache} and {@code ConditionalGetHttpCommandExecutorService}
+ */
+@Test(groups = "unit", testName = "ConditionalGetCacheTest")
+public class ConditionalGetCacheTest {
+
+   private static final String VM_HREF = "https://vcd/api/vApp/vm-1";
+
+   /**
+    * Filters each command with the authorization filter, as the http driver does, and answers it
+    * with the next scripted response; one per test method, as methods run in parallel.
+    */
+   private static class Fixture implements HttpCommandExecutorService {
+      final ConditionalGetCache cache;
+      final List<HttpRequest> sent = Lists.newArrayList();
+      final Deque<HttpResponse> responses = Lists.newLinkedList();
+      String token = "token-1";
+      final AddVCloudAuthorizationAndCookieToRequest authorization;
+      final HttpCommandExecutorService executor;
+
+      Fixture(long maxBytes) {
+         cache = new ConditionalGetCache(maxBytes);
+         authorization = new AddVCloudAuthorizationAndCookieToRequest(new Supplier<String>() {
+            @Override
+            public String get() {
+               return token;
+            }
+         }, new RetryBudget(0.2, 10), cache);
+         executor = new ConditionalGetHttpCommandExecutorService(this, cache);
+      }
+
+      @Override
+      public HttpResponse invoke(HttpCommand command) {
+         sent.add(authorization.filter(command.getCurrentRequest()));
+         return responses.removeFirst();
+      }
+
+      HttpResponse get(String href) {
+         return executor.invoke(new HttpCommand(HttpRequest.builder().method("GET").endpoint(href).build()));
+      }
+
+      String lastIfNoneMatch() {
+         return sent.get(sent.size() - 1).getFirstHeaderOrNull(HttpHeaders.IF_NONE_MATCH);
+      }
+   }
+
+   private static HttpResponse ok(String etag) throws IOException {
+      return ok(etag, VCloudDirectorMediaType.VM + ";version=5.1");
+   }
+
+   private static HttpResponse ok(String etag, String contentType) throws IOException {
+      Payload payload = Payloads.newStringPayload(
+            Resources.toString(Resources.getResource(ConditionalGetCacheTest.class, "/vm/vm.xml"), Charsets.UTF_8));
+      payload.getContentMetadata().setContentType(contentType);
+      HttpResponse.Builder<?> response = HttpResponse.builder().statusCode(200).message("OK").payload(payload);
+      if (etag != null)
+         response.addHeader(HttpHeaders.ETAG, etag);
+      return response.build();
+   }
+
+   private static HttpResponse notModified() {
+      return HttpResponse.builder().statusCode(304).message("Not Modified").build();
+   }
+
+   public void testNotModifiedReturnsCachedEntity() throws IOException {
+      Fixture fixture = new Fixture(1 << 20);
+      VCloudDirectorJAXBParser parser = new VCloudDirectorJAXBParser("false", false, 0);
+      fixture.responses.add(ok("\"v1\""));
+      fixture.responses.add(notModified());
+
+      HttpResponse first = fixture.get(VM_HREF);
+      assertNull(fixture.lastIfNoneMatch());
+      Vm vm = ((EntityPayload) first.getPayload()).getEntity(Vm.class, parser);
+
+      HttpResponse second = fixture.get(VM_HREF);
+      assertEquals(fixture.lastIfNoneMatch(), "\"v1\"");
+      assertEquals(second.getStatusCode(), 200);
+      assertSame(((EntityPayload) second.getPayload()).getEntity(Vm.class, parser), vm);
+      assertEquals(Strings2.toStringAndClose(second.getPayload().openStream()),
+            Strings2.toStringAndClose(first.getPayload().openStream()));
+   }
+
+   public void testEntitiesAreCachedPerSession() throws IOException {
+      Fixture fixture = new Fixture(1 << 20);
+      fixture.responses.add(ok("\"v1\""));
+      fixture.responses.add(ok("\"v1\""));
+      fixture.get(VM_HREF);
+
+      fixture.token = "token-2";
+      fixture.get(VM_HREF);
+      assertNull(fixture.lastIfNoneMatch());
+   }
+
+   public void testModifiedEntityReplacesCachedOne() throws IOException {
+      Fixture fixture = new Fixture(1 << 20);
+      fixture.responses.add(ok("\"v1\""));
+      fixture.responses.add(ok("\"v2\""));
+      fixture.responses.add(notModified());
+      fixture.get(VM_HREF);
+      fixture.get(VM_HREF);
+      assertEquals(fixture.lastIfNoneMatch(), "\"v1\"");
+
+      fixture.get(VM_HREF);
+      assertEquals(fixture.lastIfNoneMatch(), "\"v2\"");
+   }
+
+   public void testEntitiesWithoutValidatorAreNotCached() throws IOException {
+      Fixture fixture = new Fixture(1 << 20);
+      fixture.responses.add(ok(null));
+      fixture.responses.add(ok(null));
+
+      assertFalse(fixture.get(VM_HREF).getPayload() instanceof EntityPayload);
+      fixture.get(VM_HREF);
+      assertNull(fixture.lastIfNoneMatch());
+   }
+
+   public void testOnlyEntityMediaTypesAreCached() throws IOException {
+      Fixture fixture = new Fixture(1 << 20);
+      fixture.responses.add(ok("\"v1\"", VCloudDirectorMediaType.TASK));
+      fixture.responses.add(ok("\"v1\"", VCloudDirectorMediaType.TASK));
+
+      assertFalse(fixture.get(VM_HREF).getPayload() instanceof EntityPayload);
+      fixture.get(VM_HREF);
+      assertNull(fixture.lastIfNoneMatch());
+   }
+
+   public void testEntitiesLargerThanTheCacheAreNotKept() throws IOException {
+      Fixture fixture = new Fixture(1024);
+      fixture.responses.add(ok("\"v1\""));
+      fixture.responses.add(ok("\"v1\""));
+      fixture.get(VM_HREF);
+      fixture.get(VM_HREF);
+      assertNull(fixture.lastIfNoneMatch());
+   }
+
+   public void testFailedRequestForgetsCachedEntity() throws IOException {
+      final Fixture fixture = new Fixture(1 << 20);
+      fixture.responses.add(ok("\"v1\""));
+      fixture.responses.add(ok("\"v1\""));
+      fixture.get(VM_HREF);
+
+      HttpCommandExecutorService failing = new ConditionalGetHttpCommandExecutorService(new HttpCommandExecutorService() {
+         @Override
+         public HttpResponse invoke(HttpCommand command) {
+            fixture.authorization.filter(command.getCurrentRequest());
+            throw new HttpResponseException("not found", command, null);
+         }
+      }, fixture.cache);
+      try {
+         failing.invoke(new HttpCommand(HttpRequest.builder().method("GET").endpoint(VM_HREF).build()));
+         fail("expected HttpResponseException");
+      } catch (HttpResponseException expected) {
+      }
+
+      fixture.get(VM_HREF);
+      assertNull(fixture.lastIfNoneMatch());
+   }
+
+   public void testDisabledWithZeroBytes() throws IOException {
+      Fixture fixture = new Fixture(0);
+      fixture.responses.add(ok("\"v1\""));
+      fixture.responses.add(ok("\"v1\""));
+      fixture.get(VM_HREF);
+      fixture.get(VM_HREF);
+
+      assertFalse(fixture.cache.isEnabled());
+      assertNull(fixture.lastIfNoneMatch());
+      assertTrue(new ConditionalGetCache(1).isEnabled());
+   }
+}
@@ -0,0 +1,121 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.vcloud.director.v1_5.handlers;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.testng.annotations.Test;
+
+import com.google.common.base.Charsets;
+import com.google.common.net.HttpHeaders;
+
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/**
+ * Tests behavior of {@code ContentEncodingInterceptor}
+ */
+@Test(groups = "unit", testName = "ContentEncodingInterceptorTest")
+public class ContentEncodingInterceptorTest {
+
+   private static final String XML = "<VApp xmlns=\"http://www.vmware.com/vcloud/v1.5\" name=\"vapp\"/>";
+
+   /**
+    * Answers every request with {@link #XML} in the given encoding, remembering the encoding the
+    * request accepted, in place of a server.
+    */
+   private static class Server implements Interceptor {
+      final String encoding;
+      String acceptEncoding;
+
+      Server(String encoding) {
+         this.encoding = encoding;
+      }
+
+      @Override
+      public Response intercept(Chain chain) throws IOException {
+         acceptEncoding = chain.request().header(HttpHeaders.ACCEPT_ENCODING);
+         Response.Builder response = new Response.Builder().request(chain.request()).protocol(Protocol.HTTP_1_1)
+               .code(200).message("OK");
+         if (encoding != null)
+            response.header(HttpHeaders.CONTENT_ENCODING, encoding);
+         return response.body(ResponseBody.create(MediaType.parse("application/vnd.vmware.vcloud.vApp+xml"),
+               encode(XML.getBytes(Charsets.UTF_8), encoding))).build();
+      }
+   }
+
+   private static byte[] encode(byte[] bytes, String encoding) throws IOException {
+      if (encoding == null)
+         return bytes;
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      DeflaterOutputStream encoder = "gzip".equals(encoding) ? new GZIPOutputStream(out) : new DeflaterOutputStream(out);
+      encoder.write(bytes);
+      encoder.close();
+      return out.toByteArray();
+   }
+
+   private static Response get(boolean compression, Server server, Request.Builder request) throws IOException {
+      OkHttpClient client = new OkHttpClient.Builder().addInterceptor(new ContentEncodingInterceptor(compression))
+            .addInterceptor(server).build();
+      return client.newCall(request.url("https://vcd/api/vApp/vapp-1").build()).execute();
+   }
+
+   public void testDecompressesGzip() throws IOException {
+      Server server = new Server("gzip");
+      Response response = get(true, server, new Request.Builder());
+
+      assertEquals(server.acceptEncoding, "gzip, deflate");
+      assertNull(response.header(HttpHeaders.CONTENT_ENCODING));
+      assertEquals(response.body().string(), XML);
+   }
+
+   public void testDecompressesDeflate() throws IOException {
+      Response response = get(true, new Server("deflate"), new Request.Builder());
+
+      assertNull(response.header(HttpHeaders.CONTENT_ENCODING));
+      assertEquals(response.body().string(), XML);
+   }
+
+   public void testReadsUncompressedResponse() throws IOException {
+      assertEquals(get(true, new Server(null), new Request.Builder()).body().string(), XML);
+   }
+
+   public void testDisabledAsksForUncompressedResponse() throws IOException {
+      Server server = new Server(null);
+      assertEquals(get(false, server, new Request.Builder()).body().string(), XML);
+      assertEquals(server.acceptEncoding, "identity");
+   }
+
+   public void testLeavesRequestChoosingItsEncoding() throws IOException {
+      Server server = new Server("gzip");
+      Response response = get(true, server, new Request.Builder().header(HttpHeaders.ACCEPT_ENCODING, "gzip"));
+
+      assertEquals(server.acceptEncoding, "gzip");
+      assertEquals(response.header(HttpHeaders.CONTENT_ENCODING), "gzip");
+   }
+}
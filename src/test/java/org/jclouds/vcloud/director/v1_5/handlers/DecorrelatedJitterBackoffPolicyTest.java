@@ -0,0 +1,179 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.vcloud.director.v1_5.handlers;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jclouds.date.DateService;
+import org.jclouds.date.internal.SimpleDateFormatDateService;
+import org.jclouds.http.HttpCommand;
+import org.jclouds.http.HttpRequest;
+import org.jclouds.http.HttpResponse;
+import org.jclouds.vcloud.director.v1_5.filters.AddVCloudAuthorizationAndCookieToRequest;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Suppliers;
+import com.google.common.base.Ticker;
+import com.google.common.net.HttpHeaders;
+
+/**
+ * Tests behavior of {@code DecorrelatedJitterBackoffPolicy} and {@code RetryBudget}
+ */
+@Test(groups = "unit", testName = "DecorrelatedJitterBackoffPolicyTest")
+public class DecorrelatedJitterBackoffPolicyTest {
+
+   private final DateService dateService = new SimpleDateFormatDateService();
+
+   static class RecordingPolicy extends DecorrelatedJitterBackoffPolicy {
+      long slept = -1;
+
+      RecordingPolicy(int maxRetries, String errorCodeBudgets, RetryBudget retryBudget) {
+         this(maxRetries, errorCodeBudgets, retryBudget, new CircuitBreakers(5, 30000));
+      }
+
+      RecordingPolicy(int maxRetries, String errorCodeBudgets, RetryBudget retryBudget, CircuitBreakers circuitBreakers) {
+         super(maxRetries, 100, 10000, errorCodeBudgets, retryBudget, circuitBreakers, new SimpleDateFormatDateService());
+      }
+
+      @Override
+      protected void sleep(long delay) {
+         slept = delay;
+      }
+   }
+
+   private static class ManualTicker extends Ticker {
+      final AtomicLong nanos = new AtomicLong();
+
+      @Override
+      public long read() {
+         return nanos.get();
+      }
+   }
+
+   private static HttpCommand command() {
+      return new HttpCommand(HttpRequest.builder().method("GET").endpoint("https://acme.com/api/vApp/vapp-1").build());
+   }
+
+   private static HttpResponse response(int statusCode) {
+      return HttpResponse.builder().statusCode(statusCode).build();
+   }
+
+   public void testDelaysStayWithinDecorrelatedBounds() {
+      RecordingPolicy policy = new RecordingPolicy(5, "", new RetryBudget(0.2, 10));
+      HttpCommand command = command();
+      long previous = 100;
+      for (int i = 0; i < 20; i++) {
+         long delay = policy.nextDelay(command);
+         assertTrue(delay >= 100 && delay <= Math.min(previous * 3, 10000), delay + " outside bounds of " + previous);
+         previous = delay;
+      }
+   }
+
+   public void testErrorCodeBudgetOverridesMaxRetries() {
+      RecordingPolicy policy = new RecordingPolicy(5, "BUSY_ENTITY=10, OPERATION_LIMITS_EXCEEDED=2",
+            new RetryBudget(0.2, 100));
+      assertEquals(policy.retryLimit("BUSY_ENTITY"), 10);
+      assertEquals(policy.retryLimit("OPERATION_LIMITS_EXCEEDED"), 2);
+      assertEquals(policy.retryLimit("ACCESS_TO_RESOURCE_IS_FORBIDDEN"), 5);
+      assertEquals(policy.retryLimit(null), 5);
+
+      HttpCommand command = command();
+      assertTrue(policy.backoffAndRetry(command, response(400), "OPERATION_LIMITS_EXCEEDED"));
+      assertTrue(policy.backoffAndRetry(command, response(400), "OPERATION_LIMITS_EXCEEDED"));
+      assertFalse(policy.backoffAndRetry(command, response(400), "OPERATION_LIMITS_EXCEEDED"));
+   }
+
+   public void testHonoursRetryAfterSeconds() {
+      RecordingPolicy policy = new RecordingPolicy(5, "", new RetryBudget(0.2, 10));
+      HttpResponse response = HttpResponse.builder().statusCode(400).addHeader(HttpHeaders.RETRY_AFTER, "3").build();
+      assertEquals(policy.retryAfterMillis(response), 3000);
+      assertTrue(policy.backoffAndRetry(command(), response, "BUSY_ENTITY"));
+      assertTrue(policy.slept >= 3000, "slept " + policy.slept);
+   }
+
+   public void testHonoursRetryAfterDate() {
+      RecordingPolicy policy = new RecordingPolicy(5, "", new RetryBudget(0.2, 10));
+      String date = dateService.rfc1123DateFormat(new Date(System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(5)));
+      HttpResponse response = HttpResponse.builder().statusCode(400).addHeader(HttpHeaders.RETRY_AFTER, date).build();
+      long retryAfter = policy.retryAfterMillis(response);
+      assertTrue(retryAfter > 3000 && retryAfter <= 5000, "retryAfter " + retryAfter);
+   }
+
+   public void testRetryAfterBeyondMaxDelayFailsFast() {
+      RecordingPolicy policy = new RecordingPolicy(5, "", new RetryBudget(0.2, 10));
+      HttpResponse response = HttpResponse.builder().statusCode(400).addHeader(HttpHeaders.RETRY_AFTER, "60").build();
+      assertFalse(policy.backoffAndRetry(command(), response, "BUSY_ENTITY"));
+      assertEquals(policy.slept, -1);
+   }
+
+   public void testExhaustedRetryBudgetFailsFast() {
+      RecordingPolicy policy = new RecordingPolicy(5, "", new RetryBudget(0.2, 0, new ManualTicker()));
+      assertFalse(policy.backoffAndRetry(command(), response(400), "BUSY_ENTITY"));
+   }
+
+   public void testOpenCircuitBreakerFailsFast() {
+      CircuitBreakers circuitBreakers = new CircuitBreakers(1, 30000);
+      RecordingPolicy policy = new RecordingPolicy(5, "", new RetryBudget(0.2, 10), circuitBreakers);
+      HttpCommand command = command();
+      circuitBreakers.forCommand(command).onFailure();
+      assertFalse(policy.backoffAndRetry(command, response(400), "BUSY_ENTITY"));
+      assertEquals(policy.slept, -1);
+   }
+
+   public void testRetryBudgetIsAFractionOfRequests() {
+      RetryBudget budget = new RetryBudget(0.1, 0, new ManualTicker());
+      for (int i = 0; i < 100; i++) {
+         budget.deposit();
+      }
+      int retries = 0;
+      while (budget.tryWithdraw()) {
+         retries++;
+      }
+      assertEquals(retries, 10);
+   }
+
+   public void testRetryBudgetReserveRefillsOverTime() {
+      ManualTicker ticker = new ManualTicker();
+      RetryBudget budget = new RetryBudget(0.1, 2, ticker);
+      assertTrue(budget.tryWithdraw());
+      assertTrue(budget.tryWithdraw());
+      assertFalse(budget.tryWithdraw());
+      ticker.nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(500));
+      assertTrue(budget.tryWithdraw());
+      assertFalse(budget.tryWithdraw());
+   }
+
+   public void testOnlyFirstAttemptsDepositToTheRetryBudget() {
+      RetryBudget budget = new RetryBudget(0.5, 0, new ManualTicker());
+      AddVCloudAuthorizationAndCookieToRequest authorization = new AddVCloudAuthorizationAndCookieToRequest(
+            Suppliers.ofInstance("token"), budget, new ConditionalGetCache(0));
+      HttpRequest request = command().getCurrentRequest();
+      for (int i = 0; i < 4; i++) {
+         authorization.filter(request);
+      }
+      assertFalse(budget.tryWithdraw());
+
+      authorization.filter(command().getCurrentRequest());
+      assertTrue(budget.tryWithdraw());
+   }
+}
@@ -17,69 +17,172 @@
 package org.jclouds.vcloud.director.v1_5.handlers;
 
 import static org.easymock.EasyMock.createMock;
-import static org.easymock.EasyMock.expect;
-import static org.easymock.EasyMock.expectLastCall;
 import static org.easymock.EasyMock.replay;
 import static org.easymock.EasyMock.verify;
+import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertTrue;
 
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import org.jclouds.domain.Credentials;
 import org.jclouds.http.HttpCommand;
+import org.jclouds.http.HttpRequest;
 import org.jclouds.http.HttpResponse;
+import org.jclouds.vcloud.director.v1_5.VCloudDirectorApi;
+import org.jclouds.vcloud.director.v1_5.domain.Session;
 import org.jclouds.vcloud.director.v1_5.domain.SessionWithToken;
-import org.jclouds.vcloud.director.v1_5.login.SessionApi;
+import org.jclouds.vcloud.director.v1_5.filters.AddVCloudAuthorizationAndCookieToRequest;
+import org.jclouds.vcloud.director.v1_5.login.SessionTokenStore;
 import org.testng.annotations.Test;
 
+import com.google.common.base.Supplier;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.google.inject.util.Providers;
 
 /**
  * Tests behavior of {@code InvalidateSessionAndRetryOn401AndLogoutOnClose} handler
  */
 @Test(groups = "unit", testName = "InvalidateSessionAndRetryOn401AndLogoutOnCloseTest")
 public class InvalidateSessionAndRetryOn401AndLogoutOnCloseTest {
-   @SuppressWarnings("unchecked")
+
+   private static final Credentials CREDENTIALS = new Credentials("user@org", "password");
+
+   /**
+    * Hands out a new token per login, counting the logins.
+    */
+   private static class CountingLogin extends CacheLoader<Credentials, SessionWithToken> {
+      final AtomicInteger logins = new AtomicInteger();
+
+      @Override
+      public SessionWithToken load(Credentials input) {
+         int login = logins.incrementAndGet();
+         // make concurrent waiters pile up behind the login
+         Uninterruptibles.sleepUninterruptibly(10, TimeUnit.MILLISECONDS);
+         return SessionWithToken.builder().token("token-" + login)
+               .session(Session.builder().user("user").org("org").href(URI.create("https://vcd/api/session")).build())
+               .build();
+      }
+   }
+
+   /**
+    * A session cache, the authorization filter reading from it, and the handler under test; one per
+    * test method, as methods run in parallel.
+    */
+   private static class Fixture {
+      final CountingLogin login = new CountingLogin();
+      final LoadingCache<Credentials, SessionWithToken> cache = CacheBuilder.newBuilder().build(login);
+      final AddVCloudAuthorizationAndCookieToRequest authorization = new AddVCloudAuthorizationAndCookieToRequest(
+            new Supplier<String>() {
+               @Override
+               public String get() {
+                  return cache.getUnchecked(CREDENTIALS).getToken();
+               }
+            }, new RetryBudget(0.2, 10), new ConditionalGetCache(0));
+      final InvalidateSessionAndRetryOn401AndLogoutOnClose retry = new InvalidateSessionAndRetryOn401AndLogoutOnClose(
+            cache, Providers.of(createMock(VCloudDirectorApi.class)), VcloudDirectorClientErrorRetryHandlerTest.backoffPolicy(),
+            authorization, new SessionTokenStore(""));
+
+      HttpCommand sentCommand() {
+         HttpCommand command = new HttpCommand(HttpRequest.builder().method("GET")
+               .endpoint("https://vcd/api/vApp/vapp-1").build());
+         authorization.filter(command.getCurrentRequest());
+         return command;
+      }
+   }
+
+   private static HttpResponse response(int statusCode) {
+      return HttpResponse.builder().statusCode(statusCode).build();
+   }
+
    @Test
    public void test401ShouldInvalidateSessionAndRetry() {
-      HttpCommand command = createMock(HttpCommand.class);
-      SessionApi sessionApi = createMock(SessionApi.class);
-      LoadingCache<Credentials, SessionWithToken> cache = createMock(LoadingCache.class);
+      Fixture f = new Fixture();
+      HttpCommand command = f.sentCommand();
+      assertEquals(f.authorization.getTokenUsedBy(command.getCurrentRequest()), "token-1");
 
-      cache.invalidateAll();
-      expectLastCall();
-      expect(command.incrementFailureCount()).andReturn(1);
-      expect(command.isReplayable()).andReturn(true);
-      expect(command.getFailureCount()).andReturn(1).atLeastOnce();
+      assertTrue(f.retry.shouldRetryRequest(command, response(401)));
 
-      replay(cache, command);
+      assertTrue(f.cache.asMap().isEmpty());
+      assertEquals(f.cache.getUnchecked(CREDENTIALS).getToken(), "token-2");
+   }
 
-      HttpResponse response = HttpResponse.builder().statusCode(401).build();
+   @Test
+   public void test401InvalidatesOnlyTheTokenTheRequestUsed() {
+      Fixture f = new Fixture();
+      HttpCommand stale = f.sentCommand();
+      assertTrue(f.retry.shouldRetryRequest(f.sentCommand(), response(401)));
+      assertEquals(f.cache.getUnchecked(CREDENTIALS).getToken(), "token-2");
+
+      // the session this request was sent with was already replaced
+      assertTrue(f.retry.shouldRetryRequest(stale, response(401)));
+      assertEquals(f.cache.getUnchecked(CREDENTIALS).getToken(), "token-2");
+      assertEquals(f.login.logins.get(), 2);
+   }
 
-      InvalidateSessionAndRetryOn401AndLogoutOnClose retry = new InvalidateSessionAndRetryOn401AndLogoutOnClose(cache,
-               sessionApi);
+   @Test
+   public void testConcurrent401sShareOneLogin() throws Exception {
+      final Fixture f = new Fixture();
+      List<HttpCommand> commands = Lists.newArrayList();
+      for (int i = 0; i < 8; i++) {
+         commands.add(f.sentCommand());
+      }
+      ExecutorService executor = Executors.newFixedThreadPool(commands.size());
+      try {
+         List<Future<String>> retries = Lists.newArrayList();
+         for (final HttpCommand command : commands) {
+            retries.add(executor.submit(new Callable<String>() {
+               @Override
+               public String call() {
+                  f.retry.shouldRetryRequest(command, response(401));
+                  // as the executor does before resending
+                  f.authorization.filter(command.getCurrentRequest());
+                  return f.authorization.getTokenUsedBy(command.getCurrentRequest());
+               }
+            }));
+         }
+         for (Future<String> token : retries) {
+            assertEquals(token.get(), "token-2");
+         }
+      } finally {
+         executor.shutdownNow();
+      }
+      assertEquals(f.login.logins.get(), 2);
+   }
 
-      assertTrue(retry.shouldRetryRequest(command, response));
+   @Test
+   public void test401WithoutSessionShouldNotRetry() {
+      Fixture f = new Fixture();
+      HttpCommand command = new HttpCommand(HttpRequest.builder().method("POST").endpoint("https://vcd/api/sessions")
+            .build());
+      f.cache.getUnchecked(CREDENTIALS);
 
-      verify(cache, command);
+      assertFalse(f.retry.shouldRetryRequest(command, response(401)));
+
+      assertEquals(f.cache.getUnchecked(CREDENTIALS).getToken(), "token-1");
    }
 
-   @SuppressWarnings("unchecked")
    @Test
    public void test403ShouldNotInvalidateSessionOrRetry() {
+      Fixture f = new Fixture();
       HttpCommand command = createMock(HttpCommand.class);
-      SessionApi sessionApi = createMock(SessionApi.class);
-      LoadingCache<Credentials, SessionWithToken> cache = createMock(LoadingCache.class);
-
-      replay(cache, command);
-
-      HttpResponse response = HttpResponse.builder().statusCode(403).build();
-
-      InvalidateSessionAndRetryOn401AndLogoutOnClose retry = new InvalidateSessionAndRetryOn401AndLogoutOnClose(cache,
-               sessionApi);
+      replay(command);
 
-      assertFalse(retry.shouldRetryRequest(command, response));
+      assertFalse(f.retry.shouldRetryRequest(command, response(403)));
 
-      verify(cache, command);
+      verify(command);
+      assertEquals(f.login.logins.get(), 0);
    }
 
 }
@@ -0,0 +1,71 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.vcloud.director.v1_5.handlers;
+
+import static javax.ws.rs.core.Response.Status.BAD_REQUEST;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+
+import org.jclouds.http.HttpResponse;
+import org.jclouds.vcloud.director.v1_5.domain.Error;
+import org.jclouds.vcloud.director.v1_5.xml.VCloudDirectorJAXBParser;
+import org.testng.annotations.Test;
+
+/**
+ * Tests behavior of {@code VCloudDirectorErrorDecoder}
+ */
+@Test(groups = "unit", testName = "VCloudDirectorErrorDecoderTest")
+public class VCloudDirectorErrorDecoderTest {
+
+   private static final String EXPECTED_CONTENT_TYPE = "application/vnd.vmware.vcloud.error+xml;version=1.5";
+
+   private final VCloudDirectorErrorDecoder decoder = new VCloudDirectorErrorDecoder(new VCloudDirectorJAXBParser("false", false, 4));
+
+   HttpResponse response(String contentType) {
+      HttpResponse response = HttpResponse.builder().statusCode(BAD_REQUEST.getStatusCode())
+               .payload(getClass().getResourceAsStream("/error400-operationLimitsExceeded.xml")).build();
+      response.getPayload().getContentMetadata().setContentType(contentType);
+      return response;
+   }
+
+   public void testDecodesErrorPayload() {
+      Error error = decoder.decode(response(EXPECTED_CONTENT_TYPE));
+      assertEquals(error.getMajorErrorCode(), Integer.valueOf(400));
+      assertEquals(error.getMinorErrorCode(), "OPERATION_LIMITS_EXCEEDED");
+   }
+
+   public void testDecodesEachResponseOnce() {
+      HttpResponse response = response(EXPECTED_CONTENT_TYPE);
+      assertSame(decoder.decode(response), decoder.decode(response));
+   }
+
+   public void testIgnoresOtherContentTypes() {
+      assertNull(decoder.decode(response("text/xml")));
+   }
+
+   public void testNullWhenNoPayload() {
+      assertNull(decoder.decode(HttpResponse.builder().statusCode(BAD_REQUEST.getStatusCode()).build()));
+   }
+
+   public void testNullWhenPayloadIsNotAnError() {
+      HttpResponse response = HttpResponse.builder().statusCode(BAD_REQUEST.getStatusCode()).payload("foo bar").build();
+      response.getPayload().getContentMetadata().setContentType(EXPECTED_CONTENT_TYPE);
+      assertNull(decoder.decode(response));
+      assertNull(decoder.decode(response));
+   }
+}
@@ -30,8 +30,11 @@ import org.jclouds.http.HttpRequest;
 import org.jclouds.http.HttpResponse;
 import org.jclouds.rest.AuthorizationException;
 import org.jclouds.rest.ResourceNotFoundException;
+import org.jclouds.vcloud.director.v1_5.xml.VCloudDirectorJAXBParser;
+import org.jclouds.xml.XMLParser;
 import org.testng.annotations.Test;
 
+import com.google.inject.AbstractModule;
 import com.google.inject.Guice;
 
 @Test(groups = { "unit" })
@@ -57,7 +60,12 @@ public class VCloudDirectorErrorHandlerTest {
    private void assertCodeMakes(String method, URI uri, int statusCode, String message, String contentType,
          String content, Class<? extends Exception> expected) {
 
-      VCloudDirectorErrorHandler function = Guice.createInjector().getInstance(VCloudDirectorErrorHandler.class);
+      VCloudDirectorErrorHandler function = Guice.createInjector(new AbstractModule() {
+         @Override
+         protected void configure() {
+            bind(XMLParser.class).toInstance(new VCloudDirectorJAXBParser("false", false, 4));
+         }
+      }).getInstance(VCloudDirectorErrorHandler.class);
 
       HttpCommand command = createMock(HttpCommand.class);
       HttpRequest request = HttpRequest.builder().method(method).endpoint(uri).build();
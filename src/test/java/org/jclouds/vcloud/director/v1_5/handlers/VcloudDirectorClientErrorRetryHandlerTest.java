@@ -23,10 +23,12 @@ import static org.easymock.EasyMock.expect;
 import static org.easymock.EasyMock.replay;
 import static org.easymock.EasyMock.verify;
 import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
 
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.easymock.IAnswer;
+import org.jclouds.date.internal.SimpleDateFormatDateService;
 import org.jclouds.http.HttpCommand;
 import org.jclouds.http.HttpRequest;
 import org.jclouds.http.HttpResponse;
@@ -36,12 +38,19 @@ import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
 import com.google.common.collect.ImmutableSet;
+import com.google.common.net.HttpHeaders;
 
 /**
  * Tests behavior of {@code VcloudDirectorClientErrorRetryHandler}
  */
 @Test(groups = "unit", testName = "VcloudDirectorClientErrorRetryHandlerTest")
 public class VcloudDirectorClientErrorRetryHandlerTest {
+
+   static BackoffPolicy backoffPolicy() {
+      return new DecorrelatedJitterBackoffPolicy(5, 1, 10, "", new RetryBudget(0.2, 10),
+            new CircuitBreakers(0, 0), new SimpleDateFormatDateService());
+   }
+
    @Test
    public void testUnknown400DoesNotRetry() {
       VcloudDirectorUtils utils = createMock(VcloudDirectorUtils.class);
@@ -50,7 +59,7 @@ public class VcloudDirectorClientErrorRetryHandlerTest {
       replay(utils, command);
 
       VcloudDirectorClientErrorRetryHandler retry = new VcloudDirectorClientErrorRetryHandler(utils,
-            ImmutableSet.<String> of());
+            ImmutableSet.<String> of(), backoffPolicy(), createMock(InvalidateSessionAndRetryOn401AndLogoutOnClose.class));
 
       assertFalse(retry.shouldRetryRequest(command, HttpResponse.builder().statusCode(BAD_REQUEST.getStatusCode()).build()));
 
@@ -58,6 +67,25 @@ public class VcloudDirectorClientErrorRetryHandlerTest {
 
    }
 
+   @Test
+   public void test429BacksOffForRetryAfter() {
+      VcloudDirectorUtils utils = createMock(VcloudDirectorUtils.class);
+      replay(utils);
+
+      DecorrelatedJitterBackoffPolicyTest.RecordingPolicy policy = new DecorrelatedJitterBackoffPolicyTest.RecordingPolicy(
+            5, "", new RetryBudget(0.2, 10));
+      VcloudDirectorClientErrorRetryHandler retry = new VcloudDirectorClientErrorRetryHandler(utils,
+            ImmutableSet.<String> of(), policy, createMock(InvalidateSessionAndRetryOn401AndLogoutOnClose.class));
+
+      HttpCommand command = new HttpCommand(HttpRequest.builder().method(POST)
+            .endpoint("https://acme.com/api/vdc/dcd952e3-6f07-42dd-b142-fc94b0a55062/action/composeVApp").build());
+      HttpResponse response = HttpResponse.builder().statusCode(429).addHeader(HttpHeaders.RETRY_AFTER, "2").build();
+      assertTrue(retry.shouldRetryRequest(command, response));
+      assertTrue(policy.slept >= 2000, "slept " + policy.slept);
+
+      verify(utils);
+   }
+
    @DataProvider(name = "codes")
    public Object[][] createData() {
       return new Object[][] {
@@ -109,7 +137,8 @@ public class VcloudDirectorClientErrorRetryHandlerTest {
       replay(utils, command);
 
       VcloudDirectorClientErrorRetryHandler retry = new VcloudDirectorClientErrorRetryHandler(utils,
-            ImmutableSet.of("OPERATION_LIMITS_EXCEEDED"));
+            ImmutableSet.of("OPERATION_LIMITS_EXCEEDED"), backoffPolicy(),
+            createMock(InvalidateSessionAndRetryOn401AndLogoutOnClose.class));
 
       assert retry.shouldRetryRequest(command, response);
 
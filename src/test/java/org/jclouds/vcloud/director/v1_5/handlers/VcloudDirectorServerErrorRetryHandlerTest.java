@@ -0,0 +1,101 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.vcloud.director.v1_5.handlers;
+
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import org.jclouds.http.HttpCommand;
+import org.jclouds.http.HttpRequest;
+import org.jclouds.http.HttpResponse;
+import org.jclouds.io.Payloads;
+import org.jclouds.vcloud.director.v1_5.domain.VcloudDirectorError;
+import org.jclouds.vcloud.director.v1_5.handlers.DecorrelatedJitterBackoffPolicyTest.RecordingPolicy;
+import org.testng.annotations.Test;
+
+import com.google.common.net.HttpHeaders;
+
+/**
+ * Tests behavior of {@code VcloudDirectorServerErrorRetryHandler}
+ */
+@Test(groups = "unit", testName = "VcloudDirectorServerErrorRetryHandlerTest")
+public class VcloudDirectorServerErrorRetryHandlerTest {
+
+   private static HttpCommand command() {
+      return new HttpCommand(HttpRequest.builder().method("GET").endpoint("https://acme.com/api/vApp/vapp-1").build());
+   }
+
+   public void test503BacksOffForRetryAfter() {
+      VcloudDirectorUtils utils = createMock(VcloudDirectorUtils.class);
+      replay(utils);
+
+      RecordingPolicy policy = new RecordingPolicy(5, "", new RetryBudget(0.2, 10));
+      VcloudDirectorServerErrorRetryHandler retry = new VcloudDirectorServerErrorRetryHandler(utils, policy);
+
+      HttpResponse response = HttpResponse.builder().statusCode(503).addHeader(HttpHeaders.RETRY_AFTER, "2").build();
+      assertTrue(retry.shouldRetryRequest(command(), response));
+      assertTrue(policy.slept >= 2000, "slept " + policy.slept);
+
+      verify(utils);
+   }
+
+   public void test503WithRetryAfterBeyondMaxDelayDoesNotRetry() {
+      RecordingPolicy policy = new RecordingPolicy(5, "", new RetryBudget(0.2, 10));
+      VcloudDirectorServerErrorRetryHandler retry = new VcloudDirectorServerErrorRetryHandler(
+            createMock(VcloudDirectorUtils.class), policy);
+
+      HttpResponse response = HttpResponse.builder().statusCode(503).addHeader(HttpHeaders.RETRY_AFTER, "60").build();
+      assertFalse(retry.shouldRetryRequest(command(), response));
+      assertEquals(policy.slept, -1);
+   }
+
+   public void test500UsesTheMinorErrorCodeForItsRetryLimit() {
+      HttpCommand command = command();
+      HttpResponse response = HttpResponse.builder().statusCode(500)
+            .payload(Payloads.newStringPayload("<Error minorErrorCode=\"BUSY_ENTITY\"/>")).build();
+
+      VcloudDirectorError error = new VcloudDirectorError();
+      error.setMinorErrorCode("BUSY_ENTITY");
+      VcloudDirectorUtils utils = createMock(VcloudDirectorUtils.class);
+      expect(utils.parseVcloudDirectorErrorFromContent(command.getCurrentRequest(), response)).andReturn(error).times(2);
+      replay(utils);
+
+      RecordingPolicy policy = new RecordingPolicy(5, "BUSY_ENTITY=1", new RetryBudget(0.2, 10));
+      VcloudDirectorServerErrorRetryHandler retry = new VcloudDirectorServerErrorRetryHandler(utils, policy);
+
+      assertTrue(retry.shouldRetryRequest(command, response));
+      assertFalse(retry.shouldRetryRequest(command, response));
+
+      verify(utils);
+   }
+
+   public void test501DoesNotRetry() {
+      VcloudDirectorUtils utils = createMock(VcloudDirectorUtils.class);
+      BackoffPolicy policy = createMock(BackoffPolicy.class);
+      replay(utils, policy);
+
+      VcloudDirectorServerErrorRetryHandler retry = new VcloudDirectorServerErrorRetryHandler(utils, policy);
+      assertFalse(retry.shouldRetryRequest(command(), HttpResponse.builder().statusCode(501).build()));
+
+      verify(utils, policy);
+   }
+}
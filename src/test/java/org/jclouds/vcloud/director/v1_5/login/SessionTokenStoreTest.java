@@ -0,0 +1,92 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.vcloud.director.v1_5.login;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.io.File;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.jclouds.domain.Credentials;
+import org.jclouds.vcloud.director.v1_5.domain.Session;
+import org.jclouds.vcloud.director.v1_5.domain.SessionWithToken;
+import org.testng.annotations.Test;
+
+import com.google.common.io.MoreFiles;
+import com.google.common.io.RecursiveDeleteOption;
+
+/**
+ * Tests behavior of {@code SessionTokenStore}
+ */
+@Test(groups = "unit", testName = "SessionTokenStoreTest")
+public class SessionTokenStoreTest {
+
+   private static final URI ENDPOINT = URI.create("https://vcd.example.com/api/sessions");
+   private static final Credentials CREDENTIALS = new Credentials("user@org", "password");
+   private static final SessionWithToken SESSION = SessionWithToken.builder().token("secret-token")
+         .session(Session.builder().href(URI.create("https://vcd.example.com/api/session")).build()).build();
+
+   public void testStoredSessionIsReadBackAndEncrypted() throws Exception {
+      Path directory = Files.createTempDirectory("sessions");
+      try {
+         SessionTokenStore store = new SessionTokenStore(directory.toString());
+         assertNull(store.get(ENDPOINT, CREDENTIALS));
+
+         store.put(ENDPOINT, CREDENTIALS, SESSION);
+
+         SessionWithToken stored = new SessionTokenStore(directory.toString()).get(ENDPOINT, CREDENTIALS);
+         assertEquals(stored.getToken(), "secret-token");
+         assertEquals(stored.getSession().getHref(), SESSION.getSession().getHref());
+
+         File[] files = directory.toFile().listFiles();
+         assertEquals(files.length, 1);
+         assertFalse(new String(Files.readAllBytes(files[0].toPath()), StandardCharsets.ISO_8859_1).contains("secret-token"));
+
+         assertNull(store.get(ENDPOINT, new Credentials("other@org", "password")));
+         assertNull(store.get(URI.create("https://other.example.com/api/sessions"), CREDENTIALS));
+      } finally {
+         MoreFiles.deleteRecursively(directory, RecursiveDeleteOption.ALLOW_INSECURE);
+      }
+   }
+
+   public void testSessionStoredUnderAnotherPasswordIsDiscarded() throws Exception {
+      Path directory = Files.createTempDirectory("sessions");
+      try {
+         SessionTokenStore store = new SessionTokenStore(directory.toString());
+         store.put(ENDPOINT, CREDENTIALS, SESSION);
+
+         assertNull(store.get(ENDPOINT, new Credentials("user@org", "changed")));
+         assertEquals(directory.toFile().listFiles().length, 0);
+      } finally {
+         MoreFiles.deleteRecursively(directory, RecursiveDeleteOption.ALLOW_INSECURE);
+      }
+   }
+
+   public void testDisabledWithoutDirectory() {
+      SessionTokenStore store = new SessionTokenStore("");
+      assertFalse(store.isEnabled());
+      store.put(ENDPOINT, CREDENTIALS, SESSION);
+      assertNull(store.get(ENDPOINT, CREDENTIALS));
+      assertTrue(new SessionTokenStore("/tmp/sessions").isEnabled());
+   }
+}
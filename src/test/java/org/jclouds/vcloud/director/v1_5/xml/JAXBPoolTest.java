@@ -0,0 +1,67 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.vcloud.director.v1_5.xml;
+
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
+
+import org.jclouds.vcloud.director.v1_5.domain.Metadata;
+import org.testng.annotations.Test;
+
+/**
+ * Tests behavior of {@code JAXBPool}
+ */
+@Test(groups = "unit", testName = "JAXBPoolTest")
+public class JAXBPoolTest {
+
+   public void testReleasedInstancesAreReused() throws JAXBException {
+      JAXBPool pool = new JAXBPool(JAXBContext.newInstance(Metadata.class), false, 1);
+
+      Unmarshaller unmarshaller = pool.borrowUnmarshaller();
+      assertNotSame(pool.borrowUnmarshaller(), unmarshaller);
+      pool.release(unmarshaller);
+      assertSame(pool.borrowUnmarshaller(), unmarshaller);
+
+      Marshaller marshaller = pool.borrowMarshaller();
+      pool.release(marshaller);
+      assertSame(pool.borrowMarshaller(), marshaller);
+   }
+
+   public void testPoolKeepsNoMoreThanItsSize() throws JAXBException {
+      JAXBPool pool = new JAXBPool(JAXBContext.newInstance(Metadata.class), false, 1);
+      Unmarshaller first = pool.borrowUnmarshaller();
+      Unmarshaller second = pool.borrowUnmarshaller();
+      pool.release(first);
+      pool.release(second);
+
+      assertSame(pool.borrowUnmarshaller(), first);
+      assertNotSame(pool.borrowUnmarshaller(), second);
+   }
+
+   public void testEmptyPoolCreatesEveryTime() throws JAXBException {
+      JAXBPool pool = new JAXBPool(JAXBContext.newInstance(Metadata.class), false, 0);
+      Unmarshaller unmarshaller = pool.borrowUnmarshaller();
+      pool.release(unmarshaller);
+
+      assertNotSame(pool.borrowUnmarshaller(), unmarshaller);
+   }
+}
@@ -0,0 +1,143 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.vcloud.director.v1_5.xml;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.xml.bind.annotation.XmlRootElement;
+
+import org.jclouds.vcloud.director.v1_5.domain.Metadata;
+import org.jclouds.vcloud.director.v1_5.domain.References;
+import org.jclouds.vcloud.director.v1_5.domain.Task;
+import org.jclouds.vcloud.director.v1_5.domain.VApp;
+import org.jclouds.vcloud.director.v1_5.domain.Vm;
+import org.jclouds.vcloud.director.v1_5.domain.dmtf.Envelope;
+import org.jclouds.vcloud.director.v1_5.domain.network.NetworkConfiguration;
+import org.jclouds.vcloud.director.v1_5.domain.network.VAppNetworkConfiguration;
+import org.jclouds.vcloud.director.v1_5.domain.query.QueryResultRecords;
+import org.jclouds.xml.XMLParser;
+import org.jclouds.xml.internal.JAXBParser;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.google.common.io.Resources;
+import com.google.common.reflect.ClassPath;
+import com.google.common.reflect.ClassPath.ClassInfo;
+
+/**
+ * Tests behavior of {@code VCloudDirectorJAXBParser}
+ */
+@Test(groups = "unit", testName = "VCloudDirectorJAXBParserTest")
+public class VCloudDirectorJAXBParserTest {
+
+   private final XMLParser jclouds = new JAXBParser("false");
+
+   public void testJaxbIndexListsEveryDomainRootElement() throws Exception {
+      ClassLoader loader = VCloudDirectorJAXBParser.class.getClassLoader();
+      Set<Class<?>> rootElements = Sets.newHashSet();
+      for (ClassInfo info : ClassPath.from(loader).getTopLevelClassesRecursive("org.jclouds.vcloud.director.v1_5.domain")) {
+         Class<?> type = info.load();
+         if (type.isAnnotationPresent(XmlRootElement.class))
+            rootElements.add(type);
+      }
+      // cannot be unmarshalled, having no no-arg constructor
+      rootElements.remove(References.class);
+
+      Set<Class<?>> indexed = Sets.newHashSet();
+      for (String pkg : VCloudDirectorJAXBParser.DOMAIN_PACKAGES) {
+         String index = Resources.toString(Resources.getResource(pkg.replace('.', '/') + "/jaxb.index"), Charsets.UTF_8);
+         for (String name : index.split("\n")) {
+            indexed.add(Class.forName(pkg + "." + name.trim(), false, loader));
+         }
+      }
+      assertEquals(Sets.difference(rootElements, indexed), ImmutableSet.of(), "missing from jaxb.index");
+      assertEquals(Sets.difference(indexed, rootElements), ImmutableSet.of(), "not root elements");
+   }
+
+   @DataProvider(name = "fixtures")
+   public Object[][] fixtures() {
+      return new Object[][] {
+            { "/vapp/vApp.xml", VApp.class },
+            { "/vm/vm.xml", Vm.class },
+            { "/dmtf/envelope.xml", Envelope.class },
+            { "/query/allCatalogs.xml", QueryResultRecords.class },
+            { "/task/task.xml", Task.class } };
+   }
+
+   @Test(dataProvider = "fixtures")
+   public void testParsesFixturesAsJAXBParserDoes(String resource, Class<?> type) throws IOException {
+      String xml = Resources.toString(Resources.getResource(getClass(), resource), Charsets.UTF_8);
+      // not every domain type has a deep equals, so compare what they marshal back to
+      String expected = jclouds.toXML(jclouds.fromXML(xml, type));
+
+      assertEquals(jclouds.toXML(new VCloudDirectorJAXBParser("false", false, 0).fromXML(xml, type)), expected);
+      assertEquals(jclouds.toXML(new VCloudDirectorJAXBParser("false", true, 4).fromXML(xml, type)), expected);
+   }
+
+   public void testTypesSharingARootElementNameParseAsRequested() throws IOException {
+      String xml = "<NetworkConfiguration xmlns=\"http://www.vmware.com/vcloud/v1.5\"/>";
+      XMLParser parser = new VCloudDirectorJAXBParser("false", true, 4);
+
+      assertTrue(parser.fromXML(xml, NetworkConfiguration.class) instanceof NetworkConfiguration);
+      assertTrue(parser.fromXML(xml, VAppNetworkConfiguration.class) instanceof VAppNetworkConfiguration);
+   }
+
+   public void testMarshalsAsJAXBParserDoes() throws IOException {
+      Metadata metadata = Metadata.toMetadata(ImmutableMap.of("key", "value"));
+
+      assertEquals(new VCloudDirectorJAXBParser("false", true, 4).toXML(metadata), jclouds.toXML(metadata));
+   }
+
+   public void testPooledParserIsSafeUnderConcurrentCallers() throws Exception {
+      final String xml = Resources.toString(Resources.getResource(getClass(), "/vm/vm.xml"), Charsets.UTF_8);
+      final String expected = jclouds.toXML(jclouds.fromXML(xml, Vm.class));
+      for (boolean prewarm : new boolean[] { false, true }) {
+         final XMLParser parser = new VCloudDirectorJAXBParser("false", prewarm, 2);
+         ExecutorService executor = Executors.newFixedThreadPool(8);
+         try {
+            List<Future<String>> results = Lists.newArrayList();
+            for (int i = 0; i < 64; i++) {
+               results.add(executor.submit(new Callable<String>() {
+                  @Override
+                  public String call() throws IOException {
+                     return parser.toXML(parser.fromXML(xml, Vm.class));
+                  }
+               }));
+            }
+            for (Future<String> result : results) {
+               assertEquals(result.get(), expected);
+            }
+         } finally {
+            executor.shutdownNow();
+         }
+      }
+   }
+}
@@ -0,0 +1,120 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.vcloud.director.v1_5.xml;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.jclouds.vcloud.director.v1_5.domain.Task;
+import org.jclouds.vcloud.director.v1_5.domain.VApp;
+import org.jclouds.vcloud.director.v1_5.domain.Vm;
+import org.jclouds.vcloud.director.v1_5.domain.dmtf.ovf.SectionType;
+import org.jclouds.vcloud.director.v1_5.domain.section.GuestCustomizationSection;
+import org.jclouds.vcloud.director.v1_5.domain.section.NetworkConnectionSection;
+import org.jclouds.vcloud.director.v1_5.domain.section.OperatingSystemSection;
+import org.jclouds.vcloud.director.v1_5.domain.section.VirtualHardwareSection;
+import org.jclouds.vcloud.director.v1_5.functions.ParseVAppForNodes;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Function;
+import com.google.common.collect.FluentIterable;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
+import com.google.common.io.Resources;
+
+/**
+ * Tests behavior of {@code XMLProjection}
+ */
+@Test(groups = "unit", testName = "XMLProjectionTest")
+public class XMLProjectionTest {
+
+   private static InputStream resource(String name) throws IOException {
+      return Resources.getResource(XMLProjectionTest.class, name).openStream();
+   }
+
+   public void testVAppForNodesKeepsOnlyWhatNodesAreDescribedWith() throws IOException {
+      for (boolean prewarm : new boolean[] { false, true }) {
+         VCloudDirectorJAXBParser parser = new VCloudDirectorJAXBParser("false", prewarm, 4);
+         VApp full = parser.fromXML(Resources.toString(Resources.getResource(getClass(), "/vapp/vApp.xml"),
+               Charsets.UTF_8), VApp.class);
+         VApp projected = parser.fromXML(resource("/vapp/vApp.xml"), VApp.class, ParseVAppForNodes.PROJECTION);
+
+         assertEquals(projected.getHref(), full.getHref());
+         assertEquals(projected.getName(), full.getName());
+         assertEquals(projected.getStatus(), full.getStatus());
+         assertEquals(projected.getLinks(), full.getLinks());
+         assertNull(projected.getDescription());
+         assertTrue(projected.getSections().isEmpty());
+
+         Vm fullVm = Iterables.getOnlyElement(full.getChildren().getVms());
+         Vm vm = Iterables.getOnlyElement(projected.getChildren().getVms());
+         assertEquals(vm.getHref(), fullVm.getHref());
+         assertEquals(vm.getStatus(), fullVm.getStatus());
+         assertEquals(vm.getLinks(), fullVm.getLinks());
+         assertEquals(sectionTypes(vm.getSections()), ImmutableSet.of(VirtualHardwareSection.class,
+               OperatingSystemSection.class, NetworkConnectionSection.class, GuestCustomizationSection.class));
+         assertEquals(sectionOf(vm, VirtualHardwareSection.class).getItems().size(),
+               sectionOf(fullVm, VirtualHardwareSection.class).getItems().size());
+         assertEquals(sectionOf(vm, NetworkConnectionSection.class).getNetworkConnections(),
+               sectionOf(fullVm, NetworkConnectionSection.class).getNetworkConnections());
+         assertNull(vm.getVAppScopedLocalId());
+      }
+   }
+
+   public void testSkipsNestedElementsNotOnAPath() throws IOException {
+      String xml = "<Task xmlns=\"http://www.vmware.com/vcloud/v1.5\" status=\"running\" name=\"task\">"
+            + "<Link rel=\"task:cancel\" href=\"https://vcd/api/task/1/action/cancel\"/>"
+            + "<Owner type=\"application/vnd.vmware.vcloud.vApp+xml\" name=\"vapp\" href=\"https://vcd/api/vApp/1\">"
+            + "<Link rel=\"up\" href=\"https://vcd/api/vdc/1\"/></Owner>"
+            + "<Error minorErrorCode=\"BAD_REQUEST\" message=\"bad\" majorErrorCode=\"400\"/>"
+            + "</Task>";
+      VCloudDirectorJAXBParser parser = new VCloudDirectorJAXBParser("false", false, 0);
+
+      Task task = parser.fromXML(new ByteArrayInputStream(xml.getBytes(Charsets.UTF_8)), Task.class,
+            XMLProjection.keeping("Owner"));
+
+      assertEquals(task.getStatus(), Task.Status.RUNNING);
+      assertTrue(task.getLinks().isEmpty());
+      assertNull(task.getError());
+      assertEquals(task.getOwner().getName(), "vapp");
+   }
+
+   @Test(expectedExceptions = IllegalArgumentException.class)
+   public void testRejectsEmptyPathElements() {
+      XMLProjection.keeping("Children//Vm");
+   }
+
+   private static <S extends SectionType> S sectionOf(Vm vm, Class<S> type) {
+      return Iterables.getOnlyElement(Iterables.filter(vm.getSections(), type));
+   }
+
+   private static ImmutableSet<Class<?>> sectionTypes(Iterable<SectionType> sections) {
+      return FluentIterable.from(sections).transform(new Function<SectionType, Class<?>>() {
+         @Override
+         public Class<?> apply(SectionType input) {
+            return input.getClass();
+         }
+      }).toSet();
+   }
+}